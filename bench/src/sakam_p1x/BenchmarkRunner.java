@@ -0,0 +1,184 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The BenchmarkRunner class is a small, dependency-free harness in the
+ * spirit of JMH. Each benchmark gets timed warmup iterations followed by
+ * timed measurement iterations. The average time per operation and the bytes
+ * allocated per operation (like JMH's gc profiler) are recorded. Results are
+ * written as JSON laid out like JMH's own output, so the same tooling can
+ * compare runs between releases.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class BenchmarkRunner {
+    final private static int WARMUP_ITERATIONS = 5;
+    final private static int MEASURE_ITERATIONS = 5;
+    final private static long ITERATION_NANOS = 200_000_000L;
+
+    /*
+     * results are folded into this field so the JIT can't drop the work
+     * being measured (a poor man's JMH Blackhole)
+     */
+    private static volatile long sink;
+
+    private final List<String> results = new ArrayList<>();
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)
+                    ManagementFactory.getThreadMXBean();
+
+    /**
+     * The Operation interface is the code being measured. It returns a value
+     * so the harness can consume it.
+     */
+    public interface Operation {
+        /**
+         * Runs the measured code once.
+         *
+         * @return Any value derived from the work done.
+         */
+        long invoke();
+    }
+
+    /**
+     * Measures an operation and reports average time per operation.
+     *
+     * @param name Benchmark name.
+     * @param boardLen Board size the benchmark ran at.
+     * @param opsPerInvocation Operations done by one invocation (e.g. moves
+     *                         per filled board), used to normalize scores.
+     * @param operation Code to measure.
+     */
+    public void averageTime(String name, int boardLen, int opsPerInvocation,
+                            Operation operation) {
+        measure(name, boardLen, opsPerInvocation, operation, false);
+    }
+
+    /**
+     * Measures an operation and reports operations per second.
+     *
+     * @param name Benchmark name.
+     * @param boardLen Board size the benchmark ran at.
+     * @param operation Code to measure.
+     */
+    public void throughput(String name, int boardLen, Operation operation) {
+        measure(name, boardLen, 1, operation, true);
+    }
+
+    /**
+     * Runs the warmup and measurement iterations, prints a summary line and
+     * keeps the JSON result.
+     *
+     * @param name Benchmark name.
+     * @param boardLen Board size the benchmark ran at.
+     * @param opsPerInvocation Operations done by one invocation.
+     * @param operation Code to measure.
+     * @param isThroughput True to score in ops/s, false in ns/op.
+     */
+    private void measure(String name, int boardLen, int opsPerInvocation,
+                         Operation operation, boolean isThroughput) {
+        double[] scores = new double[MEASURE_ITERATIONS];
+        double allocatedBytes = 0;
+
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            runIteration(operation);
+        }
+
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long threadId = Thread.currentThread().getId();
+            long bytesBefore = threadBean.getThreadAllocatedBytes(threadId);
+            long[] timing = runIteration(operation);
+            long bytes = threadBean.getThreadAllocatedBytes(threadId) -
+                    bytesBefore;
+
+            double ops = (double) timing[1] * opsPerInvocation;
+            scores[i] = isThroughput ? ops * 1e9 / timing[0] : timing[0] / ops;
+            allocatedBytes += bytes / ops;
+        }
+
+        double mean = 0;
+        for (double score : scores) {
+            mean += score;
+        }
+        mean /= MEASURE_ITERATIONS;
+
+        double variance = 0;
+        for (double score : scores) {
+            variance += (score - mean) * (score - mean);
+        }
+        double error = Math.sqrt(variance / (MEASURE_ITERATIONS - 1));
+        String unit = isThroughput ? "ops/s" : "ns/op";
+        allocatedBytes /= MEASURE_ITERATIONS;
+
+        System.out.printf("%-40s %3d %14.3f +- %10.3f %s %10.1f B/op%n",
+                name, boardLen, mean, error, unit, allocatedBytes);
+
+        StringBuilder raw = new StringBuilder();
+        for (double score : scores) {
+            raw.append(raw.length() == 0 ? "" : ", ").append(score);
+        }
+
+        results.add("  {\n" +
+                "    \"benchmark\": \"sakam_p1x." + name + "\",\n" +
+                "    \"mode\": \"" + (isThroughput ? "thrpt" : "avgt") +
+                "\",\n" +
+                "    \"params\": {\"boardSize\": \"" + boardLen + "\"},\n" +
+                "    \"warmupIterations\": " + WARMUP_ITERATIONS + ",\n" +
+                "    \"measurementIterations\": " + MEASURE_ITERATIONS + ",\n" +
+                "    \"primaryMetric\": {\"score\": " + mean +
+                ", \"scoreError\": " + error +
+                ", \"scoreUnit\": \"" + unit + "\", \"rawData\": [[" + raw +
+                "]]},\n" +
+                "    \"secondaryMetrics\": {\"gc.alloc.rate.norm\": " +
+                "{\"score\": " + allocatedBytes +
+                ", \"scoreUnit\": \"B/op\"}}\n" +
+                "  }");
+    }
+
+    /**
+     * Invokes an operation repeatedly for one iteration's worth of time.
+     *
+     * @param operation Code to measure.
+     * @return Elapsed nanoseconds and number of invocations.
+     */
+    private static long[] runIteration(Operation operation) {
+        long invocations = 0;
+        long result = 0;
+        long start = System.nanoTime();
+        long elapsed;
+
+        // check the clock every 64 calls so timing overhead stays small
+        do {
+            for (int i = 0; i < 64; i++) {
+                result += operation.invoke();
+            }
+            invocations += 64;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ITERATION_NANOS);
+
+        sink = result;
+        return new long[]{elapsed, invocations};
+    }
+
+    /**
+     * Writes all results collected so far to a JSON file.
+     *
+     * @param output Path of the JSON file to write.
+     * @throws IOException If the file can't be written.
+     */
+    public void writeJson(Path output) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(output,
+                StandardCharsets.UTF_8)) {
+
+            writer.write("[\n" + String.join(",\n", results) + "\n]\n");
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The HotPathBenchmark class measures the TTT hot paths at every board size
+ * the game allows (odd sizes 3-25): placing pieces, checking for a winner
+ * after each kind of winning line, resetting the board, drawing the board,
+ * and whole random games. Placing pieces and random games are also run
+ * under k-in-a-row rules (".kInARow", k = 5, or board length - 1 on smaller
+ * boards), and placing pieces once more with every move logged to a
+ * GameJournal (".journal"). Results go to a JSON file so runs can be
+ * compared across releases.
+ * Usage: HotPathBenchmark [output.json] [board sizes...]
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class HotPathBenchmark {
+    final private static String DEFAULT_OUTPUT = "bench-results.json";
+    final private static int MIN_SIZE = 3;
+    final private static int MAX_SIZE = 25;
+    final private static int GOMOKU_WIN_LENGTH = 5;
+
+    /**
+     * Runs every benchmark for the requested board sizes and writes the
+     * results as JSON.
+     *
+     * @param args Output file, then board sizes (default all odd 3-25).
+     * @throws IOException If the results file can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : DEFAULT_OUTPUT);
+        BenchmarkRunner runner = new BenchmarkRunner();
+
+        if (args.length > 1) {
+            for (int i = 1; i < args.length; i++) {
+                runAll(runner, Integer.parseInt(args[i]));
+            }
+        } else {
+            for (int boardLen = MIN_SIZE; boardLen <= MAX_SIZE; boardLen += 2) {
+                runAll(runner, boardLen);
+            }
+        }
+
+        runner.writeJson(output);
+        System.out.println("Results written to " + output);
+    }
+
+    /**
+     * Runs every benchmark for one board size.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     * @throws IOException If the journal's temporary folder can't be set
+     *                     up or cleaned up.
+     */
+    private static void runAll(BenchmarkRunner runner, int boardLen)
+            throws IOException {
+        addPieceToBoard(runner, boardLen);
+        winnerExists(runner, boardLen);
+        resetBoard(runner, boardLen);
+        render(runner, boardLen);
+        randomGame(runner, boardLen);
+        lineScan(runner, boardLen);
+    }
+
+    /**
+     * Gets the win length the k-in-a-row benchmarks use, always less than
+     * the board length so they take the k-in-a-row path.
+     *
+     * @param boardLen Board size to benchmark.
+     * @return 5, or board length - 1 on smaller boards.
+     */
+    private static int kInARow(int boardLen) {
+        return Math.min(GOMOKU_WIN_LENGTH, boardLen - 1);
+    }
+
+    /**
+     * Measures placing a piece, scored per move. Each invocation fills a
+     * freshly reset board, so one reset is spread over every move. The
+     * journaled run logs to a temporary folder, deleted afterwards; its
+     * fsyncs happen on the journal's own thread, so the time per move is
+     * what a game waits for.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     * @throws IOException If the journal's temporary folder can't be set
+     *                     up or cleaned up.
+     */
+    private static void addPieceToBoard(BenchmarkRunner runner, int boardLen)
+            throws IOException {
+        TicTacToeX game = new TicTacToeX();
+        String[] names = {"addPieceToBoard", "addPieceToBoard.kInARow"};
+        int[] winLengths = {boardLen, kInARow(boardLen)};
+
+        for (int i = 0; i < names.length; i++) {
+            int winLen = winLengths[i];
+
+            runner.averageTime(names[i], boardLen, boardLen * boardLen,
+                    () -> {
+                        game.resetBoard(boardLen, winLen);
+                        for (int cell = 0; cell < boardLen * boardLen;
+                             cell++) {
+                            game.addPieceToBoard(1 + (cell & 1),
+                                    cell / boardLen, cell % boardLen);
+                        }
+                        return game.winnerExists() ? 1 : 0;
+                    });
+        }
+
+        Path journalDir = Files.createTempDirectory("ttt-journal");
+        try (GameJournal journal = new GameJournal(journalDir)) {
+            game.setJournal(journal, 0);
+            runner.averageTime("addPieceToBoard.journal", boardLen,
+                    boardLen * boardLen, () -> {
+                        game.resetBoard(boardLen);
+                        for (int cell = 0; cell < boardLen * boardLen;
+                             cell++) {
+                            game.addPieceToBoard(1 + (cell & 1),
+                                    cell / boardLen, cell % boardLen);
+                        }
+                        return game.winnerExists() ? 1 : 0;
+                    });
+            game.setJournal(null, 0);
+        } finally {
+            try (DirectoryStream<Path> files =
+                         Files.newDirectoryStream(journalDir)) {
+                for (Path file : files) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(journalDir);
+        }
+    }
+
+    /**
+     * Measures the winner check right after each kind of winning line was
+     * completed (row, column, diagonal, reverse diagonal), plus a board
+     * with no winner.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     */
+    private static void winnerExists(BenchmarkRunner runner, int boardLen) {
+        int[] xCells = new int[boardLen];
+        int[] oCells = new int[boardLen - 1];
+        String[] variants = {"row", "column", "diagonal", "reverseDiagonal"};
+
+        for (int variant = 0; variant < variants.length; variant++) {
+            /*
+             * X fills the line, moving first so its last piece wins; O puts
+             * its pieces next to X's, and with only board length - 1 pieces
+             * O can't complete any line of its own
+             */
+            for (int i = 0; i < boardLen; i++) {
+                int row, col;
+                switch (variant) {
+                    case 0:
+                        row = 0;
+                        col = i;
+                        break;
+                    case 1:
+                        row = i;
+                        col = 0;
+                        break;
+                    case 2:
+                        row = i;
+                        col = i;
+                        break;
+                    default:
+                        row = i;
+                        col = boardLen - 1 - i;
+                }
+                xCells[i] = row * boardLen + col;
+
+                if (i < boardLen - 1) {
+                    oCells[i] = variant == 0 ? boardLen + col :
+                            row * boardLen + (col + 1) % boardLen;
+                }
+            }
+
+            TicTacToeX game = new TicTacToeX();
+            game.resetBoard(boardLen);
+            game.playGame(new ScriptedPlayer(xCells),
+                    new ScriptedPlayer(oCells));
+
+            runner.averageTime("winnerExists." + variants[variant], boardLen,
+                    1, () -> game.winnerExists() ? 1 : 0);
+        }
+
+        TicTacToeX noWinner = new TicTacToeX();
+        noWinner.resetBoard(boardLen);
+        noWinner.addPieceToBoard(1, 0, 0);
+        runner.averageTime("winnerExists.none", boardLen, 1,
+                () -> noWinner.winnerExists() ? 1 : 0);
+    }
+
+    /**
+     * Measures resetting a board with each storage type. Resetting to the
+     * same size clears in place; the size change variant alternates
+     * between two sizes, so every reset swaps boards through the pool.
+     * All of them should report 0 B/op in steady state.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     */
+    private static void resetBoard(BenchmarkRunner runner, int boardLen) {
+        TicTacToeX game = new TicTacToeX();
+
+        runner.averageTime("resetBoard.int", boardLen, 1, () -> {
+            game.resetBoard(boardLen, false);
+            return 1;
+        });
+        runner.averageTime("resetBoard.bitBoard", boardLen, 1, () -> {
+            game.resetBoard(boardLen, true);
+            return 1;
+        });
+        int otherLen = boardLen < MAX_SIZE ? boardLen + 2 : boardLen - 2;
+        runner.averageTime("resetBoard.sizeChange", boardLen, 2, () -> {
+            game.resetBoard(otherLen, false);
+            game.resetBoard(boardLen, false);
+            return 1;
+        });
+    }
+
+    /**
+     * Measures drawing a half-full board with the buffered renderer (full
+     * frame and diff of one changed cell) against the old printf-per-cell
+     * drawing. Output goes to a stream that discards it, so only the
+     * formatting and allocation are measured. In steady state the
+     * renderer should report 0 B/op.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     */
+    private static void render(BenchmarkRunner runner, int boardLen) {
+        OutputStream discard = OutputStream.nullOutputStream();
+        PrintStream printDiscard = new PrintStream(discard);
+        GameBoard board = new IntGameBoard(boardLen);
+        GameBoard other = new IntGameBoard(boardLen);
+
+        for (int cell = 0; cell < boardLen * boardLen / 2; cell++) {
+            board.placePiece(1 + (cell & 1), cell / boardLen, cell % boardLen);
+            other.placePiece(1 + (cell & 1), cell / boardLen, cell % boardLen);
+        }
+        other.placePiece(1, boardLen - 1, boardLen - 1);
+
+        BoardRenderer renderer = new BoardRenderer(discard);
+        runner.averageTime("render.frame", boardLen, 1, () -> {
+            renderer.render(board);
+            return 1;
+        });
+
+        // alternate between boards one cell apart
+        BoardRenderer diffRenderer = new BoardRenderer(discard);
+        GameBoard[] boards = {board, other};
+        int[] flip = new int[1];
+        runner.averageTime("render.diff", boardLen, 1, () -> {
+            diffRenderer.renderDiff(boards[flip[0]++ & 1]);
+            return 1;
+        });
+
+        runner.averageTime("render.printf", boardLen, 1, () -> {
+            printfRender(printDiscard, board);
+            return 1;
+        });
+    }
+
+    /**
+     * Draws a board the way displayGameBoard used to, with a printf per
+     * cell, as the baseline for the renderer.
+     *
+     * @param out Stream to draw to.
+     * @param board Board to draw.
+     */
+    private static void printfRender(PrintStream out, BoardView board) {
+        String[] pieces = {" ", "X", "O"};
+        int boardLength = board.getLength();
+
+        out.println();
+        out.print(" ");
+        for (int col = 0; col < boardLength; col++) {
+            out.printf("%3d", col);
+        }
+        out.println();
+
+        for (int row = 0; row < boardLength; row++) {
+            out.printf("%2d", row);
+            for (int col = 0; col < boardLength; col++) {
+                out.printf("%2s|", pieces[board.getPiece(row, col)]);
+            }
+            out.println();
+            out.print("  ");
+            for (int col = 0; col < boardLength; col++) {
+                out.print("---");
+            }
+            out.println();
+        }
+    }
+
+    /**
+     * Measures whole random-vs-random games, end to end, also under
+     * k-in-a-row rules and with GameMetrics instrumentation on.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     */
+    private static void randomGame(BenchmarkRunner runner, int boardLen) {
+        TicTacToeX game = new TicTacToeX();
+        Player random = new RandomPlayer();
+
+        runner.throughput("randomGame", boardLen, () -> {
+            game.resetBoard(boardLen);
+            return game.playGame(random, random);
+        });
+        runner.throughput("randomGame.kInARow", boardLen, () -> {
+            game.resetBoard(boardLen, kInARow(boardLen));
+            return game.playGame(random, random);
+        });
+
+        boolean metricsWereEnabled = GameMetrics.isEnabled();
+        GameMetrics.setEnabled(true);
+        runner.throughput("randomGame.metrics", boardLen, () -> {
+            game.resetBoard(boardLen);
+            return game.playGame(random, random);
+        });
+        GameMetrics.setEnabled(metricsWereEnabled);
+    }
+
+    /**
+     * Measures a whole-board line check with each LineScanner backend, on
+     * a half-full board with no two pieces in a row, so every direction is
+     * scanned. The vector backend only runs when the JVM has it (see
+     * LineScanner), e.g. with the vector classes on the class path and
+     * --add-modules jdk.incubator.vector.
+     *
+     * @param runner Harness collecting the results.
+     * @param boardLen Board size to benchmark.
+     */
+    private static void lineScan(BenchmarkRunner runner, int boardLen) {
+        int[] cells = new int[boardLen * boardLen];
+
+        // X and O alternate along rows, with gaps along columns/diagonals
+        for (int row = 0; row < boardLen; row++) {
+            for (int col = 0; col < boardLen; col++) {
+                int phase = (row + 2 * col) % 4;
+                cells[row * boardLen + col] = phase == 0 ? 1 :
+                        phase == 2 ? 2 : 0;
+            }
+        }
+
+        LineScanner[] scanners = LineScanner.isVectorAvailable() ?
+                new LineScanner[]{new ScalarLineScanner(),
+                        LineScanner.create()} :
+                new LineScanner[]{new ScalarLineScanner()};
+        String[] names = {"lineScan.scalar", "lineScan.vector"};
+
+        for (int i = 0; i < scanners.length; i++) {
+            LineScanner scanner = scanners[i];
+            int winLen = kInARow(boardLen);
+
+            runner.averageTime(names[i], boardLen, 1,
+                    () -> scanner.findLine(cells, boardLen, boardLen));
+            runner.averageTime(names[i] + ".kInARow", boardLen, 1,
+                    () -> scanner.findLine(cells, boardLen, winLen));
+        }
+    }
+
+    /**
+     * The ScriptedPlayer class plays a fixed list of cells in order, to set
+     * up known positions.
+     */
+    private static class ScriptedPlayer implements Player {
+        private final int[] cells;
+        private int nextIdx;
+
+        /**
+         * The constructor stores the cells to play.
+         *
+         * @param cells Cell indexes to play, in order.
+         */
+        ScriptedPlayer(int[] cells) {
+            this.cells = cells.clone();
+        }
+
+        @Override
+        public int chooseMove(BoardView board, int player) {
+            return cells[nextIdx++];
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package sakam_p1x;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The StartupProbe class measures how quickly the console game gets going.
+ * It starts the game in fresh JVMs, answers its prompts (a 3x3 game against
+ * the computer, with X taking the center) and times two points from launch:
+ * the first prompt being shown, and the computer's first move being
+ * announced. Each set of JVM options is run several times and the medians
+ * are reported, so runs with and without a class-data sharing archive (see
+ * the startup folder) can be compared.
+ *
+ * Usage: StartupProbe [runs] ["jvm options"...]. The game is always run
+ * with no extra options first; each further argument is one more set of
+ * space-separated options (with absolute paths, since the game runs in a
+ * temporary folder so no tablebase file is picked up). The game's class
+ * path is -Dstartup.classpath if set, or else this JVM's; a sharing
+ * archive only works with the jar it was built from.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class StartupProbe {
+    final private static int DEFAULT_RUNS = 10;
+    final private static String FIRST_PROMPT =
+            "Do you want to play against the computer? (y/n) ";
+    final private static String FIRST_MOVE = "O (computer) chose row";
+    final private static String ANSWERS = "y\n3\n1\n1\n";
+    final private static String CLASSPATH_PROPERTY = "startup.classpath";
+
+    /**
+     * Runs the probe.
+     *
+     * @param args Number of runs, then JVM option sets to compare.
+     * @throws IOException If a game can't be started.
+     * @throws InterruptedException If interrupted while waiting for a game.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_RUNS;
+        List<String> optionSets = new ArrayList<>();
+
+        optionSets.add("");
+        optionSets.addAll(Arrays.asList(args).subList(
+                Math.min(1, args.length), args.length));
+
+        Path workDir = Files.createTempDirectory("p1x-startup");
+        try {
+            for (String options : optionSets) {
+                probe(options, runs, workDir.toFile());
+            }
+        } finally {
+            Files.deleteIfExists(workDir);
+        }
+    }
+
+    /**
+     * Times several launches with one set of JVM options and prints the
+     * medians.
+     *
+     * @param options Space-separated JVM options, or "" for none.
+     * @param runs Number of launches.
+     * @param workDir Folder to run the game in.
+     * @throws IOException If a game can't be started.
+     * @throws InterruptedException If interrupted while waiting for a game.
+     */
+    private static void probe(String options, int runs, File workDir)
+            throws IOException, InterruptedException {
+        long[] promptNanos = new long[runs];
+        long[] moveNanos = new long[runs];
+
+        for (int run = 0; run < runs; run++) {
+            long[] times = launch(options, workDir);
+            promptNanos[run] = times[0];
+            moveNanos[run] = times[1];
+        }
+
+        System.out.println((options.isEmpty() ? "(default)" : options) +
+                ": first prompt " + medianMillis(promptNanos) +
+                " ms, first move " + medianMillis(moveNanos) +
+                " ms (median of " + runs + ")");
+    }
+
+    /**
+     * Launches the game once and times it.
+     *
+     * @param options Space-separated JVM options, or "" for none.
+     * @param workDir Folder to run the game in.
+     * @return Nanoseconds from launch to the first prompt and to the
+     *         computer's first move.
+     * @throws IOException If the game can't be started or exits early.
+     * @throws InterruptedException If interrupted while waiting for it.
+     */
+    private static long[] launch(String options, File workDir)
+            throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java")
+                .toString());
+        for (String option : options.split(" ")) {
+            if (!option.isEmpty()) {
+                command.add(option);
+            }
+        }
+        command.add("-cp");
+        command.add(gameClassPath());
+        command.add("sakam_p1x.P1x");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .directory(workDir)
+                .redirectErrorStream(true);
+
+        long startNanos = System.nanoTime();
+        Process game = builder.start();
+        try {
+            // answers wait in the pipe until the game reads them
+            try (OutputStream in = game.getOutputStream()) {
+                in.write(ANSWERS.getBytes(StandardCharsets.UTF_8));
+            }
+
+            InputStream out = game.getInputStream();
+            long promptNanos = waitFor(out, FIRST_PROMPT) - startNanos;
+            long moveNanos = waitFor(out, FIRST_MOVE) - startNanos;
+            return new long[] {promptNanos, moveNanos};
+        } finally {
+            game.destroy();
+            game.waitFor();
+        }
+    }
+
+    /**
+     * Gets the game's class path, with each entry made absolute.
+     *
+     * @return Class path to run the game from.
+     */
+    private static String gameClassPath() {
+        String classPath = System.getProperty(CLASSPATH_PROPERTY,
+                System.getProperty("java.class.path"));
+        StringBuilder absolute = new StringBuilder();
+
+        for (String entry : classPath.split(File.pathSeparator)) {
+            if (absolute.length() > 0) {
+                absolute.append(File.pathSeparator);
+            }
+            absolute.append(new File(entry).getAbsolutePath());
+        }
+        return absolute.toString();
+    }
+
+    /**
+     * Reads the game's output until some text has been printed.
+     *
+     * @param out The game's output.
+     * @param text Text to wait for.
+     * @return System.nanoTime() when the text was read.
+     * @throws IOException If the output ends before the text appears.
+     */
+    private static long waitFor(InputStream out, String text)
+            throws IOException {
+        byte[] expected = text.getBytes(StandardCharsets.UTF_8);
+        int matched = 0;
+
+        while (matched < expected.length) {
+            int b = out.read();
+            if (b < 0) {
+                throw new IOException("Game exited before printing \"" +
+                        text + "\"");
+            }
+            if (b == expected[matched]) {
+                matched++;
+            } else {
+                // none of the texts repeat their first byte, so restart
+                matched = b == expected[0] ? 1 : 0;
+            }
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Finds the median of some timings.
+     *
+     * @param nanos Timings in nanoseconds (sorted in place).
+     * @return The median in milliseconds, to a tenth.
+     */
+    private static double medianMillis(long[] nanos) {
+        Arrays.sort(nanos);
+        int mid = nanos.length / 2;
+        long median = nanos.length % 2 == 1 ? nanos[mid]
+                : (nanos[mid - 1] + nanos[mid]) / 2;
+        return Math.round(median / 100_000.0) / 10.0;
+    }
+}
@@ -0,0 +1,83 @@
+package sakam_p1x;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The AddPieceBenchmark class measures placing pieces with JMH. Each
+ * operation resets the board and fills every cell with addPieceToBoard,
+ * so the score divided by board length squared is the time per move
+ * (HotPathBenchmark reports it per move directly). The k-in-a-row variant
+ * plays 5 in a row, or board length - 1 on smaller boards.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddPieceBenchmark {
+    final private static int GOMOKU_WIN_LENGTH = 5;
+
+    @Param({"3", "5", "7", "9", "11", "13", "15", "17", "19", "21", "23",
+            "25"})
+    public int boardLength;
+
+    private final TicTacToeX game = new TicTacToeX();
+    private int kInARow;
+
+    /**
+     * Picks the k-in-a-row win length for the board size.
+     */
+    @Setup
+    public void setUp() {
+        kInARow = Math.min(GOMOKU_WIN_LENGTH, boardLength - 1);
+    }
+
+    /**
+     * Fills a board under full-line rules.
+     *
+     * @return Whether the last piece found a winner, so the work is used.
+     */
+    @Benchmark
+    public boolean addPieceToBoard() {
+        return fill(boardLength);
+    }
+
+    /**
+     * Fills a board under k-in-a-row rules.
+     *
+     * @return Whether the last piece found a winner, so the work is used.
+     */
+    @Benchmark
+    public boolean addPieceToBoardKInARow() {
+        return fill(kInARow);
+    }
+
+    /**
+     * Resets the board and places alternating pieces on every cell.
+     *
+     * @param winLen Number of pieces in a row that wins.
+     * @return Whether the board has a winner.
+     */
+    private boolean fill(int winLen) {
+        game.resetBoard(boardLength, winLen);
+        for (int cell = 0; cell < boardLength * boardLength; cell++) {
+            game.addPieceToBoard(1 + (cell & 1), cell / boardLength,
+                    cell % boardLength);
+        }
+        return game.winnerExists();
+    }
+}
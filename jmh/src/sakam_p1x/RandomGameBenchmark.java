@@ -0,0 +1,45 @@
+package sakam_p1x;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The RandomGameBenchmark class measures whole random-vs-random games with
+ * JMH, end to end, in games per second.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomGameBenchmark {
+    @Param({"3", "5", "7", "9", "11", "13", "15", "17", "19", "21", "23",
+            "25"})
+    public int boardLength;
+
+    private final TicTacToeX game = new TicTacToeX();
+    private final Player random = new RandomPlayer();
+
+    /**
+     * Plays one game on a freshly reset board.
+     *
+     * @return The game's result, so the work is used.
+     */
+    @Benchmark
+    public int randomGame() {
+        game.resetBoard(boardLength);
+        return game.playGame(random, random);
+    }
+}
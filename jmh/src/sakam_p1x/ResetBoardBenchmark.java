@@ -0,0 +1,83 @@
+package sakam_p1x;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The ResetBoardBenchmark class measures resetting a board with JMH, with
+ * each storage type. Resetting to the same size clears in place; the size
+ * change variant alternates between two sizes, so every reset swaps
+ * boards through the pool. Run with the gc profiler (the jmh task adds
+ * it), gc.alloc.rate.norm should be about 0 B/op for all of them.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResetBoardBenchmark {
+    final private static int MAX_SIZE = 25;
+
+    @Param({"3", "5", "7", "9", "11", "13", "15", "17", "19", "21", "23",
+            "25"})
+    public int boardLength;
+
+    private final TicTacToeX game = new TicTacToeX();
+    private int otherLength;
+
+    /**
+     * Picks the second size for the size change variant.
+     */
+    @Setup
+    public void setUp() {
+        otherLength = boardLength < MAX_SIZE ? boardLength + 2 :
+                boardLength - 2;
+    }
+
+    /**
+     * Resets a plain int board to the same size.
+     *
+     * @return The game, so the work is used.
+     */
+    @Benchmark
+    public TicTacToeX intBoard() {
+        game.resetBoard(boardLength, false);
+        return game;
+    }
+
+    /**
+     * Resets a bitboard to the same size.
+     *
+     * @return The game, so the work is used.
+     */
+    @Benchmark
+    public TicTacToeX bitBoard() {
+        game.resetBoard(boardLength, true);
+        return game;
+    }
+
+    /**
+     * Resets to another size and back (two resets per operation).
+     *
+     * @return The game, so the work is used.
+     */
+    @Benchmark
+    public TicTacToeX sizeChange() {
+        game.resetBoard(otherLength, false);
+        game.resetBoard(boardLength, false);
+        return game;
+    }
+}
@@ -0,0 +1,157 @@
+package sakam_p1x;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The WinnerExistsBenchmark class measures the winner check with JMH,
+ * right after each kind of winning line was completed (row, column,
+ * diagonal, reverse diagonal), plus a board with no winner. X fills the
+ * line, moving first so its last piece wins; O puts its pieces next to
+ * X's, and with only board length - 1 pieces it can't complete a line.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WinnerExistsBenchmark {
+    final private static int ROW = 0;
+    final private static int COLUMN = 1;
+    final private static int DIAGONAL = 2;
+    final private static int REVERSE_DIAGONAL = 3;
+
+    @Param({"3", "5", "7", "9", "11", "13", "15", "17", "19", "21", "23",
+            "25"})
+    public int boardLength;
+
+    private TicTacToeX rowWin;
+    private TicTacToeX columnWin;
+    private TicTacToeX diagonalWin;
+    private TicTacToeX reverseDiagonalWin;
+    private TicTacToeX noWinner;
+
+    /**
+     * Plays out a game for each kind of line, and one with a single piece.
+     */
+    @Setup
+    public void setUp() {
+        rowWin = winWith(ROW);
+        columnWin = winWith(COLUMN);
+        diagonalWin = winWith(DIAGONAL);
+        reverseDiagonalWin = winWith(REVERSE_DIAGONAL);
+
+        noWinner = new TicTacToeX();
+        noWinner.resetBoard(boardLength);
+        noWinner.addPieceToBoard(1, 0, 0);
+    }
+
+    /**
+     * Checks a board just won with a row.
+     *
+     * @return Whether the board has a winner.
+     */
+    @Benchmark
+    public boolean row() {
+        return rowWin.winnerExists();
+    }
+
+    /**
+     * Checks a board just won with a column.
+     *
+     * @return Whether the board has a winner.
+     */
+    @Benchmark
+    public boolean column() {
+        return columnWin.winnerExists();
+    }
+
+    /**
+     * Checks a board just won with the diagonal.
+     *
+     * @return Whether the board has a winner.
+     */
+    @Benchmark
+    public boolean diagonal() {
+        return diagonalWin.winnerExists();
+    }
+
+    /**
+     * Checks a board just won with the reverse diagonal.
+     *
+     * @return Whether the board has a winner.
+     */
+    @Benchmark
+    public boolean reverseDiagonal() {
+        return reverseDiagonalWin.winnerExists();
+    }
+
+    /**
+     * Checks a board with one piece and no winner.
+     *
+     * @return Whether the board has a winner.
+     */
+    @Benchmark
+    public boolean none() {
+        return noWinner.winnerExists();
+    }
+
+    /**
+     * Plays a game where X completes one kind of line on its last move.
+     *
+     * @param line ROW, COLUMN, DIAGONAL or REVERSE_DIAGONAL.
+     * @return The finished game.
+     */
+    private TicTacToeX winWith(int line) {
+        TicTacToeX game = new TicTacToeX();
+        game.resetBoard(boardLength);
+
+        for (int i = 0; i < boardLength; i++) {
+            int row, col;
+            switch (line) {
+                case ROW:
+                    row = 0;
+                    col = i;
+                    break;
+                case COLUMN:
+                    row = i;
+                    col = 0;
+                    break;
+                case DIAGONAL:
+                    row = i;
+                    col = i;
+                    break;
+                default:
+                    row = i;
+                    col = boardLength - 1 - i;
+            }
+            game.makeMove(row, col);
+
+            if (i < boardLength - 1) {
+                if (line == ROW) {
+                    game.makeMove(1, col);
+                } else {
+                    game.makeMove(row, (col + 1) % boardLength);
+                }
+            }
+        }
+
+        if (!game.winnerExists()) {
+            throw new IllegalStateException("X didn't complete the line");
+        }
+        return game;
+    }
+}
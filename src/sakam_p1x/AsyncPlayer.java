@@ -0,0 +1,35 @@
+package sakam_p1x;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The AsyncPlayer interface is a player whose moves arrive later, e.g. from
+ * a network client or a search running on another thread. Asking for a
+ * move returns at once with a future, so one thread can keep many games in
+ * flight (see GameMultiplexer) instead of blocking on each player in turn.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface AsyncPlayer {
+    /**
+     * Asks for a move. The board won't change until the move arrives, so
+     * it can be read whenever the move is worked out.
+     *
+     * @param board A read-only view of the current game board.
+     * @param player Player representation of the mover (1 or 2).
+     * @return A future completed with the cell index (row * board length +
+     *         column) of an empty spot.
+     */
+    CompletableFuture<Integer> requestMove(BoardView board, int player);
+
+    /**
+     * Adapts a player that answers right away.
+     *
+     * @param player A player choosing moves on the calling thread.
+     * @return An async player whose futures are already complete.
+     */
+    static AsyncPlayer of(Player player) {
+        return (board, mover) -> CompletableFuture.completedFuture(
+                player.chooseMove(board, mover));
+    }
+}
@@ -0,0 +1,329 @@
+package sakam_p1x;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * The BatchSimulator class plays large numbers of TTT games with no console
+ * I/O, for load and regression runs. Games are split into chunks that run on
+ * a ForkJoinPool. Each chunk plays on its own TTT instance, and all chunks
+ * record results on one lock-free ScoreBoard, so nothing needs merging at
+ * the end.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class BatchSimulator {
+    /*
+     * several chunks per thread so work stealing can even out threads that
+     * happen to get longer games
+     */
+    final private static int CHUNKS_PER_THREAD = 8;
+
+    // settings for minimax players run from the command line
+    final private static long MINIMAX_BUDGET_MILLIS = 100;
+    final private static int MINIMAX_TABLE_BITS = 18;
+    final private static long CACHE_BYTES = 64L << 20;
+
+    /*
+     * settings for MCTS players run from the command line; the batch is
+     * already parallel, so each player searches one tree on one thread
+     */
+    final private static long MCTS_PLAYOUTS = 10_000;
+
+    /**
+     * Runs a batch of games with the given board size and players.
+     *
+     * @param boardLen Length of the TTT board for every game.
+     * @param xPlayers Makes the X player for each chunk of games.
+     * @param oPlayers Makes the O player for each chunk of games.
+     * @param numGames Total number of games to play.
+     * @param numThreads Number of worker threads to play on.
+     * @return The merged results and timing of the batch.
+     */
+    public static Result run(int boardLen, Supplier<Player> xPlayers,
+                             Supplier<Player> oPlayers, long numGames,
+                             int numThreads) {
+        return run(boardLen, xPlayers, oPlayers, numGames, numThreads,
+                new ScoreBoard());
+    }
+
+    /**
+     * Runs a batch of games, recording results on a given scoreboard.
+     *
+     * @param boardLen Length of the TTT board for every game.
+     * @param xPlayers Makes the X player for each chunk of games.
+     * @param oPlayers Makes the O player for each chunk of games.
+     * @param numGames Total number of games to play.
+     * @param numThreads Number of worker threads to play on.
+     * @param scoreBoard Scoreboard every game records its result on.
+     * @return The results and timing of the batch.
+     */
+    public static Result run(int boardLen, Supplier<Player> xPlayers,
+                             Supplier<Player> oPlayers, long numGames,
+                             int numThreads, ScoreBoard scoreBoard) {
+        return run(boardLen, boardLen, xPlayers, oPlayers, numGames,
+                numThreads, scoreBoard);
+    }
+
+    /**
+     * Runs a batch of k-in-a-row games, recording results on a given
+     * scoreboard.
+     *
+     * @param boardLen Length of the TTT board for every game.
+     * @param winLen Number of pieces in a row that wins every game.
+     * @param xPlayers Makes the X player for each chunk of games.
+     * @param oPlayers Makes the O player for each chunk of games.
+     * @param numGames Total number of games to play.
+     * @param numThreads Number of worker threads to play on.
+     * @param scoreBoard Scoreboard every game records its result on.
+     * @return The results and timing of the batch.
+     */
+    public static Result run(int boardLen, int winLen,
+                             Supplier<Player> xPlayers,
+                             Supplier<Player> oPlayers, long numGames,
+                             int numThreads, ScoreBoard scoreBoard) {
+        return run(boardLen, winLen, xPlayers, oPlayers, numGames,
+                numThreads, scoreBoard, null);
+    }
+
+    /**
+     * Runs a batch of k-in-a-row games, recording results on a given
+     * scoreboard and streaming every game to analytics. Each chunk feeds
+     * its own sink and flushes it when done, so all of the batch's games
+     * have been queued (though maybe not yet aggregated) by the time this
+     * returns.
+     *
+     * @param boardLen Length of the TTT board for every game.
+     * @param winLen Number of pieces in a row that wins every game.
+     * @param xPlayers Makes the X player for each chunk of games.
+     * @param oPlayers Makes the O player for each chunk of games.
+     * @param numGames Total number of games to play.
+     * @param numThreads Number of worker threads to play on.
+     * @param scoreBoard Scoreboard every game records its result on.
+     * @param analytics Analytics to stream games to, or null for none.
+     * @return The results and timing of the batch.
+     */
+    public static Result run(int boardLen, int winLen,
+                             Supplier<Player> xPlayers,
+                             Supplier<Player> oPlayers, long numGames,
+                             int numThreads, ScoreBoard scoreBoard,
+                             GameAnalytics analytics) {
+        int numChunks = (int) Math.max(1,
+                Math.min(numGames, (long) numThreads * CHUNKS_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        long startNanos = System.nanoTime();
+
+        try {
+            pool.submit(() -> IntStream
+                    .range(0, numChunks)
+                    .parallel()
+                    .forEach(chunk -> playChunk(boardLen, winLen,
+                            xPlayers.get(), oPlayers.get(),
+                            chunkSize(numGames, numChunks, chunk),
+                            scoreBoard, analytics)))
+                    .join();
+
+            return new Result(scoreBoard.snapshot(), numGames,
+                    System.nanoTime() - startNanos);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Gets how many games a chunk plays so the chunks add up to the total.
+     *
+     * @param numGames Total number of games.
+     * @param numChunks Number of chunks the games are split into.
+     * @param chunk Index of this chunk.
+     * @return Number of games in this chunk.
+     */
+    private static long chunkSize(long numGames, int numChunks, int chunk) {
+        return numGames / numChunks + (chunk < numGames % numChunks ? 1 : 0);
+    }
+
+    /**
+     * Plays one chunk of games on a fresh TTT instance.
+     *
+     * @param boardLen Length of the TTT board.
+     * @param winLen Number of pieces in a row that wins.
+     * @param xPlayer Player choosing moves for X.
+     * @param oPlayer Player choosing moves for O.
+     * @param numGames Number of games to play.
+     * @param scoreBoard Scoreboard shared by every chunk.
+     * @param analytics Analytics to stream games to, or null for none.
+     */
+    private static void playChunk(int boardLen, int winLen, Player xPlayer,
+                                  Player oPlayer, long numGames,
+                                  ScoreBoard scoreBoard,
+                                  GameAnalytics analytics) {
+        TicTacToeX game = new TicTacToeX(scoreBoard);
+        GameAnalytics.Sink sink = analytics == null ? null :
+                analytics.newSink();
+
+        game.setGameObserver(sink);
+        for (long i = 0; i < numGames; i++) {
+            game.resetBoard(boardLen, winLen);
+            game.playGame(xPlayer, oPlayer);
+        }
+        game.releaseBoard(); // for the thread's next chunk
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
+    /**
+     * Runs a batch of games and prints the results. Arguments are board
+     * size, number of games, number of threads, the X player's strategy and
+     * the win length (default 3, 1,000,000, all available cores, "random"
+     * and the board size, e.g. "15 1000 1 random 5" for gomoku); O always
+     * plays randomly. The "minimax" strategy shares one cache of solved
+     * positions between all threads, and its statistics are printed too.
+     * The "mcts" strategy runs a fixed number of playouts per move. Game
+     * loop metrics are exported as the ttt.metrics properties ask (see
+     * GameMetrics), and printed at the end when enabled. With
+     * -Dttt.analytics=true, every game also streams through GameAnalytics
+     * and its report is printed at the end.
+     *
+     * @param args A String array containing command-line arguments.
+     */
+    public static void main(String[] args) {
+        GameMetrics.exportFromProperties();
+
+        int boardLen = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        long numGames = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) :
+                Runtime.getRuntime().availableProcessors();
+        String strategy = args.length > 3 ? args[3] : "random";
+        int winLen = args.length > 4 ? Integer.parseInt(args[4]) : boardLen;
+        boolean useMinimax = strategy.equals("minimax");
+        PositionCache<MinimaxPlayer.Solution> cache = newSolvedCache();
+        Supplier<Player> xPlayers = playersFor(strategy, cache);
+
+        GameAnalytics analytics = Boolean.getBoolean("ttt.analytics") ?
+                new GameAnalytics() : null;
+
+        Result result = run(boardLen, winLen, xPlayers, RandomPlayer::new,
+                numGames, numThreads, new ScoreBoard(), analytics);
+
+        System.out.println(result);
+        System.out.println("Board pool: " + BoardPool.describe());
+        if (useMinimax) {
+            System.out.println("Solved position cache: " + cache);
+        }
+        if (GameMetrics.isEnabled()) {
+            System.out.print(GameMetrics.scrape());
+        }
+        if (analytics != null) {
+            analytics.close();
+            System.out.println("Analytics (producers waited " +
+                    analytics.getStalls() + " times):");
+            System.out.print(analytics);
+        }
+    }
+
+    /**
+     * Makes players for a named strategy with the command-line settings:
+     * "random", "minimax" (sharing a cache of solved positions) or "mcts"
+     * (a fixed number of playouts per move, on one thread).
+     *
+     * @param strategy Strategy name.
+     * @param cache Solved positions shared by minimax players.
+     * @return A maker of players for each chunk of games.
+     * @throws IllegalArgumentException If the strategy is unknown.
+     */
+    static Supplier<Player> playersFor(String strategy,
+            PositionCache<MinimaxPlayer.Solution> cache) {
+        switch (strategy) {
+            case "random":
+                return RandomPlayer::new;
+            case "minimax":
+                return () -> new MinimaxPlayer(MINIMAX_BUDGET_MILLIS,
+                        MINIMAX_TABLE_BITS, cache);
+            case "mcts":
+                return () -> new MctsPlayer(0, MCTS_PLAYOUTS, 1);
+            default:
+                throw new IllegalArgumentException("Unknown strategy " +
+                        strategy);
+        }
+    }
+
+    /**
+     * Makes a cache of solved positions for minimax players, sized for
+     * command-line runs.
+     *
+     * @return An empty cache.
+     */
+    static PositionCache<MinimaxPlayer.Solution> newSolvedCache() {
+        return MinimaxPlayer.newSolvedCache(CACHE_BYTES);
+    }
+
+    /**
+     * The Result class holds a snapshot of the scoreboard after a batch
+     * together with how long the batch took.
+     */
+    public static class Result {
+        private final ScoreBoard.Snapshot totals;
+        private final long numGames;
+        private final long elapsedNanos;
+
+        /**
+         * The constructor stores a finished batch's results.
+         *
+         * @param totals Scoreboard snapshot taken after the batch.
+         * @param numGames Number of games played.
+         * @param elapsedNanos Wall-clock time the batch took.
+         */
+        private Result(ScoreBoard.Snapshot totals, long numGames,
+                       long elapsedNanos) {
+            this.totals = totals;
+            this.numGames = numGames;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Gets the scoreboard snapshot taken after the batch.
+         *
+         * @return Snapshot of the batch's scoreboard.
+         */
+        public ScoreBoard.Snapshot getTotals() {
+            return totals;
+        }
+
+        /**
+         * Gets the number of games played.
+         *
+         * @return Number of games played.
+         */
+        public long getNumGames() {
+            return numGames;
+        }
+
+        /**
+         * Gets the wall-clock time the batch took.
+         *
+         * @return Elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Gets the batch throughput.
+         *
+         * @return Games played per second of wall-clock time.
+         */
+        public double getGamesPerSecond() {
+            return numGames * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "X wins: " + totals.getWins(1) +
+                    ", O wins: " + totals.getWins(2) +
+                    ", ties: " + totals.getWins(0) +
+                    ", games/s: " + (long) getGamesPerSecond();
+        }
+    }
+}
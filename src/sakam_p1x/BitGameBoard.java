@@ -0,0 +1,250 @@
+package sakam_p1x;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The BitGameBoard class stores a TTT board as one bitset per player, with
+ * bit (row * board length + col) set where that player has a piece. Boards
+ * of up to 64 cells (8x8) keep each player's bits in a single long field,
+ * so reads, writes and line tests touch no array; larger boards (up to
+ * 25x25) use a packed long array. Every row, column and diagonal is
+ * precomputed as a bit mask, so testing a line is an AND and a compare per
+ * word; games played to full lines on a bitboard check for wins this way.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class BitGameBoard implements GameBoard {
+    final private static int WORD_BITS = 64;
+    final private static int WORD_SHIFT = 6;
+    final private static int MAX_LENGTH = 25;
+
+    /*
+     * line masks only depend on board length, so they are built once per
+     * length and shared by every board of that length; the atomic array
+     * publishes each one fully built to every thread
+     */
+    final private static AtomicReferenceArray<long[]> MASKS_BY_LENGTH =
+            new AtomicReferenceArray<>(MAX_LENGTH + 1);
+
+    private final int boardLength;
+    private final int numWords;
+    private final boolean singleWord; // one word per player: the fields
+
+    // each player's bits on a single-word board
+    private long xBits;
+    private long oBits;
+
+    /*
+     * player bits on larger boards, stored back to back: player 1 in words
+     * [0, numWords) and player 2 in [numWords, 2 * numWords); null on a
+     * single-word board
+     */
+    private final long[] playerBits;
+
+    /*
+     * line masks are stored back to back as well, numWords per line, in the
+     * order: rows, columns, diagonal, reverse diagonal
+     */
+    private final long[] lineMasks;
+
+    /**
+     * The constructor creates an empty board of the given length.
+     *
+     * @param boardLen An integer representing length of TTT board to create.
+     */
+    public BitGameBoard(int boardLen) {
+        boardLength = boardLen;
+        numWords = wordsFor(boardLen);
+        singleWord = numWords == 1;
+        playerBits = singleWord ? null : new long[2 * numWords];
+        lineMasks = lineMasksFor(boardLen);
+    }
+
+    /**
+     * The constructor creates a copy of another board. Line masks are
+     * shared, since they never change.
+     *
+     * @param other Board to copy.
+     */
+    private BitGameBoard(BitGameBoard other) {
+        boardLength = other.boardLength;
+        numWords = other.numWords;
+        singleWord = other.singleWord;
+        xBits = other.xBits;
+        oBits = other.oBits;
+        playerBits = singleWord ? null : other.playerBits.clone();
+        lineMasks = other.lineMasks;
+    }
+
+    /**
+     * Gets the number of longs needed to hold one bit per cell.
+     *
+     * @param boardLen An integer representing board length.
+     * @return Number of 64-bit words per player.
+     */
+    private static int wordsFor(int boardLen) {
+        return (boardLen * boardLen + WORD_BITS - 1) >>> WORD_SHIFT;
+    }
+
+    /**
+     * Gets the shared line masks for a board length, building them the first
+     * time that length is used. Threads racing here build identical arrays
+     * and all end up sharing the first one published.
+     *
+     * @param boardLen An integer representing board length.
+     * @return The line masks for every row, column and diagonal.
+     */
+    private static long[] lineMasksFor(int boardLen) {
+        long[] masks = boardLen <= MAX_LENGTH ?
+                MASKS_BY_LENGTH.get(boardLen) : null;
+
+        if (masks == null) {
+            int words = wordsFor(boardLen);
+            masks = new long[(2 * boardLen + 2) * words];
+
+            for (int i = 0; i < boardLen; i++) {
+                for (int j = 0; j < boardLen; j++) {
+                    setMaskBit(masks, boardLen, i, i, j);            // row i
+                    setMaskBit(masks, boardLen, boardLen + i, j, i); // col i
+                }
+                setMaskBit(masks, boardLen, 2 * boardLen, i, i); // diagonal
+                setMaskBit(masks, boardLen, 2 * boardLen + 1, i,
+                        boardLen - 1 - i);                       // reverse
+            }
+
+            if (boardLen <= MAX_LENGTH &&
+                    !MASKS_BY_LENGTH.compareAndSet(boardLen, null, masks)) {
+                masks = MASKS_BY_LENGTH.get(boardLen);
+            }
+        }
+        return masks;
+    }
+
+    /**
+     * Sets the bit for a cell in one of the line masks.
+     *
+     * @param masks Line masks being built.
+     * @param boardLen An integer representing board length.
+     * @param line Index of the line mask.
+     * @param row A board row.
+     * @param col A board column.
+     */
+    private static void setMaskBit(long[] masks, int boardLen, int line,
+                                   int row, int col) {
+        int bit = row * boardLen + col;
+        masks[line * wordsFor(boardLen) + (bit >>> WORD_SHIFT)] |= 1L << bit;
+    }
+
+    @Override
+    public int getLength() {
+        return boardLength;
+    }
+
+    @Override
+    public int getPiece(int row, int col) {
+        int bit = row * boardLength + col;
+        int word = bit >>> WORD_SHIFT;
+        long mask = 1L << bit; // shift distance is taken mod 64
+
+        if (singleWord) {
+            return (xBits & mask) != 0 ? 1 : (oBits & mask) != 0 ? 2 : 0;
+        }
+        if ((playerBits[word] & mask) != 0) {
+            return 1;
+        }
+        if ((playerBits[numWords + word] & mask) != 0) {
+            return 2;
+        }
+        return 0;
+    }
+
+    @Override
+    public void placePiece(int player, int row, int col) {
+        int bit = row * boardLength + col;
+
+        if (singleWord) {
+            if (player == 1) {
+                xBits |= 1L << bit;
+            } else {
+                oBits |= 1L << bit;
+            }
+            return;
+        }
+        playerBits[(player - 1) * numWords + (bit >>> WORD_SHIFT)] |=
+                1L << bit;
+    }
+
+    @Override
+    public void removePiece(int row, int col) {
+        int bit = row * boardLength + col;
+        long clear = ~(1L << bit);
+
+        if (singleWord) {
+            xBits &= clear;
+            oBits &= clear;
+            return;
+        }
+        playerBits[bit >>> WORD_SHIFT] &= clear;
+        playerBits[numWords + (bit >>> WORD_SHIFT)] &= clear;
+    }
+
+    @Override
+    public void clear() {
+        if (singleWord) {
+            xBits = 0;
+            oBits = 0;
+        } else {
+            Arrays.fill(playerBits, 0);
+        }
+    }
+
+    @Override
+    public GameBoard copy() {
+        return new BitGameBoard(this);
+    }
+
+    /**
+     * Checks whether a piece at the given spot completed one of the lines
+     * running through it. Only the row, column and any diagonal through that
+     * spot are tested.
+     *
+     * @param player Player representation (1 or 2).
+     * @param row A board row.
+     * @param col A board column.
+     * @return A boolean stating if a line through the spot is complete.
+     */
+    public boolean completesLine(int player, int row, int col) {
+        return ownsLine(player, row) ||
+                ownsLine(player, boardLength + col) ||
+                (row == col && ownsLine(player, 2 * boardLength)) ||
+                (row + col == boardLength - 1 &&
+                        ownsLine(player, 2 * boardLength + 1));
+    }
+
+    /**
+     * Tests one line mask against a player's bits, word by word (a single
+     * AND on a single-word board).
+     *
+     * @param player Player representation (1 or 2).
+     * @param line Index of the line mask.
+     * @return A boolean stating if the player owns the whole line.
+     */
+    private boolean ownsLine(int player, int line) {
+        if (singleWord) {
+            long mask = lineMasks[line];
+            return ((player == 1 ? xBits : oBits) & mask) == mask;
+        }
+
+        int bitsOffset = (player - 1) * numWords;
+        int maskOffset = line * numWords;
+
+        for (int word = 0; word < numWords; word++) {
+            long mask = lineMasks[maskOffset + word];
+            if ((playerBits[bitsOffset + word] & mask) != mask) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,293 @@
+package sakam_p1x;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The BoardPool class recycles game storage (boards, win trackers, move
+ * stacks and free-cell indexes) so high-rate game churn doesn't allocate
+ * per game. Each thread has its own small pool, split into size classes by
+ * board length and kind of storage. Items come back cleared in place, and
+ * a full size class drops extras for the garbage collector, so the pool
+ * never grows past a fixed bound.
+ *
+ * Virtual threads (Java 21+) don't pool: each runs one task and is never
+ * reused, so a pool of its own would only be filled and thrown away. On
+ * them every acquire allocates and every release drops the item.
+ *
+ * A game that resets to the same size simply clears its own storage, and
+ * that is counted as a reuse. The pool only comes into play when a game
+ * changes size or storage type, or when a finished game gives its storage
+ * back. Metrics are totals over all threads.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class BoardPool {
+    final public static int MAX_LENGTH = 25;
+
+    // items kept per size class per thread
+    final private static int ITEMS_PER_CLASS = 4;
+
+    // kinds of storage pooled, each with a size class per board length
+    final private static int INT_BOARD = 0;
+    final private static int BIT_BOARD = 1;
+    final private static int WIN_TRACKER = 2;
+    final private static int MOVE_STACK = 3;
+    final private static int FREE_CELLS = 4;
+    final private static int NUM_KINDS = 5;
+
+    final private static ThreadLocal<Pool> POOLS =
+            ThreadLocal.withInitial(Pool::new);
+
+    // Thread.isVirtual(), or null on JVMs without virtual threads
+    final private static MethodHandle IS_VIRTUAL = isVirtualHandle();
+
+    final private static LongAdder REUSES = new LongAdder();
+    final private static LongAdder HITS = new LongAdder();
+    final private static LongAdder MISSES = new LongAdder();
+    final private static LongAdder DISCARDS = new LongAdder();
+
+    /**
+     * The constructor is private since this class only has static helpers.
+     */
+    private BoardPool() {
+    }
+
+    /**
+     * Gets an empty board from this thread's pool, or a new one if the
+     * size class is empty.
+     *
+     * @param boardLen An integer representing length of TTT board.
+     * @param useBitBoard True for a bitboard, false for a plain int board.
+     * @return An empty board.
+     */
+    public static GameBoard acquireBoard(int boardLen, boolean useBitBoard) {
+        GameBoard board = (GameBoard) take(boardLen,
+                useBitBoard ? BIT_BOARD : INT_BOARD);
+
+        if (board == null) {
+            return GameBoard.create(boardLen, useBitBoard);
+        }
+        board.clear();
+        return board;
+    }
+
+    /**
+     * Gets a zeroed win tracker from this thread's pool, or a new one.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @return A win tracker with no pieces counted.
+     */
+    public static WinTracker acquireWinTracker(int boardLen, int winLen) {
+        WinTracker winTracker = (WinTracker) take(boardLen, WIN_TRACKER);
+
+        if (winTracker == null) {
+            return new WinTracker(boardLen, winLen);
+        }
+        winTracker.reset(winLen);
+        return winTracker;
+    }
+
+    /**
+     * Gets a move stack (one slot per cell) from this thread's pool, or a
+     * new one. Its old contents are left as they are, since a game only
+     * reads the moves it has made.
+     *
+     * @param boardLen An integer representing board length.
+     * @return An array of board length squared ints.
+     */
+    public static int[] acquireMoveStack(int boardLen) {
+        int[] moves = (int[]) take(boardLen, MOVE_STACK);
+        return moves == null ? new int[boardLen * boardLen] : moves;
+    }
+
+    /**
+     * Gets a free-cell index from this thread's pool, or a new one, with
+     * every cell empty.
+     *
+     * @param boardLen An integer representing board length.
+     * @return An index of board length squared free cells.
+     */
+    public static FreeCellIndex acquireFreeCells(int boardLen) {
+        FreeCellIndex freeCells = (FreeCellIndex) take(boardLen, FREE_CELLS);
+
+        if (freeCells == null) {
+            return new FreeCellIndex(boardLen * boardLen);
+        }
+        freeCells.reset();
+        return freeCells;
+    }
+
+    /**
+     * Gives a game's storage back to this thread's pool. The caller must
+     * not touch it afterwards, and it must not be shared (e.g. by a
+     * snapshot).
+     *
+     * @param board A board no longer in use.
+     * @param isBitBoard True if it is a bitboard.
+     * @param winTracker The game's win tracker.
+     * @param moves The game's move stack.
+     */
+    public static void release(GameBoard board, boolean isBitBoard,
+                               WinTracker winTracker, int[] moves) {
+        int boardLen = board.getLength();
+
+        give(boardLen, isBitBoard ? BIT_BOARD : INT_BOARD, board);
+        give(boardLen, WIN_TRACKER, winTracker);
+        give(boardLen, MOVE_STACK, moves);
+    }
+
+    /**
+     * Gives a game's free-cell index back to this thread's pool. The caller
+     * must not touch it afterwards.
+     *
+     * @param boardLen An integer representing board length.
+     * @param freeCells The game's free-cell index.
+     */
+    public static void release(int boardLen, FreeCellIndex freeCells) {
+        give(boardLen, FREE_CELLS, freeCells);
+    }
+
+    /**
+     * Counts a game's storage cleared in place instead of replaced.
+     */
+    static void recordReuse() {
+        REUSES.increment();
+    }
+
+    /**
+     * Takes an item from this thread's pool.
+     *
+     * @param boardLen An integer representing board length.
+     * @param kind Kind of storage.
+     * @return A pooled item, or null if there is none (a miss).
+     */
+    private static Object take(int boardLen, int kind) {
+        if (boardLen <= MAX_LENGTH && !onVirtualThread()) {
+            Pool pool = POOLS.get();
+            int sizeClass = boardLen * NUM_KINDS + kind;
+
+            if (pool.counts[sizeClass] > 0) {
+                int top = --pool.counts[sizeClass];
+                Object item = pool.items[sizeClass][top];
+                pool.items[sizeClass][top] = null;
+                HITS.increment();
+                return item;
+            }
+        }
+
+        MISSES.increment();
+        return null;
+    }
+
+    /**
+     * Puts an item in this thread's pool, or drops it if its size class is
+     * full.
+     *
+     * @param boardLen An integer representing board length.
+     * @param kind Kind of storage.
+     * @param item The item.
+     */
+    private static void give(int boardLen, int kind, Object item) {
+        if (boardLen <= MAX_LENGTH && !onVirtualThread()) {
+            Pool pool = POOLS.get();
+            int sizeClass = boardLen * NUM_KINDS + kind;
+
+            if (pool.counts[sizeClass] < ITEMS_PER_CLASS) {
+                pool.items[sizeClass][pool.counts[sizeClass]++] = item;
+                return;
+            }
+        }
+        DISCARDS.increment();
+    }
+
+    /**
+     * Checks whether the current thread is a virtual thread.
+     *
+     * @return True if it is.
+     */
+    private static boolean onVirtualThread() {
+        if (IS_VIRTUAL == null) {
+            return false;
+        }
+        try {
+            return (boolean) IS_VIRTUAL.invokeExact(Thread.currentThread());
+        } catch (Throwable e) {
+            return false;
+        }
+    }
+
+    /**
+     * Looks up Thread.isVirtual(), which only exists from Java 21.
+     *
+     * @return A handle to it, or null if the JVM doesn't have it.
+     */
+    private static MethodHandle isVirtualHandle() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(Thread.class,
+                    "isVirtual", MethodType.methodType(boolean.class));
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Gets the number of resets that cleared a game's storage in place.
+     *
+     * @return Number of in-place reuses.
+     */
+    public static long getReuses() {
+        return REUSES.sum();
+    }
+
+    /**
+     * Gets the number of items (boards, win trackers, move stacks, free-cell
+     * indexes) handed out from a pool.
+     *
+     * @return Number of pool hits.
+     */
+    public static long getHits() {
+        return HITS.sum();
+    }
+
+    /**
+     * Gets the number of items that had to be allocated.
+     *
+     * @return Number of pool misses.
+     */
+    public static long getMisses() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Gets the number of items given back to a full size class and
+     * dropped.
+     *
+     * @return Number of discarded items.
+     */
+    public static long getDiscards() {
+        return DISCARDS.sum();
+    }
+
+    /**
+     * Describes the pool metrics on one line.
+     *
+     * @return Reuses, hits, misses and discards.
+     */
+    public static String describe() {
+        return "reuses: " + getReuses() + ", hits: " + getHits() +
+                ", misses: " + getMisses() + ", discards: " + getDiscards();
+    }
+
+    /**
+     * The Pool class is one thread's storage, a small stack per size class.
+     */
+    private static class Pool {
+        private final Object[][] items =
+                new Object[(MAX_LENGTH + 1) * NUM_KINDS][ITEMS_PER_CLASS];
+        private final int[] counts = new int[(MAX_LENGTH + 1) * NUM_KINDS];
+    }
+}
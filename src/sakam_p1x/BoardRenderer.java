@@ -0,0 +1,194 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * The BoardRenderer class draws a TTT board the same way the game always
+ * has (column headers, row numbers, cell separators and a dashed line
+ * under each row). The whole frame is built in a reusable byte buffer and
+ * sent in one write. The header, row labels and separators only depend on
+ * board length, so they are laid out once per size. Each render only
+ * fills in the pieces, and once the buffers exist it allocates nothing.
+ *
+ * A diff mode sends just the cells that changed since the last render, one
+ * "row col piece" line per cell, for remote or terminal clients that
+ * already show the rest of the board.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class BoardRenderer {
+    final private static byte[] PIECE_BYTES = {' ', 'X', 'O'};
+    final private static int CELL_WIDTH = 3; // " X|" and "---"
+    final private static int ROW_LABEL_WIDTH = 2;
+
+    // longest diff line: "24 24 X\n"
+    final private static int MAX_DIFF_LINE = 8;
+
+    private final OutputStream out;
+
+    private int boardLength;
+    private byte[] frame;      // header, labels and separators laid out
+    private int[] cellOffsets; // where each cell's piece goes in the frame
+    private int[] lastPieces;  // pieces as of the last render, for diffs
+    private byte[] diff;
+
+    /**
+     * The constructor sets up a renderer writing to a stream.
+     *
+     * @param out Stream frames are written to.
+     */
+    public BoardRenderer(OutputStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Draws the whole board with a single write.
+     *
+     * @param board A read-only view of the board.
+     */
+    public void render(BoardView board) {
+        prepare(board.getLength());
+
+        for (int cell = 0; cell < cellOffsets.length; cell++) {
+            int piece = board.getPiece(cell / boardLength, cell % boardLength);
+            frame[cellOffsets[cell]] = PIECE_BYTES[piece];
+            lastPieces[cell] = piece;
+        }
+
+        write(frame, frame.length);
+    }
+
+    /**
+     * Sends only the cells that changed since the last render or diff, as
+     * "row col piece" lines ("row col  " for a cleared cell), in a single
+     * write. Nothing is written if nothing changed.
+     *
+     * @param board A read-only view of the board.
+     */
+    public void renderDiff(BoardView board) {
+        prepare(board.getLength());
+        int length = 0;
+
+        for (int cell = 0; cell < cellOffsets.length; cell++) {
+            int piece = board.getPiece(cell / boardLength, cell % boardLength);
+
+            if (piece != lastPieces[cell]) {
+                lastPieces[cell] = piece;
+                frame[cellOffsets[cell]] = PIECE_BYTES[piece];
+
+                length = appendNumber(diff, length, cell / boardLength);
+                diff[length++] = ' ';
+                length = appendNumber(diff, length, cell % boardLength);
+                diff[length++] = ' ';
+                diff[length++] = PIECE_BYTES[piece];
+                diff[length++] = '\n';
+            }
+        }
+
+        if (length > 0) {
+            write(diff, length);
+        }
+    }
+
+    /**
+     * Lays out the frame for a board length, reusing the current one if the
+     * length hasn't changed. A new layout starts from an empty board.
+     *
+     * @param boardLen An integer representing board length.
+     */
+    private void prepare(int boardLen) {
+        if (boardLen == boardLength) {
+            return;
+        }
+        boardLength = boardLen;
+
+        int headerLength = 1 + 1 + CELL_WIDTH * boardLen + 1;
+        int rowLength = ROW_LABEL_WIDTH + CELL_WIDTH * boardLen + 1 +
+                ROW_LABEL_WIDTH + CELL_WIDTH * boardLen + 1;
+        frame = new byte[headerLength + boardLen * rowLength];
+        cellOffsets = new int[boardLen * boardLen];
+        lastPieces = new int[boardLen * boardLen];
+        diff = new byte[boardLen * boardLen * MAX_DIFF_LINE];
+
+        // blank line, then column headers right-aligned in 3 characters
+        int pos = 0;
+        frame[pos++] = '\n';
+        frame[pos++] = ' ';
+        for (int col = 0; col < boardLen; col++) {
+            pos = appendPadded(frame, pos, col, CELL_WIDTH);
+        }
+        frame[pos++] = '\n';
+
+        for (int row = 0; row < boardLen; row++) {
+            // row number, then " X|" per cell
+            pos = appendPadded(frame, pos, row, ROW_LABEL_WIDTH);
+            for (int col = 0; col < boardLen; col++) {
+                frame[pos++] = ' ';
+                cellOffsets[row * boardLen + col] = pos;
+                frame[pos++] = PIECE_BYTES[0];
+                frame[pos++] = '|';
+            }
+            frame[pos++] = '\n';
+
+            // row separator
+            frame[pos++] = ' ';
+            frame[pos++] = ' ';
+            for (int col = 0; col < CELL_WIDTH * boardLen; col++) {
+                frame[pos++] = '-';
+            }
+            frame[pos++] = '\n';
+        }
+    }
+
+    /**
+     * Writes a number right-aligned in a fixed width, like %Nd.
+     *
+     * @param buffer Buffer to write into.
+     * @param pos Position to start at.
+     * @param number A non-negative number under 100.
+     * @param width Field width.
+     * @return Position after the field.
+     */
+    private static int appendPadded(byte[] buffer, int pos, int number,
+                                    int width) {
+        int digits = number < 10 ? 1 : 2;
+
+        for (int i = digits; i < width; i++) {
+            buffer[pos++] = ' ';
+        }
+        return appendNumber(buffer, pos, number);
+    }
+
+    /**
+     * Writes a number's digits.
+     *
+     * @param buffer Buffer to write into.
+     * @param pos Position to start at.
+     * @param number A non-negative number under 100.
+     * @return Position after the digits.
+     */
+    private static int appendNumber(byte[] buffer, int pos, int number) {
+        if (number >= 10) {
+            buffer[pos++] = (byte) ('0' + number / 10);
+        }
+        buffer[pos++] = (byte) ('0' + number % 10);
+        return pos;
+    }
+
+    /**
+     * Writes part of a buffer to the stream and flushes it.
+     *
+     * @param buffer Bytes to write.
+     * @param length Number of bytes from the start of the buffer.
+     */
+    private void write(byte[] buffer, int length) {
+        try {
+            out.write(buffer, 0, length);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package sakam_p1x;
+
+/**
+ * The BoardView interface is a read-only look at a TTT board. It is what
+ * players are handed when choosing a move, so they can inspect the board
+ * but never change it behind the game's back.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface BoardView {
+    /**
+     * Gets the length of one side of the (square) board.
+     *
+     * @return An integer representing board length.
+     */
+    int getLength();
+
+    /**
+     * Gets the piece at a spot on the board.
+     *
+     * @param row A board row.
+     * @param col A board column.
+     * @return Player representation at that spot (1 or 2), or 0 if empty.
+     */
+    int getPiece(int row, int col);
+
+    /**
+     * Gets the number of pieces in a row that wins the game being played
+     * on this board. Classic TTT needs a full line.
+     *
+     * @return The win length (k), at most the board length.
+     */
+    default int getWinLength() {
+        return getLength();
+    }
+
+    /**
+     * Gets the number of empty spots, i.e. legal moves. This scans the
+     * board; the live view of a game keeps a FreeCellIndex and answers in
+     * constant time.
+     *
+     * @return Number of empty spots.
+     */
+    default int getNumFreeCells() {
+        int boardLength = getLength();
+        int numFree = 0;
+
+        for (int row = 0; row < boardLength; row++) {
+            for (int col = 0; col < boardLength; col++) {
+                if (getPiece(row, col) == 0) {
+                    numFree++;
+                }
+            }
+        }
+        return numFree;
+    }
+
+    /**
+     * Gets one of the empty spots. Together with getNumFreeCells() this
+     * lists every legal move, though in no particular order (it needn't
+     * be row-major, and it changes as moves are made).
+     *
+     * @param idx Index from 0 to getNumFreeCells() - 1.
+     * @return Cell index (row * board length + column) of an empty spot.
+     * @throws IndexOutOfBoundsException If there aren't that many empty
+     *                                   spots.
+     */
+    default int getFreeCell(int idx) {
+        int boardLength = getLength();
+        int skip = idx;
+
+        for (int cell = 0; skip >= 0 && cell < boardLength * boardLength;
+             cell++) {
+
+            if (getPiece(cell / boardLength, cell % boardLength) == 0 &&
+                    skip-- == 0) {
+
+                return cell;
+            }
+        }
+        throw new IndexOutOfBoundsException("No free cell " + idx);
+    }
+}
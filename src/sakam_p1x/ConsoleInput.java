@@ -0,0 +1,261 @@
+package sakam_p1x;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.InputMismatchException;
+import java.util.NoSuchElementException;
+
+/**
+ * The ConsoleInput class reads the console for interactive games, with the
+ * handful of Scanner methods the game uses and the same token and line
+ * rules: tokens are separated by whitespace, token reads leave the rest of
+ * the line unread, and nextLine() returns what is left of the current line.
+ *
+ * Scanner builds its token patterns with regular expressions and loads
+ * locale number formats the first time it reads an int, which is a large
+ * share of a short session's startup. This class scans characters by hand
+ * instead. Ints are plain decimal with an optional sign (no locale digit
+ * grouping such as "1,000").
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class ConsoleInput implements Closeable {
+    final private static int BUFFER_CHARS = 1024;
+
+    private final Reader in;
+    private char[] buffer = new char[BUFFER_CHARS];
+    private int position;
+    private int limit;
+    private boolean endOfInput;
+
+    /**
+     * The constructor reads from a stream in the platform's charset, e.g.
+     * System.in.
+     *
+     * @param in Stream to read.
+     */
+    public ConsoleInput(InputStream in) {
+        this.in = new InputStreamReader(in);
+    }
+
+    /**
+     * Checks whether the next token is an int, waiting for input if
+     * needed. Nothing is consumed.
+     *
+     * @return True if the next token reads as an int; false if it doesn't
+     *         or input has ended.
+     */
+    public boolean hasNextInt() {
+        int start = findToken();
+        return start >= 0 &&
+                parseInt(start, findTokenEnd(start)) != null;
+    }
+
+    /**
+     * Reads the next token as an int.
+     *
+     * @return The int.
+     * @throws InputMismatchException If the token isn't an int (it is left
+     *                                unread, as Scanner does).
+     * @throws NoSuchElementException If input has ended.
+     */
+    public int nextInt() {
+        int start = findToken();
+        if (start < 0) {
+            position = limit; // only whitespace was left
+            throw new NoSuchElementException();
+        }
+
+        int end = findTokenEnd(start);
+        Integer value = parseInt(start, end);
+        if (value == null) {
+            position += start; // like Scanner, skip up to the bad token
+            throw new InputMismatchException(
+                    new String(buffer, position, end - start));
+        }
+        position += end;
+        return value;
+    }
+
+    /**
+     * Reads the next token.
+     *
+     * @return The token.
+     * @throws NoSuchElementException If input has ended.
+     */
+    public String next() {
+        int start = findToken();
+        if (start < 0) {
+            position = limit; // only whitespace was left
+            throw new NoSuchElementException();
+        }
+
+        int end = findTokenEnd(start);
+        String token = new String(buffer, position + start, end - start);
+        position += end;
+        return token;
+    }
+
+    /**
+     * Reads the rest of the current line and moves past its line break.
+     *
+     * @return The line without its line break.
+     * @throws NoSuchElementException If input has ended.
+     */
+    public String nextLine() {
+        StringBuilder line = new StringBuilder();
+
+        while (true) {
+            if (position == limit && !fill()) {
+                if (line.length() == 0) {
+                    throw new NoSuchElementException("No line found");
+                }
+                return line.toString();
+            }
+
+            char c = buffer[position++];
+            if (c == '\n') {
+                return line.toString();
+            }
+            if (c == '\r') {
+                // a \r\n pair is one line break
+                if ((position < limit || fill()) && buffer[position] == '\n') {
+                    position++;
+                }
+                return line.toString();
+            }
+            line.append(c);
+        }
+    }
+
+    /**
+     * Finds the start of the next token, reading more input as needed.
+     * Nothing is consumed, and offsets are from the current position (so
+     * they stay valid when fill() moves the unread chars).
+     *
+     * @return Offset of the token's first char, or -1 if input ended
+     *         first.
+     */
+    private int findToken() {
+        int offset = 0;
+
+        while (true) {
+            while (position + offset < limit) {
+                if (!Character.isWhitespace(buffer[position + offset])) {
+                    return offset;
+                }
+                offset++;
+            }
+            if (!fill()) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Finds the end of a token, reading more input until whitespace or the
+     * end of input follows it.
+     *
+     * @param start Offset of the token's first char.
+     * @return Offset just past the token's last char.
+     */
+    private int findTokenEnd(int start) {
+        int offset = start;
+
+        while (true) {
+            while (position + offset < limit) {
+                if (Character.isWhitespace(buffer[position + offset])) {
+                    return offset;
+                }
+                offset++;
+            }
+            if (!fill()) {
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Parses a token as a decimal int.
+     *
+     * @param start Offset of the token's first char.
+     * @param end Offset just past the token's last char.
+     * @return The int, or null if the token isn't one (or is out of range).
+     */
+    private Integer parseInt(int start, int end) {
+        int i = position + start;
+        int last = position + end;
+        boolean negative = false;
+
+        if (buffer[i] == '-' || buffer[i] == '+') {
+            negative = buffer[i] == '-';
+            i++;
+        }
+        if (i == last) {
+            return null;
+        }
+
+        long value = 0;
+        for (; i < last; i++) {
+            int digit = Character.digit(buffer[i], 10);
+            if (digit < 0) {
+                return null;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                return null;
+            }
+        }
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads more input into the buffer, keeping any unread chars (moving
+     * them to the front, and growing the buffer if they fill it).
+     *
+     * @return False if input has ended (nothing more was read).
+     */
+    private boolean fill() {
+        if (endOfInput) {
+            return false;
+        }
+
+        int unread = limit - position;
+        char[] target = unread == buffer.length
+                ? new char[buffer.length * 2] : buffer;
+        System.arraycopy(buffer, position, target, 0, unread);
+        buffer = target;
+        position = 0;
+        limit = unread;
+
+        try {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                endOfInput = true;
+                return false;
+            }
+            limit += read;
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            in.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
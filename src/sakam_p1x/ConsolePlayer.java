@@ -0,0 +1,113 @@
+package sakam_p1x;
+
+/**
+ * The ConsolePlayer class is a human at the keyboard. It announces the
+ * turn, then asks for a row and a column until they name an empty spot on
+ * the board, the same prompts the game has always shown.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class ConsolePlayer implements Player {
+    final private static String[] PLAYER_PIECES = {" ", "X", "O"};
+
+    private final ConsoleInput keyboard;
+
+    /**
+     * The constructor sets up a player reading moves from the console.
+     *
+     * @param keyboard Console input to allow player input.
+     */
+    public ConsolePlayer(ConsoleInput keyboard) {
+        this.keyboard = keyboard;
+    }
+
+    /**
+     * Conducts all operations necessary to:
+     * 1) clearly display whose turn it is, and
+     * 2) choose a valid row and column on the board to place his/her piece.
+     *
+     * @param board A read-only view of the current game board.
+     * @param player Player representation of the mover (1 or 2).
+     * @return Cell index (row * board length + column) of an empty spot.
+     */
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        int row, col; // declare variables to hold row and column choices
+
+        // show player turn via X or O
+        System.out.print(PLAYER_PIECES[player] + ", it is your turn.\n");
+
+        /*
+         * ask for row and column input as long as input is invalid (i.e.
+         * taken by another piece on the board)
+         */
+        do {
+            row = getBoardIdx("row", board.getLength());
+
+            col = getBoardIdx("column", board.getLength());
+        } while (isInvalidInput(board, row, col));
+
+        return row * board.getLength() + col;
+    }
+
+    /**
+     * Asks the user for the row or column they
+     * want to place a TTT piece at. It also validates the input by checking
+     * for valid integer and within game board bounds.
+     *
+     * @param rowOrCol A string representing row or column to prompt from user.
+     * @param boardLength An integer representing board length.
+     * @return An integer representing row or column.
+     */
+    private int getBoardIdx(String rowOrCol, int boardLength) {
+        int input; // store user input
+
+        // repeat prompting until user integer input is within board bounds
+        do {
+            System.out.print("Which " + rowOrCol + "? ");
+
+            // validate user has integer input
+            while (!keyboard.hasNextInt()) { // scan ahead for valid int token
+
+                System.out.println("Sorry, that's not a valid integer input.");
+
+                keyboard.next(); // pass the current token if invalid
+
+                System.out.print("Which " + rowOrCol + "? ");
+            }
+
+            input = keyboard.nextInt(); // store valid int token
+
+            keyboard.nextLine(); // ready the delimiter check on the input
+
+        // board bounds from 0 to its length
+        } while (input < 0 || input >= boardLength);
+
+        return input;
+    }
+
+    /**
+     * Passed in integers representing row and
+     * column choices from user to check if that row and column is already
+     * occupied by a player piece. If so, it tells user it was invalid (and
+     * counts a retry in the game metrics).
+     *
+     * @param board A read-only view of the current game board.
+     * @param row An integer representing user row choice.
+     * @param col An integer representing user column choice.
+     * @return A boolean representing if invalid input or not.
+     */
+    private boolean isInvalidInput(BoardView board, int row, int col) {
+
+        // player pieces on board are represented by 1 or 2, and no piece by 0
+        if (board.getPiece(row, col) != 0) {
+
+            // invalid choice if piece exists
+            System.out.println("Bad location, try again...");
+            GameMetrics.recordInvalidMove();
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,144 @@
+package sakam_p1x;
+
+/**
+ * The FreeCellIndex class keeps the empty cells of a board as a dense
+ * list, so legal moves can be listed, counted or picked at random without
+ * scanning the board. The list is a packed array with each empty cell's
+ * position in it alongside. Filling a cell swaps the list's last entry
+ * into its place, and emptying a cell swaps it back. Both are O(1), as are
+ * membership checks and picking the i-th free cell.
+ *
+ * The order of the list follows from the moves made and unmade, so it
+ * isn't row-major. Emptying the cell filled last puts the list back
+ * exactly as it was, though, so a search that makes and takes back moves
+ * in stack order can walk the list by index while it recurses.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class FreeCellIndex {
+    private final int[] cells;     // free cells, packed at the front
+    /*
+     * where each free cell is in cells; a filled cell has the complement
+     * (~) of the slot it was in, so emptying it can undo the swap
+     */
+    private final int[] positions;
+    private int size;
+
+    /**
+     * The constructor sets up an index for an empty board.
+     *
+     * @param numCells Number of cells on the board.
+     */
+    public FreeCellIndex(int numCells) {
+        cells = new int[numCells];
+        positions = new int[numCells];
+        reset();
+    }
+
+    /**
+     * Empties every cell again, in row-major order.
+     */
+    public void reset() {
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = cell;
+            positions[cell] = cell;
+        }
+        size = cells.length;
+    }
+
+    /**
+     * Gets the number of cells the index covers.
+     *
+     * @return Number of cells on the board.
+     */
+    public int getNumCells() {
+        return cells.length;
+    }
+
+    /**
+     * Gets the number of empty cells.
+     *
+     * @return Number of legal moves.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets one of the empty cells.
+     *
+     * @param idx Index into the list, from 0 to size() - 1.
+     * @return Cell index (row * board length + column) of an empty cell.
+     */
+    public int get(int idx) {
+        return cells[idx];
+    }
+
+    /**
+     * Checks whether a cell is empty.
+     *
+     * @param cell Cell index (row * board length + column).
+     * @return True if the cell is empty.
+     */
+    public boolean contains(int cell) {
+        return positions[cell] >= 0;
+    }
+
+    /**
+     * Marks an empty cell filled.
+     *
+     * @param cell Cell index of an empty cell.
+     * @throws IllegalStateException If the cell is already filled.
+     */
+    public void remove(int cell) {
+        int idx = positions[cell];
+        if (idx < 0) {
+            throw new IllegalStateException("Cell " + cell + " isn't free");
+        }
+
+        // the last free cell takes this one's place
+        int last = cells[--size];
+        cells[idx] = last;
+        positions[last] = idx;
+        cells[size] = cell;
+        positions[cell] = ~idx;
+    }
+
+    /**
+     * Marks a filled cell empty again. It goes back to the slot it had, and
+     * whatever took that slot moves to the end of the list.
+     *
+     * @param cell Cell index of a filled cell.
+     * @throws IllegalStateException If the cell is already free.
+     */
+    public void add(int cell) {
+        int idx = ~positions[cell];
+        if (idx < 0) {
+            throw new IllegalStateException("Cell " + cell +
+                    " is already free");
+        }
+
+        if (idx < size) {
+            int moved = cells[idx];
+            cells[size] = moved;
+            positions[moved] = size;
+        } else {
+            idx = size; // its old slot is past the list now
+        }
+        cells[idx] = cell;
+        positions[cell] = idx;
+        size++;
+    }
+
+    /**
+     * Copies the empty cells into an array, e.g. to shuffle them.
+     *
+     * @param dest Array with room for size() cells.
+     * @return Number of cells copied.
+     */
+    public int copyTo(int[] dest) {
+        System.arraycopy(cells, 0, dest, 0, size);
+        return size;
+    }
+}
@@ -0,0 +1,868 @@
+package sakam_p1x;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The GameAnalytics class aggregates finished games as they stream in,
+ * from live games (through a Sink set as a game's observer) or from a game
+ * log. For each board size and win length it keeps:
+ *
+ *   results by opening move, for opening win rates
+ *   how often each cell was part of a winning line (a heatmap), and how
+ *     many winning lines were rows, columns, diagonals and anti-diagonals
+ *   a histogram of game lengths, for length quantiles
+ *
+ * Every aggregate is a fixed-size count array per rule set, so memory
+ * doesn't grow with the number of games, and nothing is ever rescanned.
+ * Game lengths run from 1 to 625, so their histogram is exact: quantiles
+ * need no approximate sketch.
+ *
+ * Games reach the consumer threads through a bounded queue. Each producer
+ * writes games into its own Sink, which packs them into a batch of ints,
+ * so the queue is touched once per few thousand moves instead of once per
+ * game. When the queue is full, a producer waits for the consumers instead
+ * of buffering more (backpressure), so memory stays bounded however fast
+ * games are played. Batches are recycled, so a steady stream allocates
+ * nothing. A consumer aggregates several million games a second, and by
+ * default there is one per four cores, enough to keep up with the batch
+ * simulator on every core. Each consumer keeps its own aggregates (a
+ * shard), and reports add the shards up.
+ *
+ * Reports can be taken at any time, e.g. while a batch run is going. They
+ * include every batch the consumers have finished; games still in a sink
+ * or in the queue show up later. Flush sinks and close() to get
+ * everything.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameAnalytics implements Closeable {
+    // kinds of winning line
+    final public static int ROW = 0;
+    final public static int COLUMN = 1;
+    final public static int DIAGONAL = 2;
+    final public static int ANTI_DIAGONAL = 3;
+    final public static int NUM_LINE_KINDS = 4;
+    final private static String[] LINE_KIND_NAMES =
+            {"rows", "columns", "diagonals", "anti-diagonals"};
+
+    // row and column steps of each kind of line
+    final private static int[] ROW_STEPS = {0, 1, 1, 1};
+    final private static int[] COL_STEPS = {1, 0, 1, -1};
+
+    final private static int MAX_SIZE = ScoreBoard.MAX_SIZE;
+    final private static int NUM_RESULTS = ScoreBoard.NUM_RESULTS;
+    final private static int DEFAULT_QUEUE_BATCHES = 64;
+    final private static int CORES_PER_CONSUMER = 4;
+
+    /*
+     * a batch holds games back to back: board length, win length, result
+     * and number of moves, then the moves
+     */
+    final private static int HEADER_INTS = 4;
+    final private static int BATCH_INTS = 16 * 1024;
+
+    // put on the queue by close(), once per consumer, to stop them
+    final private static Batch END = new Batch(0);
+    final private static int NUM_RULES = (MAX_SIZE + 1) * (MAX_SIZE + 1);
+
+    private final BlockingQueue<Batch> pending;
+    private final Queue<Batch> spare = new ConcurrentLinkedQueue<>();
+    private final LongAdder stalls = new LongAdder();
+    private final Shard[] shards;
+    private final Thread[] consumers;
+    private volatile boolean closed;
+
+    /**
+     * The constructor starts the default number of consumers, with the
+     * default queue length.
+     */
+    public GameAnalytics() {
+        this(DEFAULT_QUEUE_BATCHES, Math.max(1,
+                Runtime.getRuntime().availableProcessors() /
+                        CORES_PER_CONSUMER));
+    }
+
+    /**
+     * The constructor starts consumers with a given queue length.
+     *
+     * @param queueBatches Number of full batches that can wait for the
+     *                     consumers before producers have to wait too.
+     * @param numConsumers Number of consumer threads.
+     */
+    public GameAnalytics(int queueBatches, int numConsumers) {
+        pending = new ArrayBlockingQueue<>(queueBatches);
+        shards = new Shard[numConsumers];
+        consumers = new Thread[numConsumers];
+
+        for (int i = 0; i < numConsumers; i++) {
+            Shard shard = new Shard();
+            shards[i] = shard;
+            consumers[i] = new Thread(() -> consume(shard),
+                    "game-analytics-" + (i + 1));
+            consumers[i].setDaemon(true);
+            consumers[i].start();
+        }
+    }
+
+    /**
+     * Creates a sink to feed games in through. A sink isn't thread-safe,
+     * so each thread (or each TTT instance) needs its own, and each holds
+     * at most one batch of memory.
+     *
+     * @return A new sink.
+     */
+    public Sink newSink() {
+        return new Sink();
+    }
+
+    /**
+     * Gets the number of games aggregated so far.
+     *
+     * @return Number of games the consumers have finished.
+     */
+    public long getGames() {
+        long games = 0;
+
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                games += shard.games;
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Gets the number of times a producer had to wait because the queue
+     * was full, i.e. how often backpressure kicked in.
+     *
+     * @return Number of waits.
+     */
+    public long getStalls() {
+        return stalls.sum();
+    }
+
+    /**
+     * Copies the aggregates for one rule set.
+     *
+     * @param boardLen Length of the board.
+     * @param winLen Number of pieces in a row that wins.
+     * @return A report, or null if no such games have been aggregated.
+     */
+    public Report report(int boardLen, int winLen) {
+        if (boardLen < 1 || boardLen > MAX_SIZE || winLen < 1 ||
+                winLen > boardLen) {
+            return null;
+        }
+        return merge()[rulesIdx(boardLen, winLen)];
+    }
+
+    /**
+     * Copies the aggregates for every rule set seen so far.
+     *
+     * @return Reports ordered by board length, then win length.
+     */
+    public List<Report> reports() {
+        List<Report> reports = new ArrayList<>();
+
+        for (Report report : merge()) {
+            if (report != null) {
+                reports.add(report);
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Adds up every shard's aggregates, locking one shard at a time.
+     *
+     * @return A report per rule set index, or null where there are none.
+     */
+    private Report[] merge() {
+        Report[] reports = new Report[NUM_RULES];
+
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                for (int idx = 0; idx < NUM_RULES; idx++) {
+                    RulesStats stats = shard.statsByRules[idx];
+                    if (stats == null) {
+                        continue;
+                    }
+                    if (reports[idx] == null) {
+                        reports[idx] = new Report(stats.boardLen,
+                                stats.winLen);
+                    }
+                    reports[idx].add(stats);
+                }
+            }
+        }
+        return reports;
+    }
+
+    /**
+     * Waits for every queued batch to be aggregated, then stops the
+     * consumers. Sinks must be flushed first. Reports can still be taken
+     * afterwards, but no more games can be added.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // finish closing even if interrupted, then pass the interrupt on
+        boolean interrupted = false;
+        for (int queued = 0; queued < consumers.length; ) {
+            try {
+                pending.put(END);
+                queued++;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        for (Thread consumer : consumers) {
+            while (consumer.isAlive()) {
+                try {
+                    consumer.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Queues a full batch for the consumers, waiting while the queue is
+     * full.
+     *
+     * @param batch A batch with at least one game in it.
+     */
+    private void submit(Batch batch) {
+        if (closed) {
+            throw new IllegalStateException("Game analytics is closed");
+        }
+
+        if (!pending.offer(batch)) {
+            stalls.increment();
+            try {
+                pending.put(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(
+                        "Interrupted while waiting to queue games", e);
+            }
+        }
+    }
+
+    /**
+     * Gets an empty batch, reusing one a consumer is done with if there
+     * is one.
+     *
+     * @return An empty batch.
+     */
+    private Batch takeSpare() {
+        Batch batch = spare.poll();
+        return batch != null ? batch : new Batch(BATCH_INTS);
+    }
+
+    /**
+     * Aggregates batches into a shard until close() asks the consumer to
+     * stop.
+     *
+     * @param shard The consumer's own aggregates.
+     */
+    private void consume(Shard shard) {
+        try {
+            Batch batch;
+            while ((batch = pending.take()) != END) {
+                synchronized (shard) {
+                    shard.aggregate(batch);
+                }
+                batch.size = 0;
+                spare.offer(batch);
+            }
+        } catch (InterruptedException e) {
+            // nothing interrupts the consumers but JVM shutdown
+        }
+    }
+
+    /**
+     * Gets where a rule set's aggregates are kept.
+     *
+     * @param boardLen Length of the board.
+     * @param winLen Number of pieces in a row that wins.
+     * @return Index into a shard's statsByRules.
+     */
+    private static int rulesIdx(int boardLen, int winLen) {
+        return boardLen * (MAX_SIZE + 1) + winLen;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+
+        for (Report report : reports()) {
+            text.append(report);
+        }
+        return text.toString();
+    }
+
+    /**
+     * Aggregates a game log and prints a report per rule set. Arguments
+     * are the log's path and, for version 1 logs (which don't record it),
+     * the win length their games were played with (default full lines).
+     *
+     * @param args A String array containing command-line arguments.
+     * @throws IOException If the log can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        int winLen = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+        GameAnalytics analytics = new GameAnalytics();
+        Sink sink = analytics.newSink();
+        int[] moves = new int[MAX_SIZE * MAX_SIZE];
+
+        try (GameRecordReader reader = new GameRecordReader(
+                Paths.get(args[0]))) {
+
+            while (reader.next()) {
+                for (int i = 0; i < reader.getNumMoves(); i++) {
+                    moves[i] = reader.getMove(i);
+                }
+                sink.gameFinished(reader.getBoardLength(),
+                        winLen > 0 && reader.getVersion() == 1 ? winLen :
+                                reader.getWinLength(), moves,
+                        reader.getNumMoves(), reader.getResult());
+            }
+        }
+
+        sink.flush();
+        analytics.close();
+        System.out.print(analytics);
+    }
+
+    /**
+     * The Sink class collects games from one producer into batches for the
+     * consumers. It can be set as a TTT instance's observer. Call flush()
+     * when the producer is done (or wants its games counted now).
+     */
+    public class Sink implements GameObserver {
+        private Batch batch;
+
+        /**
+         * The constructor is only called by newSink().
+         */
+        private Sink() {
+        }
+
+        /**
+         * Adds a finished game to the current batch, queueing the batch
+         * first if the game doesn't fit. May wait if the queue is full.
+         *
+         * @throws IllegalArgumentException If the game is malformed.
+         * @throws IllegalStateException If the analytics was closed.
+         */
+        @Override
+        public void gameFinished(int boardLen, int winLen, int[] moves,
+                                 int numMoves, int result) {
+            if (boardLen < 1 || boardLen > MAX_SIZE || winLen < 1 ||
+                    winLen > boardLen || numMoves < 0 ||
+                    numMoves > boardLen * boardLen || result < 0 ||
+                    result >= NUM_RESULTS) {
+
+                throw new IllegalArgumentException("Bad game: " + boardLen +
+                        "x" + boardLen + ", " + winLen + " in a row, " +
+                        numMoves + " moves, result " + result);
+            }
+
+            int needed = HEADER_INTS + numMoves;
+            if (batch == null) {
+                batch = takeSpare();
+            } else if (batch.size + needed > batch.data.length) {
+                submit(batch);
+                batch = takeSpare();
+            }
+
+            int[] data = batch.data;
+            int at = batch.size;
+            int numCells = boardLen * boardLen;
+
+            for (int i = 0; i < numMoves; i++) {
+                if (moves[i] < 0 || moves[i] >= numCells) {
+                    throw new IllegalArgumentException("Bad move: " +
+                            moves[i]);
+                }
+                data[at + HEADER_INTS + i] = moves[i];
+            }
+            data[at] = boardLen;
+            data[at + 1] = winLen;
+            data[at + 2] = result;
+            data[at + 3] = numMoves;
+            batch.size += needed;
+        }
+
+        /**
+         * Queues the games collected so far, if any.
+         */
+        public void flush() {
+            if (batch != null && batch.size > 0) {
+                submit(batch);
+                batch = null;
+            }
+        }
+    }
+
+    /**
+     * The Batch class is a reusable buffer of packed games.
+     */
+    private static class Batch {
+        private final int[] data;
+        private int size; // ints in use
+
+        /**
+         * The constructor makes an empty batch.
+         *
+         * @param capacity Number of ints it can hold.
+         */
+        private Batch(int capacity) {
+            data = new int[capacity];
+        }
+    }
+
+    /**
+     * The Shard class is one consumer's aggregates, by board length and
+     * win length. The consumer updates it with the shard locked.
+     */
+    private static class Shard {
+        private final RulesStats[] statsByRules = new RulesStats[NUM_RULES];
+        private long games;
+
+        /**
+         * Adds every game in a batch.
+         *
+         * @param batch A batch of games.
+         */
+        private void aggregate(Batch batch) {
+            int[] data = batch.data;
+
+            for (int at = 0; at < batch.size; ) {
+                int boardLen = data[at];
+                int winLen = data[at + 1];
+                int numMoves = data[at + 3];
+
+                statsFor(boardLen, winLen).add(data, at + HEADER_INTS,
+                        numMoves, data[at + 2]);
+                games++;
+                at += HEADER_INTS + numMoves;
+            }
+        }
+
+        /**
+         * Gets the aggregates for a rule set, creating them on first use.
+         *
+         * @param boardLen Length of the board.
+         * @param winLen Number of pieces in a row that wins.
+         * @return The rule set's aggregates.
+         */
+        private RulesStats statsFor(int boardLen, int winLen) {
+            int idx = rulesIdx(boardLen, winLen);
+
+            if (statsByRules[idx] == null) {
+                statsByRules[idx] = new RulesStats(boardLen, winLen);
+            }
+            return statsByRules[idx];
+        }
+    }
+
+    /**
+     * The RulesStats class holds one shard's aggregates for one board
+     * length and win length.
+     */
+    private static class RulesStats {
+        private final int boardLen;
+        private final int winLen;
+        private long games;
+        private final long[] results = new long[NUM_RESULTS];
+        private final long[] openings;   // opening cell * 3 + result
+        private final long[] lineCells;  // wins each cell was part of
+        private final long[] lineKinds = new long[NUM_LINE_KINDS];
+        private final long[] lengths;    // games by number of moves
+        /*
+         * scratch for finding lines: the winner's pieces on a board with an
+         * empty border win length - 1 wide, so runs can be counted without
+         * bounds checks
+         */
+        private final byte[] board;
+        private final int[] paddedCells; // board index of each cell
+        private final int[] paddedSteps = new int[NUM_LINE_KINDS];
+        private final int[] cellSteps = new int[NUM_LINE_KINDS];
+
+        /**
+         * The constructor makes empty aggregates.
+         *
+         * @param boardLen Length of the board.
+         * @param winLen Number of pieces in a row that wins.
+         */
+        private RulesStats(int boardLen, int winLen) {
+            int numCells = boardLen * boardLen;
+            int border = winLen - 1;
+            int width = boardLen + 2 * border;
+
+            this.boardLen = boardLen;
+            this.winLen = winLen;
+            openings = new long[numCells * NUM_RESULTS];
+            lineCells = new long[numCells];
+            lengths = new long[numCells + 1];
+            board = new byte[width * width];
+            paddedCells = new int[numCells];
+
+            for (int cell = 0; cell < numCells; cell++) {
+                paddedCells[cell] = (cell / boardLen + border) * width +
+                        cell % boardLen + border;
+            }
+            for (int kind = 0; kind < NUM_LINE_KINDS; kind++) {
+                paddedSteps[kind] = ROW_STEPS[kind] * width + COL_STEPS[kind];
+                cellSteps[kind] = ROW_STEPS[kind] * boardLen +
+                        COL_STEPS[kind];
+            }
+        }
+
+        /**
+         * Adds one game.
+         *
+         * @param data Array holding the game's moves.
+         * @param from Index of the first move.
+         * @param numMoves Number of moves.
+         * @param result 0 for a tie, 1 if X won, 2 if O won.
+         */
+        private void add(int[] data, int from, int numMoves, int result) {
+            games++;
+            results[result]++;
+            lengths[numMoves]++;
+            if (numMoves > 0) {
+                openings[data[from] * NUM_RESULTS + result]++;
+            }
+            if (result != 0) {
+                addWinningLines(data, from, numMoves, result);
+            }
+        }
+
+        /**
+         * Finds the lines the last move completed and counts them and
+         * their cells. The winner's pieces are put on the scratch board
+         * and taken off again after, which costs a pass over the moves,
+         * not the board.
+         *
+         * @param data Array holding the game's moves.
+         * @param from Index of the first move.
+         * @param numMoves Number of moves.
+         * @param winner 1 (X) or 2 (O).
+         */
+        private void addWinningLines(int[] data, int from, int numMoves,
+                                     int winner) {
+            // the winner must have made the last move, or it's no real win
+            if (numMoves % 2 != winner % 2) {
+                return;
+            }
+
+            // X's moves are the even ones
+            int firstMove = winner - 1;
+            for (int i = firstMove; i < numMoves; i += 2) {
+                board[paddedCells[data[from + i]]] = 1;
+            }
+
+            int lastCell = data[from + numMoves - 1];
+            int last = paddedCells[lastCell];
+            for (int kind = 0; kind < NUM_LINE_KINDS; kind++) {
+                int step = paddedSteps[kind];
+                int back = runLength(last, -step);
+                int ahead = runLength(last, step);
+
+                if (back + 1 + ahead >= winLen) {
+                    lineKinds[kind]++;
+                    for (int i = -back; i <= ahead; i++) {
+                        lineCells[lastCell + i * cellSteps[kind]]++;
+                    }
+                }
+            }
+
+            for (int i = firstMove; i < numMoves; i += 2) {
+                board[paddedCells[data[from + i]]] = 0;
+            }
+        }
+
+        /**
+         * Counts the winner's pieces in a row from the last move, not
+         * counting it. The run can't be win length long, or the game would
+         * have ended a move sooner, so a fixed number of steps covers it.
+         * Stopping at the first gap instead would branch unpredictably,
+         * which costs more than the extra steps.
+         *
+         * @param start Scratch board index of the last move.
+         * @param step Index change per step.
+         * @return Number of pieces in a row.
+         */
+        private int runLength(int start, int step) {
+            int run = 0;
+            int unbroken = 1;
+
+            for (int i = 1, at = start + step; i < winLen; i++, at += step) {
+                unbroken &= board[at];
+                run += unbroken;
+            }
+            return run;
+        }
+    }
+
+    /**
+     * The Report class is a copy of the aggregates for one board length
+     * and win length, added up over the shards.
+     */
+    public static class Report {
+        private final int boardLen;
+        private final int winLen;
+        private long games;
+        private final long[] results = new long[NUM_RESULTS];
+        private final long[] openings;
+        private final long[] lineCells;
+        private final long[] lineKinds = new long[NUM_LINE_KINDS];
+        private final long[] lengths;
+
+        /**
+         * The constructor makes an empty report for a rule set.
+         *
+         * @param boardLen Length of the board.
+         * @param winLen Number of pieces in a row that wins.
+         */
+        private Report(int boardLen, int winLen) {
+            int numCells = boardLen * boardLen;
+
+            this.boardLen = boardLen;
+            this.winLen = winLen;
+            openings = new long[numCells * NUM_RESULTS];
+            lineCells = new long[numCells];
+            lengths = new long[numCells + 1];
+        }
+
+        /**
+         * Adds a shard's aggregates for the same rule set.
+         *
+         * @param stats The aggregates.
+         */
+        private void add(RulesStats stats) {
+            games += stats.games;
+            addAll(results, stats.results);
+            addAll(openings, stats.openings);
+            addAll(lineCells, stats.lineCells);
+            addAll(lineKinds, stats.lineKinds);
+            addAll(lengths, stats.lengths);
+        }
+
+        /**
+         * Adds counts to the matching counts.
+         *
+         * @param to Counts to add to.
+         * @param from Counts to add.
+         */
+        private static void addAll(long[] to, long[] from) {
+            for (int i = 0; i < to.length; i++) {
+                to[i] += from[i];
+            }
+        }
+
+        /**
+         * Gets the board length of the games.
+         *
+         * @return An integer representing board length.
+         */
+        public int getBoardLength() {
+            return boardLen;
+        }
+
+        /**
+         * Gets the win length of the games.
+         *
+         * @return Number of pieces in a row that won.
+         */
+        public int getWinLength() {
+            return winLen;
+        }
+
+        /**
+         * Gets the number of games.
+         *
+         * @return Number of games.
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Gets the number of games with a result.
+         *
+         * @param winner 1 (X) or 2 (O), or 0 for ties.
+         * @return Number of games.
+         */
+        public long getWins(int winner) {
+            return results[winner];
+        }
+
+        /**
+         * Gets the number of games X opened on a cell.
+         *
+         * @param cell Cell index (row * board length + column).
+         * @return Number of games.
+         */
+        public long getOpeningGames(int cell) {
+            long count = 0;
+
+            for (int result = 0; result < NUM_RESULTS; result++) {
+                count += openings[cell * NUM_RESULTS + result];
+            }
+            return count;
+        }
+
+        /**
+         * Gets how often games opened on a cell ended with a result.
+         *
+         * @param cell Cell index (row * board length + column).
+         * @param winner 1 (X) or 2 (O), or 0 for ties.
+         * @return Fraction of those games, or 0 if there were none.
+         */
+        public double getOpeningWinRate(int cell, int winner) {
+            long count = getOpeningGames(cell);
+
+            return count == 0 ? 0 :
+                    (double) openings[cell * NUM_RESULTS + winner] / count;
+        }
+
+        /**
+         * Finds the opening move that won most often for a player.
+         *
+         * @param winner 1 (X) or 2 (O).
+         * @return Cell index of the best opening, or -1 if no games.
+         */
+        public int getBestOpening(int winner) {
+            int best = -1;
+
+            for (int cell = 0; cell < openings.length / NUM_RESULTS;
+                 cell++) {
+                if (getOpeningGames(cell) > 0 && (best < 0 ||
+                        getOpeningWinRate(cell, winner) >
+                                getOpeningWinRate(best, winner))) {
+                    best = cell;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Gets how many winning lines ran through a cell.
+         *
+         * @param cell Cell index (row * board length + column).
+         * @return Number of winning lines.
+         */
+        public long getWinningLines(int cell) {
+            return lineCells[cell];
+        }
+
+        /**
+         * Gets how many winning lines were of a kind.
+         *
+         * @param kind ROW, COLUMN, DIAGONAL or ANTI_DIAGONAL.
+         * @return Number of winning lines.
+         */
+        public long getWinningLinesOfKind(int kind) {
+            return lineKinds[kind];
+        }
+
+        /**
+         * Gets a game length quantile.
+         *
+         * @param quantile Fraction of games, e.g. 0.9.
+         * @return Fewest moves that at least that fraction of games lasted
+         *         at most, or 0 if there were no games.
+         */
+        public int getLengthQuantile(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * games));
+            long seen = 0;
+
+            for (int numMoves = 0; numMoves < lengths.length; numMoves++) {
+                seen += lengths[numMoves];
+                if (seen >= rank) {
+                    return numMoves;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * Draws the winning line heatmap as one digit per cell, 9 for the
+         * cell in the most winning lines and 0 for cells in none.
+         *
+         * @return One line of text per board row.
+         */
+        public String formatHeatmap() {
+            long most = 1;
+            StringBuilder text = new StringBuilder();
+
+            for (long count : lineCells) {
+                most = Math.max(most, count);
+            }
+            for (int row = 0; row < boardLen; row++) {
+                for (int col = 0; col < boardLen; col++) {
+                    long count = lineCells[row * boardLen + col];
+                    text.append((char) ('0' + (count == 0 ? 0 :
+                            1 + (int) (count * 8 / most))));
+                }
+                text.append('\n');
+            }
+            return text.toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder();
+            int bestOpening = getBestOpening(1);
+
+            text.append(boardLen).append('x').append(boardLen).append(", ")
+                    .append(winLen).append(" in a row: ").append(games)
+                    .append(" games (X won ").append(results[1])
+                    .append(", O won ").append(results[2]).append(", ")
+                    .append(results[0]).append(" ties)\n");
+            if (bestOpening >= 0) {
+                text.append("  best opening for X: row ")
+                        .append(bestOpening / boardLen).append(", column ")
+                        .append(bestOpening % boardLen).append(" (")
+                        .append(Math.round(getOpeningWinRate(bestOpening, 1)
+                                * 1000) / 10.0)
+                        .append("% won)\n");
+            }
+            text.append("  winning lines:");
+            for (int kind = 0; kind < NUM_LINE_KINDS; kind++) {
+                text.append(kind == 0 ? " " : ", ").append(lineKinds[kind])
+                        .append(' ').append(LINE_KIND_NAMES[kind]);
+            }
+            text.append("\n  game length: p50 ")
+                    .append(getLengthQuantile(0.5)).append(", p90 ")
+                    .append(getLengthQuantile(0.9)).append(", p99 ")
+                    .append(getLengthQuantile(0.99)).append('\n');
+            text.append("  winning line heatmap:\n");
+            for (String line : formatHeatmap().split("\n")) {
+                text.append("    ").append(line).append('\n');
+            }
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package sakam_p1x;
+
+/**
+ * The GameBoard interface describes the storage behind a TTT board. Cells
+ * hold a player representation (1 or 2) or 0 for an empty spot, the same
+ * values the game has always used. Implementations are free to choose their
+ * own layout, so the game can pick a plain int board or a bitboard when a
+ * board is reset.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface GameBoard extends BoardView {
+    /**
+     * Places a player's piece at an empty spot on the board.
+     *
+     * @param player Player representation (1 or 2).
+     * @param row A board row.
+     * @param col A board column.
+     */
+    void placePiece(int player, int row, int col);
+
+    /**
+     * Empties a spot on the board, e.g. to take back the last move.
+     *
+     * @param row A board row.
+     * @param col A board column.
+     */
+    void removePiece(int row, int col);
+
+    /**
+     * Empties every spot in place, so the board can be reused for a new
+     * game of the same size without allocating.
+     */
+    void clear();
+
+    /**
+     * Creates an independent copy of the board with the same storage.
+     *
+     * @return A new board holding the same pieces.
+     */
+    GameBoard copy();
+
+    /**
+     * Creates an empty board of the given length.
+     *
+     * @param boardLen An integer representing length of TTT board to create.
+     * @param useBitBoard True for a bitboard, false for a plain int board.
+     * @return A new empty GameBoard.
+     */
+    static GameBoard create(int boardLen, boolean useBitBoard) {
+        if (useBitBoard) {
+            return new BitGameBoard(boardLen);
+        }
+        return new IntGameBoard(boardLen);
+    }
+}
@@ -0,0 +1,958 @@
+package sakam_p1x;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+/**
+ * The GameJournal class keeps scores and unfinished games across runs. TTT
+ * instances log every game started, move made or taken back, and game
+ * finished to an append-only journal in a folder. On open, the journal
+ * rebuilds the scores and unfinished games from the latest snapshot plus
+ * the journal written since, so a crash loses at most the last commit
+ * interval of moves.
+ *
+ * Logging a move only copies a few bytes into a buffer; a sync thread
+ * writes the buffer out and forces it to disk, so moves logged within one
+ * commit interval share a single fsync (group commit). sync() waits until
+ * everything logged so far is on disk. Each record carries a CRC-32C, so a
+ * record torn by a crash is found and cut off on recovery.
+ *
+ * The journal is split into numbered segment files. When one fills up, the
+ * sync thread starts the next, and a compactor thread folds the closed
+ * segments into a snapshot of the scores and unfinished games, then
+ * deletes them. Recovery reads one snapshot and at most a segment or two.
+ *
+ * Files, all numbers big-endian:
+ *   journal-N.log   MAGIC, VERSION, N (long), then records: payload length,
+ *                   CRC-32C of type and payload, type (byte), payload ints
+ *   snapshot-N.snap SNAPSHOT_MAGIC, VERSION, N (long), scoreboard snapshot,
+ *                   game count, then per game its id, board length, win
+ *                   length, move count and moves; CRC-32C of it all last.
+ *                   It holds everything in the segments before N.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameJournal implements Closeable {
+    // "TTTJ" and "TTTS"
+    final public static int MAGIC = 0x5454544A;
+    final public static int SNAPSHOT_MAGIC = 0x54545453;
+    final public static int VERSION = 1;
+
+    final public static long DEFAULT_COMMIT_MICROS = 1_000;
+    final public static long DEFAULT_SEGMENT_BYTES = 16L << 20;
+
+    // record types, each followed by its int fields
+    final private static byte START = 1;  // game id, board len, win len
+    final private static byte MOVE = 2;   // game id, cell
+    final private static byte UNDO = 3;   // game id
+    final private static byte FINISH = 4; // game id, board len, first
+                                          //  mover, winner, moves
+
+    final private static int SEGMENT_HEADER_BYTES =
+            2 * Integer.BYTES + Long.BYTES;
+    final private static int RECORD_HEADER_BYTES = 2 * Integer.BYTES + 1;
+    final private static int MAX_PAYLOAD_BYTES = 5 * Integer.BYTES;
+
+    // logged records wait here for the sync thread, two buffers in turn
+    final private static int BUFFER_BYTES = 1 << 20;
+
+    final private static String SEGMENT_PREFIX = "journal-";
+    final private static String SEGMENT_SUFFIX = ".log";
+    final private static String SNAPSHOT_PREFIX = "snapshot-";
+    final private static String SNAPSHOT_SUFFIX = ".snap";
+
+    private final Path dir;
+    private final long commitNanos;
+    private final long segmentBytes;
+    private final State recovered;
+
+    /*
+     * guarded by lock: the buffer being filled and its CRC, bytes logged
+     * and bytes on disk so far, and the sync thread's state
+     */
+    private final Object lock = new Object();
+    private final CRC32C crc = new CRC32C();
+    private ByteBuffer filling = ByteBuffer.allocate(BUFFER_BYTES);
+    private ByteBuffer writing = ByteBuffer.allocate(BUFFER_BYTES);
+    private long logged;
+    private long durable;
+    private boolean syncWanted;
+    private boolean closing;
+    private IOException failure;
+
+    // only the sync thread touches the open segment
+    private FileChannel segment;
+    private long segmentSeq;
+    private long segmentSize;
+
+    // guarded by compactLock: segments before compactTo may be compacted
+    private final Object compactLock = new Object();
+    private long compactTo;
+    private long compactedTo;
+    private boolean stopCompacting;
+
+    private final Thread syncThread;
+    private final Thread compactThread;
+
+    /**
+     * The constructor recovers the journal in a folder (creating it if
+     * needed) and starts a new segment to log to.
+     *
+     * @param dir Folder the journal lives in.
+     * @param commitMicros Longest a logged record waits to be forced to
+     *                     disk, unless sync() is called.
+     * @param segmentBytes Size at which a segment is closed and compacted.
+     * @throws IOException If the journal can't be read or written, or a
+     *                     closed segment or every snapshot is corrupt.
+     */
+    public GameJournal(Path dir, long commitMicros, long segmentBytes)
+            throws IOException {
+        this.dir = dir;
+        commitNanos = TimeUnit.MICROSECONDS.toNanos(commitMicros);
+        this.segmentBytes = segmentBytes;
+
+        Files.createDirectories(dir);
+        recovered = loadLatestSnapshot();
+
+        List<Long> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        long nextSeq = recovered.seq;
+        for (int i = 0; i < segments.size(); i++) {
+            long seq = segments.get(i);
+            if (seq < recovered.seq) {
+                // already in the snapshot; a compaction was cut short
+                Files.deleteIfExists(segmentPath(seq));
+            } else if (seq != nextSeq) {
+                throw missingSegment(nextSeq);
+            } else {
+                replay(seq, recovered, i == segments.size() - 1);
+                nextSeq = seq + 1;
+            }
+        }
+        if (nextSeq == recovered.seq && recovered.seq > 0) {
+            // the segment a snapshot ends at is created before it
+            throw missingSegment(nextSeq);
+        }
+
+        openSegment(nextSeq);
+        compactTo = nextSeq;
+        compactedTo = recovered.seq;
+
+        syncThread = new Thread(this::syncLoop, "game-journal-sync");
+        syncThread.setDaemon(true);
+        syncThread.start();
+        compactThread = new Thread(this::compactLoop,
+                "game-journal-compact");
+        compactThread.setDaemon(true);
+        compactThread.start();
+    }
+
+    /**
+     * The constructor recovers the journal in a folder with the default
+     * commit interval and segment size.
+     *
+     * @param dir Folder the journal lives in.
+     * @throws IOException If the journal can't be read or written.
+     */
+    public GameJournal(Path dir) throws IOException {
+        this(dir, DEFAULT_COMMIT_MICROS, DEFAULT_SEGMENT_BYTES);
+    }
+
+    /**
+     * Gets the scores the journal held when it was opened.
+     *
+     * @return Snapshot of the recovered scoreboard.
+     */
+    public ScoreBoard.Snapshot getSavedScores() {
+        return recovered.scores.snapshot();
+    }
+
+    /**
+     * Gets a game that was unfinished when the journal was opened.
+     *
+     * @param gameId Id the game was logged under.
+     * @return The game, or null if it finished or was never logged.
+     */
+    public SavedGame getSavedGame(int gameId) {
+        return recovered.games.get(gameId);
+    }
+
+    /**
+     * Logs a new game, replacing any unfinished game with the same id.
+     *
+     * @param gameId Id of the game, e.g. 0 for a console session.
+     * @param boardLen Length of the board.
+     * @param winLen Number of pieces in a row that wins.
+     * @throws UncheckedIOException If the journal can no longer be written.
+     */
+    public void gameStarted(int gameId, int boardLen, int winLen) {
+        append(START, 3, gameId, boardLen, winLen, 0, 0);
+    }
+
+    /**
+     * Logs a move.
+     *
+     * @param gameId Id of the game.
+     * @param cell Cell index (row * board length + column) of the move.
+     * @throws UncheckedIOException If the journal can no longer be written.
+     */
+    public void moveMade(int gameId, int cell) {
+        append(MOVE, 2, gameId, cell, 0, 0, 0);
+    }
+
+    /**
+     * Logs a game's last move being taken back.
+     *
+     * @param gameId Id of the game.
+     * @throws UncheckedIOException If the journal can no longer be written.
+     */
+    public void moveUndone(int gameId) {
+        append(UNDO, 1, gameId, 0, 0, 0, 0);
+    }
+
+    /**
+     * Logs a finished game, which goes on the scores and is no longer
+     * unfinished.
+     *
+     * @param gameId Id of the game.
+     * @param boardLen Length of the board.
+     * @param firstMover Player representation (1 or 2) who moved first.
+     * @param winner 1 (X) or 2 (O), or 0 for a tie.
+     * @param numMoves Number of moves the game lasted.
+     * @throws UncheckedIOException If the journal can no longer be written.
+     */
+    public void gameFinished(int gameId, int boardLen, int firstMover,
+                             int winner, int numMoves) {
+        append(FINISH, 5, gameId, boardLen, firstMover, winner, numMoves);
+    }
+
+    /**
+     * Waits until everything logged so far is on disk.
+     *
+     * @throws IOException If the journal couldn't be written.
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    public void sync() throws IOException, InterruptedException {
+        synchronized (lock) {
+            long target = logged;
+            syncWanted = true;
+            lock.notifyAll();
+
+            while (durable < target) {
+                if (failure != null) {
+                    throw failure;
+                }
+                lock.wait();
+            }
+        }
+    }
+
+    /**
+     * Forces everything logged to disk and stops the journal's threads. A
+     * compaction already running is finished first.
+     *
+     * @throws IOException If the journal couldn't be written.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closing = true;
+            lock.notifyAll();
+        }
+        synchronized (compactLock) {
+            stopCompacting = true;
+            compactLock.notifyAll();
+        }
+
+        boolean interrupted = false;
+        while (syncThread.isAlive() || compactThread.isAlive()) {
+            try {
+                syncThread.join();
+                compactThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true; // the data must still reach the disk
+            }
+        }
+        segment.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Copies a record into the buffer being filled, waiting for the sync
+     * thread if it is full. Only the first numInts fields are logged.
+     *
+     * @param type Record type.
+     * @param numInts Number of ints in the payload.
+     * @param a First field.
+     * @param b Second field.
+     * @param c Third field.
+     * @param d Fourth field.
+     * @param e Fifth field.
+     * @throws UncheckedIOException If the journal can no longer be written.
+     */
+    private void append(byte type, int numInts, int a, int b, int c, int d,
+                        int e) {
+        int payloadBytes = numInts * Integer.BYTES;
+        int recordBytes = RECORD_HEADER_BYTES + payloadBytes;
+
+        synchronized (lock) {
+            while (failure == null && !closing &&
+                    filling.remaining() < recordBytes) {
+                // past half full, the sync thread is already on its way
+                try {
+                    lock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new IOException(
+                            "Interrupted waiting for journal space"));
+                }
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            if (closing) {
+                throw new UncheckedIOException(
+                        new IOException("Journal is closed"));
+            }
+
+            int start = filling.position();
+            filling.putInt(payloadBytes);
+            filling.putInt(0); // CRC, once the rest is in
+            filling.put(type);
+
+            filling.putInt(a);
+            if (numInts > 1) {
+                filling.putInt(b);
+            }
+            if (numInts > 2) {
+                filling.putInt(c);
+            }
+            if (numInts > 3) {
+                filling.putInt(d).putInt(e);
+            }
+
+            int checked = start + 2 * Integer.BYTES;
+            crc.reset();
+            crc.update(filling.array(), checked, 1 + payloadBytes);
+            filling.putInt(start + Integer.BYTES, (int) crc.getValue());
+            logged += recordBytes;
+
+            // wake the sync thread for a first record or a half-full buffer
+            int half = BUFFER_BYTES / 2;
+            if (start == 0 || (start < half && filling.position() >= half)) {
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Writes out and forces logged records in batches: it waits for the
+     * first record, gives others the commit interval to join it (unless a
+     * sync is wanted or the buffer is half full), then swaps buffers and
+     * writes the full one while logging goes on. Runs on the sync thread.
+     */
+    private void syncLoop() {
+        try {
+            while (true) {
+                long batchEnd;
+                synchronized (lock) {
+                    while (filling.position() == 0 && !closing) {
+                        lock.wait();
+                    }
+                    if (filling.position() == 0) {
+                        return; // closing, and everything is written
+                    }
+
+                    long deadline = System.nanoTime() + commitNanos;
+                    long left = commitNanos;
+                    while (!closing && !syncWanted && left > 0 &&
+                            filling.position() < BUFFER_BYTES / 2) {
+                        TimeUnit.NANOSECONDS.timedWait(lock, left);
+                        left = deadline - System.nanoTime();
+                    }
+
+                    ByteBuffer full = filling;
+                    filling = writing;
+                    writing = full;
+                    batchEnd = logged;
+                    syncWanted = false;
+                    lock.notifyAll(); // room for anyone waiting to log
+                }
+
+                writing.flip();
+                segmentSize += writing.remaining();
+                while (writing.hasRemaining()) {
+                    segment.write(writing);
+                }
+                segment.force(false);
+                writing.clear();
+
+                synchronized (lock) {
+                    durable = batchEnd;
+                    lock.notifyAll();
+                }
+                if (segmentSize >= segmentBytes) {
+                    rollSegment();
+                }
+            }
+        } catch (IOException e) {
+            fail(e);
+        } catch (InterruptedException e) {
+            fail(new IOException("Journal sync thread interrupted"));
+        }
+    }
+
+    /**
+     * Records that the journal can't be written, waking everyone waiting
+     * on it.
+     *
+     * @param e What went wrong.
+     */
+    private void fail(IOException e) {
+        synchronized (lock) {
+            failure = e;
+            lock.notifyAll();
+        }
+    }
+
+    /**
+     * Closes the full segment, starts the next and has the compactor fold
+     * the closed ones into a snapshot. Runs on the sync thread.
+     *
+     * @throws IOException If the next segment can't be created.
+     */
+    private void rollSegment() throws IOException {
+        segment.close();
+        openSegment(segmentSeq + 1);
+
+        synchronized (compactLock) {
+            compactTo = segmentSeq;
+            compactLock.notifyAll();
+        }
+    }
+
+    /**
+     * Creates a segment, writes its header and makes sure it survives a
+     * crash.
+     *
+     * @param seq The segment's number.
+     * @throws IOException If it can't be created.
+     */
+    private void openSegment(long seq) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(seq).flip();
+
+        segment = FileChannel.open(segmentPath(seq),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        while (header.hasRemaining()) {
+            segment.write(header);
+        }
+        segment.force(true);
+        forceDir();
+        segmentSeq = seq;
+        segmentSize = SEGMENT_HEADER_BYTES;
+    }
+
+    /**
+     * Compacts closed segments as the sync thread closes them, until the
+     * journal closes. Runs on the compactor thread.
+     */
+    private void compactLoop() {
+        while (true) {
+            long upTo;
+            synchronized (compactLock) {
+                while (!stopCompacting && compactTo <= compactedTo) {
+                    try {
+                        compactLock.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                if (stopCompacting) {
+                    return;
+                }
+                upTo = compactTo;
+            }
+
+            try {
+                compact(upTo);
+                synchronized (compactLock) {
+                    compactedTo = upTo;
+                }
+            } catch (IOException e) {
+                fail(e); // a closed segment went bad; stop trusting it
+                return;
+            }
+        }
+    }
+
+    /**
+     * Folds every segment before a number into a new snapshot, then
+     * deletes them and older snapshots.
+     *
+     * @param upTo Number of the first segment to leave out.
+     * @throws IOException If a segment or snapshot can't be read, or the
+     *                     snapshot can't be written.
+     */
+    private void compact(long upTo) throws IOException {
+        State state = loadLatestSnapshot();
+
+        for (long seq = state.seq; seq < upTo; seq++) {
+            if (!Files.exists(segmentPath(seq))) {
+                throw missingSegment(seq);
+            }
+            replay(seq, state, false);
+        }
+        state.seq = upTo;
+        writeSnapshot(state);
+
+        for (long seq : list(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+            if (seq < upTo) {
+                Files.deleteIfExists(segmentPath(seq));
+            }
+        }
+        for (long seq : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (seq < upTo) {
+                Files.deleteIfExists(snapshotPath(seq));
+            }
+        }
+    }
+
+    /**
+     * Applies a segment's records to a state. A record cut off or garbled
+     * by a crash can only be at the end of the last segment; there it is
+     * cut off the file, anywhere else it is an error.
+     *
+     * @param seq The segment's number.
+     * @param state State to apply the records to.
+     * @param isLast True if no later segment exists.
+     * @throws IOException If the segment can't be read or is corrupt.
+     */
+    private void replay(long seq, State state, boolean isLast)
+            throws IOException {
+        Path path = segmentPath(seq);
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32C check = new CRC32C();
+
+        if (data.remaining() < SEGMENT_HEADER_BYTES ||
+                data.getInt() != MAGIC || data.getInt() != VERSION ||
+                data.getLong() != seq) {
+            if (isLast && data.capacity() < SEGMENT_HEADER_BYTES) {
+                // created, but the header never made it to disk; keeping
+                // it (empty) keeps the segment numbers unbroken
+                writeSegmentHeader(path, seq);
+                return;
+            }
+            throw new IOException(path + " is not journal segment " + seq);
+        }
+
+        while (data.hasRemaining()) {
+            int start = data.position();
+            int payloadBytes = data.remaining() >= RECORD_HEADER_BYTES ?
+                    data.getInt(start) : -1;
+
+            boolean whole = payloadBytes >= 0 &&
+                    payloadBytes <= MAX_PAYLOAD_BYTES &&
+                    data.remaining() >= RECORD_HEADER_BYTES + payloadBytes;
+            if (whole) {
+                check.reset();
+                check.update(data.array(), start + 2 * Integer.BYTES,
+                        1 + payloadBytes);
+                whole = (int) check.getValue() ==
+                        data.getInt(start + Integer.BYTES);
+            }
+
+            if (!whole) {
+                if (!isLast) {
+                    throw new IOException(path + " is corrupt at byte " +
+                            start);
+                }
+                try (FileChannel torn = FileChannel.open(path,
+                        StandardOpenOption.WRITE)) {
+                    torn.truncate(start);
+                    torn.force(true);
+                }
+                return;
+            }
+
+            data.position(start + 2 * Integer.BYTES);
+            state.apply(data.get(), data);
+        }
+    }
+
+    /**
+     * Writes a fresh header over a segment whose own never reached the
+     * disk, leaving it empty.
+     *
+     * @param path The segment's path.
+     * @param seq The segment's number.
+     * @throws IOException If it can't be written.
+     */
+    private static void writeSegmentHeader(Path path, long seq)
+            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putLong(seq).flip();
+
+        try (FileChannel file = FileChannel.open(path,
+                StandardOpenOption.WRITE)) {
+            file.truncate(0);
+            while (header.hasRemaining()) {
+                file.write(header, header.position());
+            }
+            file.force(true);
+        }
+    }
+
+    /**
+     * Builds the error for a segment that should be there but isn't. The
+     * journal can't be trusted past it, e.g. if the newest snapshot was
+     * corrupt and an older one was loaded whose segments are gone.
+     *
+     * @param seq The missing segment's number.
+     * @return The error to throw.
+     */
+    private IOException missingSegment(long seq) {
+        return new IOException(segmentPath(seq) + " is missing, so the " +
+                "journal can't be recovered without losing games; an " +
+                "older snapshot may have been loaded in place of a " +
+                "corrupt one");
+    }
+
+    /**
+     * Loads the newest snapshot that reads back intact, or an empty state
+     * if there are none. An older snapshot is only usable while the
+     * segments after it are still there, which recovery checks.
+     *
+     * @return The snapshot's state.
+     * @throws IOException If the folder can't be read, or snapshots exist
+     *                     but none is intact.
+     */
+    private State loadLatestSnapshot() throws IOException {
+        List<Long> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        IOException lastError = null;
+
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            try {
+                return readSnapshot(snapshots.get(i));
+            } catch (IOException e) {
+                lastError = e; // try an older one
+            }
+        }
+        if (lastError != null) {
+            throw lastError;
+        }
+        return new State(0);
+    }
+
+    /**
+     * Reads a snapshot file.
+     *
+     * @param seq The snapshot's number.
+     * @return Its state.
+     * @throws IOException If it can't be read or is corrupt.
+     */
+    private State readSnapshot(long seq) throws IOException {
+        Path path = snapshotPath(seq);
+        byte[] bytes = Files.readAllBytes(path);
+        CRC32C check = new CRC32C();
+        int bodyBytes = bytes.length - Integer.BYTES;
+
+        if (bodyBytes < 0) {
+            throw new IOException(path + " is cut off");
+        }
+        check.update(bytes, 0, bodyBytes);
+        int stored = ByteBuffer.wrap(bytes).getInt(bodyBytes);
+        if ((int) check.getValue() != stored) {
+            throw new IOException(path + " fails its checksum");
+        }
+
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, 0, bodyBytes));
+        if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != VERSION ||
+                in.readLong() != seq) {
+            throw new IOException(path + " is not snapshot " + seq);
+        }
+
+        State state = new State(seq);
+        state.scores.merge(ScoreBoard.Snapshot.readFrom(in));
+        int numGames = in.readInt();
+        for (int i = 0; i < numGames; i++) {
+            int gameId = in.readInt();
+            SavedGame game = new SavedGame(in.readInt(), in.readInt());
+            int numMoves = in.readInt();
+            for (int move = 0; move < numMoves; move++) {
+                game.add(in.readInt());
+            }
+            state.games.put(gameId, game);
+        }
+        return state;
+    }
+
+    /**
+     * Writes a state as a snapshot: to a temporary file first, then
+     * renamed into place, so a crash leaves either the whole snapshot or
+     * none of it.
+     *
+     * @param state The state, numbered with the first segment it leaves
+     *              out.
+     * @throws IOException If it can't be written.
+     */
+    private void writeSnapshot(State state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        out.writeInt(SNAPSHOT_MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(state.seq);
+        state.scores.snapshot().writeTo(out);
+        out.writeInt(state.games.size());
+        for (Map.Entry<Integer, SavedGame> entry : state.games.entrySet()) {
+            SavedGame game = entry.getValue();
+            out.writeInt(entry.getKey());
+            out.writeInt(game.boardLength);
+            out.writeInt(game.winLength);
+            out.writeInt(game.numMoves);
+            for (int move = 0; move < game.numMoves; move++) {
+                out.writeInt(game.moves[move]);
+            }
+        }
+
+        CRC32C check = new CRC32C();
+        check.update(bytes.toByteArray());
+        out.writeInt((int) check.getValue());
+
+        Path target = snapshotPath(state.seq);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel file = FileChannel.open(temp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(bytes.toByteArray());
+            while (data.hasRemaining()) {
+                file.write(data);
+            }
+            file.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        forceDir();
+    }
+
+    /**
+     * Lists the numbers of the files with a prefix and suffix, in order.
+     *
+     * @param prefix File name prefix.
+     * @param suffix File name suffix.
+     * @return Their numbers, smallest first.
+     * @throws IOException If the folder can't be read.
+     */
+    private List<Long> list(String prefix, String suffix) throws IOException {
+        List<Long> seqs = new ArrayList<>();
+
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(prefix.length(),
+                            name.length() - suffix.length())));
+                } catch (NumberFormatException e) {
+                    // not one of ours
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    /**
+     * Makes file creations and renames in the folder survive a crash.
+     *
+     * @throws IOException If the folder can't be forced.
+     */
+    private void forceDir() throws IOException {
+        try (FileChannel folder = FileChannel.open(dir,
+                StandardOpenOption.READ)) {
+            folder.force(true);
+        }
+    }
+
+    /**
+     * Gets a segment's path.
+     *
+     * @param seq The segment's number.
+     * @return Its path.
+     */
+    private Path segmentPath(long seq) {
+        return dir.resolve(String.format("%s%019d%s", SEGMENT_PREFIX, seq,
+                SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Gets a snapshot's path.
+     *
+     * @param seq The snapshot's number.
+     * @return Its path.
+     */
+    private Path snapshotPath(long seq) {
+        return dir.resolve(String.format("%s%019d%s", SNAPSHOT_PREFIX, seq,
+                SNAPSHOT_SUFFIX));
+    }
+
+    /**
+     * The State class is what the journal remembers: scores and the
+     * unfinished games by id, as of the start of a numbered segment.
+     */
+    private static class State {
+        private final ScoreBoard scores = new ScoreBoard();
+        private final Map<Integer, SavedGame> games = new HashMap<>();
+        private long seq;
+
+        /**
+         * The constructor sets up an empty state.
+         *
+         * @param seq Number of the first segment not yet applied.
+         */
+        State(long seq) {
+            this.seq = seq;
+        }
+
+        /**
+         * Applies one record.
+         *
+         * @param type Record type.
+         * @param payload The record's fields, read from here.
+         * @throws IOException If the type is unknown.
+         */
+        void apply(byte type, ByteBuffer payload) throws IOException {
+            int gameId = payload.getInt();
+            SavedGame game = games.get(gameId);
+
+            switch (type) {
+                case START:
+                    games.put(gameId, new SavedGame(payload.getInt(),
+                            payload.getInt()));
+                    break;
+                case MOVE:
+                    int cell = payload.getInt();
+                    if (game != null) {
+                        game.add(cell);
+                    }
+                    break;
+                case UNDO:
+                    if (game != null && game.numMoves > 0) {
+                        game.numMoves--;
+                    }
+                    break;
+                case FINISH:
+                    scores.recordGame(payload.getInt(), payload.getInt(),
+                            payload.getInt(), payload.getInt());
+                    games.remove(gameId);
+                    break;
+                default:
+                    throw new IOException("Unknown journal record " + type);
+            }
+        }
+    }
+
+    /**
+     * The SavedGame class is an unfinished game found in the journal: its
+     * rules and the moves made so far, X's first.
+     */
+    public static class SavedGame {
+        private final int boardLength;
+        private final int winLength;
+        private final int[] moves;
+        private int numMoves;
+
+        /**
+         * The constructor sets up a game with no moves.
+         *
+         * @param boardLen Length of the board.
+         * @param winLen Number of pieces in a row that wins.
+         * @throws IOException If the board length is out of range.
+         */
+        SavedGame(int boardLen, int winLen) throws IOException {
+            if (boardLen < 1 || boardLen > ScoreBoard.MAX_SIZE) {
+                throw new IOException("Bad board length " + boardLen);
+            }
+            boardLength = boardLen;
+            winLength = winLen;
+            moves = new int[boardLen * boardLen];
+        }
+
+        /**
+         * Adds a move, ignoring any past a full board.
+         *
+         * @param cell Cell index of the move.
+         */
+        void add(int cell) {
+            if (numMoves < moves.length) {
+                moves[numMoves++] = cell;
+            }
+        }
+
+        /**
+         * Gets the length of the game's board.
+         *
+         * @return Board length.
+         */
+        public int getBoardLength() {
+            return boardLength;
+        }
+
+        /**
+         * Gets the number of pieces in a row that wins the game.
+         *
+         * @return Win length.
+         */
+        public int getWinLength() {
+            return winLength;
+        }
+
+        /**
+         * Gets the number of moves made.
+         *
+         * @return Number of moves.
+         */
+        public int getNumMoves() {
+            return numMoves;
+        }
+
+        /**
+         * Gets one of the moves made.
+         *
+         * @param index Move number, from 0 (X's first move).
+         * @return Cell index (row * board length + column) of the move.
+         */
+        public int getMove(int index) {
+            if (index < 0 || index >= numMoves) {
+                throw new IndexOutOfBoundsException("No move " + index);
+            }
+            return moves[index];
+        }
+    }
+}
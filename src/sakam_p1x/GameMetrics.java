@@ -0,0 +1,732 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * The GameMetrics class instruments the game loop (TicTacToeX.playGame):
+ * how long each phase of a move takes, plus counts of games, moves and
+ * invalid move retries. It is off unless the JVM is started with
+ * -Dttt.metrics=true or it is turned on at runtime (e.g. over JMX).
+ *
+ * Disabled, a game checks one flag when it starts and nothing else. When
+ * enabled, each thread writes to its own recorder with plain stores, so
+ * there is no contention, and only one move in every sample interval
+ * (default 1024) is timed, since reading the clock costs more than most
+ * phases. Counts are added once per game. Phase times go into log-linear
+ * histograms, like HdrHistogram: 8 buckets per power of two, so a
+ * reported quantile is within 12.5% of the true value.
+ *
+ * Readers merge every thread's recorder into a snapshot without stopping
+ * the writers. When a thread has died, its counts are folded into one
+ * shared total and its recorder dropped, so memory follows the number of
+ * live threads, not every thread that ever played. Metrics are exported
+ * through JMX (see GameMetricsMXBean) and as a plain-text scrape file,
+ * rewritten periodically, in the Prometheus text format.
+ * -Dttt.metrics.file=path starts the file, and
+ * -Dttt.metrics.sampleInterval=n sets the sample interval.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class GameMetrics {
+    // game loop phases, in the order they run within a move
+    final public static int ROTATE = 0;
+    final public static int DISPLAY = 1;
+    final public static int TURN = 2;
+    final public static int WIN_CHECK = 3;
+    final public static int NUM_PHASES = 4;
+    final private static String[] PHASE_NAMES =
+            {"rotatePlayer", "displayGameBoard", "playerTurn", "winnerExists"};
+
+    final public static String OBJECT_NAME = "sakam_p1x:type=GameMetrics";
+    final private static int DEFAULT_SAMPLE_INTERVAL = 1024;
+    final private static long DEFAULT_SCRAPE_MILLIS = 1000;
+    final private static double[] SCRAPE_QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    /*
+     * histogram buckets: values below 16 get a bucket each, and every power
+     * of two from there up gets 8; values are capped just below 2^40 ns
+     * (about 18 minutes)
+     */
+    final private static int SUB_BITS = 3;
+    final private static int SUB_COUNT = 1 << SUB_BITS;
+    final private static int MAX_EXPONENT = 40;
+    final private static long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    final private static int NUM_BUCKETS =
+            (MAX_EXPONENT - SUB_BITS + 1) * SUB_COUNT;
+
+    /*
+     * recorder slots: the three counters, then per phase its buckets, the
+     * sum of its samples and the largest sample
+     */
+    final private static int GAMES = 0;
+    final private static int MOVES = 1;
+    final private static int RETRIES = 2;
+    final private static int NUM_COUNTERS = 3;
+    final private static int PHASE_SLOTS = NUM_BUCKETS + 2;
+    final private static int NUM_SLOTS = NUM_COUNTERS +
+            NUM_PHASES * PHASE_SLOTS;
+
+    private static volatile boolean enabled =
+            Boolean.getBoolean("ttt.metrics");
+    private static volatile int sampleInterval = Math.max(1,
+            Integer.getInteger("ttt.metrics.sampleInterval",
+                    DEFAULT_SAMPLE_INTERVAL));
+
+    // recorders of threads that may still be alive
+    final private static Queue<Recorder> RECORDERS =
+            new ConcurrentLinkedQueue<>();
+    final private static ThreadLocal<Recorder> RECORDER =
+            ThreadLocal.withInitial(() -> {
+                retireDeadRecorders(); // so short-lived threads don't pile up
+                Recorder recorder = new Recorder();
+                RECORDERS.add(recorder);
+                return recorder;
+            });
+
+    // counts of threads that have died, merged; guarded by itself
+    final private static long[] RETIRED = new long[NUM_SLOTS];
+
+    private static boolean mbeanRegistered;
+    private static ScheduledExecutorService scrapeWriter;
+
+    /**
+     * The constructor is private since this class only has static helpers.
+     */
+    private GameMetrics() {
+    }
+
+    /**
+     * Checks whether games are being instrumented.
+     *
+     * @return True if metrics are being recorded.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns instrumentation on or off. Games already running keep the
+     * setting they started with.
+     *
+     * @param enable True to record metrics.
+     */
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    /**
+     * Gets how often moves are timed.
+     *
+     * @return One move in this many has its phases timed.
+     */
+    public static int getSampleInterval() {
+        return sampleInterval;
+    }
+
+    /**
+     * Sets how often moves are timed. 1 times every move, which is exact
+     * but costs several clock reads per move.
+     *
+     * @param interval One move in this many gets timed (at least 1).
+     */
+    public static void setSampleInterval(int interval) {
+        sampleInterval = Math.max(1, interval);
+    }
+
+    /**
+     * Gets the calling thread's recorder for a game about to start.
+     *
+     * @return The thread's recorder, or null if metrics are disabled.
+     */
+    static Recorder recorder() {
+        return enabled ? RECORDER.get() : null;
+    }
+
+    /**
+     * Counts a human choosing a spot that was taken and being asked again.
+     */
+    static void recordInvalidMove() {
+        if (enabled) {
+            RECORDER.get().add(RETRIES, 1);
+        }
+    }
+
+    /**
+     * Merges every thread's recorder into a snapshot. Writers keep going
+     * while it is taken, so a game finishing meanwhile may be half counted.
+     *
+     * @return The metrics so far.
+     */
+    public static Snapshot snapshot() {
+        long[] totals;
+
+        synchronized (RETIRED) {
+            retireDeadRecorders();
+            totals = RETIRED.clone();
+            for (Recorder recorder : RECORDERS) {
+                merge(totals, recorder);
+            }
+        }
+        return new Snapshot(totals);
+    }
+
+    /**
+     * Folds the recorders of threads that have died into the retired
+     * totals and drops them. A dead thread writes no more, so its counts
+     * are final.
+     */
+    private static void retireDeadRecorders() {
+        synchronized (RETIRED) {
+            for (Recorder recorder : RECORDERS) {
+                Thread owner = recorder.owner.get();
+
+                if ((owner == null || !owner.isAlive()) &&
+                        RECORDERS.remove(recorder)) {
+                    merge(RETIRED, recorder);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a recorder's slots to merged totals.
+     *
+     * @param totals Merged slots so far.
+     * @param recorder The recorder.
+     */
+    private static void merge(long[] totals, Recorder recorder) {
+        for (int slot = 0; slot < NUM_SLOTS; slot++) {
+            long value = recorder.slots.getOpaque(slot);
+
+            if ((slot - NUM_COUNTERS) % PHASE_SLOTS == PHASE_SLOTS - 1) {
+                totals[slot] = Math.max(totals[slot], value); // a max
+            } else {
+                totals[slot] += value;
+            }
+        }
+    }
+
+    /**
+     * Gets every metric in the plain-text (Prometheus) scrape format.
+     *
+     * @return The scrape text.
+     */
+    public static String scrape() {
+        Snapshot snapshot = snapshot();
+        StringBuilder out = new StringBuilder(2048);
+
+        counter(out, "ttt_games_total", "Games finished.",
+                snapshot.getGames());
+        counter(out, "ttt_moves_total", "Moves played.",
+                snapshot.getMoves());
+        counter(out, "ttt_invalid_move_retries_total",
+                "Moves asked again after a taken spot was chosen.",
+                snapshot.getInvalidMoveRetries());
+
+        out.append("# HELP ttt_phase_nanos Sampled game loop phase time.\n");
+        out.append("# TYPE ttt_phase_nanos summary\n");
+        for (int phase = 0; phase < NUM_PHASES; phase++) {
+            Histogram histogram = snapshot.getPhase(phase);
+            String label = "{phase=\"" + PHASE_NAMES[phase] + "\"";
+
+            for (double quantile : SCRAPE_QUANTILES) {
+                out.append("ttt_phase_nanos").append(label)
+                        .append(",quantile=\"").append(quantile)
+                        .append("\"} ")
+                        .append(histogram.getValueAtQuantile(quantile))
+                        .append('\n');
+            }
+            out.append("ttt_phase_nanos_sum").append(label).append("} ")
+                    .append(histogram.getSum()).append('\n');
+            out.append("ttt_phase_nanos_count").append(label).append("} ")
+                    .append(histogram.getCount()).append('\n');
+            out.append("ttt_phase_nanos_max").append(label).append("} ")
+                    .append(histogram.getMax()).append('\n');
+        }
+        return out.toString();
+    }
+
+    /**
+     * Appends one counter to a scrape.
+     *
+     * @param out Scrape being built.
+     * @param name Metric name.
+     * @param help What the metric counts.
+     * @param value Its value.
+     */
+    private static void counter(StringBuilder out, String name, String help,
+                                long value) {
+        out.append("# HELP ").append(name).append(' ').append(help)
+                .append('\n');
+        out.append("# TYPE ").append(name).append(" counter\n");
+        out.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Writes the scrape text to a file. It is written beside the file and
+     * moved into place, so a scraper never reads half a file.
+     *
+     * @param file Path of the scrape file.
+     * @throws IOException If the file can't be written.
+     */
+    public static void writeScrapeFile(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Files.writeString(temp, scrape());
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Starts rewriting the scrape file periodically on a daemon thread,
+     * and once more when the JVM exits.
+     *
+     * @param file Path of the scrape file.
+     * @param periodMillis Time between rewrites.
+     */
+    public static synchronized void startScrapeFile(Path file,
+                                                    long periodMillis) {
+        if (scrapeWriter != null) {
+            throw new IllegalStateException("Scrape file already started");
+        }
+
+        scrapeWriter = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "metrics-scrape");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scrapeWriter.scheduleAtFixedRate(() -> writeQuietly(file),
+                periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(
+                new Thread(() -> writeQuietly(file)));
+    }
+
+    /**
+     * Writes the scrape file, reporting rather than throwing a failure so
+     * the periodic writer keeps going.
+     *
+     * @param file Path of the scrape file.
+     */
+    private static void writeQuietly(Path file) {
+        try {
+            writeScrapeFile(file);
+        } catch (IOException e) {
+            System.err.println("Can't write metrics to " + file + ": " +
+                    e.getMessage());
+        }
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, under
+     * OBJECT_NAME. Registering again does nothing.
+     */
+    public static synchronized void registerMBean() {
+        if (mbeanRegistered) {
+            return;
+        }
+
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(
+                    new MBean(), new ObjectName(OBJECT_NAME));
+            mbeanRegistered = true;
+        } catch (JMException e) {
+            throw new IllegalStateException("Can't register " + OBJECT_NAME,
+                    e);
+        }
+    }
+
+    /**
+     * Exports the metrics as the system properties ask: the MBean when
+     * ttt.metrics is set, and the scrape file when ttt.metrics.file is
+     * (every ttt.metrics.periodMillis, default 1000). Does nothing
+     * otherwise, so programs can call it unconditionally at startup.
+     */
+    public static void exportFromProperties() {
+        String file = System.getProperty("ttt.metrics.file");
+
+        if (enabled) {
+            registerMBean();
+        }
+        if (file != null) {
+            startScrapeFile(Paths.get(file), Long.getLong(
+                    "ttt.metrics.periodMillis", DEFAULT_SCRAPE_MILLIS));
+        }
+    }
+
+    /**
+     * Gets the histogram bucket a value falls in.
+     *
+     * @param value A time in nanoseconds.
+     * @return Bucket index.
+     */
+    private static int bucketOf(long value) {
+        value = Math.min(Math.max(value, 0), MAX_VALUE);
+        if (value < 2 * SUB_COUNT) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    /**
+     * Gets the smallest value in a histogram bucket.
+     *
+     * @param bucket Bucket index.
+     * @return Lowest value that falls in the bucket.
+     */
+    private static long bucketLow(int bucket) {
+        if (bucket < 2 * SUB_COUNT) {
+            return bucket;
+        }
+
+        int exponent = bucket / SUB_COUNT - 1 + SUB_BITS;
+        long sub = bucket % SUB_COUNT;
+        return (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    /**
+     * The Recorder class holds one thread's metrics. Only that thread
+     * writes them, with opaque stores (plain moves on common hardware)
+     * that readers on other threads still see whole.
+     */
+    static final class Recorder {
+        private final AtomicLongArray slots = new AtomicLongArray(NUM_SLOTS);
+        // weak, so a recorder doesn't keep its dead thread reachable
+        private final WeakReference<Thread> owner =
+                new WeakReference<>(Thread.currentThread());
+        private int movesUntilSample = 1;
+
+        /**
+         * Decides whether the coming move gets timed.
+         *
+         * @return True once every sample interval moves.
+         */
+        boolean sampleMove() {
+            if (--movesUntilSample > 0) {
+                return false;
+            }
+            movesUntilSample = sampleInterval;
+            return true;
+        }
+
+        /**
+         * Records the time since a phase started, which is also when the
+         * next phase starts.
+         *
+         * @param phase Phase that just finished.
+         * @param startNanos When it started.
+         * @return The time now, i.e. when the next phase starts.
+         */
+        long lap(int phase, long startNanos) {
+            long now = System.nanoTime();
+            long nanos = now - startNanos;
+            int base = NUM_COUNTERS + phase * PHASE_SLOTS;
+
+            add(base + bucketOf(nanos), 1);
+            add(base + NUM_BUCKETS, nanos);
+            if (nanos > slots.getPlain(base + NUM_BUCKETS + 1)) {
+                slots.setOpaque(base + NUM_BUCKETS + 1, nanos);
+            }
+            return now;
+        }
+
+        /**
+         * Counts a finished game and its moves.
+         *
+         * @param numMoves Number of moves the game lasted.
+         */
+        void recordGame(int numMoves) {
+            add(GAMES, 1);
+            add(MOVES, numMoves);
+        }
+
+        /**
+         * Adds to one slot. Only the owning thread writes, so this needs
+         * no atomic read-modify-write.
+         *
+         * @param slot Slot index.
+         * @param delta Amount to add.
+         */
+        private void add(int slot, long delta) {
+            slots.setOpaque(slot, slots.getPlain(slot) + delta);
+        }
+    }
+
+    /**
+     * The Snapshot class is an immutable copy of the metrics, merged over
+     * every thread.
+     */
+    public static final class Snapshot {
+        private final long[] totals;
+        private final Histogram[] phases = new Histogram[NUM_PHASES];
+
+        /**
+         * The constructor wraps merged recorder slots.
+         *
+         * @param totals Slots summed over every recorder.
+         */
+        private Snapshot(long[] totals) {
+            this.totals = totals;
+            for (int phase = 0; phase < NUM_PHASES; phase++) {
+                phases[phase] = new Histogram(totals,
+                        NUM_COUNTERS + phase * PHASE_SLOTS);
+            }
+        }
+
+        /**
+         * Gets the number of games finished.
+         *
+         * @return Number of games.
+         */
+        public long getGames() {
+            return totals[GAMES];
+        }
+
+        /**
+         * Gets the number of moves played.
+         *
+         * @return Number of moves.
+         */
+        public long getMoves() {
+            return totals[MOVES];
+        }
+
+        /**
+         * Gets the number of invalid move retries.
+         *
+         * @return Number of times a human was asked again.
+         */
+        public long getInvalidMoveRetries() {
+            return totals[RETRIES];
+        }
+
+        /**
+         * Gets the time histogram of one phase.
+         *
+         * @param phase ROTATE, DISPLAY, TURN or WIN_CHECK.
+         * @return The phase's histogram.
+         */
+        public Histogram getPhase(int phase) {
+            return phases[phase];
+        }
+
+        /**
+         * Gets the name of a phase.
+         *
+         * @param phase ROTATE, DISPLAY, TURN or WIN_CHECK.
+         * @return The phase's name.
+         */
+        public static String getPhaseName(int phase) {
+            return PHASE_NAMES[phase];
+        }
+    }
+
+    /**
+     * The Histogram class is one phase's sampled times, in nanoseconds.
+     */
+    public static final class Histogram {
+        private final long[] counts = new long[NUM_BUCKETS];
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        /**
+         * The constructor copies a phase's slots out of merged totals.
+         *
+         * @param totals Merged recorder slots.
+         * @param base First slot of the phase.
+         */
+        private Histogram(long[] totals, int base) {
+            long total = 0;
+
+            for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+                counts[bucket] = totals[base + bucket];
+                total += counts[bucket];
+            }
+            count = total;
+            sum = totals[base + NUM_BUCKETS];
+            max = totals[base + NUM_BUCKETS + 1];
+        }
+
+        /**
+         * Gets the number of samples.
+         *
+         * @return Number of timings recorded.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Gets the total of every sample.
+         *
+         * @return Sum of the timings in nanoseconds.
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * Gets the mean sample.
+         *
+         * @return Mean nanoseconds, or 0 if there are no samples.
+         */
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Gets the largest sample.
+         *
+         * @return Maximum nanoseconds.
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Gets the value below which a fraction of the samples fall, as
+         * the top of that sample's bucket (but never above the maximum).
+         *
+         * @param quantile Fraction of samples, from 0 to 1.
+         * @return Nanoseconds at the quantile, or 0 if there are no
+         *         samples.
+         */
+        public long getValueAtQuantile(double quantile) {
+            long rank = Math.max(1, (long) Math.ceil(quantile * count));
+            long seen = 0;
+
+            for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+                seen += counts[bucket];
+                if (seen >= rank) {
+                    long high = bucket + 1 < NUM_BUCKETS ?
+                            bucketLow(bucket + 1) - 1 : MAX_VALUE;
+                    return Math.min(high, max);
+                }
+            }
+            return 0;
+        }
+    }
+
+    /**
+     * The MBean class serves the metrics to JMX.
+     */
+    private static class MBean implements GameMetricsMXBean {
+        @Override
+        public boolean isEnabled() {
+            return GameMetrics.isEnabled();
+        }
+
+        @Override
+        public void setEnabled(boolean enable) {
+            GameMetrics.setEnabled(enable);
+        }
+
+        @Override
+        public int getSampleInterval() {
+            return GameMetrics.getSampleInterval();
+        }
+
+        @Override
+        public void setSampleInterval(int interval) {
+            GameMetrics.setSampleInterval(interval);
+        }
+
+        @Override
+        public long getGames() {
+            return snapshot().getGames();
+        }
+
+        @Override
+        public long getMoves() {
+            return snapshot().getMoves();
+        }
+
+        @Override
+        public long getInvalidMoveRetries() {
+            return snapshot().getInvalidMoveRetries();
+        }
+
+        @Override
+        public String[] getPhases() {
+            return PHASE_NAMES.clone();
+        }
+
+        @Override
+        public long[] getPhaseSamples() {
+            Snapshot snapshot = snapshot();
+            long[] values = new long[NUM_PHASES];
+            for (int phase = 0; phase < NUM_PHASES; phase++) {
+                values[phase] = snapshot.getPhase(phase).getCount();
+            }
+            return values;
+        }
+
+        @Override
+        public double[] getPhaseMeanNanos() {
+            Snapshot snapshot = snapshot();
+            double[] values = new double[NUM_PHASES];
+            for (int phase = 0; phase < NUM_PHASES; phase++) {
+                values[phase] = snapshot.getPhase(phase).getMean();
+            }
+            return values;
+        }
+
+        @Override
+        public long[] getPhaseP50Nanos() {
+            return quantiles(0.5);
+        }
+
+        @Override
+        public long[] getPhaseP99Nanos() {
+            return quantiles(0.99);
+        }
+
+        @Override
+        public long[] getPhaseMaxNanos() {
+            Snapshot snapshot = snapshot();
+            long[] values = new long[NUM_PHASES];
+            for (int phase = 0; phase < NUM_PHASES; phase++) {
+                values[phase] = snapshot.getPhase(phase).getMax();
+            }
+            return values;
+        }
+
+        @Override
+        public String getScrape() {
+            return scrape();
+        }
+
+        /**
+         * Gets one quantile of every phase.
+         *
+         * @param quantile Fraction of samples, from 0 to 1.
+         * @return Nanoseconds at the quantile per phase.
+         */
+        private static long[] quantiles(double quantile) {
+            Snapshot snapshot = snapshot();
+            long[] values = new long[NUM_PHASES];
+            for (int phase = 0; phase < NUM_PHASES; phase++) {
+                values[phase] =
+                        snapshot.getPhase(phase).getValueAtQuantile(quantile);
+            }
+            return values;
+        }
+    }
+}
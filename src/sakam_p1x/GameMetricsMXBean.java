@@ -0,0 +1,111 @@
+package sakam_p1x;
+
+/**
+ * The GameMetricsMXBean interface is how GameMetrics shows up in JMX tools
+ * (e.g. JConsole), under the name "sakam_p1x:type=GameMetrics". Per-phase
+ * arrays are in the order of getPhases().
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface GameMetricsMXBean {
+    /**
+     * Checks whether games are being instrumented.
+     *
+     * @return True if metrics are being recorded.
+     */
+    boolean isEnabled();
+
+    /**
+     * Turns instrumentation on or off. Games already running keep the
+     * setting they started with.
+     *
+     * @param enabled True to record metrics.
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Gets how often moves are timed.
+     *
+     * @return One move in this many has its phases timed.
+     */
+    int getSampleInterval();
+
+    /**
+     * Sets how often moves are timed.
+     *
+     * @param interval One move in this many gets timed (at least 1).
+     */
+    void setSampleInterval(int interval);
+
+    /**
+     * Gets the number of games finished while enabled.
+     *
+     * @return Number of games.
+     */
+    long getGames();
+
+    /**
+     * Gets the number of moves played while enabled.
+     *
+     * @return Number of moves.
+     */
+    long getMoves();
+
+    /**
+     * Gets the number of times a human was asked again after choosing a
+     * taken spot.
+     *
+     * @return Number of invalid move retries.
+     */
+    long getInvalidMoveRetries();
+
+    /**
+     * Gets the names of the game loop phases.
+     *
+     * @return Phase names.
+     */
+    String[] getPhases();
+
+    /**
+     * Gets the number of timings taken of each phase.
+     *
+     * @return Samples per phase.
+     */
+    long[] getPhaseSamples();
+
+    /**
+     * Gets the mean time of each phase.
+     *
+     * @return Mean nanoseconds per phase.
+     */
+    double[] getPhaseMeanNanos();
+
+    /**
+     * Gets the median time of each phase.
+     *
+     * @return 50th percentile nanoseconds per phase.
+     */
+    long[] getPhaseP50Nanos();
+
+    /**
+     * Gets the 99th percentile time of each phase.
+     *
+     * @return 99th percentile nanoseconds per phase.
+     */
+    long[] getPhaseP99Nanos();
+
+    /**
+     * Gets the longest time of each phase.
+     *
+     * @return Maximum nanoseconds per phase.
+     */
+    long[] getPhaseMaxNanos();
+
+    /**
+     * Gets every metric in the plain-text scrape format.
+     *
+     * @return The scrape text.
+     */
+    String getScrape();
+}
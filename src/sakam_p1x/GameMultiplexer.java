@@ -0,0 +1,193 @@
+package sakam_p1x;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The GameMultiplexer class runs any number of games at once on a single
+ * thread. Moves come from AsyncPlayers: the loop thread asks for a move,
+ * moves on to other games while it is pending, and plays it when its
+ * future completes. All game state is only touched by the loop thread, so
+ * games need no locking. Usage:
+ * GameMultiplexer [games] [board size] [move delay in microseconds]
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameMultiplexer {
+    private final ExecutorService loop;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int maxInFlight; // only written on the loop thread
+
+    /**
+     * The constructor starts the loop thread. It is a daemon, so an idle
+     * multiplexer doesn't keep the program running.
+     */
+    public GameMultiplexer() {
+        loop = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "game-loop");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Plays a demo: many games between random players whose moves arrive
+     * after a delay, as if from remote clients, all on the one loop thread.
+     *
+     * @param args Number of games, board size and move delay in
+     *             microseconds (default 10,000, 3 and 1000).
+     */
+    public static void main(String[] args) {
+        int numGames = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int boardLen = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long delayMicros = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+
+        ScheduledExecutorService clients =
+                Executors.newSingleThreadScheduledExecutor();
+        Player random = new RandomPlayer();
+        AsyncPlayer remote = (board, player) -> {
+            CompletableFuture<Integer> move = new CompletableFuture<>();
+            int cell = random.chooseMove(board, player);
+            clients.schedule(() -> move.complete(cell), delayMicros,
+                    TimeUnit.MICROSECONDS);
+            return move;
+        };
+
+        GameMultiplexer multiplexer = new GameMultiplexer();
+        ScoreBoard scoreBoard = new ScoreBoard();
+        List<CompletableFuture<Integer>> games = new ArrayList<>(numGames);
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < numGames; i++) {
+            games.add(multiplexer.play(new TicTacToeX(scoreBoard), boardLen,
+                    remote, remote));
+        }
+        CompletableFuture.allOf(games.toArray(new CompletableFuture<?>[0]))
+                .join();
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        ScoreBoard.Snapshot totals = scoreBoard.snapshot();
+        System.out.printf("%d games on 1 loop thread in %.2fs " +
+                        "(%.0f games/s, up to %d in flight)%n", numGames,
+                seconds, numGames / seconds, multiplexer.getMaxInFlight());
+        System.out.println("X wins: " + totals.getWins(1) + ", O wins: " +
+                totals.getWins(2) + ", ties: " + totals.getWins(0));
+
+        clients.shutdown();
+        multiplexer.shutdown();
+    }
+
+    /**
+     * Starts a game on the loop thread. The game's board is reset first.
+     *
+     * @param game Game to play on (not shared with other threads).
+     * @param boardLen An integer representing length of TTT board.
+     * @param xPlayer Player choosing moves for X.
+     * @param oPlayer Player choosing moves for O.
+     * @return A future completed with the winner (1 or 2, or 0 for a tie),
+     *         or failed if a player fails or picks an invalid spot.
+     */
+    public CompletableFuture<Integer> play(TicTacToeX game, int boardLen,
+                                           AsyncPlayer xPlayer,
+                                           AsyncPlayer oPlayer) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+
+        loop.execute(() -> {
+            maxInFlight = Math.max(maxInFlight, inFlight.get());
+            game.resetBoard(boardLen);
+            nextTurn(game, xPlayer, oPlayer, result);
+        });
+        return result;
+    }
+
+    /**
+     * Asks the player to move for its next move, or finishes the game.
+     * Runs on the loop thread.
+     *
+     * @param game The game.
+     * @param xPlayer Player choosing moves for X.
+     * @param oPlayer Player choosing moves for O.
+     * @param result Future to complete when the game ends.
+     */
+    private void nextTurn(TicTacToeX game, AsyncPlayer xPlayer,
+                          AsyncPlayer oPlayer,
+                          CompletableFuture<Integer> result) {
+        if (game.isGameOver()) {
+            inFlight.decrementAndGet();
+            result.complete(game.getWinner());
+            return;
+        }
+
+        int player = game.getPlayerToMove();
+        BoardView board = game.getBoardView();
+        CompletableFuture<Integer> move;
+
+        try {
+            move = (player == 1 ? xPlayer : oPlayer)
+                    .requestMove(board, player);
+        } catch (RuntimeException e) {
+            fail(result, e);
+            return;
+        }
+
+        // play the move back on the loop thread, whichever thread sent it
+        move.whenCompleteAsync((cell, error) -> {
+            if (error != null) {
+                fail(result, error instanceof CompletionException ?
+                        error.getCause() : error);
+            } else if (cell == null || !game.playMove(
+                    Math.floorDiv(cell, board.getLength()),
+                    Math.floorMod(cell, board.getLength()))) {
+
+                fail(result, new IllegalStateException("Player " + player +
+                        " chose an invalid spot: " + cell));
+            } else {
+                nextTurn(game, xPlayer, oPlayer, result);
+            }
+        }, loop);
+    }
+
+    /**
+     * Ends a game that can't go on.
+     *
+     * @param result The game's future.
+     * @param error Why the game stopped.
+     */
+    private void fail(CompletableFuture<Integer> result, Throwable error) {
+        inFlight.decrementAndGet();
+        result.completeExceptionally(error);
+    }
+
+    /**
+     * Gets the number of games started but not yet finished.
+     *
+     * @return Number of games in flight.
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Gets the most games that were in flight at once.
+     *
+     * @return Peak number of games in flight.
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Stops the loop thread once queued work is done.
+     */
+    public void shutdown() {
+        loop.shutdown();
+    }
+}
@@ -0,0 +1,25 @@
+package sakam_p1x;
+
+/**
+ * The GameObserver interface is told about each game as it finishes, e.g.
+ * to feed GameAnalytics. A TTT instance calls its observer from the thread
+ * that played the game.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface GameObserver {
+    /**
+     * Takes in a finished game. The moves array belongs to the caller and
+     * is reused for its next game, so it must be copied if it is kept.
+     *
+     * @param boardLen Length of the game's board.
+     * @param winLen Number of pieces in a row that won the game.
+     * @param moves Cell index (row * board length + column) of each move,
+     *              in order; X moved first.
+     * @param numMoves Number of moves played.
+     * @param result 0 for a tie, 1 if X won, 2 if O won.
+     */
+    void gameFinished(int boardLen, int winLen, int[] moves, int numMoves,
+                      int result);
+}
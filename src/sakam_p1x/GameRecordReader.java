@@ -0,0 +1,240 @@
+package sakam_p1x;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameRecordReader class streams games back out of a log written by
+ * GameRecordWriter. The file is read through one fixed direct buffer, and
+ * each game is decoded into the same reusable move array. So logs of any
+ * size can be replayed or aggregated in constant memory, without
+ * allocating per game. Usage as a cursor:
+ *
+ *   while (reader.next()) { reader.getBoardLength(); reader.getMove(i); }
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameRecordReader implements Closeable {
+    final private static int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private boolean endOfFile;
+    private final int version;
+
+    // the current game
+    private int boardLength;
+    private int winLength;
+    private final int[] moves = new int[GameRecordWriter.MAX_MOVES];
+    private int numMoves;
+    private int result;
+
+    /**
+     * The constructor opens a log and checks its header. Version 1 logs,
+     * which don't record win lengths, are read as full-line games.
+     *
+     * @param file Path of the log file.
+     * @throws IOException If the file can't be read or isn't a game log.
+     */
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        buffer.limit(0);
+        fill();
+
+        if (buffer.remaining() < GameRecordWriter.HEADER_BYTES ||
+                buffer.getInt() != GameRecordWriter.MAGIC) {
+            channel.close();
+            throw new IOException(file + " is not a game record log");
+        }
+        version = buffer.getInt();
+        if (version < 1 || version > GameRecordWriter.VERSION) {
+            channel.close();
+            throw new IOException(file + " is a game record log of " +
+                    "unknown version " + version);
+        }
+    }
+
+    /**
+     * Moves to the next game in the log.
+     *
+     * @return False at the end of the log.
+     * @throws IOException If the file can't be read or a record is cut off.
+     */
+    public boolean next() throws IOException {
+        if (buffer.remaining() < GameRecordWriter.MAX_RECORD_BYTES) {
+            fill();
+        }
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+
+        try {
+            boardLength = getVarint();
+            winLength = version == 1 ? boardLength : getVarint();
+            numMoves = getVarint();
+            if (boardLength < 1 || boardLength > ScoreBoard.MAX_SIZE) {
+                throw new IOException("Corrupt record: board length " +
+                        boardLength);
+            }
+            if (numMoves > boardLength * boardLength) {
+                throw new IOException("Corrupt record: " + numMoves + " moves");
+            }
+            for (int i = 0; i < numMoves; i++) {
+                moves[i] = getVarint();
+            }
+            result = buffer.get();
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Log ends in the middle of a record", e);
+        }
+        return true;
+    }
+
+    /**
+     * Reads a varint from the buffer.
+     *
+     * @return The decoded number.
+     */
+    private int getVarint() {
+        int value = 0;
+        int shift = 0;
+        byte next;
+
+        do {
+            next = buffer.get();
+            value |= (next & 0x7F) << shift;
+            shift += 7;
+        } while (next < 0);
+        return value;
+    }
+
+    /**
+     * Tops the buffer up from the file, keeping any unread bytes.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    private void fill() throws IOException {
+        buffer.compact();
+        while (!endOfFile && buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+    }
+
+    /**
+     * Plays the current game back onto a TTT instance under the game's
+     * own rules, which also counts its result on that instance's
+     * scoreboard.
+     *
+     * @param game A TTT instance to replay on.
+     * @throws IOException If the record's rules or moves don't fit the
+     *                     game.
+     */
+    public void replay(TicTacToeX game) throws IOException {
+        try {
+            game.resetBoard(boardLength, winLength);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Corrupt record: " + e.getMessage(), e);
+        }
+
+        for (int i = 0; i < numMoves; i++) {
+            if (!game.playMove(moves[i] / boardLength,
+                    moves[i] % boardLength)) {
+                throw new IOException("Illegal move in record: " + moves[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the current game's board length.
+     *
+     * @return An integer representing board length.
+     */
+    public int getBoardLength() {
+        return boardLength;
+    }
+
+    /**
+     * Gets the number of pieces in a row that won the current game.
+     *
+     * @return Win length (the board length for version 1 logs).
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Gets the version of the log being read.
+     *
+     * @return 1 or 2; version 1 logs don't record win lengths.
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the number of moves in the current game.
+     *
+     * @return Number of moves.
+     */
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    /**
+     * Gets one move of the current game.
+     *
+     * @param moveIdx Index of the move (0 is X's first move).
+     * @return Cell index (row * board length + column) of the move.
+     */
+    public int getMove(int moveIdx) {
+        return moves[moveIdx];
+    }
+
+    /**
+     * Gets the current game's result.
+     *
+     * @return 0 for a tie, 1 if X won, 2 if O won.
+     */
+    public int getResult() {
+        return result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Streams a log and prints totals: games, moves and results.
+     *
+     * @param args Path of the log file.
+     * @throws IOException If the file can't be read.
+     */
+    public static void main(String[] args) throws IOException {
+        long games = 0;
+        long totalMoves = 0;
+        long[] results = new long[3];
+
+        try (GameRecordReader reader = new GameRecordReader(
+                Paths.get(args[0]))) {
+
+            while (reader.next()) {
+                games++;
+                totalMoves += reader.getNumMoves();
+                results[reader.getResult()]++;
+            }
+        }
+
+        System.out.println(games + " games, " + totalMoves + " moves: X won " +
+                results[1] + ", O won " + results[2] + ", " + results[0] +
+                " ties");
+    }
+}
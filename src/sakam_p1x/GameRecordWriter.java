@@ -0,0 +1,161 @@
+package sakam_p1x;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The GameRecordWriter class appends finished games to a compact binary
+ * log. A log starts with an 8-byte header (magic "TTTR" and a version).
+ * Each game after it is:
+ *
+ *   varint board length
+ *   varint win length (pieces in a row that win)
+ *   varint number of moves
+ *   varint cell index (row * board length + column) per move, in order
+ *   1 byte result: 0 tie, 1 X won, 2 O won
+ *
+ * Varints are 7 bits per byte, low bits first, with the high bit set on
+ * every byte but the last. Any 11x11 or smaller game costs one byte per
+ * move. Version 1 logs had no win length; GameRecordReader still reads
+ * them, but they can't be appended to. Records collect in a direct buffer
+ * and reach the file in large appends. Writes are synchronized, so one
+ * writer can be shared by several games or threads.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameRecordWriter implements Closeable {
+    final static int MAGIC = 0x54545452; // "TTTR"
+    final static int VERSION = 2;
+    final static int HEADER_BYTES = 8;
+
+    // most moves a game has, on the largest board
+    final static int MAX_MOVES = ScoreBoard.MAX_SIZE * ScoreBoard.MAX_SIZE;
+
+    // board length, win length, move count, two-byte moves, result
+    final static int MAX_RECORD_BYTES = 1 + 1 + 2 + MAX_MOVES * 2 + 1;
+    final private static int BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+
+    /**
+     * The constructor opens a log for appending, creating it (with its
+     * header) if it doesn't exist yet.
+     *
+     * @param file Path of the log file.
+     * @throws IOException If the file can't be opened, or is a log of
+     *                     another version or not a log at all.
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).putInt(VERSION);
+        } else if (!hasCurrentHeader(file)) {
+            // records of another version can't be mixed into the log
+            channel.close();
+            throw new IOException(file + " is not a version " + VERSION +
+                    " game record log");
+        }
+    }
+
+    /**
+     * Checks that an existing log starts with this version's header.
+     *
+     * @param file Path of the log file.
+     * @return True if new records can be appended to it.
+     * @throws IOException If the file can't be read.
+     */
+    private static boolean hasCurrentHeader(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        try (FileChannel in = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            while (header.hasRemaining() && in.read(header) >= 0) {
+                // the header is read in full, or the file is shorter
+            }
+        }
+        return !header.hasRemaining() && header.getInt(0) == MAGIC &&
+                header.getInt(4) == VERSION;
+    }
+
+    /**
+     * Appends one finished game.
+     *
+     * @param boardLen Length of the game's board.
+     * @param winLen Number of pieces in a row that won the game.
+     * @param moves Cell index of each move, in order.
+     * @param numMoves Number of moves played.
+     * @param result 0 for a tie, 1 if X won, 2 if O won.
+     * @throws IOException If the buffer can't be flushed to the file.
+     * @throws IllegalArgumentException If the board is larger than
+     *                                  ScoreBoard.MAX_SIZE or has fewer
+     *                                  cells than moves.
+     */
+    public synchronized void record(int boardLen, int winLen, int[] moves,
+                                    int numMoves, int result)
+            throws IOException {
+        if (boardLen < 1 || boardLen > ScoreBoard.MAX_SIZE ||
+                numMoves > boardLen * boardLen) {
+            throw new IllegalArgumentException("A game of " + numMoves +
+                    " moves on a board of length " + boardLen +
+                    " can't be recorded");
+        }
+        if (buffer.remaining() < MAX_RECORD_BYTES) {
+            flush();
+        }
+
+        putVarint(boardLen);
+        putVarint(winLen);
+        putVarint(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            putVarint(moves[i]);
+        }
+        buffer.put((byte) result);
+    }
+
+    /**
+     * Writes a non-negative number as a varint.
+     *
+     * @param value Number to write.
+     */
+    private void putVarint(int value) {
+        while (value >= 0x80) {
+            buffer.put((byte) (value | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Appends everything buffered so far to the file.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes buffered records and closes the file.
+     *
+     * @throws IOException If the file can't be written or closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
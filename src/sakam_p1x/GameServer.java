@@ -0,0 +1,321 @@
+package sakam_p1x;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The GameServer class hosts TTT games over TCP, one session per connected
+ * client, each with its own TicTacToeX instance. The protocol is one ASCII
+ * command per line, and each gets a one-line reply (except DIFF):
+ *
+ *   NEW size    resetBoard(size)        OK NEW size
+ *   NEW size k  k-in-a-row game         OK NEW size k
+ *   MOVE r c    play the next piece     OK NEXT X|O, OK WIN X|O, or OK TIE
+ *   STATE       the current board       STATE size next|- cells
+ *                                       (cells row by row as . X O)
+ *   DIFF        cells changed since     DIFF, a "row col piece" line
+ *               the last DIFF           per cell (blank piece if
+ *                                       cleared), then END
+ *   STATS       the session scoreboard  STATS xWins oWins ties
+ *   QUIT        close the session       BYE
+ *
+ * DIFF lets a client that already shows the board redraw just what
+ * changed. The first DIFF after NEW on a new size sends every piece.
+ *
+ * Anything else, or a move the game rejects, gets "ERR reason". A client
+ * that sends nothing for ttt.server.idleMillis (default 5 minutes) gets
+ * "ERR idle timeout" and is disconnected, so idle or half-open connections
+ * don't hold their sessions forever. A session only holds its game, a
+ * fixed-size line buffer and small socket buffers, so its memory stays
+ * bounded. Sessions run on virtual threads when the
+ * JVM has them (Java 21+). Otherwise they run on platform threads with
+ * small stacks.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameServer {
+    final public static int DEFAULT_PORT = 4000;
+
+    // longest command accepted; longer lines are rejected, not buffered
+    final private static int MAX_LINE = 64;
+    final private static int IO_BUFFER_BYTES = 512;
+    final private static long PLATFORM_STACK_BYTES = 256 * 1024;
+    final private static int DEFAULT_IDLE_MILLIS = 5 * 60 * 1000;
+    // how long a client may send nothing before its session is closed
+    final private static int IDLE_MILLIS =
+            Integer.getInteger("ttt.server.idleMillis", DEFAULT_IDLE_MILLIS);
+    final private static int MIN_SIZE = 3;
+    final private static int MAX_SIZE = 25;
+    final private static String CELL_CHARS = ".XO";
+    final private static String[] PIECES = {"-", "X", "O"};
+    final private static byte[] DIFF_END =
+            "END\n".getBytes(StandardCharsets.US_ASCII);
+    final private static byte[] IDLE_REPLY =
+            "ERR idle timeout\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final AtomicInteger activeSessions = new AtomicInteger();
+
+    /**
+     * Starts a server and accepts clients until the process is stopped.
+     *
+     * @param args Port to listen on (default 4000).
+     * @throws IOException If the port can't be opened.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        new GameServer().serve(port);
+    }
+
+    /**
+     * Accepts clients on a port and starts a session for each.
+     *
+     * @param port Port to listen on.
+     * @throws IOException If the port can't be opened.
+     */
+    public void serve(int port) throws IOException {
+        ExecutorService sessions = newSessionExecutor();
+
+        try (ServerSocket server = new ServerSocket(port, 1024)) {
+            System.out.println("TicTacToe server listening on port " + port);
+
+            while (true) {
+                Socket client = server.accept();
+                sessions.execute(() -> runSession(client));
+            }
+        } finally {
+            sessions.shutdown();
+        }
+    }
+
+    /**
+     * Creates the executor sessions run on: one virtual thread per session
+     * if the JVM supports them, otherwise one small-stack platform thread.
+     *
+     * @return An executor that starts a new thread per session.
+     */
+    static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNum = new AtomicInteger();
+            ThreadFactory factory = task -> {
+                Thread thread = new Thread(null, task,
+                        "session-" + threadNum.incrementAndGet(),
+                        PLATFORM_STACK_BYTES);
+                thread.setDaemon(true);
+                return thread;
+            };
+            return Executors.newCachedThreadPool(factory);
+        }
+    }
+
+    /**
+     * Serves one client until it quits, disconnects or stays idle too long.
+     *
+     * @param client The client's socket.
+     */
+    private void runSession(Socket client) {
+        activeSessions.incrementAndGet();
+
+        try (Socket socket = client;
+             InputStream in = new BufferedInputStream(socket.getInputStream(),
+                     IO_BUFFER_BYTES);
+             OutputStream out = new BufferedOutputStream(
+                     socket.getOutputStream(), IO_BUFFER_BYTES)) {
+
+            socket.setTcpNoDelay(true);
+            socket.setSoTimeout(IDLE_MILLIS);
+            TicTacToeX game = new TicTacToeX();
+            BoardRenderer renderer = new BoardRenderer(out);
+            boolean started = false;
+            byte[] line = new byte[MAX_LINE];
+            String reply;
+
+            do {
+                int length;
+                try {
+                    length = readLine(in, line);
+                } catch (SocketTimeoutException e) {
+                    out.write(IDLE_REPLY); // say why, then hang up
+                    out.flush();
+                    break;
+                }
+                if (length < 0) {
+                    break; // client disconnected
+                }
+
+                String[] words = length > MAX_LINE ? new String[]{""} :
+                        new String(line, 0, length, StandardCharsets.US_ASCII)
+                                .trim().split(" +");
+                reply = handle(game, started, words);
+                if (reply.startsWith("OK NEW")) {
+                    started = true;
+                }
+
+                out.write(reply.getBytes(StandardCharsets.US_ASCII));
+                out.write('\n');
+                if (reply.equals("DIFF")) {
+                    renderer.renderDiff(game.getBoardView());
+                    out.write(DIFF_END);
+                }
+                out.flush();
+            } while (!reply.equals("BYE"));
+        } catch (IOException | UncheckedIOException e) {
+            // the client went away mid-session; nothing to clean up
+        } finally {
+            activeSessions.decrementAndGet();
+        }
+    }
+
+    /**
+     * Runs one command against a session's game.
+     *
+     * @param game The session's game.
+     * @param started Whether NEW has been sent yet.
+     * @param words The command split on spaces.
+     * @return The reply line (without newline).
+     */
+    private static String handle(TicTacToeX game, boolean started,
+                                 String[] words) {
+        try {
+            switch (words[0].toUpperCase()) {
+                case "NEW":
+                    int size = Integer.parseInt(words[1]);
+                    if (size < MIN_SIZE || size > MAX_SIZE || size % 2 == 0) {
+                        return "ERR size must be odd, 3-25";
+                    }
+                    if (words.length < 3) {
+                        game.resetBoard(size);
+                        return "OK NEW " + size;
+                    }
+                    int winLength = Integer.parseInt(words[2]);
+                    if (winLength < 1 || winLength > size) {
+                        return "ERR k must be 1-size";
+                    }
+                    game.resetBoard(size, winLength);
+                    return "OK NEW " + size + " " + winLength;
+                case "MOVE":
+                    if (!started) {
+                        return "ERR no game, send NEW first";
+                    }
+                    if (!game.playMove(Integer.parseInt(words[1]),
+                            Integer.parseInt(words[2]))) {
+                        return game.isGameOver() ? "ERR game over" :
+                                "ERR bad location";
+                    }
+                    return "OK " + status(game);
+                case "STATE":
+                    if (!started) {
+                        return "ERR no game, send NEW first";
+                    }
+                    return state(game);
+                case "DIFF":
+                    if (!started) {
+                        return "ERR no game, send NEW first";
+                    }
+                    return "DIFF"; // the cells follow the reply line
+                case "STATS":
+                    return "STATS " + game.getScore(1) + " " +
+                            game.getScore(2) + " " + game.getScore(0);
+                case "QUIT":
+                    return "BYE";
+                default:
+                    return "ERR unknown command";
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            return "ERR bad arguments";
+        }
+    }
+
+    /**
+     * Describes where a game stands after a move.
+     *
+     * @param game A game in progress or just finished.
+     * @return "NEXT X|O", "WIN X|O" or "TIE".
+     */
+    private static String status(TicTacToeX game) {
+        if (!game.isGameOver()) {
+            return "NEXT " + PIECES[game.getPlayerToMove()];
+        }
+        if (game.getWinner() != 0) {
+            return "WIN " + PIECES[game.getWinner()];
+        }
+        return "TIE";
+    }
+
+    /**
+     * Describes the whole board on one line.
+     *
+     * @param game A started game.
+     * @return "STATE size next cells".
+     */
+    private static String state(TicTacToeX game) {
+        BoardView board = game.getBoardView();
+        int boardLen = board.getLength();
+        StringBuilder reply = new StringBuilder(16 + boardLen * boardLen);
+
+        reply.append("STATE ").append(boardLen).append(' ')
+                .append(game.isGameOver() ? PIECES[0] :
+                        PIECES[game.getPlayerToMove()])
+                .append(' ');
+        for (int row = 0; row < boardLen; row++) {
+            for (int col = 0; col < boardLen; col++) {
+                reply.append(CELL_CHARS.charAt(board.getPiece(row, col)));
+            }
+        }
+        return reply.toString();
+    }
+
+    /**
+     * Reads one line into a fixed buffer. A line longer than the buffer is
+     * read to its end but reported as too long instead of growing memory.
+     *
+     * @param in The client's input.
+     * @param line Buffer for the line's bytes.
+     * @return The line's length (more than the buffer size if it was too
+     *         long), or -1 at end of input.
+     * @throws IOException If reading fails.
+     */
+    private static int readLine(InputStream in, byte[] line)
+            throws IOException {
+        int length = 0;
+        int next = in.read();
+
+        if (next < 0) {
+            return -1;
+        }
+        while (next >= 0 && next != '\n') {
+            if (next != '\r') {
+                if (length < line.length) {
+                    line[length] = (byte) next;
+                }
+                length++;
+            }
+            next = in.read();
+        }
+        return length;
+    }
+
+    /**
+     * Gets the number of sessions currently connected.
+     *
+     * @return Number of active sessions.
+     */
+    public int getActiveSessions() {
+        return activeSessions.get();
+    }
+}
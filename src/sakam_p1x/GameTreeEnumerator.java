@@ -0,0 +1,753 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The GameTreeEnumerator class plays out every legal game under the same
+ * rules as TicTacToeX: X moves first, players alternate, and a game ends
+ * on a completed line or a full board. It counts games won by X and O,
+ * drawn, and how many moves each game lasted. Runs can stop at a maximum
+ * depth. Games still going at that depth are counted as open, so larger
+ * boards can be explored as far as is feasible. Usage:
+ * GameTreeEnumerator [size] [max depth] [checkpoint file] [threads]
+ *
+ * The tree is walked on a ForkJoinPool. Positions a few moves in are work
+ * units, and the top of each unit's subtree is forked further so idle
+ * threads can steal work. Two kinds of symmetry pruning keep the walk
+ * small. Moves that are mirror images on a symmetric board are walked once
+ * and counted for every copy. Whole subtrees are cached by canonical
+ * position, so every symmetric version of a position, however it was
+ * reached, is walked only once.
+ *
+ * With a checkpoint file, each finished unit's counts are appended as a
+ * fixed-size record. A restarted run with the same settings skips the
+ * units already in the file, and a record cut off by a crash is dropped.
+ *
+ * On 3x3 the full tree has 255,168 games: 131,184 won by X, 77,904 won
+ * by O and 46,080 draws.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class GameTreeEnumerator {
+    // checkpoint layout: "TTTE", version, board length, max depth, units
+    final public static int MAGIC = 0x54545445;
+    final public static int VERSION = 1;
+    final private static int HEADER_BYTES = 5 * Integer.BYTES;
+
+    /*
+     * units start this many moves in (capped so no game can end before
+     * them), and their subtrees are forked for a few more moves
+     */
+    final private static int UNIT_PLY = 3;
+    final private static int FORK_PLIES = 2;
+
+    // subtrees this shallow are cheaper to walk than to look up
+    final private static int MIN_CACHED_DEPTH = 2;
+    final private static long DEFAULT_CACHE_BYTES = 256L << 20;
+
+    /*
+     * counting distinct positions holds two plies of them at once, each a
+     * key, a board copy and a map entry; it gets half of the heap the
+     * subtree cache leaves, the rest being headroom for map resizing
+     */
+    final private static int MAP_ENTRY_BYTES = 48;
+
+    private final int boardLength;
+    private final int numCells;
+    private final int maxDepth;
+    private final int unitPly;
+    private final PositionCache<Counts> cache;
+
+    /**
+     * The constructor sets up an enumerator for one board size and depth.
+     *
+     * @param boardLen An integer representing board length.
+     * @param maxDepth Number of moves to play games out to (board length
+     *                 squared for complete games).
+     * @param cacheBytes Approximate memory cap for cached subtrees.
+     */
+    public GameTreeEnumerator(int boardLen, int maxDepth, long cacheBytes) {
+        boardLength = boardLen;
+        numCells = boardLen * boardLen;
+        this.maxDepth = Math.min(maxDepth, numCells);
+        unitPly = Math.max(0, Math.min(UNIT_PLY,
+                Math.min(this.maxDepth - 1, 2 * boardLen - 2)));
+        cache = new PositionCache<>(cacheBytes,
+                counts -> Long.BYTES * counts.lengths.length + 64);
+    }
+
+    /**
+     * Enumerates a board and prints the results.
+     *
+     * @param args Board size, max depth, checkpoint file and threads
+     *             (default 3, the whole game, none and all available
+     *             cores).
+     * @throws IOException If the checkpoint file can't be used.
+     */
+    public static void main(String[] args) throws IOException {
+        int boardLen = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int maxDepth = args.length > 1 ? Integer.parseInt(args[1]) :
+                boardLen * boardLen;
+        Path checkpoint = args.length > 2 && !args[2].equals("-") ?
+                Paths.get(args[2]) : null;
+        int numThreads = args.length > 3 ? Integer.parseInt(args[3]) :
+                Runtime.getRuntime().availableProcessors();
+
+        GameTreeEnumerator enumerator =
+                new GameTreeEnumerator(boardLen, maxDepth, DEFAULT_CACHE_BYTES);
+        long startNanos = System.nanoTime();
+        Counts counts = enumerator.enumerate(checkpoint, numThreads);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        System.out.printf("%dx%d to depth %d: %,d games in %.2fs%n",
+                boardLen, boardLen, enumerator.maxDepth, counts.getGames(),
+                seconds);
+        System.out.printf("X wins: %,d, O wins: %,d, draws: %,d, open: %,d%n",
+                counts.getWins(1), counts.getWins(2), counts.getWins(0),
+                counts.getOpen());
+        for (int ply = 0; ply <= enumerator.numCells; ply++) {
+            if (counts.lengths[ply] > 0) {
+                System.out.printf("  %2d moves: %,d%n", ply,
+                        counts.lengths[ply]);
+            }
+        }
+        System.out.println("Subtree cache: " + enumerator.cache);
+
+        long positionBytes = (Runtime.getRuntime().maxMemory() -
+                DEFAULT_CACHE_BYTES) / 2;
+        long[] positions = enumerator.countPositions(positionBytes);
+        if (positions == null) {
+            System.out.println("Too many positions to count distinct ones.");
+        } else {
+            System.out.printf("Distinct positions: %,d (%,d canonical), " +
+                            "terminal: %,d (%,d canonical)%n", positions[0],
+                    positions[1], positions[2], positions[3]);
+        }
+    }
+
+    /**
+     * Enumerates every game from the empty board.
+     *
+     * @param checkpoint File to record finished units in and resume from,
+     *                   or null to run without one.
+     * @param numThreads Number of worker threads.
+     * @return Counts over every game.
+     * @throws IOException If the checkpoint file can't be used.
+     */
+    public Counts enumerate(Path checkpoint, int numThreads)
+            throws IOException {
+        List<Unit> units = buildUnits();
+        Counts[] done = new Counts[units.size()];
+        Checkpoint log = checkpoint == null ? null :
+                new Checkpoint(checkpoint, units.size(), done);
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+
+        try {
+            List<UnitTask> tasks = new ArrayList<>();
+            for (int i = 0; i < units.size(); i++) {
+                if (done[i] == null) {
+                    tasks.add(new UnitTask(i, units.get(i), done, log));
+                }
+            }
+            pool.submit(() -> UnitTask.invokeAll(tasks)).join();
+        } finally {
+            pool.shutdown();
+            if (log != null) {
+                log.close();
+            }
+        }
+
+        Counts total = new Counts(numCells);
+        for (int i = 0; i < units.size(); i++) {
+            total.add(done[i], units.get(i).multiplicity);
+        }
+        return total;
+    }
+
+    /**
+     * Lists the canonical positions unitPly moves in, each with the number
+     * of move orders that reach it or any of its symmetric versions. No
+     * game can end before unitPly, so these cover every game.
+     *
+     * @return The work units, in a fixed order.
+     */
+    private List<Unit> buildUnits() {
+        Map<PositionKey, Unit> units = new LinkedHashMap<>();
+        addUnits(new int[numCells], 0, 1, units);
+        return new ArrayList<>(units.values());
+    }
+
+    /**
+     * Plays every move order up to unitPly and groups the positions.
+     *
+     * @param cells The current position (restored before returning).
+     * @param ply Number of pieces on the board.
+     * @param player Player representation of the mover (1 or 2).
+     * @param units Units found so far, by canonical key.
+     */
+    private void addUnits(int[] cells, int ply, int player,
+                          Map<PositionKey, Unit> units) {
+        if (ply == unitPly) {
+            PositionKey key = PositionKey.canonical(cells, boardLength);
+            Unit unit = units.get(key);
+
+            if (unit == null) {
+                unit = new Unit(cells.clone(), ply, player);
+                units.put(key, unit);
+            }
+            unit.multiplicity++;
+            return;
+        }
+
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] == 0) {
+                cells[cell] = player;
+                addUnits(cells, ply + 1, 3 - player, units);
+                cells[cell] = 0;
+            }
+        }
+    }
+
+    /**
+     * Counts the games below a position. Moves that are symmetric on the
+     * current board are walked once, and deep enough subtrees are cached
+     * by canonical position.
+     *
+     * @param cells The current position (restored before returning).
+     * @param winTracker Line counts for the position (restored too).
+     * @param ply Number of pieces on the board.
+     * @param player Player representation of the mover (1 or 2).
+     * @param forkPly Below this ply, child subtrees are forked as tasks.
+     * @return Counts over every game from the position.
+     */
+    private Counts countGames(int[] cells, WinTracker winTracker, int ply,
+                              int player, int forkPly) {
+        PositionKey key = null;
+        if (maxDepth - ply >= MIN_CACHED_DEPTH) {
+            key = PositionKey.canonical(cells, boardLength);
+            Counts cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        int[] symmetries = stabilizer(cells);
+        Counts counts = new Counts(numCells);
+        List<SubtreeTask> forked = new ArrayList<>();
+
+        for (int cell = 0; cell < numCells; cell++) {
+            int copies = cells[cell] == 0 ? orbitSize(cell, symmetries) : 0;
+            if (copies == 0) {
+                continue; // taken, or a copy of an earlier move
+            }
+
+            int row = cell / boardLength;
+            int col = cell % boardLength;
+            cells[cell] = player;
+
+            if (winTracker.addPiece(player, row, col)) {
+                counts.addGame(player, ply + 1, copies);
+            } else if (ply + 1 == numCells) {
+                counts.addGame(0, ply + 1, copies);
+            } else if (ply + 1 == maxDepth) {
+                counts.open += copies;
+            } else if (ply + 1 < forkPly) {
+                SubtreeTask task = new SubtreeTask(cells.clone(), ply + 1,
+                        3 - player, forkPly, copies);
+                task.fork();
+                forked.add(task);
+            } else {
+                counts.add(countGames(cells, winTracker, ply + 1, 3 - player,
+                        forkPly), copies);
+            }
+
+            winTracker.removePiece(player, row, col);
+            cells[cell] = 0;
+        }
+
+        for (SubtreeTask task : forked) {
+            counts.add(task.join(), task.copies);
+        }
+
+        if (key != null) {
+            cache.put(key, counts);
+        }
+        return counts;
+    }
+
+    /**
+     * Finds the symmetries (other than the identity) that map a position
+     * onto itself.
+     *
+     * @param cells A position.
+     * @return The position's non-identity symmetries, often none.
+     */
+    private int[] stabilizer(int[] cells) {
+        int[] found = new int[Symmetry.NUM_SYMMETRIES - 1];
+        int numFound = 0;
+
+        for (int symmetry = 1; symmetry < Symmetry.NUM_SYMMETRIES; symmetry++) {
+            int cell = 0;
+            while (cell < numCells && cells[cell] ==
+                    cells[Symmetry.transform(symmetry, cell, boardLength)]) {
+                cell++;
+            }
+            if (cell == numCells) {
+                found[numFound++] = symmetry;
+            }
+        }
+        return numFound == found.length ? found :
+                Arrays.copyOf(found, numFound);
+    }
+
+    /**
+     * Counts the cells a move is equivalent to under a position's
+     * symmetries. Only the lowest cell of each group gets a count.
+     *
+     * @param cell An empty cell.
+     * @param symmetries The position's non-identity symmetries.
+     * @return Size of the cell's group, or 0 if a lower cell stands for it.
+     */
+    private int orbitSize(int cell, int[] symmetries) {
+        int[] images = new int[symmetries.length];
+        int size = 1;
+
+        for (int symmetry : symmetries) {
+            int image = Symmetry.transform(symmetry, cell, boardLength);
+            if (image < cell) {
+                return 0;
+            }
+
+            boolean seen = image == cell;
+            for (int i = 0; i < size - 1 && !seen; i++) {
+                seen = images[i] == image;
+            }
+            if (!seen) {
+                images[size - 1] = image;
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Counts distinct positions reachable up to the max depth, one ply at a
+     * time, keeping only two plies' canonical positions in memory. It gives
+     * up as soon as those would take more than a memory budget, rather
+     * than running out of memory.
+     *
+     * @param maxBytes Approximate memory the two plies may take.
+     * @return Positions, canonical positions, terminal positions and
+     *         canonical terminal positions, or null if the plies didn't fit.
+     */
+    public long[] countPositions(long maxBytes) {
+        long[] totals = new long[4];
+        Map<PositionKey, int[]> level = new HashMap<>();
+        PositionKey empty = PositionKey.canonical(new int[numCells],
+                boardLength);
+        long bytesPerPosition = empty.estimatedBytes() + 16 +
+                Integer.BYTES * numCells + MAP_ENTRY_BYTES;
+        long maxPositions = maxBytes / bytesPerPosition;
+        level.put(empty, new int[numCells]);
+
+        for (int ply = 0; !level.isEmpty(); ply++) {
+            Map<PositionKey, int[]> next = new HashMap<>();
+            int player = ply % 2 + 1;
+
+            for (int[] cells : level.values()) {
+                int copies = Symmetry.NUM_SYMMETRIES /
+                        (stabilizer(cells).length + 1);
+                WinTracker winTracker = trackerFor(cells);
+                boolean terminal = ply == numCells || winTracker.hasLine();
+
+                totals[0] += copies;
+                totals[1]++;
+                if (terminal) {
+                    totals[2] += copies;
+                    totals[3]++;
+                }
+                if (terminal || ply == maxDepth) {
+                    continue;
+                }
+
+                for (int cell = 0; cell < numCells; cell++) {
+                    if (cells[cell] == 0) {
+                        cells[cell] = player;
+                        next.putIfAbsent(PositionKey.canonical(cells,
+                                boardLength), cells.clone());
+                        cells[cell] = 0;
+                    }
+                }
+                if (level.size() + next.size() > maxPositions) {
+                    return null;
+                }
+            }
+            level = next;
+        }
+        return totals;
+    }
+
+    /**
+     * Builds line counts for a position.
+     *
+     * @param cells A position.
+     * @return A win tracker holding every piece on the board.
+     */
+    private WinTracker trackerFor(int[] cells) {
+        WinTracker winTracker = new WinTracker(boardLength);
+
+        for (int cell = 0; cell < numCells; cell++) {
+            if (cells[cell] != 0) {
+                winTracker.addPiece(cells[cell], cell / boardLength,
+                        cell % boardLength);
+            }
+        }
+        return winTracker;
+    }
+
+    /**
+     * The Counts class holds game counts for a subtree: games won by each
+     * player or drawn, games cut off at the max depth, and how many moves
+     * finished games lasted. Sums use exact arithmetic, so a count too big
+     * for a long fails loudly instead of wrapping.
+     */
+    public static final class Counts {
+        private final long[] wins = new long[3]; // draws, X wins, O wins
+        private final long[] lengths;             // finished games by moves
+        private long open;
+
+        /**
+         * The constructor creates zero counts.
+         *
+         * @param numCells Number of cells on the board.
+         */
+        Counts(int numCells) {
+            lengths = new long[numCells + 1];
+        }
+
+        /**
+         * Counts finished games.
+         *
+         * @param winner 1 (X), 2 (O), or 0 for a draw.
+         * @param numMoves Moves the games lasted.
+         * @param copies Number of games.
+         */
+        private void addGame(int winner, int numMoves, long copies) {
+            wins[winner] = Math.addExact(wins[winner], copies);
+            lengths[numMoves] = Math.addExact(lengths[numMoves], copies);
+        }
+
+        /**
+         * Adds another subtree's counts a number of times.
+         *
+         * @param other Counts to add.
+         * @param copies Number of times to add them.
+         */
+        private void add(Counts other, long copies) {
+            for (int i = 0; i < wins.length; i++) {
+                wins[i] = Math.addExact(wins[i],
+                        Math.multiplyExact(other.wins[i], copies));
+            }
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = Math.addExact(lengths[i],
+                        Math.multiplyExact(other.lengths[i], copies));
+            }
+            open = Math.addExact(open, Math.multiplyExact(other.open, copies));
+        }
+
+        /**
+         * Gets the number of games a player won, or the number of draws.
+         *
+         * @param winner 1 (X), 2 (O), or 0 for draws.
+         * @return Number of games.
+         */
+        public long getWins(int winner) {
+            return wins[winner];
+        }
+
+        /**
+         * Gets the number of games still going at the max depth.
+         *
+         * @return Number of games cut off.
+         */
+        public long getOpen() {
+            return open;
+        }
+
+        /**
+         * Gets the number of games counted, finished or not.
+         *
+         * @return Number of games.
+         */
+        public long getGames() {
+            return wins[0] + wins[1] + wins[2] + open;
+        }
+
+        /**
+         * Gets how many finished games lasted each number of moves.
+         *
+         * @return Counts indexed by number of moves.
+         */
+        public long[] getLengths() {
+            return lengths.clone();
+        }
+    }
+
+    /**
+     * The Unit class is one piece of work: a canonical position and the
+     * number of move orders that lead to it or its symmetric versions.
+     */
+    private static class Unit {
+        private final int[] cells;
+        private final int ply;
+        private final int player;
+        private long multiplicity;
+
+        /**
+         * The constructor creates a unit reached by no move orders yet.
+         *
+         * @param cells The position.
+         * @param ply Number of pieces on the board.
+         * @param player Player representation of the mover (1 or 2).
+         */
+        Unit(int[] cells, int ply, int player) {
+            this.cells = cells;
+            this.ply = ply;
+            this.player = player;
+        }
+    }
+
+    /**
+     * The SubtreeTask class counts the games below one position on a
+     * worker thread, on its own copy of the board.
+     */
+    private class SubtreeTask extends RecursiveTask<Counts> {
+        final private static long serialVersionUID = 1L;
+
+        private final int[] cells;
+        private final int ply;
+        private final int player;
+        private final int forkPly;
+        private final int copies;
+
+        /**
+         * The constructor sets up a task for a position.
+         *
+         * @param cells The task's own copy of the position.
+         * @param ply Number of pieces on the board.
+         * @param player Player representation of the mover (1 or 2).
+         * @param forkPly Below this ply, child subtrees are forked.
+         * @param copies Number of symmetric moves this subtree stands for.
+         */
+        SubtreeTask(int[] cells, int ply, int player, int forkPly,
+                    int copies) {
+            this.cells = cells;
+            this.ply = ply;
+            this.player = player;
+            this.forkPly = forkPly;
+            this.copies = copies;
+        }
+
+        @Override
+        protected Counts compute() {
+            return countGames(cells, trackerFor(cells), ply, player, forkPly);
+        }
+    }
+
+    /**
+     * The UnitTask class counts one unit's games and checkpoints them.
+     */
+    private class UnitTask extends RecursiveTask<Void> {
+        final private static long serialVersionUID = 1L;
+
+        private final int index;
+        private final Unit unit;
+        private final Counts[] done;
+        private final Checkpoint log;
+
+        /**
+         * The constructor sets up a task for a unit.
+         *
+         * @param index Index of the unit.
+         * @param unit The unit.
+         * @param done Finished units' counts, filled in by index.
+         * @param log Checkpoint to record the unit in, or null.
+         */
+        UnitTask(int index, Unit unit, Counts[] done, Checkpoint log) {
+            this.index = index;
+            this.unit = unit;
+            this.done = done;
+            this.log = log;
+        }
+
+        @Override
+        protected Void compute() {
+            int[] cells = unit.cells.clone();
+            Counts counts;
+
+            if (unit.ply == maxDepth) {
+                counts = new Counts(numCells);
+                counts.open = 1;
+            } else {
+                counts = countGames(cells, trackerFor(cells), unit.ply,
+                        unit.player, unit.ply + FORK_PLIES);
+            }
+
+            done[index] = counts;
+            if (log != null) {
+                log.record(index, counts);
+            }
+            return null;
+        }
+    }
+
+    /**
+     * The Checkpoint class is the append-only file of finished units. It
+     * has a header naming the run's settings, then one fixed-size record
+     * per unit: its index, then its draws, X wins, O wins, open games and
+     * game lengths, all as longs.
+     */
+    private class Checkpoint {
+        private final FileChannel channel;
+        private final ByteBuffer record;
+
+        /**
+         * The constructor opens a checkpoint, loading the units it already
+         * holds, or starts a new one.
+         *
+         * @param file Path of the checkpoint file.
+         * @param numUnits Number of units in this run.
+         * @param done Filled in with the counts of units already finished.
+         * @throws IOException If the file can't be used or is for another
+         *                     run.
+         */
+        Checkpoint(Path file, int numUnits, Counts[] done) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            record = ByteBuffer.allocate(Integer.BYTES +
+                    Long.BYTES * (4 + numCells + 1));
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+            if (channel.size() == 0) {
+                header.putInt(MAGIC).putInt(VERSION).putInt(boardLength)
+                        .putInt(maxDepth).putInt(numUnits).flip();
+                writeFully(header, 0);
+                return;
+            }
+
+            readFully(header, 0);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION ||
+                    header.getInt() != boardLength ||
+                    header.getInt() != maxDepth ||
+                    header.getInt() != numUnits) {
+
+                channel.close();
+                throw new IOException(file + " is not a checkpoint of a " +
+                        boardLength + "x" + boardLength + " run to depth " +
+                        maxDepth);
+            }
+
+            // load whole records; a partly written last one is dropped
+            long numRecords = (channel.size() - HEADER_BYTES) /
+                    record.capacity();
+            for (long i = 0; i < numRecords; i++) {
+                readFully(record, HEADER_BYTES + i * record.capacity());
+                Counts counts = new Counts(numCells);
+                int index = record.getInt();
+
+                counts.wins[0] = record.getLong();
+                counts.wins[1] = record.getLong();
+                counts.wins[2] = record.getLong();
+                counts.open = record.getLong();
+                for (int ply = 0; ply <= numCells; ply++) {
+                    counts.lengths[ply] = record.getLong();
+                }
+                done[index] = counts;
+            }
+            channel.truncate(HEADER_BYTES + numRecords * record.capacity());
+        }
+
+        /**
+         * Appends a finished unit and forces it to disk.
+         *
+         * @param index Index of the unit.
+         * @param counts The unit's counts.
+         */
+        synchronized void record(int index, Counts counts) {
+            record.clear();
+            record.putInt(index).putLong(counts.wins[0])
+                    .putLong(counts.wins[1]).putLong(counts.wins[2])
+                    .putLong(counts.open);
+            for (long length : counts.lengths) {
+                record.putLong(length);
+            }
+            record.flip();
+
+            try {
+                writeFully(record, channel.size());
+                channel.force(false);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Writes a whole buffer at a file position.
+         *
+         * @param buffer Bytes to write.
+         * @param position File position to write at.
+         * @throws IOException If writing fails.
+         */
+        private void writeFully(ByteBuffer buffer, long position)
+                throws IOException {
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+
+        /**
+         * Fills a buffer from a file position and flips it for reading.
+         *
+         * @param buffer Buffer to fill.
+         * @param position File position to read from.
+         * @throws IOException If the file ends early or reading fails.
+         */
+        private void readFully(ByteBuffer buffer, long position)
+                throws IOException {
+            buffer.clear();
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    throw new IOException("Checkpoint ends mid-record");
+                }
+                position += read;
+            }
+            buffer.flip();
+        }
+
+        /**
+         * Closes the checkpoint file.
+         */
+        void close() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // every record was already forced to disk
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package sakam_p1x;
+import java.util.Arrays;
+
+/**
+ * The IntGameBoard class stores one int per cell in a single flat array
+ * (row-major), so a whole board is one object instead of one per row.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class IntGameBoard implements GameBoard {
+    private final int boardLength;
+    private final int[] cells;
+
+    /**
+     * The constructor creates an empty board of the given length.
+     *
+     * @param boardLen An integer representing length of TTT board to create.
+     */
+    public IntGameBoard(int boardLen) {
+        boardLength = boardLen;
+        cells = new int[boardLen * boardLen];
+    }
+
+    /**
+     * The constructor creates a copy of another board.
+     *
+     * @param other Board to copy.
+     */
+    private IntGameBoard(IntGameBoard other) {
+        boardLength = other.boardLength;
+        cells = other.cells.clone();
+    }
+
+    @Override
+    public int getLength() {
+        return boardLength;
+    }
+
+    @Override
+    public int getPiece(int row, int col) {
+        return cells[row * boardLength + col];
+    }
+
+    @Override
+    public void placePiece(int player, int row, int col) {
+        cells[row * boardLength + col] = player;
+    }
+
+    @Override
+    public void removePiece(int row, int col) {
+        cells[row * boardLength + col] = 0;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(cells, 0);
+    }
+
+    @Override
+    public GameBoard copy() {
+        return new IntGameBoard(this);
+    }
+}
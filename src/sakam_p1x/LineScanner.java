@@ -0,0 +1,207 @@
+package sakam_p1x;
+import java.util.Arrays;
+
+/**
+ * The LineScanner class checks a whole board for k pieces in a row, for
+ * positions that weren't built one tracked move at a time. It works on a
+ * byte copy of the board with an empty column after each row and empty
+ * rows below, so a line can't run off one row and onto the next. Since X
+ * is 1 and O is 2, each piece is already a bit mask, and ANDing each cell
+ * with the cell s further on (s = 1 for rows, row width for columns, and
+ * row width +- 1 for diagonals) keeps a piece only where the player has
+ * two in a row. Repeating with doubled shifts reaches k in a row after
+ * about log2(k) passes over the board per direction, with no branches.
+ *
+ * The passes are simple loops over a byte array, which subclasses run as
+ * they like: ScalarLineScanner one byte at a time, and VectorLineScanner
+ * (built from the vector source root) many bytes per instruction with the
+ * JDK Vector API. create() picks the vector one when it was built and the
+ * JVM runs with --add-modules jdk.incubator.vector, and the scalar one
+ * otherwise. -Dttt.vector=false forces the scalar one.
+ *
+ * A scanner keeps its own scratch arrays, so each thread needs its own.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public abstract class LineScanner {
+    final private static String VECTOR_CLASS = "sakam_p1x.VectorLineScanner";
+
+    // slack past the padded board, so a vector of up to 512 bits can load
+    final private static int MAX_VECTOR_BYTES = 64;
+
+    // row and column steps of the four line directions: -, |, \ and /
+    final private static int[] ROW_STEPS = {0, 1, 1, 1};
+    final private static int[] COL_STEPS = {1, 0, 1, -1};
+
+    private byte[] board = new byte[0];
+    private byte[] runs = new byte[0];
+    private int paddedLength; // part of the arrays the current scan uses
+
+    /**
+     * Creates the fastest scanner this JVM can run.
+     *
+     * @return A vector scanner if available, or else a scalar one.
+     */
+    public static LineScanner create() {
+        if (VectorSupport.AVAILABLE) {
+            try {
+                return (LineScanner) Class.forName(VECTOR_CLASS)
+                        .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // checked when VectorSupport loaded, so not expected here
+            }
+        }
+        return new ScalarLineScanner();
+    }
+
+    /**
+     * Checks whether create() hands out vector scanners.
+     *
+     * @return True if the Vector API backend is in use.
+     */
+    public static boolean isVectorAvailable() {
+        return VectorSupport.AVAILABLE;
+    }
+
+    /**
+     * Finds a player with a line on a board.
+     *
+     * @param board A board, with the win length of the game on it.
+     * @return 1 (X) or 2 (O) if that player has win length pieces in a
+     *         row, or 0 if neither does. If both do (which no real game
+     *         reaches), either may be returned.
+     */
+    public int findLine(BoardView board) {
+        int boardLen = board.getLength();
+        int width = prepare(boardLen, board.getWinLength());
+
+        for (int row = 0; row < boardLen; row++) {
+            for (int col = 0; col < boardLen; col++) {
+                this.board[row * width + col] =
+                        (byte) board.getPiece(row, col);
+            }
+        }
+        return scan(boardLen, board.getWinLength());
+    }
+
+    /**
+     * Finds a player with a line on a board stored as one int per cell.
+     *
+     * @param cells Player representation (0, 1 or 2) per cell, row-major.
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @return 1 (X) or 2 (O) if that player has a line, or 0 if neither
+     *         does, as for findLine(BoardView).
+     */
+    public int findLine(int[] cells, int boardLen, int winLen) {
+        int width = prepare(boardLen, winLen);
+
+        for (int row = 0; row < boardLen; row++) {
+            for (int col = 0; col < boardLen; col++) {
+                board[row * width + col] = (byte) cells[row * boardLen + col];
+            }
+        }
+        return scan(boardLen, winLen);
+    }
+
+    /**
+     * Sizes and clears the padded board for a new scan.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @return Width of a padded row.
+     */
+    private int prepare(int boardLen, int winLen) {
+        int width = boardLen + 1;
+        paddedLength = (boardLen + winLen) * width + MAX_VECTOR_BYTES;
+
+        if (board.length < paddedLength) {
+            board = new byte[paddedLength];
+            runs = new byte[paddedLength];
+        } else {
+            Arrays.fill(board, 0, paddedLength, (byte) 0);
+        }
+        return width;
+    }
+
+    /**
+     * Scans the padded board in each direction.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @return The player with a line, or 0.
+     */
+    private int scan(int boardLen, int winLen) {
+        int width = boardLen + 1;
+        int cellsToScan = boardLen * width;
+
+        for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+            int step = ROW_STEPS[dir] * width + COL_STEPS[dir];
+
+            System.arraycopy(board, 0, runs, 0, paddedLength);
+
+            // runs[i] = player with a run of `covered` from i, or 0
+            for (int covered = 1; covered < winLen; ) {
+                int shift = Math.min(covered, winLen - covered);
+                andShifted(runs, cellsToScan, shift * step);
+                covered += shift;
+            }
+
+            int found = orAll(runs, cellsToScan);
+            if (found != 0) {
+                return (found & 1) != 0 ? 1 : 2;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * ANDs each cell with the cell a fixed distance further on, working
+     * upwards so each cell is read before it is overwritten. Cells up to
+     * 64 past the end may be written too; they are padding and stay 0.
+     *
+     * @param runs Padded board to update in place.
+     * @param length Number of cells to update, from the start.
+     * @param offset Distance to the other cell (positive).
+     */
+    protected abstract void andShifted(byte[] runs, int length, int offset);
+
+    /**
+     * ORs cells together.
+     *
+     * @param runs Padded board.
+     * @param length Number of cells to combine, from the start.
+     * @return Every bit set in any of the cells.
+     */
+    protected abstract int orAll(byte[] runs, int length);
+
+    /**
+     * The VectorSupport class checks once, on first use, whether the
+     * vector scanner can be loaded.
+     */
+    private static class VectorSupport {
+        final private static boolean AVAILABLE = probe();
+
+        /**
+         * Tries to make a vector scanner. This fails if it wasn't built or
+         * the jdk.incubator.vector module isn't in the JVM.
+         *
+         * @return True if a vector scanner could be made.
+         */
+        private static boolean probe() {
+            if (!Boolean.parseBoolean(
+                    System.getProperty("ttt.vector", "true"))) {
+                return false;
+            }
+
+            try {
+                Class.forName(VECTOR_CLASS).getDeclaredConstructor()
+                        .newInstance();
+                return true;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                return false;
+            }
+        }
+    }
+}
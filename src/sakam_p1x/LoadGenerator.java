@@ -0,0 +1,181 @@
+package sakam_p1x;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LoadGenerator class drives a GameServer with many concurrent clients
+ * on localhost. Each client plays random games by sending every move for
+ * both sides. The round trip of each MOVE goes into a shared latency
+ * histogram, and the run ends with move throughput and p50/p99/max
+ * latency. Usage:
+ * LoadGenerator [host] [port] [clients] [games per client] [board size]
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class LoadGenerator {
+    // latency histogram: 10 microsecond buckets up to 1 second, then overflow
+    final private static long BUCKET_NANOS = 10_000;
+    final private static int NUM_BUCKETS = 100_001;
+
+    private final AtomicLongArray latencyBuckets =
+            new AtomicLongArray(NUM_BUCKETS);
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder games = new LongAdder();
+
+    /**
+     * Runs the load test and prints its results.
+     *
+     * @param args Host, port, clients, games per client and board size
+     *             (default localhost, 4000, 1000, 10 and 3).
+     * @throws Exception If a client fails.
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) :
+                GameServer.DEFAULT_PORT;
+        int numClients = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        int gamesPerClient = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        int boardLen = args.length > 4 ? Integer.parseInt(args[4]) : 3;
+
+        LoadGenerator generator = new LoadGenerator();
+        ExecutorService clients = GameServer.newSessionExecutor();
+        List<Future<?>> running = new ArrayList<>();
+        long startNanos = System.nanoTime();
+
+        for (int i = 0; i < numClients; i++) {
+            long seed = i;
+            running.add(clients.submit(() -> {
+                generator.runClient(host, port, gamesPerClient, boardLen,
+                        seed);
+                return null;
+            }));
+        }
+        for (Future<?> client : running) {
+            client.get();
+        }
+        clients.shutdown();
+
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        System.out.printf("%d clients, %d games, %d moves in %.2fs%n",
+                numClients, generator.games.sum(), generator.moves.sum(),
+                seconds);
+        System.out.printf("%.0f moves/s, move latency p50 %dus, p99 %dus, " +
+                        "max %dus%n", generator.moves.sum() / seconds,
+                generator.percentileMicros(0.50),
+                generator.percentileMicros(0.99),
+                generator.percentileMicros(1.0));
+    }
+
+    /**
+     * Connects one client and plays its games.
+     *
+     * @param host Server host.
+     * @param port Server port.
+     * @param numGames Games to play.
+     * @param boardLen Board size of each game.
+     * @param seed Random seed for this client's moves.
+     * @throws IOException If the connection fails or the server misbehaves.
+     */
+    private void runClient(String host, int port, int numGames, int boardLen,
+                           long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] freeCells = new int[boardLen * boardLen];
+
+        try (Socket socket = new Socket(host, port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+
+            socket.setTcpNoDelay(true);
+
+            for (int game = 0; game < numGames; game++) {
+                send(out, in, "NEW " + boardLen);
+                for (int i = 0; i < freeCells.length; i++) {
+                    freeCells[i] = i;
+                }
+
+                // play random free cells until the server reports the end
+                String reply;
+                int numFree = freeCells.length;
+                do {
+                    int pick = random.nextInt(numFree);
+                    int cell = freeCells[pick];
+                    freeCells[pick] = freeCells[--numFree];
+
+                    long sent = System.nanoTime();
+                    reply = send(out, in, "MOVE " + cell / boardLen + " " +
+                            cell % boardLen);
+                    record(System.nanoTime() - sent);
+                } while (reply.startsWith("OK NEXT"));
+
+                games.increment();
+            }
+            send(out, in, "QUIT");
+        }
+    }
+
+    /**
+     * Sends a command and waits for its reply.
+     *
+     * @param out Connection to the server.
+     * @param in Replies from the server.
+     * @param command Command line to send.
+     * @return The reply line.
+     * @throws IOException If the server disconnects or replies with ERR.
+     */
+    private static String send(OutputStream out, BufferedReader in,
+                               String command) throws IOException {
+        out.write((command + "\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+
+        String reply = in.readLine();
+        if (reply == null || reply.startsWith("ERR")) {
+            throw new IOException(command + " -> " + reply);
+        }
+        return reply;
+    }
+
+    /**
+     * Records one move's round-trip time.
+     *
+     * @param nanos Round trip in nanoseconds.
+     */
+    private void record(long nanos) {
+        moves.increment();
+        latencyBuckets.incrementAndGet(
+                (int) Math.min(nanos / BUCKET_NANOS, NUM_BUCKETS - 1));
+    }
+
+    /**
+     * Reads a percentile off the latency histogram.
+     *
+     * @param fraction Percentile as a fraction (e.g. 0.99).
+     * @return Upper edge of the bucket holding that percentile, in
+     *         microseconds.
+     */
+    private long percentileMicros(double fraction) {
+        long total = moves.sum();
+        long target = (long) Math.ceil(fraction * total);
+        long seen = 0;
+
+        for (int bucket = 0; bucket < NUM_BUCKETS; bucket++) {
+            seen += latencyBuckets.get(bucket);
+            if (seen >= target && seen > 0) {
+                return (bucket + 1) * BUCKET_NANOS / 1000;
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,724 @@
+package sakam_p1x;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The MctsPlayer class is a computer opponent for boards too big to search
+ * exhaustively. It uses Monte Carlo Tree Search: each iteration walks down
+ * a game tree picking children by UCT (win rate plus an exploration bonus
+ * for rarely visited moves), adds one new node, finishes the game from
+ * there with random moves (a playout) and credits the result back up the
+ * path. The move played is the root move visited most.
+ *
+ * Search runs root-parallel: every thread grows its own tree from the
+ * same position, and their root visit counts are added up at the end, so
+ * threads never share nodes or locks. Players share one pool of daemon
+ * search threads, created on first use, which keeps idle threads only
+ * briefly; a player with a single tree searches on the caller's thread.
+ * Each new leaf can also be played out several times in a row (a leaf
+ * batch) to cut tree overhead per playout. Playouts use the game's win
+ * rules through a WinTracker on the tree's private copy of the board.
+ *
+ * The budget per move is either a fixed time or a fixed number of
+ * playouts. After a move, each tree keeps the subtree below it, and if the
+ * opponent's reply is already in that subtree, the next search starts from
+ * there instead of from scratch.
+ *
+ * An instance keeps search state between calls, so it must only be used by
+ * one game (thread) at a time.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class MctsPlayer implements Player {
+    final public static long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+    final public static int DEFAULT_PLAYOUTS_PER_LEAF = 1;
+
+    // UCT exploration weight, sqrt(2) for results between 0 and 1
+    final private static double EXPLORATION = Math.sqrt(2);
+
+    /* nodes across all trees before they stop growing and only play out
+       from leaves, split evenly between the trees */
+    final private static int MAX_NODES = 1 << 20;
+
+    // playout results, credited to the player who made the move into a node
+    final private static double WIN = 1.0;
+    final private static double TIE = 0.5;
+
+    final private static int NOT_OVER = -1;
+
+    private final long timeBudgetNanos;
+    private final long playoutBudget;
+    private final int playoutsPerLeaf;
+    private final ExecutorService pool;
+    private final SearchTree[] trees;
+
+    // metrics from the last move chosen
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+    private double lastWinRate;
+
+    /**
+     * The constructor sets up a player with the default time budget and one
+     * tree per available core.
+     */
+    public MctsPlayer() {
+        this(DEFAULT_TIME_BUDGET_MILLIS, 0,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * The constructor sets up a player that searches on the shared search
+     * threads, or on the caller's thread if it only has one.
+     *
+     * @param timeBudgetMillis Time allowed to choose each move, or 0 for no
+     *                         time limit.
+     * @param playoutBudget Playouts allowed for each move (across all
+     *                      threads), or 0 for no playout limit.
+     * @param numThreads Number of search threads, each with its own tree.
+     */
+    public MctsPlayer(long timeBudgetMillis, long playoutBudget,
+                      int numThreads) {
+        this(timeBudgetMillis, playoutBudget, DEFAULT_PLAYOUTS_PER_LEAF,
+                numThreads > 1 ? SharedPool.THREADS : null, numThreads);
+    }
+
+    /**
+     * The constructor sets up a player that searches on a given pool, e.g.
+     * one shared by several players.
+     *
+     * @param timeBudgetMillis Time allowed to choose each move, or 0 for no
+     *                         time limit.
+     * @param playoutBudget Playouts allowed for each move (across all
+     *                      trees), or 0 for no playout limit.
+     * @param playoutsPerLeaf Playouts run from each new leaf.
+     * @param pool Pool the trees are searched on, or null to search them
+     *             one after another on the caller's thread.
+     * @param numTrees Number of trees searched in parallel.
+     */
+    public MctsPlayer(long timeBudgetMillis, long playoutBudget,
+                      int playoutsPerLeaf, ExecutorService pool,
+                      int numTrees) {
+        if (timeBudgetMillis <= 0 && playoutBudget <= 0) {
+            throw new IllegalArgumentException(
+                    "A time or playout budget is required");
+        }
+        if (playoutsPerLeaf < 1 || numTrees < 1) {
+            throw new IllegalArgumentException(
+                    "Playouts per leaf and number of trees must be positive");
+        }
+
+        timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.playoutBudget = playoutBudget;
+        this.playoutsPerLeaf = playoutsPerLeaf;
+        this.pool = pool;
+        trees = new SearchTree[numTrees];
+
+        for (int i = 0; i < numTrees; i++) {
+            trees[i] = new SearchTree(new SplittableRandom(i),
+                    Math.max(1, MAX_NODES / numTrees));
+        }
+    }
+
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        long startNanos = System.nanoTime();
+        long deadlineNanos = timeBudgetNanos > 0 ?
+                startNanos + timeBudgetNanos : Long.MAX_VALUE;
+        List<Callable<Void>> searches = new ArrayList<>(trees.length);
+
+        for (int i = 0; i < trees.length; i++) {
+            SearchTree tree = trees[i];
+            long budget = playoutBudget <= 0 ? Long.MAX_VALUE :
+                    playoutBudget / trees.length +
+                            (i < playoutBudget % trees.length ? 1 : 0);
+
+            tree.loadPosition(board, player);
+            if (pool == null) {
+                tree.search(deadlineNanos, budget, playoutsPerLeaf);
+            } else {
+                searches.add(() -> {
+                    tree.search(deadlineNanos, budget, playoutsPerLeaf);
+                    return null;
+                });
+            }
+        }
+
+        if (pool != null) {
+            try {
+                for (Future<Void> search : pool.invokeAll(searches)) {
+                    search.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed",
+                        e.getCause());
+            }
+        }
+
+        int bestMove = pickMove();
+        for (SearchTree tree : trees) {
+            tree.advance(bestMove);
+        }
+
+        lastElapsedNanos = System.nanoTime() - startNanos;
+        return bestMove;
+    }
+
+    /**
+     * Adds up every tree's root visits and picks the most visited move.
+     *
+     * @return Cell index of the chosen move.
+     */
+    private int pickMove() {
+        int numCells = trees[0].cells.length;
+        long[] visits = new long[numCells];
+        double[] wins = new double[numCells];
+        int bestMove = -1;
+
+        lastPlayouts = 0;
+        for (SearchTree tree : trees) {
+            lastPlayouts += tree.playouts;
+            Node root = tree.root;
+
+            for (int i = 0; i < root.numChildren; i++) {
+                Node child = root.children[i];
+                visits[child.move] += child.visits;
+                wins[child.move] += child.wins;
+            }
+        }
+
+        for (int cell = 0; cell < numCells; cell++) {
+            if (visits[cell] > 0 &&
+                    (bestMove < 0 || visits[cell] > visits[bestMove])) {
+
+                bestMove = cell;
+            }
+        }
+
+        // no playout finished in time, so fall back to any free spot
+        if (bestMove < 0) {
+            lastWinRate = TIE;
+            return trees[0].anyFreeCell();
+        }
+
+        lastWinRate = wins[bestMove] / visits[bestMove];
+        return bestMove;
+    }
+
+    /**
+     * Gets the number of playouts run for the last move, across all trees.
+     *
+     * @return Playouts run.
+     */
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Gets the search speed for the last move.
+     *
+     * @return Playouts per second across all trees.
+     */
+    public double getPlayoutsPerSecond() {
+        return lastPlayouts * 1e9 / Math.max(1, lastElapsedNanos);
+    }
+
+    /**
+     * Gets how long the last move took to choose.
+     *
+     * @return Elapsed time in nanoseconds.
+     */
+    public long getLastElapsedNanos() {
+        return lastElapsedNanos;
+    }
+
+    /**
+     * Gets the playout score of the last move chosen, from the mover's point
+     * of view (1 is all wins, 0.5 all ties, 0 all losses).
+     *
+     * @return Average playout result of the chosen move.
+     */
+    public double getLastWinRate() {
+        return lastWinRate;
+    }
+
+    /**
+     * Drops the search trees, so the memory they hold can be reclaimed
+     * when the player's owner is done with it. The search threads are
+     * shared (or the caller's) and keep running for other players. A move
+     * chosen afterwards starts from fresh trees.
+     */
+    public void shutdown() {
+        for (SearchTree tree : trees) {
+            tree.clear();
+        }
+    }
+
+    /**
+     * The SharedPool class holds the search threads every player shares.
+     * They are created on first use (when the class is loaded), are
+     * daemons so they don't keep the program running, and exit after a
+     * minute idle, so the pool only grows to the most searches run at once.
+     */
+    private static class SharedPool {
+        final private static ExecutorService THREADS = newSearchPool();
+
+        /**
+         * Creates a pool of daemon search threads, started as needed and
+         * reused while busy.
+         *
+         * @return The pool.
+         */
+        private static ExecutorService newSearchPool() {
+            AtomicInteger threadNum = new AtomicInteger();
+
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task,
+                        "mcts-" + threadNum.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * The SearchTree class is one thread's tree and its private copy of the
+     * board: the cells and win tracker at the root, which each iteration
+     * steps forward along its path and then back.
+     */
+    private static class SearchTree {
+        private final SplittableRandom random;
+        private final int maxNodes;
+
+        private int boardLength;
+        private int winLength;
+        private int[] cells;
+        private int[] rootCells;   // cells at the root, to detect the reply
+        private WinTracker winTracker;
+        private int numPieces;
+        private int[] expandOrder; // order untried moves are added in
+        private FreeCellIndex free; // empty cells, kept in step with cells
+        private int[] freeCells;   // a playout's copy of them
+        private int[] path;        // cells played from the root this iteration
+
+        private Node root;
+        private int rootPlayer;    // player to move at the root
+        private int numNodes;
+        private long playouts;
+
+        /**
+         * The constructor sets up an empty tree.
+         *
+         * @param random This tree's random numbers.
+         * @param maxNodes Nodes the tree may grow to.
+         */
+        SearchTree(SplittableRandom random, int maxNodes) {
+            this.random = random;
+            this.maxNodes = maxNodes;
+        }
+
+        /**
+         * Copies the game board into the tree's board. If the board is the
+         * previous root plus one opponent piece and that reply is already
+         * in the tree, its subtree becomes the new root. Otherwise the tree
+         * starts over.
+         *
+         * @param board A read-only view of the game board.
+         * @param player Player representation of the mover (1 or 2).
+         */
+        void loadPosition(BoardView board, int player) {
+            if (board.getLength() != boardLength) {
+                boardLength = board.getLength();
+                cells = new int[boardLength * boardLength];
+                rootCells = new int[cells.length];
+                free = new FreeCellIndex(cells.length);
+                freeCells = new int[cells.length];
+                path = new int[cells.length];
+                expandOrder = new int[cells.length];
+                root = null;
+
+                for (int cell = 0; cell < expandOrder.length; cell++) {
+                    expandOrder[cell] = cell;
+                }
+            }
+
+            // a tree grown under other rules can't be reused
+            if (board.getWinLength() != winLength) {
+                winLength = board.getWinLength();
+                root = null;
+            }
+
+            winTracker = new WinTracker(boardLength, winLength);
+            free.reset();
+            numPieces = 0;
+            int reply = -1;
+            int numChanged = 0;
+
+            for (int cell = 0; cell < cells.length; cell++) {
+                cells[cell] = board.getPiece(cell / boardLength,
+                        cell % boardLength);
+                if (cells[cell] != rootCells[cell]) {
+                    reply = cell;
+                    numChanged++;
+                }
+                if (cells[cell] != 0) {
+                    winTracker.addPiece(cells[cell], cell / boardLength,
+                            cell % boardLength);
+                    free.remove(cell);
+                    numPieces++;
+                }
+            }
+
+            Node reused = null;
+            if (root != null && numChanged == 1 && rootCells[reply] == 0 &&
+                    cells[reply] == rootPlayer && rootPlayer != player) {
+
+                reused = root.findChild(reply);
+            }
+
+            if (reused == null) {
+                root = new Node(-1, NOT_OVER);
+                numNodes = 1;
+                shuffle(expandOrder);
+            } else {
+                root = reused;
+                root.parent = null;
+                numNodes = root.countNodes();
+            }
+            rootPlayer = player;
+            System.arraycopy(cells, 0, rootCells, 0, cells.length);
+            playouts = 0;
+        }
+
+        /**
+         * Drops the tree, keeping the board buffers. The next search
+         * starts over.
+         */
+        void clear() {
+            root = null;
+            numNodes = 0;
+        }
+
+        /**
+         * Makes a chosen move's subtree the new root, so it can be reused if
+         * the opponent replies with a move already searched.
+         *
+         * @param move Cell index of the move played.
+         */
+        void advance(int move) {
+            Node child = root.findChild(move);
+
+            if (child == null) {
+                root = null; // nothing to keep
+                return;
+            }
+            root = child;
+            root.parent = null;
+            rootCells[move] = rootPlayer;
+            rootPlayer = 3 - rootPlayer;
+        }
+
+        /**
+         * Runs search iterations until the deadline or playout budget.
+         *
+         * @param deadlineNanos System.nanoTime() to stop at.
+         * @param budget Playouts this tree may run.
+         * @param playoutsPerLeaf Playouts run from each new leaf.
+         */
+        void search(long deadlineNanos, long budget, int playoutsPerLeaf) {
+            while (playouts < budget && System.nanoTime() < deadlineNanos) {
+                iterate((int) Math.min(playoutsPerLeaf, budget - playouts));
+            }
+        }
+
+        /**
+         * Runs one iteration: select a leaf by UCT, expand it by one move,
+         * play it out and credit every node on the path.
+         *
+         * @param numPlayouts Playouts to run from the leaf.
+         */
+        private void iterate(int numPlayouts) {
+            Node node = root;
+            int player = rootPlayer;
+            int depth = 0;
+
+            // selection: descend while every move here has a node
+            while (node.result == NOT_OVER && !canExpand(node) &&
+                    node.numChildren > 0) {
+
+                node = node.selectChild();
+                play(node.move, player, depth++);
+                player = 3 - player;
+            }
+
+            // expansion: add one untried move
+            if (node.result == NOT_OVER && canExpand(node)) {
+                int move = nextUntried(node);
+                boolean won = play(move, player, depth++);
+                int result = won ? player :
+                        numPieces == cells.length ? 0 : NOT_OVER;
+
+                node = node.addChild(move, result);
+                numNodes++;
+                player = 3 - player;
+            }
+
+            // playouts from the leaf; player is the one to move there
+            double leafScore = 0;
+            for (int i = 0; i < numPlayouts; i++) {
+                int winner = node.result != NOT_OVER ? node.result :
+                        playout(player);
+                leafScore += winner == 0 ? TIE :
+                        winner == player ? 0 : WIN;
+            }
+            playouts += numPlayouts;
+
+            // backpropagation: each node scores for the player who moved in
+            double score = leafScore;
+            for (Node step = node; step != null; step = step.parent) {
+                step.visits += numPlayouts;
+                step.wins += score;
+                score = numPlayouts - score;
+            }
+
+            // step the board back to the root
+            while (depth > 0) {
+                int cell = path[--depth];
+                winTracker.removePiece(cells[cell], cell / boardLength,
+                        cell % boardLength);
+                cells[cell] = 0;
+                free.add(cell);
+                numPieces--;
+            }
+        }
+
+        /**
+         * Checks whether a node still has moves without a node, and the tree
+         * has room for another node.
+         *
+         * @param node A node whose position is on the board.
+         * @return True if a child can be added.
+         */
+        private boolean canExpand(Node node) {
+            if (numNodes >= maxNodes) {
+                return false;
+            }
+            while (node.nextUntried < expandOrder.length &&
+                    cells[expandOrder[node.nextUntried]] != 0) {
+
+                node.nextUntried++;
+            }
+            return node.nextUntried < expandOrder.length;
+        }
+
+        /**
+         * Takes a node's next untried move. canExpand must have returned
+         * true for the node.
+         *
+         * @param node A node whose position is on the board.
+         * @return Cell index of the move.
+         */
+        private int nextUntried(Node node) {
+            return expandOrder[node.nextUntried++];
+        }
+
+        /**
+         * Places a piece on the tree's board and remembers it on the path.
+         *
+         * @param cell Cell index of the move.
+         * @param player Player representation of the mover (1 or 2).
+         * @param depth Position on the path.
+         * @return True if the piece completed a line.
+         */
+        private boolean play(int cell, int player, int depth) {
+            cells[cell] = player;
+            free.remove(cell);
+            numPieces++;
+            path[depth] = cell;
+            return winTracker.addPiece(player, cell / boardLength,
+                    cell % boardLength);
+        }
+
+        /**
+         * Plays random moves to the end of the game. Only the win tracker
+         * follows the playout; it is stepped back before returning.
+         *
+         * @param player Player representation of the first mover (1 or 2).
+         * @return 1 or 2 for the winner, or 0 for a tie.
+         */
+        private int playout(int player) {
+            int numFree = free.copyTo(freeCells);
+
+            int numPlayed = 0;
+            int winner = 0;
+            player = 3 - player; // flipped back before each move
+            while (numPlayed < numFree) {
+                // move a random free cell into the played prefix
+                int pick = numPlayed + random.nextInt(numFree - numPlayed);
+                int cell = freeCells[pick];
+                freeCells[pick] = freeCells[numPlayed];
+                freeCells[numPlayed++] = cell;
+                player = 3 - player;
+
+                if (winTracker.addPiece(player, cell / boardLength,
+                        cell % boardLength)) {
+
+                    winner = player;
+                    break;
+                }
+            }
+
+            // take the pieces back in reverse, last mover first
+            for (int i = numPlayed - 1; i >= 0; i--) {
+                int cell = freeCells[i];
+                winTracker.removePiece(player, cell / boardLength,
+                        cell % boardLength);
+                player = 3 - player;
+            }
+            return winner;
+        }
+
+        /**
+         * Finds any empty spot at the root.
+         *
+         * @return Cell index of an empty spot.
+         */
+        int anyFreeCell() {
+            if (free.size() == 0) {
+                throw new IllegalStateException("No empty spot on the board");
+            }
+            return free.get(0);
+        }
+
+        /**
+         * Shuffles cells, so each tree adds untried moves in its own order.
+         *
+         * @param order Cell indexes to shuffle.
+         */
+        private void shuffle(int[] order) {
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = order[i];
+                order[i] = order[j];
+                order[j] = swap;
+            }
+        }
+    }
+
+    /**
+     * The Node class is one position in a search tree, reached by a move.
+     * Its wins are from the point of view of the player who made that move.
+     */
+    private static class Node {
+        private final int move;
+        private final int result; // winner, 0 for a tie, or NOT_OVER
+        private Node parent;
+        private Node[] children;
+        private int numChildren;
+        private int nextUntried;  // position in the tree's expand order
+        private long visits;
+        private double wins;
+
+        /**
+         * The constructor creates an unvisited node.
+         *
+         * @param move Cell index of the move into this node, or -1.
+         * @param result Winner (0 for a tie) if the game is over, otherwise
+         *               NOT_OVER.
+         */
+        Node(int move, int result) {
+            this.move = move;
+            this.result = result;
+        }
+
+        /**
+         * Adds a child for a move.
+         *
+         * @param childMove Cell index of the move.
+         * @param childResult Result if the move ends the game, otherwise
+         *                    NOT_OVER.
+         * @return The new child.
+         */
+        Node addChild(int childMove, int childResult) {
+            if (children == null) {
+                children = new Node[4];
+            } else if (numChildren == children.length) {
+                Node[] grown = new Node[children.length * 2];
+                System.arraycopy(children, 0, grown, 0, numChildren);
+                children = grown;
+            }
+
+            Node child = new Node(childMove, childResult);
+            child.parent = this;
+            children[numChildren++] = child;
+            return child;
+        }
+
+        /**
+         * Picks the child with the best UCT value.
+         *
+         * @return The selected child.
+         */
+        Node selectChild() {
+            double logVisits = Math.log(visits);
+            Node best = children[0];
+            double bestValue = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < numChildren; i++) {
+                Node child = children[i];
+                double value = child.wins / child.visits + EXPLORATION *
+                        Math.sqrt(logVisits / child.visits);
+
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        /**
+         * Counts this node and everything below it.
+         *
+         * @return Number of nodes in the subtree.
+         */
+        int countNodes() {
+            ArrayList<Node> stack = new ArrayList<>();
+            int count = 0;
+
+            stack.add(this);
+            while (!stack.isEmpty()) {
+                Node node = stack.remove(stack.size() - 1);
+                count++;
+                for (int i = 0; i < node.numChildren; i++) {
+                    stack.add(node.children[i]);
+                }
+            }
+            return count;
+        }
+
+        /**
+         * Finds the child for a move.
+         *
+         * @param childMove Cell index of the move.
+         * @return The child, or null if the move has no node.
+         */
+        Node findChild(int childMove) {
+            for (int i = 0; i < numChildren; i++) {
+                if (children[i].move == childMove) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,529 @@
+package sakam_p1x;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * The MinimaxPlayer class is a computer opponent. It picks moves with a
+ * negamax search using alpha-beta pruning and iterative deepening: it
+ * searches 1 move ahead, then 2, and so on until its time budget for the
+ * move runs out, and plays the best move of the deepest finished search.
+ * Moves are tried best-first: the move a transposition table remembers,
+ * then spots that sit on the most lines. Positions are remembered in the
+ * bounded, Zobrist-hashed transposition table. Small boards are solved
+ * outright; on larger boards an unfinished search is cut off and scored by
+ * open lines.
+ *
+ * Positions the search solves outright (a forced result, or searched to the
+ * end of the game) can be kept in a PositionCache shared with other players
+ * and threads. Every symmetric version of a solved position is then answered
+ * without searching.
+ *
+ * An instance keeps search state between calls, so it must only be used by
+ * one game (thread) at a time.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class MinimaxPlayer implements Player {
+    final public static long DEFAULT_TIME_BUDGET_MILLIS = 1000;
+    final public static int DEFAULT_TABLE_SIZE_BITS = 20;
+
+    /*
+     * a win is worth WIN_SCORE minus the ply it happens at, so quicker wins
+     * (and slower losses) score better; anything past WIN_THRESHOLD is a
+     * forced result rather than an open-line estimate
+     */
+    final private static int WIN_SCORE = 1_000_000;
+    final private static int WIN_THRESHOLD = WIN_SCORE - 1000;
+    final private static int INFINITY = WIN_SCORE + 1;
+
+    // how many nodes are searched between checks of the clock
+    final private static int CLOCK_CHECK_MASK = 1023;
+
+    // rough size of a cached Solution object
+    final private static int SOLUTION_BYTES = 24;
+
+    private final long timeBudgetNanos;
+    private final int tableSizeBits;
+    private TranspositionTable table; // allocated on the first move
+    private final PositionCache<Solution> solvedCache;
+
+    // search position: a private copy of the game board
+    private int boardLength;
+    private int winLength;
+    private int[] cells;
+    private WinTracker winTracker;
+    private int numPieces;
+    private long hash;
+    private long[] zobristKeys;
+    private int[] moveOrder;
+
+    // search bookkeeping for the current move
+    private long deadlineNanos;
+    private boolean timeUp;
+    private long nodes;
+    private int rootScore;
+
+    // metrics from the last move chosen
+    private long lastNodes;
+    private long lastElapsedNanos;
+    private int lastDepth;
+    private int lastScore;
+
+    /**
+     * The constructor sets up a player with the default time budget and
+     * transposition table size.
+     */
+    public MinimaxPlayer() {
+        this(DEFAULT_TIME_BUDGET_MILLIS, DEFAULT_TABLE_SIZE_BITS);
+    }
+
+    /**
+     * The constructor sets up a player with a given time budget per move and
+     * transposition table size.
+     *
+     * @param timeBudgetMillis Time allowed to choose each move.
+     * @param tableSizeBits Log2 of the transposition table's slot count.
+     */
+    public MinimaxPlayer(long timeBudgetMillis, int tableSizeBits) {
+        this(timeBudgetMillis, tableSizeBits, null);
+    }
+
+    /**
+     * The constructor sets up a player that also shares solved positions
+     * through a cache.
+     *
+     * @param timeBudgetMillis Time allowed to choose each move.
+     * @param tableSizeBits Log2 of the transposition table's slot count.
+     * @param solvedCache Cache of solved positions, or null for none.
+     */
+    public MinimaxPlayer(long timeBudgetMillis, int tableSizeBits,
+                         PositionCache<Solution> solvedCache) {
+        timeBudgetNanos = timeBudgetMillis * 1_000_000L;
+        this.tableSizeBits = tableSizeBits;
+        this.solvedCache = solvedCache;
+    }
+
+    /**
+     * Creates a cache of solved positions to share between players.
+     *
+     * @param maxBytes Approximate memory cap for the cache.
+     * @return An empty cache.
+     */
+    public static PositionCache<Solution> newSolvedCache(long maxBytes) {
+        return new PositionCache<>(maxBytes, solution -> SOLUTION_BYTES);
+    }
+
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        long startNanos = System.nanoTime();
+        int bestMove = -1;
+
+        loadPosition(board);
+        deadlineNanos = startNanos + timeBudgetNanos;
+        timeUp = false;
+        nodes = 0;
+        lastDepth = 0;
+        lastScore = 0;
+
+        int maxDepth = boardLength * boardLength - numPieces;
+
+        /*
+         * a solved equivalent position needs no search at all; cache keys
+         * don't carry the win length, so only classic games share solutions
+         */
+        PositionKey key = null;
+        if (solvedCache != null && winLength == boardLength) {
+            key = PositionKey.canonical(cells, boardLength);
+            Solution solution = solvedCache.get(key);
+
+            if (solution != null) {
+                lastNodes = 0;
+                lastDepth = maxDepth;
+                lastScore = solution.score;
+                lastElapsedNanos = System.nanoTime() - startNanos;
+                return key.fromCanonical(solution.move);
+            }
+        }
+
+        // deepen until time runs out, the game tree ends, or a result is forced
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int move = searchRoot(depth, player, bestMove);
+
+            if (timeUp) {
+                break;
+            }
+
+            bestMove = move;
+            lastDepth = depth;
+            lastScore = rootScore;
+            if (Math.abs(rootScore) > WIN_THRESHOLD) {
+                break;
+            }
+        }
+
+        // a budget too small for even one iteration still gets a legal move
+        for (int i = 0; bestMove < 0; i++) {
+            if (cells[moveOrder[i]] == 0) {
+                bestMove = moveOrder[i];
+            }
+        }
+
+        // only results that no deeper search could change are shared
+        if (key != null && (lastDepth == maxDepth ||
+                Math.abs(lastScore) > WIN_THRESHOLD)) {
+
+            solvedCache.put(key,
+                    new Solution(key.toCanonical(bestMove), lastScore));
+        }
+
+        lastNodes = nodes;
+        lastElapsedNanos = System.nanoTime() - startNanos;
+
+        return bestMove;
+    }
+
+    /**
+     * Copies the game board into the search's own board, win tracker and
+     * hash, rebuilding per-size tables if the board length changed (and
+     * dropping old table entries if the rules did). The transposition
+     * table is allocated here on the first move rather than in the
+     * constructor, so setting up a computer opponent doesn't delay the
+     * first prompt.
+     *
+     * @param board A read-only view of the game board.
+     */
+    private void loadPosition(BoardView board) {
+        if (board.getLength() != boardLength) {
+            boardLength = board.getLength();
+            cells = new int[boardLength * boardLength];
+            zobristKeys = buildZobristKeys(boardLength);
+            moveOrder = buildMoveOrder(boardLength);
+            if (table == null) {
+                table = new TranspositionTable(tableSizeBits);
+            } else {
+                table.clear();
+            }
+        } else if (board.getWinLength() != winLength) {
+            table.clear();
+        }
+
+        winLength = board.getWinLength();
+        winTracker = new WinTracker(boardLength, winLength);
+        numPieces = 0;
+        hash = 0;
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = board.getPiece(cell / boardLength,
+                    cell % boardLength);
+            if (cells[cell] != 0) {
+                winTracker.addPiece(cells[cell], cell / boardLength,
+                        cell % boardLength);
+                numPieces++;
+                hash ^= zobristKeys[2 * cell + cells[cell] - 1];
+            }
+        }
+    }
+
+    /**
+     * Searches every root move to the given depth. The previous iteration's
+     * best move is searched first, since it is most likely still best.
+     *
+     * @param depth Depth to search to.
+     * @param player Player representation of the mover (1 or 2).
+     * @param previousBest Best move from the last iteration, or -1.
+     * @return Best move found (only meaningful if time didn't run out).
+     */
+    private int searchRoot(int depth, int player, int previousBest) {
+        int alpha = -INFINITY;
+        int bestMove = -1;
+
+        for (int i = -1; i < moveOrder.length; i++) {
+            int cell = i < 0 ? previousBest : moveOrder[i];
+            if (cell < 0 || cells[cell] != 0 ||
+                    (i >= 0 && cell == previousBest)) {
+
+                continue;
+            }
+
+            int score = searchMove(cell, depth, 0, -INFINITY, -alpha, player);
+            if (timeUp) {
+                break;
+            }
+            if (score > alpha) {
+                alpha = score;
+                bestMove = cell;
+            }
+        }
+
+        rootScore = alpha;
+        return bestMove;
+    }
+
+    /**
+     * Searches the position below the current node with negamax and
+     * alpha-beta pruning. Values are from the point of view of the player
+     * to move.
+     *
+     * @param depth Remaining depth to search.
+     * @param ply Number of moves made since the root.
+     * @param alpha Best score the mover is already assured of.
+     * @param beta Best score the opponent is already assured of.
+     * @param player Player representation of the mover (1 or 2).
+     * @return Value of the position for the mover.
+     */
+    private int negamax(int depth, int ply, int alpha, int beta, int player) {
+        nodes++;
+        if ((nodes & CLOCK_CHECK_MASK) == 0 &&
+                System.nanoTime() > deadlineNanos) {
+
+            timeUp = true;
+        }
+        if (timeUp) {
+            return 0;
+        }
+
+        if (numPieces == cells.length) {
+            return 0; // tie
+        }
+        if (depth == 0) {
+            return winTracker.openLineScore(player);
+        }
+
+        // a stored result from at least this deep may settle the node
+        int originalAlpha = alpha;
+        int tableMove = -1;
+        int slot = table.probe(hash);
+        if (slot >= 0) {
+            tableMove = table.getMove(slot);
+
+            if (table.getDepth(slot) >= depth) {
+                int value = fromTable(table.getValue(slot), ply);
+                int bound = table.getBound(slot);
+
+                if (bound == TranspositionTable.EXACT ||
+                        (bound == TranspositionTable.LOWER_BOUND &&
+                                value >= beta) ||
+                        (bound == TranspositionTable.UPPER_BOUND &&
+                                value <= alpha)) {
+
+                    return value;
+                }
+            }
+        }
+
+        int bestScore = -INFINITY;
+        int bestMove = -1;
+
+        // table move first, then the static order
+        for (int i = -1; i < moveOrder.length; i++) {
+            int cell = i < 0 ? tableMove : moveOrder[i];
+            if (cell < 0 || cells[cell] != 0 ||
+                    (i >= 0 && cell == tableMove)) {
+
+                continue;
+            }
+
+            int score = searchMove(cell, depth, ply, alpha, beta, player);
+            if (timeUp) {
+                return 0;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = cell;
+            }
+            if (score > alpha) {
+                alpha = score;
+            }
+            if (alpha >= beta) {
+                break; // the opponent won't allow this line
+            }
+        }
+
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        table.store(hash, depth, bound, toTable(bestScore, ply), bestMove);
+
+        return bestScore;
+    }
+
+    /**
+     * Makes a move, scores it (a completed line wins outright, otherwise
+     * the opponent's reply is searched) and unmakes it.
+     *
+     * @param cell Cell index of the move.
+     * @param depth Remaining depth including this move.
+     * @param ply Number of moves made since the root, before this move.
+     * @param alpha Best score the mover is already assured of.
+     * @param beta Best score the opponent is already assured of.
+     * @param player Player representation of the mover (1 or 2).
+     * @return Value of the move for the mover.
+     */
+    private int searchMove(int cell, int depth, int ply, int alpha, int beta,
+                           int player) {
+        int row = cell / boardLength;
+        int col = cell % boardLength;
+        long key = zobristKeys[2 * cell + player - 1];
+        int score;
+
+        cells[cell] = player;
+        numPieces++;
+        hash ^= key;
+
+        if (winTracker.addPiece(player, row, col)) {
+            score = WIN_SCORE - (ply + 1);
+        } else {
+            score = -negamax(depth - 1, ply + 1, -beta, -alpha, 3 - player);
+        }
+
+        winTracker.removePiece(player, row, col);
+        hash ^= key;
+        numPieces--;
+        cells[cell] = 0;
+
+        return score;
+    }
+
+    /**
+     * Converts a win score from "plies from the root" to "plies from this
+     * node" so it stays correct when the position is reached at another ply.
+     *
+     * @param score Search value at this node.
+     * @param ply Number of moves made since the root.
+     * @return Value to store in the table.
+     */
+    private static int toTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score + ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a stored value back to "plies from the root".
+     *
+     * @param score Value from the table.
+     * @param ply Number of moves made since the root.
+     * @return Search value at this node.
+     */
+    private static int fromTable(int score, int ply) {
+        if (score > WIN_THRESHOLD) {
+            return score - ply;
+        }
+        if (score < -WIN_THRESHOLD) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Builds random Zobrist keys, one per cell per player. Keys come from a
+     * fixed seed per board length, so hashes are repeatable between runs.
+     *
+     * @param boardLen An integer representing board length.
+     * @return Keys indexed by 2 * cell + (player - 1).
+     */
+    static long[] buildZobristKeys(int boardLen) {
+        SplittableRandom random = new SplittableRandom(boardLen);
+        long[] keys = new long[2 * boardLen * boardLen];
+
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+
+    /**
+     * Orders cells so the ones on the most lines (the center, then the
+     * diagonals) come first, and otherwise the ones nearest the center.
+     *
+     * @param boardLen An integer representing board length.
+     * @return Every cell index, best candidates first.
+     */
+    private static int[] buildMoveOrder(int boardLen) {
+        int numCells = boardLen * boardLen;
+        Integer[] order = new Integer[numCells];
+        int[] priority = new int[numCells];
+        int center = boardLen / 2;
+
+        for (int cell = 0; cell < numCells; cell++) {
+            int row = cell / boardLen;
+            int col = cell % boardLen;
+            int lines = 2 + (row == col ? 1 : 0) +
+                    (row + col == boardLen - 1 ? 1 : 0);
+            int distance = Math.abs(row - center) + Math.abs(col - center);
+
+            order[cell] = cell;
+            priority[cell] = lines * 2 * boardLen - distance;
+        }
+
+        Arrays.sort(order, (a, b) -> priority[b] - priority[a]);
+
+        int[] result = new int[numCells];
+        for (int i = 0; i < numCells; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of positions searched for the last move.
+     *
+     * @return Nodes searched.
+     */
+    public long getLastNodes() {
+        return lastNodes;
+    }
+
+    /**
+     * Gets the search speed for the last move.
+     *
+     * @return Nodes searched per second.
+     */
+    public double getNodesPerSecond() {
+        return lastNodes * 1e9 / Math.max(1, lastElapsedNanos);
+    }
+
+    /**
+     * Gets the search value of the last move chosen, from the mover's point
+     * of view (above 0 favors the mover; near 1,000,000 is a forced win).
+     *
+     * @return Search value of the last move.
+     */
+    public int getLastScore() {
+        return lastScore;
+    }
+
+    /**
+     * Gets how deep the last move's search got.
+     *
+     * @return Depth of the deepest finished iteration.
+     */
+    public int getLastDepth() {
+        return lastDepth;
+    }
+
+    /**
+     * The Solution class is a solved position's best move (in canonical
+     * coordinates) and its value for the player to move.
+     */
+    public static final class Solution {
+        private final int move;
+        private final int score;
+
+        /**
+         * The constructor stores a solved position's result.
+         *
+         * @param move Best move, in canonical coordinates.
+         * @param score Search value for the player to move.
+         */
+        Solution(int move, int score) {
+            this.move = move;
+            this.score = score;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.SplittableRandom;
+
+/**
+ * The OpeningBook class answers the first few moves of games on one board
+ * size and win length from a precomputed book file (see
+ * OpeningBookBuilder), so the first moves of a game cost a lookup instead
+ * of a search. The file is memory mapped read-only, and a lookup reads
+ * the board once, then binary searches the mapping. So lookups take
+ * microseconds and can run from any number of threads at once.
+ *
+ * Positions are keyed the way chess opening books are: a 64-bit Zobrist
+ * hash, the XOR of a fixed random number per (piece, cell). A position's
+ * key is the smallest hash among its 8 symmetric versions, so one entry
+ * serves every rotation and reflection. Keys are compared by value only;
+ * a move that isn't free on the board (a hash collision, which needs a
+ * 1 in 2^64 chance) is ignored.
+ *
+ * File layout: a 24-byte header (magic, version, board length, win length,
+ * plies, entry count), then every key in ascending order (8 bytes each),
+ * then each key's best move in canonical coordinates (2 bytes each).
+ * Plies is the number of moves into a game the book covers: it holds
+ * positions with fewer pieces than that.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class OpeningBook {
+    final static int MAGIC = 0x5454544F; // "TTTO"
+    final static int VERSION = 1;
+    final static int HEADER_BYTES = 24;
+    final static int KEY_BYTES = Long.BYTES;
+    final static int MOVE_BYTES = Short.BYTES;
+
+    final private static int MAX_CELLS = BoardPool.MAX_LENGTH *
+            BoardPool.MAX_LENGTH;
+
+    // books built with another seed would key positions differently
+    final private static long ZOBRIST_SEED = 0x54545442_4F4F4BL;
+    final private static long[] ZOBRIST = zobristTable();
+
+    private final MappedByteBuffer entries;
+    private final int boardLength;
+    private final int winLength;
+    private final int plies;
+    private final int numEntries;
+
+    /**
+     * The constructor maps a book file into memory and checks its header.
+     *
+     * @param file Path of the book file.
+     * @throws IOException If the file can't be read or isn't a book.
+     */
+    public OpeningBook(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+
+            // the mapping stays valid after the channel is closed
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+
+        if (entries.capacity() < HEADER_BYTES ||
+                entries.getInt(0) != MAGIC || entries.getInt(4) != VERSION) {
+            throw new IOException(file + " is not an opening book");
+        }
+        boardLength = entries.getInt(8);
+        winLength = entries.getInt(12);
+        plies = entries.getInt(16);
+        numEntries = entries.getInt(20);
+
+        if (boardLength < 1 || boardLength > BoardPool.MAX_LENGTH ||
+                numEntries < 0 || entries.capacity() != HEADER_BYTES +
+                (long) numEntries * (KEY_BYTES + MOVE_BYTES)) {
+
+            throw new IOException(file + " is not an opening book");
+        }
+    }
+
+    /**
+     * Gets the name a book for a board size and win length is saved under
+     * by default, e.g. opening7x7.book, or opening15x15k5.book for
+     * k-in-a-row.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @return The file name.
+     */
+    public static String defaultFile(int boardLen, int winLen) {
+        return "opening" + boardLen + "x" + boardLen +
+                (winLen == boardLen ? "" : "k" + winLen) + ".book";
+    }
+
+    /**
+     * Looks up the book move for the player to move.
+     *
+     * @param board A read-only view of the board.
+     * @return Cell index of the book move, or -1 if the board's size or
+     *         win length isn't the book's, the game is past the book, or
+     *         the position isn't in it.
+     */
+    public int bestMove(BoardView board) {
+        if (board.getLength() != boardLength ||
+                board.getWinLength() != winLength ||
+                numPieces(board) >= plies) {
+
+            return -1;
+        }
+
+        long[] keys = symmetricKeys(board);
+        int symmetry = canonicalSymmetry(keys);
+        int entry = find(keys[symmetry]);
+        if (entry < 0) {
+            return -1;
+        }
+
+        int move = Symmetry.transform(Symmetry.inverse(symmetry),
+                entries.getShort(movesStart() + entry * MOVE_BYTES),
+                boardLength);
+        if (board.getPiece(move / boardLength, move % boardLength) != 0) {
+            return -1; // another position with the same key
+        }
+        return move;
+    }
+
+    /**
+     * Gets the board length the book was built for.
+     *
+     * @return An integer representing board length.
+     */
+    public int getBoardLength() {
+        return boardLength;
+    }
+
+    /**
+     * Gets the win length the book was built for.
+     *
+     * @return Number of pieces in a row that wins.
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Gets the number of moves into a game the book covers.
+     *
+     * @return Number of plies.
+     */
+    public int getPlies() {
+        return plies;
+    }
+
+    /**
+     * Gets the number of positions in the book.
+     *
+     * @return Number of entries.
+     */
+    public int size() {
+        return numEntries;
+    }
+
+    /**
+     * Binary searches the sorted keys.
+     *
+     * @param key Canonical key of a position.
+     * @return Index of the key's entry, or -1 if it isn't in the book.
+     */
+    private int find(long key) {
+        int low = 0;
+        int high = numEntries - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midKey = entries.getLong(HEADER_BYTES + mid * KEY_BYTES);
+
+            if (midKey < key) {
+                low = mid + 1;
+            } else if (midKey > key) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets where the moves start in the file, right after the keys.
+     *
+     * @return Byte offset of the first move.
+     */
+    private int movesStart() {
+        return HEADER_BYTES + numEntries * KEY_BYTES;
+    }
+
+    /**
+     * Counts the pieces on a board.
+     *
+     * @param board A read-only view of the board.
+     * @return Number of pieces.
+     */
+    private static int numPieces(BoardView board) {
+        int boardLen = board.getLength();
+        return boardLen * boardLen - board.getNumFreeCells();
+    }
+
+    /**
+     * Hashes a board after mapping it through each of its symmetries, in
+     * one pass over the board.
+     *
+     * @param board A read-only view of the board.
+     * @return Zobrist key of each symmetric version, by symmetry index.
+     */
+    static long[] symmetricKeys(BoardView board) {
+        int boardLen = board.getLength();
+        long[] keys = new long[Symmetry.NUM_SYMMETRIES];
+
+        for (int cell = 0; cell < boardLen * boardLen; cell++) {
+            int piece = board.getPiece(cell / boardLen, cell % boardLen);
+            if (piece == 0) {
+                continue;
+            }
+
+            int offset = (piece - 1) * MAX_CELLS;
+            for (int symmetry = 0; symmetry < keys.length; symmetry++) {
+                keys[symmetry] ^= ZOBRIST[offset +
+                        Symmetry.transform(symmetry, cell, boardLen)];
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Picks the symmetry that gives a board its smallest key.
+     *
+     * @param keys Key of each symmetric version, by symmetry index.
+     * @return Symmetry index (0-7).
+     */
+    static int canonicalSymmetry(long[] keys) {
+        int best = Symmetry.IDENTITY;
+
+        for (int symmetry = 1; symmetry < keys.length; symmetry++) {
+            if (keys[symmetry] < keys[best]) {
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Writes a book header into a buffer.
+     *
+     * @param header Buffer with at least HEADER_BYTES remaining.
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @param plies Number of moves into a game the book covers.
+     * @param numEntries Number of positions in the book.
+     */
+    static void writeHeader(ByteBuffer header, int boardLen, int winLen,
+                            int plies, int numEntries) {
+        header.putInt(MAGIC).putInt(VERSION).putInt(boardLen).putInt(winLen)
+                .putInt(plies).putInt(numEntries);
+    }
+
+    /**
+     * Draws the fixed random number for every (piece, cell) pair. The seed
+     * is fixed, so every run draws the same numbers.
+     *
+     * @return Numbers indexed by (piece - 1) * MAX_CELLS + cell.
+     */
+    private static long[] zobristTable() {
+        SplittableRandom random = new SplittableRandom(ZOBRIST_SEED);
+        long[] table = new long[2 * MAX_CELLS];
+
+        for (int i = 0; i < table.length; i++) {
+            table[i] = random.nextLong();
+        }
+        return table;
+    }
+}
@@ -0,0 +1,197 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The OpeningBookBuilder class searches the first moves of games on one
+ * board size and win length offline and writes the best ones as an opening
+ * book (layout described in OpeningBook). Usage:
+ * OpeningBookBuilder [size] [plies] [playouts] [win length] [threads]
+ * [output file]
+ *
+ * The book is built once for each side. Where the book's side is to move,
+ * a deep MCTS search picks the move, and only that move is followed;
+ * where the other side is to move, every reply is followed. So the book
+ * covers whatever an opponent plays against it, without spending searches
+ * on moves the book itself never makes. Symmetric positions are searched
+ * once.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class OpeningBookBuilder {
+    final public static int DEFAULT_SIZE = 7;
+    final public static int DEFAULT_PLIES = 4;
+    final public static long DEFAULT_PLAYOUTS = 200_000;
+
+    private final TicTacToeX game = new TicTacToeX();
+    private final int boardLength;
+    private final int winLength;
+    private final int plies;
+    private final MctsPlayer searcher;
+
+    // best move (canonical coordinates) by canonical key
+    private final Map<Long, Integer> bookMoves = new HashMap<>();
+    private final Set<Long> visited = new HashSet<>();
+
+    /**
+     * The constructor sets up a builder for one board size and win length.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @param plies Number of moves into a game to cover.
+     * @param playouts MCTS playouts run for each book position.
+     * @param numThreads Number of search threads.
+     */
+    public OpeningBookBuilder(int boardLen, int winLen, int plies,
+                              long playouts, int numThreads) {
+        boardLength = boardLen;
+        winLength = winLen;
+        this.plies = Math.min(plies, boardLen * boardLen);
+        searcher = new MctsPlayer(0, playouts, numThreads);
+    }
+
+    /**
+     * Builds a book and writes it.
+     *
+     * @param args Board size, plies, playouts per position, win length,
+     *             threads and output file (default 7, 4, 200,000, the
+     *             board length, all available cores and the size's
+     *             default book file).
+     * @throws IOException If the book can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        int boardLen = args.length > 0 ? Integer.parseInt(args[0]) :
+                DEFAULT_SIZE;
+        int plies = args.length > 1 ? Integer.parseInt(args[1]) :
+                DEFAULT_PLIES;
+        long playouts = args.length > 2 ? Long.parseLong(args[2]) :
+                DEFAULT_PLAYOUTS;
+        int winLen = args.length > 3 ? Integer.parseInt(args[3]) : boardLen;
+        int numThreads = args.length > 4 ? Integer.parseInt(args[4]) :
+                Runtime.getRuntime().availableProcessors();
+        Path output = Paths.get(args.length > 5 ? args[5] :
+                OpeningBook.defaultFile(boardLen, winLen));
+
+        OpeningBookBuilder builder = new OpeningBookBuilder(boardLen, winLen,
+                plies, playouts, numThreads);
+        long startNanos = System.nanoTime();
+        builder.build();
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        builder.write(output);
+
+        System.out.printf("Searched %,d positions in %.1fs, written to %s%n",
+                builder.bookMoves.size(), seconds, output);
+    }
+
+    /**
+     * Searches every book position, once with the book playing X and once
+     * with it playing O.
+     */
+    public void build() {
+        for (int bookSide = 1; bookSide <= 2; bookSide++) {
+            visited.clear();
+            game.resetBoard(boardLength, winLength);
+            visit(bookSide, 0);
+        }
+        game.releaseBoard();
+        searcher.shutdown();
+    }
+
+    /**
+     * Adds the current position to the book if the book's side is to
+     * move, then follows the book move or every reply.
+     *
+     * @param bookSide Player representation the book plays (1 or 2).
+     * @param ply Number of pieces on the board.
+     */
+    private void visit(int bookSide, int ply) {
+        if (ply == plies || game.isGameOver()) {
+            return;
+        }
+
+        BoardView board = game.getBoardView();
+        long[] keys = OpeningBook.symmetricKeys(board);
+        int symmetry = OpeningBook.canonicalSymmetry(keys);
+        if (!visited.add(keys[symmetry])) {
+            return; // a symmetric version was already covered
+        }
+
+        int player = game.getPlayerToMove();
+        if (player == bookSide) {
+            int move = searcher.chooseMove(board, player);
+
+            bookMoves.put(keys[symmetry],
+                    Symmetry.transform(symmetry, move, boardLength));
+            play(move);
+            visit(bookSide, ply + 1);
+            game.unmakeMove();
+        } else {
+            // taking each move back restores the free cells' order
+            int numFree = board.getNumFreeCells();
+            for (int i = 0; i < numFree; i++) {
+                play(board.getFreeCell(i));
+                visit(bookSide, ply + 1);
+                game.unmakeMove();
+            }
+        }
+    }
+
+    /**
+     * Makes a move on a cell.
+     *
+     * @param cell Cell index (row * board length + column).
+     * @throws IllegalStateException If the game won't take the move.
+     */
+    private void play(int cell) {
+        if (!game.makeMove(cell / boardLength, cell % boardLength)) {
+            throw new IllegalStateException("Cell " + cell +
+                    " isn't a legal move");
+        }
+    }
+
+    /**
+     * Writes the header, the sorted keys and their moves to the book file.
+     *
+     * @param output Path of the file to write.
+     * @throws IOException If the file can't be written.
+     */
+    private void write(Path output) throws IOException {
+        long[] keys = new long[bookMoves.size()];
+        int numEntries = 0;
+        for (long key : bookMoves.keySet()) {
+            keys[numEntries++] = key;
+        }
+        Arrays.sort(keys);
+
+        ByteBuffer buffer = ByteBuffer.allocate(OpeningBook.HEADER_BYTES +
+                numEntries * (OpeningBook.KEY_BYTES + OpeningBook.MOVE_BYTES));
+        OpeningBook.writeHeader(buffer, boardLength, winLength, plies,
+                numEntries);
+        for (long key : keys) {
+            buffer.putLong(key);
+        }
+        for (long key : keys) {
+            buffer.putShort((short) (int) bookMoves.get(key));
+        }
+        buffer.flip();
+
+        try (FileChannel channel = FileChannel.open(output,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package sakam_p1x;
+
+/**
+ * The OpeningBookPlayer class plays the first moves of a game straight from
+ * an opening book, so they take microseconds instead of a full search.
+ * Once the game leaves the book, or on a board size or win length the book
+ * wasn't built for, it hands the move to another player.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class OpeningBookPlayer implements Player {
+    private final OpeningBook book;
+    private final Player outOfBook;
+
+    /**
+     * The constructor sets up a player backed by an opening book.
+     *
+     * @param book The opening book.
+     * @param outOfBook Player used for positions the book doesn't have.
+     */
+    public OpeningBookPlayer(OpeningBook book, Player outOfBook) {
+        this.book = book;
+        this.outOfBook = outOfBook;
+    }
+
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        int move = book.bestMove(board);
+
+        if (move < 0) {
+            return outOfBook.chooseMove(board, player);
+        }
+        return move;
+    }
+}
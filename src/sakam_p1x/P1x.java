@@ -1,9 +1,12 @@
 package sakam_p1x;
-import java.util.Scanner;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
- * The P1 class holds the TicTacToe game with 2 players. Users can repeat the
- * game as many times as desired.
+ * The P1 class holds the TicTacToe game with 2 players, or 1 player against
+ * the computer. Users can repeat the game as many times as desired.
  *
  * @author Vik Akam
  * @version 1.0
@@ -11,27 +14,67 @@ import java.util.Scanner;
 public class P1x {
     /**
      * Entry point for program. Greets the user and creates a TicTacToe game
-     * instance. User chooses board size and plays the game until a winner or
-     * tie. Scoreboard is displayed and user is prompted to repeat the game.
-     * Scoreboard updates with each game.
+     * instance. User chooses whether to play the computer and the board size,
+     * and plays the game until a winner or tie. Scoreboard is displayed and
+     * user is prompted to repeat the game. Scoreboard updates with each game.
+     * Passing "--record file" appends every finished game to a binary game
+     * log. Passing "--journal folder" keeps the scores and an unfinished game
+     * in that folder across runs (see GameJournal), so the user can pick up
+     * where they left off. Game loop metrics are exported if the ttt.metrics
+     * properties ask for them (see GameMetrics).
      *
      * @param args A String array containing command-line arguments.
      */
     public static void main(String[] args) {
         char userRepeat; // hold user repeat
         final char NO_REPEAT = 'n';
+        final char YES = 'y';
+        final int COMPUTER_PLAYER = 2; // the computer plays O
+        final int CONSOLE_GAME_ID = 0; // the console plays one game at a time
         int boardSize;
-        Scanner keyboard = new Scanner(System.in); // create Scanner object
+        // reads the console without Scanner's regex and locale setup
+        ConsoleInput keyboard = new ConsoleInput(System.in);
         TicTacToeX gameManager = new TicTacToeX();
+        GameRecordWriter recorder = openRecorder(args);
+        GameJournal journal = openJournal(args);
+        GameJournal.SavedGame savedGame = null;
+        MctsPlayer mcts = null; // the opponent's searcher on large boards
+        Player computerPlayer = null; // built once, on first use
+
+        GameMetrics.exportFromProperties(); // only if asked for
+
+        gameManager.setGameRecorder(recorder);
+
+        // earlier sessions' scores count, and their last game can go on
+        if (journal != null) {
+            gameManager.getScoreBoard().merge(journal.getSavedScores());
+            gameManager.setJournal(journal, CONSOLE_GAME_ID);
+            savedGame = journal.getSavedGame(CONSOLE_GAME_ID);
+        }
 
         printWelcomeMessage();
 
         do {
-            // get board size from user
-            boardSize = TicTacToeX.promptBoardSize(keyboard);
+            // O is played by the computer if the user wants an opponent
+            boolean wantsComputer = getUserYesNo(
+                    "Do you want to play against the computer?",
+                    keyboard) == YES;
+            if (wantsComputer && computerPlayer == null) {
+                mcts = new MctsPlayer();
+                computerPlayer = createComputerPlayer(mcts);
+            }
+            gameManager.setComputerPlayer(COMPUTER_PLAYER,
+                    wantsComputer ? computerPlayer : null);
+
+            // only the first game can pick up an unfinished one
+            if (!resumeGame(gameManager, savedGame, keyboard)) {
+                // get board size from user
+                boardSize = TicTacToeX.promptBoardSize(keyboard);
 
-            // game reset with new board size before new game
-            gameManager.resetBoard(boardSize);
+                // game reset with new board size before new game
+                gameManager.resetBoard(boardSize);
+            }
+            savedGame = null;
 
             gameManager.playGame(keyboard); // playing game requires user input
 
@@ -42,7 +85,127 @@ public class P1x {
 
         printGoodbyeMessage();
 
-        keyboard.close(); // close the Scanner
+        keyboard.close(); // close the console input
+
+        if (mcts != null) {
+            mcts.shutdown(); // frees its search trees
+        }
+
+        closeRecorder(recorder);
+        closeJournal(journal);
+    }
+
+    /**
+     * Opens the game log named after a "--record" argument, if any.
+     *
+     * @param args A String array containing command-line arguments.
+     * @return A writer for the log, or null if games aren't being recorded.
+     */
+    private static GameRecordWriter openRecorder(String[] args) {
+        final String RECORD_FLAG = "--record";
+
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(RECORD_FLAG)) {
+                try {
+                    return new GameRecordWriter(Paths.get(args[i + 1]));
+                } catch (IOException e) {
+                    System.out.println("Couldn't open game log (" +
+                            e.getMessage() + "), games won't be recorded.");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Flushes and closes the game log, if one was opened.
+     *
+     * @param recorder Writer for the log, or null.
+     */
+    private static void closeRecorder(GameRecordWriter recorder) {
+        if (recorder != null) {
+            try {
+                recorder.close();
+            } catch (IOException e) {
+                System.out.println("Couldn't save game log: " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Opens the saved session in the folder named after a "--journal"
+     * argument, if any.
+     *
+     * @param args A String array containing command-line arguments.
+     * @return The session's journal, or null if it isn't being saved.
+     */
+    private static GameJournal openJournal(String[] args) {
+        final String JOURNAL_FLAG = "--journal";
+
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals(JOURNAL_FLAG)) {
+                try {
+                    return new GameJournal(Paths.get(args[i + 1]));
+                } catch (IOException e) {
+                    System.out.println("Couldn't open saved session (" +
+                            e.getMessage() + "), this session won't be " +
+                            "saved.");
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Forces the saved session to disk and closes it, if one was opened.
+     *
+     * @param journal The session's journal, or null.
+     */
+    private static void closeJournal(GameJournal journal) {
+        if (journal != null) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                System.out.println("Couldn't save session: " +
+                        e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Offers to pick up an unfinished game from an earlier session and sets
+     * it up if the user wants to.
+     *
+     * @param gameManager The game to set up.
+     * @param savedGame The unfinished game, or null if there isn't one.
+     * @param keyboard Console input to get user input from.
+     * @return True if the game was set up and goes on, false if a new game
+     *         is needed (including when the saved game can't be replayed).
+     */
+    private static boolean resumeGame(TicTacToeX gameManager,
+                                      GameJournal.SavedGame savedGame,
+                                      ConsoleInput keyboard) {
+        final char YES = 'y';
+
+        if (savedGame == null || savedGame.getNumMoves() == 0) {
+            return false;
+        }
+
+        int size = savedGame.getBoardLength();
+        if (getUserYesNo("Do you want to resume your unfinished " + size +
+                "x" + size + " game?", keyboard) != YES) {
+            return false;
+        }
+
+        // a bad journal entry costs the game, not the session
+        try {
+            return gameManager.resume(savedGame);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Your unfinished game can't be recovered (" +
+                    e.getMessage() + "), so a new game will start.");
+            return false;
+        }
     }
 
     /**
@@ -52,24 +215,85 @@ public class P1x {
         System.out.println("\nWelcome to TicTacToe!\n");
     }
 
+    /**
+     * Creates the computer opponent. It searches with minimax on small
+     * boards and with Monte Carlo Tree Search on larger ones, but if a
+     * solved 3x3 tablebase file is in the working directory, 3x3 moves come
+     * straight from it instead. Likewise, the first moves on a board size
+     * come from its opening book (see OpeningBookBuilder), if one is in
+     * the working directory.
+     *
+     * @param mcts Searcher used on boards too big for minimax.
+     * @return A Player to take the computer's turns.
+     */
+    private static Player createComputerPlayer(MctsPlayer mcts) {
+        final int MAX_MINIMAX_SIZE = 5; // minimax barely looks ahead past it
+        final int MIN_SIZE = 3; // board sizes the console offers
+        final int MAX_SIZE = 25;
+        Player minimax = new MinimaxPlayer();
+        Player searcher = (board, player) ->
+                board.getLength() <= MAX_MINIMAX_SIZE ?
+                        minimax.chooseMove(board, player) :
+                        mcts.chooseMove(board, player);
+        Path tablebaseFile = Paths.get(TablebaseGenerator.DEFAULT_FILE);
+
+        for (int size = MIN_SIZE; size <= MAX_SIZE; size += 2) {
+            Path bookFile = Paths.get(OpeningBook.defaultFile(size, size));
+
+            if (Files.exists(bookFile)) {
+                try {
+                    searcher = new OpeningBookPlayer(
+                            new OpeningBook(bookFile), searcher);
+                } catch (IOException e) {
+                    System.out.println("Couldn't load the " + size + "x" +
+                            size + " opening book (" + e.getMessage() +
+                            "), searching instead.");
+                }
+            }
+        }
+
+        if (Files.exists(tablebaseFile)) {
+            try {
+                return new TablebasePlayer(new Tablebase(tablebaseFile),
+                        searcher);
+            } catch (IOException e) {
+                System.out.println("Couldn't load the 3x3 tablebase (" +
+                        e.getMessage() + "), searching instead.");
+            }
+        }
+        return searcher;
+    }
+
     /**
      * Prompts user whether to repeat the game or not.
      *
-     * @param keyboard A Scanner object to get user input.
+     * @param keyboard Console input to get user input from.
+     * @return A character 'y' or 'n'.
+     */
+    private static char getUserRepeat(ConsoleInput keyboard) {
+        return getUserYesNo("Do you want to play again?", keyboard);
+    }
+
+    /**
+     * Asks the user a yes or no question.
+     *
+     * @param question The question to ask, without the (y/n) suffix.
+     * @param keyboard Console input to get user input from.
      * @return A character 'y' or 'n'.
      */
-    private static char getUserRepeat(Scanner keyboard) {
-        char userRepeat; // store user repeat
+    private static char getUserYesNo(String question,
+                                     ConsoleInput keyboard) {
+        char answer; // store user answer
         final char YES = 'y'; // yes or no constants for user
         final char NO = 'n';
 
         // prompt as long as answer is not 'y' or 'n'
         do {
-            System.out.print("Do you want to play again? (y/n) ");
-            userRepeat = keyboard.nextLine().toLowerCase().charAt(0);
-        } while (userRepeat != YES && userRepeat != NO);
+            System.out.print(question + " (y/n) ");
+            answer = keyboard.nextLine().toLowerCase().charAt(0);
+        } while (answer != YES && answer != NO);
 
-        return userRepeat;
+        return answer;
     }
 
     /**
@@ -0,0 +1,267 @@
+package sakam_p1x;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The Perft class validates move generation the way chess engines do: it
+ * walks every legal move sequence from the empty board to a fixed depth
+ * and counts the positions reached at each ply. A finished game isn't
+ * played past, so the counts also check win detection. Moves come from the
+ * live board view's free cells and are made and taken back with
+ * TicTacToeX.makeMove and unmakeMove, so the counts cover the exact code
+ * the games run. Usage: Perft [size] [depth] [threads] [win length] [-v]
+ *
+ * The walk runs on a ForkJoinPool, one task per opening (or per pair of
+ * opening moves on small boards), each on its own TTT instance. With -v
+ * every node also checks the free-cell index against the board: the same
+ * number of empty spots, each listed once, none of them taken.
+ *
+ * On 3x3 the counts from ply 1 are 9, 72, 504, 3,024, 15,120, 54,720,
+ * 148,176, 200,448 and 127,872.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class Perft {
+    // boards with fewer cells than this split on two opening moves
+    final private static int TWO_PLY_SPLIT_CELLS = 64;
+
+    private final int boardLength;
+    private final int winLength;
+    private final int maxDepth;
+    private final boolean verify;
+
+    /**
+     * The constructor sets up a count for one board size, rule set and
+     * depth.
+     *
+     * @param boardLen An integer representing board length.
+     * @param winLen Number of pieces in a row that wins.
+     * @param maxDepth Number of moves to count to (capped at the number of
+     *                 cells).
+     * @param verify True to check the free-cell index at every node.
+     */
+    public Perft(int boardLen, int winLen, int maxDepth, boolean verify) {
+        boardLength = boardLen;
+        winLength = winLen;
+        this.maxDepth = Math.min(maxDepth, boardLen * boardLen);
+        this.verify = verify;
+    }
+
+    /**
+     * Counts a board and prints the nodes at each ply.
+     *
+     * @param args Board size, depth, threads, win length and -v to verify
+     *             (default 3, the whole game, all available cores, the
+     *             board length and no verifying).
+     */
+    public static void main(String[] args) {
+        int boardLen = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) :
+                boardLen * boardLen;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) :
+                Runtime.getRuntime().availableProcessors();
+        int winLen = args.length > 3 ? Integer.parseInt(args[3]) : boardLen;
+        boolean verify = args.length > 4 && args[4].equals("-v");
+
+        Perft perft = new Perft(boardLen, winLen, depth, verify);
+        long startNanos = System.nanoTime();
+        long[] nodes = perft.count(numThreads);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        long total = 0;
+        System.out.printf("%dx%d, %d in a row%s:%n", boardLen, boardLen,
+                winLen, verify ? " (verified)" : "");
+        for (int ply = 1; ply < nodes.length; ply++) {
+            System.out.printf("  perft(%d) = %,d%n", ply, nodes[ply]);
+            total += nodes[ply];
+        }
+        System.out.printf("%,d nodes in %.2fs (%,.0f nodes/s)%n", total,
+                seconds, total / seconds);
+    }
+
+    /**
+     * Counts the positions reached at each ply.
+     *
+     * @param numThreads Number of worker threads.
+     * @return Nodes at each ply, from 0 (the empty board) to the depth.
+     * @throws IllegalStateException If verifying and the free-cell index
+     *                               doesn't match the board.
+     */
+    public long[] count(int numThreads) {
+        long[] nodes = new long[maxDepth + 1];
+        int splitPly = Math.min(maxDepth, boardLength * boardLength <
+                TWO_PLY_SPLIT_CELLS ? 2 : 1);
+        List<int[]> prefixes = new ArrayList<>();
+
+        // the plies above the split are counted while listing the tasks
+        TicTacToeX game = newGame();
+        listPrefixes(game, new int[splitPly], 0, nodes, prefixes);
+        game.releaseBoard();
+
+        List<PrefixTask> tasks = new ArrayList<>();
+        for (int[] prefix : prefixes) {
+            tasks.add(new PrefixTask(prefix));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.submit(() -> PrefixTask.invokeAll(tasks)).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        for (PrefixTask task : tasks) {
+            long[] counts = task.join();
+            for (int ply = splitPly; ply <= maxDepth; ply++) {
+                nodes[ply] += counts[ply];
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Plays every move sequence up to the split ply, counting the nodes
+     * above it and keeping each sequence that reaches it for a task.
+     *
+     * @param game The game, at the position reached by the prefix so far
+     *             (restored before returning).
+     * @param prefix Moves played so far.
+     * @param ply Number of moves played.
+     * @param nodes Nodes at each ply, added to.
+     * @param prefixes Sequences ending at the split ply, added to.
+     */
+    private void listPrefixes(TicTacToeX game, int[] prefix, int ply,
+                              long[] nodes, List<int[]> prefixes) {
+        if (ply == prefix.length) {
+            prefixes.add(prefix.clone()); // its task counts this node
+            return;
+        }
+        nodes[ply]++;
+        if (game.isGameOver()) {
+            return;
+        }
+
+        BoardView board = game.getBoardView();
+        int numFree = board.getNumFreeCells();
+        for (int i = 0; i < numFree; i++) {
+            prefix[ply] = board.getFreeCell(i);
+            play(game, prefix[ply]);
+            listPrefixes(game, prefix, ply + 1, nodes, prefixes);
+            game.unmakeMove();
+        }
+    }
+
+    /**
+     * Walks every move sequence from a position to the depth.
+     *
+     * @param game The game (restored before returning).
+     * @param ply Number of moves played.
+     * @param nodes Nodes at each ply, added to.
+     */
+    private void walk(TicTacToeX game, int ply, long[] nodes) {
+        BoardView board = game.getBoardView();
+
+        nodes[ply]++;
+        if (verify) {
+            verify(board, ply);
+        }
+        if (ply == maxDepth || game.isGameOver()) {
+            return;
+        }
+
+        // taking each move back restores the free cells' order
+        int numFree = board.getNumFreeCells();
+        for (int i = 0; i < numFree; i++) {
+            play(game, board.getFreeCell(i));
+            walk(game, ply + 1, nodes);
+            game.unmakeMove();
+        }
+    }
+
+    /**
+     * Makes a move on a cell.
+     *
+     * @param game The game.
+     * @param cell Cell index (row * board length + column).
+     * @throws IllegalStateException If the game won't take the move.
+     */
+    private void play(TicTacToeX game, int cell) {
+        if (!game.makeMove(cell / boardLength, cell % boardLength)) {
+            throw new IllegalStateException("Free cell " + cell +
+                    " isn't a legal move");
+        }
+    }
+
+    /**
+     * Checks the free cells a board lists against its pieces.
+     *
+     * @param board The live board view.
+     * @param ply Number of pieces on the board.
+     * @throws IllegalStateException If they don't match.
+     */
+    private void verify(BoardView board, int ply) {
+        int numCells = boardLength * boardLength;
+        int numFree = board.getNumFreeCells();
+        boolean[] listed = new boolean[numCells];
+
+        if (numFree != numCells - ply) {
+            throw new IllegalStateException(numFree + " free cells listed " +
+                    "after " + ply + " moves");
+        }
+        for (int i = 0; i < numFree; i++) {
+            int cell = board.getFreeCell(i);
+            if (listed[cell] || board.getPiece(cell / boardLength,
+                    cell % boardLength) != 0) {
+
+                throw new IllegalStateException("Cell " + cell +
+                        " is listed free twice or is taken");
+            }
+            listed[cell] = true;
+        }
+    }
+
+    /**
+     * Sets up a game at the empty board.
+     *
+     * @return A new game.
+     */
+    private TicTacToeX newGame() {
+        TicTacToeX game = new TicTacToeX();
+        game.resetBoard(boardLength, winLength);
+        return game;
+    }
+
+    /**
+     * The PrefixTask class walks the subtree below one opening sequence.
+     */
+    private class PrefixTask extends RecursiveTask<long[]> {
+        final private static long serialVersionUID = 1L;
+
+        private final int[] prefix;
+
+        /**
+         * The constructor sets up a task for a sequence.
+         *
+         * @param prefix Moves to play before walking.
+         */
+        PrefixTask(int[] prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        protected long[] compute() {
+            TicTacToeX game = newGame();
+            long[] nodes = new long[maxDepth + 1];
+
+            for (int cell : prefix) {
+                play(game, cell);
+            }
+            walk(game, prefix.length, nodes);
+            game.releaseBoard();
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package sakam_p1x;
+
+/**
+ * The Player interface is anything that can choose a move in TTT without
+ * going through the console, e.g. a bot in a batch simulation. A move is
+ * reported as a single cell index, row * board length + column.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public interface Player {
+    /**
+     * Chooses an empty spot on the board to place a piece.
+     *
+     * @param board A read-only view of the current game board.
+     * @param player Player representation of the mover (1 or 2).
+     * @return Cell index (row * board length + column) of an empty spot.
+     */
+    int chooseMove(BoardView board, int player);
+}
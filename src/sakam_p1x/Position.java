@@ -0,0 +1,110 @@
+package sakam_p1x;
+
+/**
+ * The Position class is an immutable snapshot of a game, taken with
+ * TicTacToeX.snapshot(). It holds the board, the moves that led to it and
+ * whose turn it was. The board and moves are shared with the game rather
+ * than copied, and the game copies its own before changing anything. So a
+ * snapshot is free to take and stays valid while the game goes on, and any
+ * number of threads can read it at once.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class Position implements BoardView {
+    private final BoardView board;
+    private final int winLength;
+    private final int[] moves;
+    private final int numMoves;
+    private final int playerToMove;
+    private final int winner;
+    private final boolean gameOver;
+
+    /**
+     * The constructor wraps a game's current state. The board and move
+     * history must not be changed afterwards.
+     *
+     * @param board The game board.
+     * @param winLength Number of pieces in a row that wins.
+     * @param moves Cell index of every move, in order (only the first
+     *              numMoves are used).
+     * @param numMoves Number of moves made.
+     * @param playerToMove Player representation (1 or 2) of the next mover.
+     * @param winner 1 (X) or 2 (O), or 0 if there is no winner.
+     * @param gameOver Whether the game has ended.
+     */
+    Position(BoardView board, int winLength, int[] moves, int numMoves,
+             int playerToMove, int winner, boolean gameOver) {
+        this.board = board;
+        this.winLength = winLength;
+        this.moves = moves;
+        this.numMoves = numMoves;
+        this.playerToMove = playerToMove;
+        this.winner = winner;
+        this.gameOver = gameOver;
+    }
+
+    @Override
+    public int getLength() {
+        return board.getLength();
+    }
+
+    @Override
+    public int getPiece(int row, int col) {
+        return board.getPiece(row, col);
+    }
+
+    @Override
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Gets the number of moves made to reach this position.
+     *
+     * @return Number of pieces on the board.
+     */
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    /**
+     * Gets one of the moves that led to this position.
+     *
+     * @param index Move number, from 0 (X's first move).
+     * @return Cell index (row * board length + column) of the move.
+     */
+    public int getMove(int index) {
+        if (index < 0 || index >= numMoves) {
+            throw new IndexOutOfBoundsException("No move " + index);
+        }
+        return moves[index];
+    }
+
+    /**
+     * Gets the player whose turn it is in this position.
+     *
+     * @return Player representation (1 or 2) of the next mover.
+     */
+    public int getPlayerToMove() {
+        return playerToMove;
+    }
+
+    /**
+     * Gets the winner, if the game was won.
+     *
+     * @return 1 (X) or 2 (O), or 0 if there is no winner (including ties).
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    /**
+     * Checks whether the game had ended in this position.
+     *
+     * @return A boolean stating if the game is over.
+     */
+    public boolean isGameOver() {
+        return gameOver;
+    }
+}
@@ -0,0 +1,212 @@
+package sakam_p1x;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * The PositionCache class is a thread-safe cache of analysis results keyed
+ * by canonical position, so every symmetric version of a position shares
+ * one entry. Several AI players or simulator threads can share one cache.
+ * It is split into lock-striped segments, each its own LRU list, so threads
+ * working on different positions rarely wait on each other. The total
+ * memory is capped. When a segment goes over its share of the cap, its
+ * least recently used entries are evicted.
+ *
+ * @param <V> Type of the cached results.
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class PositionCache<V> {
+    final private static int DEFAULT_SEGMENTS = 16;
+
+    // rough cost of a map entry and its links beyond the key and value
+    final private static int ENTRY_OVERHEAD_BYTES = 64;
+
+    private final Segment<V>[] segments;
+    private final ToIntFunction<V> valueBytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * The constructor creates an empty cache.
+     *
+     * @param maxBytes Approximate memory cap for all entries.
+     * @param valueBytes Estimates the memory one cached value takes up.
+     */
+    public PositionCache(long maxBytes, ToIntFunction<V> valueBytes) {
+        this(maxBytes, valueBytes, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * The constructor creates an empty cache with a given number of lock
+     * stripes.
+     *
+     * @param maxBytes Approximate memory cap for all entries.
+     * @param valueBytes Estimates the memory one cached value takes up.
+     * @param numSegments Number of independently locked segments.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public PositionCache(long maxBytes, ToIntFunction<V> valueBytes,
+                         int numSegments) {
+        this.valueBytes = valueBytes;
+        segments = new Segment[numSegments];
+
+        for (int i = 0; i < numSegments; i++) {
+            segments[i] = new Segment<>(maxBytes / numSegments);
+        }
+    }
+
+    /**
+     * Looks up a cached result.
+     *
+     * @param key Canonical key of the position.
+     * @return The cached result, or null if there isn't one.
+     */
+    public V get(PositionKey key) {
+        Segment<V> segment = segmentFor(key);
+        V value;
+
+        synchronized (segment) {
+            value = segment.map.get(key); // also marks it recently used
+        }
+
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * Stores a result, evicting least recently used entries from the
+     * segment if it goes over its share of the memory cap.
+     *
+     * @param key Canonical key of the position.
+     * @param value Result to cache.
+     */
+    public void put(PositionKey key, V value) {
+        Segment<V> segment = segmentFor(key);
+        long entryBytes = entryBytes(key, value);
+        int evicted = 0;
+
+        synchronized (segment) {
+            V previous = segment.map.put(key, value);
+            segment.bytes += entryBytes;
+            if (previous != null) {
+                segment.bytes -= entryBytes(key, previous);
+            }
+
+            // oldest entries are first in access order
+            Iterator<Map.Entry<PositionKey, V>> oldest =
+                    segment.map.entrySet().iterator();
+            while (segment.bytes > segment.maxBytes && oldest.hasNext()) {
+                Map.Entry<PositionKey, V> entry = oldest.next();
+                segment.bytes -= entryBytes(entry.getKey(), entry.getValue());
+                oldest.remove();
+                evicted++;
+            }
+        }
+
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+    }
+
+    /**
+     * Picks the segment (lock stripe) a key belongs to.
+     *
+     * @param key Canonical key of the position.
+     * @return The key's segment.
+     */
+    private Segment<V> segmentFor(PositionKey key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16; // spread high bits into the low ones
+        return segments[Math.floorMod(hash, segments.length)];
+    }
+
+    /**
+     * Estimates the memory one entry takes up.
+     *
+     * @param key Canonical key of the position.
+     * @param value Cached result.
+     * @return Approximate size in bytes.
+     */
+    private long entryBytes(PositionKey key, V value) {
+        return ENTRY_OVERHEAD_BYTES + key.estimatedBytes() +
+                valueBytes.applyAsInt(value);
+    }
+
+    /**
+     * Gets the number of entries currently cached.
+     *
+     * @return Number of entries across all segments.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of lookups that found a result.
+     *
+     * @return Number of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that found nothing.
+     *
+     * @return Number of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted to stay under the memory cap.
+     *
+     * @return Number of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "entries: " + size() + ", hits: " + getHits() +
+                ", misses: " + getMisses() + ", evictions: " + getEvictions();
+    }
+
+    /**
+     * The Segment class is one lock stripe: an access-ordered map (so its
+     * iteration order is least to most recently used) and its size.
+     *
+     * @param <V> Type of the cached results.
+     */
+    private static class Segment<V> {
+        private final LinkedHashMap<PositionKey, V> map =
+                new LinkedHashMap<>(16, 0.75f, true);
+        private final long maxBytes;
+        private long bytes;
+
+        /**
+         * The constructor creates an empty segment.
+         *
+         * @param maxBytes This segment's share of the memory cap.
+         */
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+    }
+}
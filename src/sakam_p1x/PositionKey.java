@@ -0,0 +1,144 @@
+package sakam_p1x;
+import java.util.Arrays;
+
+/**
+ * The PositionKey class is a compact, immutable key for a TTT position,
+ * packed 2 bits per cell. Keys built with canonical() are the same for all
+ * 8 symmetric versions of a position, so caches keyed by them share results
+ * across rotations and reflections. The key also remembers which symmetry
+ * took the original position to the canonical one, so moves can be mapped
+ * back. That symmetry is not part of equality.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class PositionKey {
+    final private static int CELLS_PER_WORD = 32;
+
+    private final int boardLength;
+    private final long[] words;
+    private final int symmetry;
+    private final int hash;
+
+    /**
+     * The constructor stores an already packed position.
+     *
+     * @param boardLength An integer representing board length.
+     * @param words Packed cells.
+     * @param symmetry Symmetry that produced this key from the real board.
+     */
+    private PositionKey(int boardLength, long[] words, int symmetry) {
+        this.boardLength = boardLength;
+        this.words = words;
+        this.symmetry = symmetry;
+        this.hash = 31 * boardLength + Arrays.hashCode(words);
+    }
+
+    /**
+     * Builds the canonical key of a position given as one int per cell.
+     * Every symmetric version of the position is packed and the smallest
+     * one is kept.
+     *
+     * @param cells Pieces by cell index (0 empty, 1 X, 2 O).
+     * @param boardLen An integer representing board length.
+     * @return The canonical key of the position.
+     */
+    public static PositionKey canonical(int[] cells, int boardLen) {
+        int numWords = (cells.length + CELLS_PER_WORD - 1) / CELLS_PER_WORD;
+        long[] best = null;
+        long[] candidate = new long[numWords];
+        int bestSymmetry = Symmetry.IDENTITY;
+
+        for (int symmetry = 0; symmetry < Symmetry.NUM_SYMMETRIES; symmetry++) {
+            Arrays.fill(candidate, 0);
+            for (int cell = 0; cell < cells.length; cell++) {
+                if (cells[cell] != 0) {
+                    int to = Symmetry.transform(symmetry, cell, boardLen);
+                    candidate[to / CELLS_PER_WORD] |= (long) cells[cell] <<
+                            (2 * (to % CELLS_PER_WORD));
+                }
+            }
+
+            if (best == null || Arrays.compareUnsigned(candidate, best) < 0) {
+                best = candidate.clone();
+                bestSymmetry = symmetry;
+            }
+        }
+
+        return new PositionKey(boardLen, best, bestSymmetry);
+    }
+
+    /**
+     * Builds the canonical key of a position on a board.
+     *
+     * @param board A read-only view of the board.
+     * @return The canonical key of the position.
+     */
+    public static PositionKey canonical(BoardView board) {
+        int boardLen = board.getLength();
+        int[] cells = new int[boardLen * boardLen];
+
+        for (int cell = 0; cell < cells.length; cell++) {
+            cells[cell] = board.getPiece(cell / boardLen, cell % boardLen);
+        }
+        return canonical(cells, boardLen);
+    }
+
+    /**
+     * Maps a cell on the real board into canonical coordinates.
+     *
+     * @param cell Cell index on the real board.
+     * @return The matching cell index on the canonical board.
+     */
+    public int toCanonical(int cell) {
+        return Symmetry.transform(symmetry, cell, boardLength);
+    }
+
+    /**
+     * Maps a cell in canonical coordinates back onto the real board.
+     *
+     * @param cell Cell index on the canonical board.
+     * @return The matching cell index on the real board.
+     */
+    public int fromCanonical(int cell) {
+        return Symmetry.transform(Symmetry.inverse(symmetry), cell,
+                boardLength);
+    }
+
+    /**
+     * Gets the board length the key was built for.
+     *
+     * @return An integer representing board length.
+     */
+    public int getBoardLength() {
+        return boardLength;
+    }
+
+    /**
+     * Estimates the memory the key takes up, for cache size accounting.
+     *
+     * @return Approximate size in bytes.
+     */
+    public int estimatedBytes() {
+        // key object plus its array header and packed words
+        return 32 + 16 + 8 * words.length;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof PositionKey)) {
+            return false;
+        }
+        PositionKey key = (PositionKey) other;
+        return hash == key.hash && boardLength == key.boardLength &&
+                Arrays.equals(words, key.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
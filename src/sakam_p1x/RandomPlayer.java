@@ -0,0 +1,23 @@
+package sakam_p1x;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The RandomPlayer class picks uniformly among the empty spots on the board.
+ * A game's live board view lists its empty spots, so the pick takes constant
+ * time there; other views are scanned. It keeps no state, so one instance
+ * can be shared by any number of games and threads.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class RandomPlayer implements Player {
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        int numFree = board.getNumFreeCells();
+
+        if (numFree == 0) {
+            throw new IllegalStateException("No empty spot on the board");
+        }
+        return board.getFreeCell(ThreadLocalRandom.current().nextInt(numFree));
+    }
+}
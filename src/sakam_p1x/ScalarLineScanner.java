@@ -0,0 +1,31 @@
+package sakam_p1x;
+
+/**
+ * The ScalarLineScanner class runs LineScanner's passes one byte at a time,
+ * in plain Java. It is the fallback when the Vector API isn't available.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class ScalarLineScanner extends LineScanner {
+    @Override
+    protected void andShifted(byte[] runs, int length, int offset) {
+        for (int i = 0; i < length; i++) {
+            runs[i] &= runs[i + offset];
+        }
+    }
+
+    @Override
+    protected int orAll(byte[] runs, int length) {
+        int bits = 0;
+        for (int i = 0; i < length; i++) {
+            bits |= runs[i];
+        }
+        return bits;
+    }
+
+    @Override
+    public String toString() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,416 @@
+package sakam_p1x;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The ScoreBoard class keeps game results for any number of games and
+ * threads at once. Every count is a LongAdder, so concurrent updates are
+ * lock-free and spread over striped cells instead of fighting over one
+ * counter. Counts are longs and won't overflow on high-volume runs.
+ *
+ * Results are broken down by board size, first mover and winner. Each
+ * board size also keeps a histogram of game lengths and, if enabled, a
+ * histogram of per-move latency in power-of-two nanosecond buckets.
+ * Per-size counters are created the first time a size is played.
+ *
+ * snapshot() copies everything into plain arrays without stopping updates.
+ * Totals are derived from the same per-size counters, so a snapshot always
+ * adds up (X wins + O wins + ties = games). A game that finishes while a
+ * snapshot is being taken may show up in some breakdowns and not others.
+ * Snapshots can be written to a stream and read back, so scoreboards kept
+ * in other processes can be merged into one.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class ScoreBoard {
+    final public static int MAX_SIZE = 25;
+    final public static int NUM_RESULTS = 3;       // tie, X, O
+    final public static int NUM_LATENCY_BUCKETS = 64;
+
+    private final AtomicReferenceArray<SizeStats> statsBySize =
+            new AtomicReferenceArray<>(MAX_SIZE + 1);
+    private volatile boolean trackingMoveLatency;
+
+    /**
+     * Records a finished game.
+     *
+     * @param boardLen Length of the game's board.
+     * @param firstMover Player representation (1 or 2) who moved first.
+     * @param winner 1 (X) or 2 (O), or 0 for a tie.
+     * @param numMoves Number of moves the game lasted.
+     */
+    public void recordGame(int boardLen, int firstMover, int winner,
+                           int numMoves) {
+        SizeStats stats = statsFor(boardLen);
+
+        // lengths first, so a snapshot never sees more results than games
+        stats.gameLengths[numMoves].increment();
+        stats.results[firstMover * NUM_RESULTS + winner].increment();
+    }
+
+    /**
+     * Records how long one move took to choose and play, if latency
+     * tracking is enabled.
+     *
+     * @param boardLen Length of the game's board.
+     * @param nanos Time the move took in nanoseconds.
+     */
+    public void recordMoveLatency(int boardLen, long nanos) {
+        statsFor(boardLen).moveLatency[63 -
+                Long.numberOfLeadingZeros(Math.max(1, nanos))].increment();
+    }
+
+    /**
+     * Turns per-move latency tracking on or off. It is off by default since
+     * timing every move costs two clock reads.
+     *
+     * @param tracking True to record move latency.
+     */
+    public void setTrackingMoveLatency(boolean tracking) {
+        trackingMoveLatency = tracking;
+    }
+
+    /**
+     * Checks whether games should time their moves for this scoreboard.
+     *
+     * @return True if move latency is being recorded.
+     */
+    public boolean isTrackingMoveLatency() {
+        return trackingMoveLatency;
+    }
+
+    /**
+     * Adds everything another scoreboard has counted to this one.
+     *
+     * @param other A scoreboard to add.
+     */
+    public void merge(ScoreBoard other) {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            SizeStats from = other.statsBySize.get(size);
+            if (from == null) {
+                continue;
+            }
+
+            SizeStats to = statsFor(size);
+            addAll(to.results, from.results);
+            addAll(to.gameLengths, from.gameLengths);
+            addAll(to.moveLatency, from.moveLatency);
+        }
+    }
+
+    /**
+     * Adds a snapshot's counts to this scoreboard, e.g. one read from
+     * another process.
+     *
+     * @param snapshot A snapshot to add.
+     */
+    public void merge(Snapshot snapshot) {
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            if (snapshot.results[size] == null) {
+                continue;
+            }
+
+            // lengths first, like recordGame
+            SizeStats to = statsFor(size);
+            addAll(to.gameLengths, snapshot.gameLengths[size]);
+            addAll(to.results, snapshot.results[size]);
+            addAll(to.moveLatency, snapshot.moveLatency[size]);
+        }
+    }
+
+    /**
+     * Adds counts to the matching counters.
+     *
+     * @param to Counters to add to.
+     * @param from Counts to add.
+     */
+    private static void addAll(LongAdder[] to, long[] from) {
+        for (int i = 0; i < to.length; i++) {
+            to[i].add(from[i]);
+        }
+    }
+
+    /**
+     * Adds each counter's current sum to the matching counter.
+     *
+     * @param to Counters to add to.
+     * @param from Counters to add.
+     */
+    private static void addAll(LongAdder[] to, LongAdder[] from) {
+        for (int i = 0; i < to.length; i++) {
+            to[i].add(from[i].sum());
+        }
+    }
+
+    /**
+     * Gets the counters for a board size, creating them on first use.
+     *
+     * @param boardLen Length of the board.
+     * @return The size's counters.
+     */
+    private SizeStats statsFor(int boardLen) {
+        SizeStats stats = statsBySize.get(boardLen);
+
+        if (stats == null) {
+            statsBySize.compareAndSet(boardLen, null, new SizeStats(boardLen));
+            stats = statsBySize.get(boardLen); // whichever thread won
+        }
+        return stats;
+    }
+
+    /**
+     * Copies the current counts into an immutable snapshot.
+     *
+     * @return A snapshot of every count.
+     */
+    public Snapshot snapshot() {
+        long[][] results = new long[MAX_SIZE + 1][];
+        long[][] gameLengths = new long[MAX_SIZE + 1][];
+        long[][] moveLatency = new long[MAX_SIZE + 1][];
+
+        for (int size = 0; size <= MAX_SIZE; size++) {
+            SizeStats stats = statsBySize.get(size);
+            if (stats != null) {
+                // results before lengths, the reverse of recordGame
+                results[size] = sums(stats.results);
+                gameLengths[size] = sums(stats.gameLengths);
+                moveLatency[size] = sums(stats.moveLatency);
+            }
+        }
+        return new Snapshot(results, gameLengths, moveLatency);
+    }
+
+    /**
+     * Sums each counter in an array.
+     *
+     * @param counters Counters to read.
+     * @return Their current sums.
+     */
+    private static long[] sums(LongAdder[] counters) {
+        long[] sums = new long[counters.length];
+        for (int i = 0; i < counters.length; i++) {
+            sums[i] = counters[i].sum();
+        }
+        return sums;
+    }
+
+    /**
+     * Creates an array of fresh counters.
+     *
+     * @param length Number of counters.
+     * @return The counters.
+     */
+    private static LongAdder[] newCounters(int length) {
+        LongAdder[] counters = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * The SizeStats class holds the counters for one board size. Results
+     * are indexed by first mover * 3 + winner.
+     */
+    private static class SizeStats {
+        private final LongAdder[] results =
+                newCounters(NUM_RESULTS * NUM_RESULTS);
+        private final LongAdder[] gameLengths;
+        private final LongAdder[] moveLatency =
+                newCounters(NUM_LATENCY_BUCKETS);
+
+        /**
+         * The constructor creates zeroed counters for a board size.
+         *
+         * @param boardLen Length of the board.
+         */
+        SizeStats(int boardLen) {
+            gameLengths = newCounters(boardLen * boardLen + 1);
+        }
+    }
+
+    /**
+     * The Snapshot class is an immutable copy of a scoreboard's counts.
+     */
+    public static class Snapshot {
+        private final long[][] results;
+        private final long[][] gameLengths;
+        private final long[][] moveLatency;
+
+        /**
+         * The constructor stores the copied counts, indexed by board size
+         * (null for sizes never played).
+         *
+         * @param results Result counts per size.
+         * @param gameLengths Game length histograms per size.
+         * @param moveLatency Move latency histograms per size.
+         */
+        private Snapshot(long[][] results, long[][] gameLengths,
+                         long[][] moveLatency) {
+            this.results = results;
+            this.gameLengths = gameLengths;
+            this.moveLatency = moveLatency;
+        }
+
+        /**
+         * Gets a player's wins (or the ties) across all board sizes.
+         *
+         * @param winner 1 (X), 2 (O), or 0 for ties.
+         * @return Number of games.
+         */
+        public long getWins(int winner) {
+            long wins = 0;
+            for (int size = 0; size <= MAX_SIZE; size++) {
+                wins += getWins(size, winner);
+            }
+            return wins;
+        }
+
+        /**
+         * Gets a player's wins (or the ties) on one board size.
+         *
+         * @param boardLen Length of the board.
+         * @param winner 1 (X), 2 (O), or 0 for ties.
+         * @return Number of games.
+         */
+        public long getWins(int boardLen, int winner) {
+            return getWins(boardLen, 1, winner) + getWins(boardLen, 2, winner);
+        }
+
+        /**
+         * Gets a player's wins (or the ties) on one board size, counting only
+         * games a given player moved first in.
+         *
+         * @param boardLen Length of the board.
+         * @param firstMover 1 (X) or 2 (O).
+         * @param winner 1 (X), 2 (O), or 0 for ties.
+         * @return Number of games.
+         */
+        public long getWins(int boardLen, int firstMover, int winner) {
+            long[] sizeResults = results[boardLen];
+            return sizeResults == null ? 0 :
+                    sizeResults[firstMover * NUM_RESULTS + winner];
+        }
+
+        /**
+         * Gets the number of games played across all board sizes.
+         *
+         * @return Number of games.
+         */
+        public long getGames() {
+            return getWins(0) + getWins(1) + getWins(2);
+        }
+
+        /**
+         * Gets how many games on a board size lasted each number of moves.
+         *
+         * @param boardLen Length of the board.
+         * @return Counts indexed by number of moves (empty if never played).
+         */
+        public long[] getGameLengths(int boardLen) {
+            return gameLengths[boardLen] == null ? new long[0] :
+                    gameLengths[boardLen].clone();
+        }
+
+        /**
+         * Gets the move latency histogram for a board size. Bucket i counts
+         * moves that took from 2^i up to 2^(i+1) nanoseconds.
+         *
+         * @param boardLen Length of the board.
+         * @return Counts per bucket (empty if never played).
+         */
+        public long[] getMoveLatency(int boardLen) {
+            return moveLatency[boardLen] == null ? new long[0] :
+                    moveLatency[boardLen].clone();
+        }
+
+        /**
+         * Writes the snapshot to a stream: the number of board sizes
+         * played, then for each its length, result counts, game length
+         * histogram and move latency histogram.
+         *
+         * @param out Stream to write to.
+         * @throws IOException If the stream can't be written.
+         */
+        public void writeTo(DataOutput out) throws IOException {
+            int numSizes = 0;
+            for (int size = 0; size <= MAX_SIZE; size++) {
+                numSizes += results[size] == null ? 0 : 1;
+            }
+
+            out.writeInt(numSizes);
+            for (int size = 0; size <= MAX_SIZE; size++) {
+                if (results[size] != null) {
+                    out.writeInt(size);
+                    writeCounts(out, results[size]);
+                    writeCounts(out, gameLengths[size]);
+                    writeCounts(out, moveLatency[size]);
+                }
+            }
+        }
+
+        /**
+         * Reads a snapshot written by writeTo.
+         *
+         * @param in Stream to read from.
+         * @return The snapshot.
+         * @throws IOException If the stream can't be read or doesn't hold a
+         *                     snapshot.
+         */
+        public static Snapshot readFrom(DataInput in) throws IOException {
+            long[][] results = new long[MAX_SIZE + 1][];
+            long[][] gameLengths = new long[MAX_SIZE + 1][];
+            long[][] moveLatency = new long[MAX_SIZE + 1][];
+            int numSizes = in.readInt();
+
+            if (numSizes < 0 || numSizes > MAX_SIZE + 1) {
+                throw new IOException("Bad number of board sizes " + numSizes);
+            }
+            for (int i = 0; i < numSizes; i++) {
+                int size = in.readInt();
+                if (size < 0 || size > MAX_SIZE || results[size] != null) {
+                    throw new IOException("Bad board size " + size);
+                }
+                results[size] = readCounts(in, NUM_RESULTS * NUM_RESULTS);
+                gameLengths[size] = readCounts(in, size * size + 1);
+                moveLatency[size] = readCounts(in, NUM_LATENCY_BUCKETS);
+            }
+            return new Snapshot(results, gameLengths, moveLatency);
+        }
+
+        /**
+         * Writes an array of counts.
+         *
+         * @param out Stream to write to.
+         * @param counts Counts to write.
+         * @throws IOException If the stream can't be written.
+         */
+        private static void writeCounts(DataOutput out, long[] counts)
+                throws IOException {
+            for (long count : counts) {
+                out.writeLong(count);
+            }
+        }
+
+        /**
+         * Reads an array of counts.
+         *
+         * @param in Stream to read from.
+         * @param length Number of counts.
+         * @return The counts.
+         * @throws IOException If the stream can't be read.
+         */
+        private static long[] readCounts(DataInput in, int length)
+                throws IOException {
+            long[] counts = new long[length];
+            for (int i = 0; i < length; i++) {
+                counts[i] = in.readLong();
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,776 @@
+package sakam_p1x;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The SelfPlayCoordinator class spreads self-play over several worker JVMs
+ * on this host, so a run isn't limited by one heap and one garbage
+ * collector. Each worker is a child process (SelfPlayWorker) that the
+ * coordinator talks to over its standard input and output. Jobs (board
+ * size, win length, a strategy for each side and a number of games) are
+ * cut into chunks, and every chunk's scoreboard is merged into its job's
+ * scoreboard and the run's total.
+ *
+ * Workers pull work: each has at most PIPELINE_DEPTH chunks sent to it, so
+ * a fast worker gets more chunks than a slow one. When a worker dies, the
+ * chunks it hadn't finished go back to the front of the queue and a new
+ * worker is started in its place (up to a limit). When the queue is empty
+ * and a worker is idle, a chunk that has run much longer than its job's
+ * chunks usually take is also sent to the idle worker. Whichever copy
+ * finishes first counts, so one slow worker can't hold up the end of the
+ * run. Usage: SelfPlayCoordinator [workers] [size] [games] [X strategy]
+ * [O strategy] [win length] [threads per worker], with worker JVM options
+ * from -Dttt.worker.options (e.g. "-Xmx256m -XX:+UseSerialGC").
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class SelfPlayCoordinator {
+    // chunks sent to a worker before it replies, so it never waits for work
+    final private static int PIPELINE_DEPTH = 2;
+
+    // chunks per worker each job is cut into, so work can be spread out
+    final private static int CHUNKS_PER_WORKER = 8;
+
+    /*
+     * a chunk running this many times longer than its job's chunks usually
+     * take (and at least MIN_SLOW_MILLIS) gets a second copy
+     */
+    final private static double SLOW_FACTOR = 3;
+    final private static long MIN_SLOW_MILLIS = 200;
+
+    // how often the coordinator looks for slow chunks while it waits
+    final private static long POLL_MILLIS = 50;
+
+    // how long stopping workers get to exit before being killed
+    final private static long STOP_MILLIS = 2_000;
+
+    final private static String OPTIONS_PROPERTY = "ttt.worker.options";
+
+    private final int numWorkers;
+    private final int threadsPerWorker;
+    private final List<String> jvmOptions;
+    private final int maxRestarts;
+
+    // replies and deaths from every worker's reader thread
+    private final BlockingQueue<Event> events = new LinkedBlockingQueue<>();
+
+    private Worker[] workers;
+    private int restarts;
+
+    /**
+     * The constructor sets up a coordinator. Workers are started by run.
+     *
+     * @param numWorkers Number of worker processes.
+     * @param threadsPerWorker Number of threads each worker plays on.
+     * @param jvmOptions Options for each worker JVM, e.g. "-Xmx256m".
+     * @param maxRestarts Number of dead workers that may be replaced in a
+     *                    run.
+     */
+    public SelfPlayCoordinator(int numWorkers, int threadsPerWorker,
+                               List<String> jvmOptions, int maxRestarts) {
+        this.numWorkers = numWorkers;
+        this.threadsPerWorker = threadsPerWorker;
+        this.jvmOptions = new ArrayList<>(jvmOptions);
+        this.maxRestarts = maxRestarts;
+    }
+
+    /**
+     * Runs one job across worker processes and prints the results.
+     *
+     * @param args Workers, board size, games, X strategy, O strategy, win
+     *             length and threads per worker (default 2, 3, 1,000,000,
+     *             "random", "random", the board size and 1).
+     * @throws IOException If the workers fail.
+     * @throws InterruptedException If interrupted while waiting for them.
+     */
+    public static void main(String[] args)
+            throws IOException, InterruptedException {
+        int numWorkers = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int boardLen = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long numGames = args.length > 2 ? Long.parseLong(args[2]) : 1_000_000;
+        String xStrategy = args.length > 3 ? args[3] : "random";
+        String oStrategy = args.length > 4 ? args[4] : "random";
+        int winLen = args.length > 5 ? Integer.parseInt(args[5]) : boardLen;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : 1;
+        List<String> options = new ArrayList<>();
+
+        for (String option : System.getProperty(OPTIONS_PROPERTY, "")
+                .split(" ")) {
+            if (!option.isEmpty()) {
+                options.add(option);
+            }
+        }
+
+        SelfPlayCoordinator coordinator =
+                new SelfPlayCoordinator(numWorkers, threads, options,
+                        numWorkers);
+        Result result = coordinator.run(List.of(new Job(boardLen, winLen,
+                xStrategy, oStrategy, numGames)));
+
+        System.out.println(result);
+        System.out.println("Games per worker: " +
+                Arrays.toString(result.getWorkerGames()));
+    }
+
+    /**
+     * Plays every job on freshly started workers and stops them when done.
+     *
+     * @param jobs Jobs to play.
+     * @return The merged results.
+     * @throws IOException If a worker can't be started, a chunk fails, or
+     *                     every worker has died with restarts used up.
+     * @throws InterruptedException If interrupted while waiting for
+     *                              workers.
+     */
+    public Result run(List<Job> jobs)
+            throws IOException, InterruptedException {
+        Deque<Chunk> pending = new ArrayDeque<>();
+        List<Chunk> chunks = new ArrayList<>();
+        ScoreBoard[] jobScores = new ScoreBoard[jobs.size()];
+        long[] workerGames = new long[numWorkers];
+        long totalGames = 0;
+
+        for (int job = 0; job < jobs.size(); job++) {
+            jobScores[job] = new ScoreBoard();
+            totalGames += jobs.get(job).numGames;
+            cutIntoChunks(jobs.get(job), job, chunks);
+        }
+        pending.addAll(chunks);
+
+        Stats stats = new Stats(jobs.size());
+        long startNanos = System.nanoTime();
+        int remaining = chunks.size();
+        workers = new Worker[numWorkers];
+        restarts = 0;
+        events.clear(); // deaths reported after the last run stopped
+
+        try {
+            for (int slot = 0; slot < numWorkers; slot++) {
+                workers[slot] = startWorker(slot);
+            }
+
+            while (remaining > 0) {
+                dispatch(pending, jobs, stats);
+                if (pending.isEmpty()) {
+                    speculate(jobs, stats);
+                }
+
+                Event event = events.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null || event.worker.dead) {
+                    continue; // a stale reply from a worker already gone
+                }
+
+                if (event.chunkId < 0) {
+                    workerDied(event.worker, event.failure, pending, stats);
+                    continue;
+                }
+
+                Chunk chunk = chunks.get((int) event.chunkId);
+                Worker worker = event.worker;
+                worker.finished(chunk);
+                if (event.failure != null) {
+                    throw new IOException("Worker " + worker.slot +
+                            " failed a chunk: " + event.failure);
+                }
+
+                if (chunk.done) {
+                    stats.wasted++; // the other copy won
+                    continue;
+                }
+                chunk.done = true;
+                remaining--;
+                jobScores[chunk.job].merge(event.snapshot);
+                workerGames[worker.slot] += chunk.numGames;
+                stats.jobNanos[chunk.job] += event.nanos;
+                stats.jobGames[chunk.job] += chunk.numGames;
+            }
+        } finally {
+            stopWorkers();
+        }
+
+        ScoreBoard total = new ScoreBoard();
+        ScoreBoard.Snapshot[] jobTotals = new ScoreBoard.Snapshot[jobs.size()];
+        for (int job = 0; job < jobs.size(); job++) {
+            jobTotals[job] = jobScores[job].snapshot();
+            total.merge(jobTotals[job]);
+        }
+        return new Result(total.snapshot(), jobTotals, workerGames,
+                totalGames, System.nanoTime() - startNanos, stats.requeued,
+                stats.duplicates, stats.wasted, restarts);
+    }
+
+    /**
+     * Cuts a job into chunks of about equal size.
+     *
+     * @param job The job.
+     * @param jobIndex Index of the job in the run.
+     * @param chunks Chunks of the run so far, added to (a chunk's id is its
+     *               index here).
+     */
+    private void cutIntoChunks(Job job, int jobIndex, List<Chunk> chunks) {
+        int numChunks = (int) Math.max(1, Math.min(job.numGames,
+                (long) numWorkers * CHUNKS_PER_WORKER));
+
+        for (int i = 0; i < numChunks; i++) {
+            long games = job.numGames / numChunks +
+                    (i < job.numGames % numChunks ? 1 : 0);
+            chunks.add(new Chunk(chunks.size(), jobIndex, games));
+        }
+    }
+
+    /**
+     * Sends queued chunks to workers with room for more.
+     *
+     * @param pending Chunks waiting for a worker.
+     * @param jobs The run's jobs.
+     * @param stats The run's counters.
+     */
+    private void dispatch(Deque<Chunk> pending, List<Job> jobs, Stats stats) {
+        for (Worker worker : workers) {
+            while (!worker.dead && worker.inFlight.size() < PIPELINE_DEPTH &&
+                    !pending.isEmpty()) {
+
+                Chunk chunk = pending.poll();
+                if (!chunk.done) {
+                    send(worker, chunk, jobs.get(chunk.job), stats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gives idle workers a second copy of any chunk held up by a worker
+     * whose current chunk is running too long.
+     *
+     * @param jobs The run's jobs.
+     * @param stats The run's counters.
+     */
+    private void speculate(List<Job> jobs, Stats stats) {
+        long now = System.nanoTime();
+
+        for (Worker idle : workers) {
+            if (idle.dead || !idle.inFlight.isEmpty()) {
+                continue;
+            }
+
+            Chunk chunk = null;
+            for (Worker busy : workers) {
+                if (!busy.dead && !busy.inFlight.isEmpty() &&
+                        now - busy.headStartNanos >
+                                slowNanos(busy.inFlight.peek(), stats)) {
+
+                    chunk = firstSingleCopy(busy.inFlight);
+                }
+                if (chunk != null) {
+                    stats.duplicates++;
+                    send(idle, chunk, jobs.get(chunk.job), stats);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Finds an unfinished chunk sent to a slow worker that no other worker
+     * has. The chunks queued behind its current one are just as stuck.
+     *
+     * @param inFlight Chunks sent to the worker, oldest first.
+     * @return The oldest such chunk, or null.
+     */
+    private static Chunk firstSingleCopy(Deque<Chunk> inFlight) {
+        for (Chunk chunk : inFlight) {
+            if (!chunk.done && chunk.copies == 1) {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets how long a chunk may run before it counts as slow.
+     *
+     * @param chunk The chunk.
+     * @param stats The run's counters.
+     * @return Nanoseconds, or Long.MAX_VALUE while none of its job's chunks
+     *         have finished (so there's nothing to compare with).
+     */
+    private static long slowNanos(Chunk chunk, Stats stats) {
+        if (stats.jobGames[chunk.job] == 0) {
+            return Long.MAX_VALUE;
+        }
+        double nanosPerGame = (double) stats.jobNanos[chunk.job] /
+                stats.jobGames[chunk.job];
+        return Math.max(TimeUnit.MILLISECONDS.toNanos(MIN_SLOW_MILLIS),
+                (long) (SLOW_FACTOR * nanosPerGame * chunk.numGames));
+    }
+
+    /**
+     * Sends a chunk to a worker. A worker that can't be written to has
+     * died, and is dealt with when its reader reports it.
+     *
+     * @param worker The worker.
+     * @param chunk The chunk.
+     * @param job The chunk's job.
+     * @param stats The run's counters.
+     */
+    private void send(Worker worker, Chunk chunk, Job job, Stats stats) {
+        if (worker.inFlight.isEmpty()) {
+            worker.headStartNanos = System.nanoTime();
+        }
+        worker.inFlight.add(chunk);
+        chunk.copies++;
+
+        try {
+            worker.out.writeInt(SelfPlayWorker.JOB);
+            worker.out.writeLong(chunk.id);
+            worker.out.writeInt(job.boardLen);
+            worker.out.writeInt(job.winLen);
+            worker.out.writeUTF(job.xStrategy);
+            worker.out.writeUTF(job.oStrategy);
+            worker.out.writeLong(chunk.numGames);
+            worker.out.flush();
+        } catch (IOException e) {
+            // the reader sees the same broken pipe and reports the death
+            worker.process.destroyForcibly();
+        }
+    }
+
+    /**
+     * Requeues a dead worker's unfinished chunks and starts a replacement
+     * if any restarts are left.
+     *
+     * @param worker The dead worker.
+     * @param cause Why it died.
+     * @param pending Chunks waiting for a worker.
+     * @param stats The run's counters.
+     * @throws IOException If no workers are left, or a replacement can't be
+     *                     started.
+     */
+    private void workerDied(Worker worker, String cause, Deque<Chunk> pending,
+                            Stats stats) throws IOException {
+        worker.dead = true;
+        worker.process.destroyForcibly();
+        System.err.println("Worker " + worker.slot + " (pid " +
+                worker.process.pid() + ") died: " + cause);
+
+        // put them back in the order they were sent
+        while (!worker.inFlight.isEmpty()) {
+            Chunk chunk = worker.inFlight.pollLast();
+            chunk.copies--;
+            if (!chunk.done && chunk.copies == 0) {
+                pending.addFirst(chunk);
+                stats.requeued++;
+            }
+        }
+
+        if (restarts < maxRestarts) {
+            restarts++;
+            workers[worker.slot] = startWorker(worker.slot);
+            return;
+        }
+        for (Worker other : workers) {
+            if (!other.dead) {
+                return; // the rest carry on
+            }
+        }
+        throw new IOException("Every worker has died, last: " + cause);
+    }
+
+    /**
+     * Starts a worker process and a thread reading its replies.
+     *
+     * @param slot The worker's slot.
+     * @return The worker.
+     * @throws IOException If the process can't be started.
+     */
+    private Worker startWorker(int slot) throws IOException {
+        List<String> command = new ArrayList<>();
+
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java")
+                .toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(SelfPlayWorker.class.getName());
+        command.add(Integer.toString(threadsPerWorker));
+
+        Process process = new ProcessBuilder(command)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        Worker worker = new Worker(slot, process);
+
+        Thread reader = new Thread(() -> readReplies(worker),
+                "self-play-reader-" + slot);
+        reader.setDaemon(true);
+        reader.start();
+        return worker;
+    }
+
+    /**
+     * Reads a worker's replies into the event queue until it exits, then
+     * reports its death. Runs on the worker's reader thread.
+     *
+     * @param worker The worker.
+     */
+    private void readReplies(Worker worker) {
+        String cause;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(worker.process.getInputStream()))) {
+            if (in.readInt() != SelfPlayWorker.MAGIC ||
+                    in.readInt() != SelfPlayWorker.VERSION) {
+                throw new IOException("Not a self-play worker");
+            }
+            in.readLong(); // its pid, which the process handle has too
+
+            while (true) {
+                int type = in.readInt();
+                long chunkId = in.readLong();
+
+                if (type == SelfPlayWorker.RESULT) {
+                    long nanos = in.readLong();
+                    events.add(new Event(worker, chunkId,
+                            ScoreBoard.Snapshot.readFrom(in), nanos, null));
+                } else if (type == SelfPlayWorker.FAILED) {
+                    events.add(new Event(worker, chunkId, null, 0,
+                            in.readUTF()));
+                } else {
+                    throw new IOException("Unknown message type " + type);
+                }
+            }
+        } catch (IOException e) {
+            cause = e.toString();
+        }
+        events.add(new Event(worker, -1, null, 0, cause));
+    }
+
+    /**
+     * Tells every live worker to stop, waits briefly for them to exit and
+     * kills any that don't.
+     *
+     * @throws InterruptedException If interrupted while waiting.
+     */
+    private void stopWorkers() throws InterruptedException {
+        for (Worker worker : workers) {
+            if (worker == null) {
+                continue;
+            }
+            worker.dead = true;
+            try {
+                worker.out.writeInt(SelfPlayWorker.STOP);
+                worker.out.close();
+            } catch (IOException e) {
+                // already gone
+            }
+        }
+
+        long deadline = System.nanoTime() +
+                TimeUnit.MILLISECONDS.toNanos(STOP_MILLIS);
+        for (Worker worker : workers) {
+            if (worker != null && !worker.process.waitFor(
+                    Math.max(0, deadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS)) {
+
+                worker.process.destroyForcibly();
+            }
+        }
+    }
+
+    /**
+     * The Job class describes games to play: a board, rules, strategies
+     * and how many.
+     */
+    public static class Job {
+        private final int boardLen;
+        private final int winLen;
+        private final String xStrategy;
+        private final String oStrategy;
+        private final long numGames;
+
+        /**
+         * The constructor describes a job.
+         *
+         * @param boardLen Length of the TTT board for every game.
+         * @param winLen Number of pieces in a row that wins.
+         * @param xStrategy X's strategy ("random", "minimax" or "mcts").
+         * @param oStrategy O's strategy.
+         * @param numGames Number of games to play.
+         */
+        public Job(int boardLen, int winLen, String xStrategy,
+                   String oStrategy, long numGames) {
+            this.boardLen = boardLen;
+            this.winLen = winLen;
+            this.xStrategy = xStrategy;
+            this.oStrategy = oStrategy;
+            this.numGames = numGames;
+        }
+    }
+
+    /**
+     * The Chunk class is part of a job, sent to a worker as one message.
+     */
+    private static class Chunk {
+        private final long id;
+        private final int job;
+        private final long numGames;
+        private int copies;   // live workers it has been sent to
+        private boolean done; // a copy has finished and been merged
+
+        /**
+         * The constructor sets up a chunk.
+         *
+         * @param id Chunk id, its index in the run's chunks.
+         * @param job Index of its job.
+         * @param numGames Number of games to play.
+         */
+        Chunk(long id, int job, long numGames) {
+            this.id = id;
+            this.job = job;
+            this.numGames = numGames;
+        }
+    }
+
+    /**
+     * The Worker class is the coordinator's side of one worker process.
+     * Everything but the reader thread's stream is only touched by the
+     * coordinating thread.
+     */
+    private static class Worker {
+        private final int slot;
+        private final Process process;
+        private final DataOutputStream out;
+        private final Deque<Chunk> inFlight = new ArrayDeque<>();
+        private long headStartNanos; // when the oldest chunk sent started
+        private boolean dead;
+
+        /**
+         * The constructor wraps a started worker process.
+         *
+         * @param slot The worker's slot.
+         * @param process The process.
+         */
+        Worker(int slot, Process process) {
+            this.slot = slot;
+            this.process = process;
+            out = new DataOutputStream(new BufferedOutputStream(
+                    process.getOutputStream()));
+        }
+
+        /**
+         * Takes a chunk the worker has replied about off its list. Workers
+         * play chunks in the order sent, so the next one starts now.
+         *
+         * @param chunk The chunk.
+         */
+        void finished(Chunk chunk) {
+            inFlight.remove(chunk);
+            chunk.copies--;
+            headStartNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * The Event class is a message from a worker's reader thread: a
+     * chunk's result or failure, or the worker's death.
+     */
+    private static class Event {
+        private final Worker worker;
+        private final long chunkId;          // -1 if the worker died
+        private final ScoreBoard.Snapshot snapshot;
+        private final long nanos;
+        private final String failure;        // or why the worker died
+
+        /**
+         * The constructor sets up an event.
+         *
+         * @param worker The worker it's from.
+         * @param chunkId The chunk, or -1 for the worker's death.
+         * @param snapshot The chunk's scoreboard, or null.
+         * @param nanos Nanoseconds the worker played the chunk for.
+         * @param failure What went wrong, or null.
+         */
+        Event(Worker worker, long chunkId, ScoreBoard.Snapshot snapshot,
+              long nanos, String failure) {
+            this.worker = worker;
+            this.chunkId = chunkId;
+            this.snapshot = snapshot;
+            this.nanos = nanos;
+            this.failure = failure;
+        }
+    }
+
+    /**
+     * The Stats class holds a run's counters: how long each job's chunks
+     * take, and how much work was moved around.
+     */
+    private static class Stats {
+        private final long[] jobNanos;
+        private final long[] jobGames;
+        private long requeued;   // chunks put back after a worker died
+        private long duplicates; // second copies of slow chunks
+        private long wasted;     // copies that finished second
+
+        /**
+         * The constructor sets up zeroed counters.
+         *
+         * @param numJobs Number of jobs in the run.
+         */
+        Stats(int numJobs) {
+            jobNanos = new long[numJobs];
+            jobGames = new long[numJobs];
+        }
+    }
+
+    /**
+     * The Result class holds a run's merged scoreboards, timing and how
+     * the work was spread.
+     */
+    public static class Result {
+        private final ScoreBoard.Snapshot totals;
+        private final ScoreBoard.Snapshot[] jobTotals;
+        private final long[] workerGames;
+        private final long numGames;
+        private final long elapsedNanos;
+        private final long requeued;
+        private final long duplicates;
+        private final long wasted;
+        private final int restarts;
+
+        /**
+         * The constructor stores a finished run's results.
+         *
+         * @param totals Every job's games merged.
+         * @param jobTotals Each job's games.
+         * @param workerGames Games counted from each worker slot.
+         * @param numGames Number of games played.
+         * @param elapsedNanos Wall-clock time the run took.
+         * @param requeued Chunks put back after a worker died.
+         * @param duplicates Second copies sent of slow chunks.
+         * @param wasted Copies that finished after the other copy.
+         * @param restarts Workers started to replace dead ones.
+         */
+        private Result(ScoreBoard.Snapshot totals,
+                       ScoreBoard.Snapshot[] jobTotals, long[] workerGames,
+                       long numGames, long elapsedNanos, long requeued,
+                       long duplicates, long wasted, int restarts) {
+            this.totals = totals;
+            this.jobTotals = jobTotals;
+            this.workerGames = workerGames;
+            this.numGames = numGames;
+            this.elapsedNanos = elapsedNanos;
+            this.requeued = requeued;
+            this.duplicates = duplicates;
+            this.wasted = wasted;
+            this.restarts = restarts;
+        }
+
+        /**
+         * Gets the scoreboard of every game in the run.
+         *
+         * @return Snapshot of the merged scoreboard.
+         */
+        public ScoreBoard.Snapshot getTotals() {
+            return totals;
+        }
+
+        /**
+         * Gets the scoreboard of one job.
+         *
+         * @param job Index of the job, in the order given to run.
+         * @return Snapshot of the job's scoreboard.
+         */
+        public ScoreBoard.Snapshot getJobTotals(int job) {
+            return jobTotals[job];
+        }
+
+        /**
+         * Gets the number of games each worker slot played (counting a
+         * replacement worker in its slot, and only the copy that counted).
+         *
+         * @return Games per worker slot.
+         */
+        public long[] getWorkerGames() {
+            return workerGames.clone();
+        }
+
+        /**
+         * Gets the number of games played.
+         *
+         * @return Number of games played.
+         */
+        public long getNumGames() {
+            return numGames;
+        }
+
+        /**
+         * Gets the wall-clock time the run took, starting workers included.
+         *
+         * @return Elapsed time in nanoseconds.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * Gets the run's throughput.
+         *
+         * @return Games played per second of wall-clock time.
+         */
+        public double getGamesPerSecond() {
+            return numGames * 1e9 / Math.max(1, elapsedNanos);
+        }
+
+        /**
+         * Gets the number of chunks put back in the queue after a worker
+         * died.
+         *
+         * @return Number of requeued chunks.
+         */
+        public long getRequeued() {
+            return requeued;
+        }
+
+        /**
+         * Gets the number of second copies sent of slow chunks.
+         *
+         * @return Number of duplicated chunks.
+         */
+        public long getDuplicates() {
+            return duplicates;
+        }
+
+        /**
+         * Gets the number of workers started to replace dead ones.
+         *
+         * @return Number of restarts.
+         */
+        public int getRestarts() {
+            return restarts;
+        }
+
+        @Override
+        public String toString() {
+            return "X wins: " + totals.getWins(1) +
+                    ", O wins: " + totals.getWins(2) +
+                    ", ties: " + totals.getWins(0) +
+                    ", games/s: " + (long) getGamesPerSecond() +
+                    ", requeued: " + requeued +
+                    ", duplicated: " + duplicates +
+                    " (" + wasted + " finished second)" +
+                    ", restarts: " + restarts;
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package sakam_p1x;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * The SelfPlayWorker class is the child process a SelfPlayCoordinator
+ * hands chunks of games to. It reads jobs from standard input, plays each
+ * with BatchSimulator on a fresh scoreboard, and writes the scoreboard
+ * back on standard output. Anything else the game prints goes to standard
+ * error, so it can't get mixed into the replies. The worker exits when
+ * told to stop or when its input closes, i.e. the coordinator is gone.
+ *
+ * Every message is a type int and then its fields, in DataOutput format:
+ *   worker, once at start: MAGIC, VERSION, process id (long)
+ *   JOB     chunk id (long), board length, win length, X strategy (UTF),
+ *           O strategy (UTF), number of games (long)
+ *   STOP    no fields
+ *   RESULT  chunk id (long), nanoseconds played (long), scoreboard
+ *           snapshot (see ScoreBoard.Snapshot.writeTo)
+ *   FAILED  chunk id (long), what went wrong (UTF)
+ *
+ * Strategies are BatchSimulator's ("random", "minimax" or "mcts"), and one
+ * minimax cache is kept for the worker's whole life.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class SelfPlayWorker {
+    // "TTTW", sent first so the coordinator knows it started a worker
+    final static int MAGIC = 0x54545457;
+    final static int VERSION = 1;
+
+    // message types
+    final static int JOB = 1;
+    final static int STOP = 2;
+    final static int RESULT = 3;
+    final static int FAILED = 4;
+
+    private final int numThreads;
+    private final PositionCache<MinimaxPlayer.Solution> cache =
+            BatchSimulator.newSolvedCache();
+    private final Map<String, Supplier<Player>> strategies = new HashMap<>();
+
+    /**
+     * The constructor sets up a worker that plays on some threads.
+     *
+     * @param numThreads Number of threads each chunk plays on.
+     */
+    public SelfPlayWorker(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Serves the coordinator on standard input and output.
+     *
+     * @param args Number of threads to play on (default 1).
+     * @throws IOException If the coordinator sends something unreadable.
+     */
+    public static void main(String[] args) throws IOException {
+        int numThreads = args.length > 0 ? Integer.parseInt(args[0]) : 1;
+
+        // replies own standard output; stray prints go to standard error
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(FileDescriptor.out)));
+        System.setOut(System.err);
+
+        DataInputStream in = new DataInputStream(
+                new BufferedInputStream(System.in));
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(ProcessHandle.current().pid());
+        out.flush();
+
+        new SelfPlayWorker(numThreads).serve(in, out);
+    }
+
+    /**
+     * Plays jobs until told to stop or the input ends.
+     *
+     * @param in Messages from the coordinator.
+     * @param out Replies to the coordinator.
+     * @throws IOException If a message can't be read or a reply written.
+     */
+    public void serve(DataInputStream in, DataOutputStream out)
+            throws IOException {
+        while (true) {
+            int type;
+            try {
+                type = in.readInt();
+            } catch (EOFException e) {
+                return; // the coordinator is gone
+            }
+
+            if (type == STOP) {
+                return;
+            }
+            if (type != JOB) {
+                throw new IOException("Unknown message type " + type);
+            }
+
+            long chunkId = in.readLong();
+            int boardLen = in.readInt();
+            int winLen = in.readInt();
+            String xStrategy = in.readUTF();
+            String oStrategy = in.readUTF();
+            long numGames = in.readLong();
+
+            try {
+                BatchSimulator.Result result = BatchSimulator.run(boardLen,
+                        winLen, playersFor(xStrategy), playersFor(oStrategy),
+                        numGames, numThreads, new ScoreBoard());
+
+                out.writeInt(RESULT);
+                out.writeLong(chunkId);
+                out.writeLong(result.getElapsedNanos());
+                result.getTotals().writeTo(out);
+            } catch (RuntimeException e) {
+                out.writeInt(FAILED);
+                out.writeLong(chunkId);
+                out.writeUTF(String.valueOf(e));
+            }
+            out.flush();
+        }
+    }
+
+    /**
+     * Gets the maker of players for a strategy, the same one every time.
+     *
+     * @param strategy Strategy name.
+     * @return A maker of players.
+     * @throws IllegalArgumentException If the strategy is unknown.
+     */
+    private Supplier<Player> playersFor(String strategy) {
+        Supplier<Player> players = strategies.get(strategy);
+
+        if (players == null) {
+            players = BatchSimulator.playersFor(strategy, cache);
+            strategies.put(strategy, players);
+        }
+        return players;
+    }
+}
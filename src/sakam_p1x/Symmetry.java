@@ -0,0 +1,72 @@
+package sakam_p1x;
+
+/**
+ * The Symmetry class maps cells of a square TTT board through its 8
+ * symmetries (the identity, 3 rotations and 4 reflections). Positions that
+ * map onto each other play out identically, so analysis only needs to be
+ * done once per group of equivalent positions.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public final class Symmetry {
+    final public static int NUM_SYMMETRIES = 8;
+    final public static int IDENTITY = 0;
+
+    /*
+     * symmetry 1 and 3 rotate in opposite directions, so they undo each
+     * other; every other symmetry is its own inverse
+     */
+    final private static int[] INVERSES = {0, 3, 2, 1, 4, 5, 6, 7};
+
+    /**
+     * The constructor is private since this class only has static helpers.
+     */
+    private Symmetry() {
+    }
+
+    /**
+     * Maps a cell through one of the board's symmetries.
+     *
+     * @param symmetry Symmetry index (0-7).
+     * @param cell Cell index (row * board length + column).
+     * @param boardLen An integer representing board length.
+     * @return Index of the cell the given cell maps to.
+     */
+    public static int transform(int symmetry, int cell, int boardLen) {
+        int row = cell / boardLen;
+        int col = cell % boardLen;
+        int last = boardLen - 1;
+
+        switch (symmetry) {
+            case 0:
+                return cell;
+            case 1: // rotate 90 degrees clockwise
+                return col * boardLen + last - row;
+            case 2: // rotate 180 degrees
+                return (last - row) * boardLen + last - col;
+            case 3: // rotate 270 degrees clockwise
+                return (last - col) * boardLen + row;
+            case 4: // mirror left to right
+                return row * boardLen + last - col;
+            case 5: // flip top to bottom
+                return (last - row) * boardLen + col;
+            case 6: // reflect across the diagonal
+                return col * boardLen + row;
+            case 7: // reflect across the reverse diagonal
+                return (last - col) * boardLen + last - row;
+            default:
+                throw new IllegalArgumentException("No symmetry " + symmetry);
+        }
+    }
+
+    /**
+     * Gets the symmetry that undoes another one.
+     *
+     * @param symmetry Symmetry index (0-7).
+     * @return Index of the inverse symmetry.
+     */
+    public static int inverse(int symmetry) {
+        return INVERSES[symmetry];
+    }
+}
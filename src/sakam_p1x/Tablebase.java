@@ -0,0 +1,197 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The Tablebase class answers 3x3 positions from a fully solved tablebase
+ * file (see TablebaseGenerator), with no search at all. The file is memory
+ * mapped read-only, and a lookup only does arithmetic and one absolute read
+ * of the mapping. So lookups don't allocate and can run from any number of
+ * threads at once.
+ *
+ * File layout: a 16-byte header (magic, version, board length, entry
+ * count), then one byte per canonical position index. A position's index
+ * is its cells read as a base-3 number (cell 0 lowest, 0 empty, 1 X, 2 O).
+ * Its canonical index is the smallest index among its 8 symmetric versions.
+ * Each byte holds the value for the player to move in its top 2 bits and
+ * the best move (in canonical coordinates) in its low 4 bits.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class Tablebase {
+    final public static int BOARD_LENGTH = 3;
+    final public static int NUM_CELLS = BOARD_LENGTH * BOARD_LENGTH;
+    final public static int NUM_INDEXES = 19683; // 3^9
+
+    final static int MAGIC = 0x54545442; // "TTTB"
+    final static int VERSION = 1;
+    final static int HEADER_BYTES = 16;
+
+    // entry layout
+    final public static int UNKNOWN = 0; // unreachable position
+    final public static int WIN = 1;
+    final public static int DRAW = 2;
+    final public static int LOSS = 3;
+    final public static int GAME_OVER = 4;
+    final static int VALUE_SHIFT = 4;
+    final static int MOVE_MASK = 0xF;
+    final static int NO_MOVE = 0xF;
+
+    final private static int[] POWERS_OF_3 =
+            {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+    private final MappedByteBuffer entries;
+
+    /**
+     * The constructor maps a tablebase file into memory and checks its
+     * header.
+     *
+     * @param file Path of the tablebase file.
+     * @throws IOException If the file can't be read or isn't a tablebase.
+     */
+    public Tablebase(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+
+            // the mapping stays valid after the channel is closed
+            entries = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+
+        if (entries.capacity() != HEADER_BYTES + NUM_INDEXES ||
+                entries.getInt(0) != MAGIC || entries.getInt(4) != VERSION ||
+                entries.getInt(8) != BOARD_LENGTH ||
+                entries.getInt(12) != NUM_INDEXES) {
+
+            throw new IOException(file + " is not a 3x3 tablebase");
+        }
+    }
+
+    /**
+     * Looks up the best move for the player to move.
+     *
+     * @param board A read-only view of a 3x3 board.
+     * @return Cell index of the best move, or -1 if the game is over.
+     */
+    public int bestMove(BoardView board) {
+        int symmetry = canonicalSymmetry(board);
+        int move = entry(board, symmetry) & MOVE_MASK;
+
+        if (move == NO_MOVE) {
+            return -1;
+        }
+        return Symmetry.transform(Symmetry.inverse(symmetry), move,
+                BOARD_LENGTH);
+    }
+
+    /**
+     * Looks up the value of a position for the player to move.
+     *
+     * @param board A read-only view of a 3x3 board.
+     * @return WIN, DRAW, LOSS or GAME_OVER, or UNKNOWN for a position that
+     *         can't be reached in a real game.
+     */
+    public int value(BoardView board) {
+        return entry(board, canonicalSymmetry(board)) >>> VALUE_SHIFT;
+    }
+
+    /**
+     * Reads a position's entry byte.
+     *
+     * @param board A read-only view of a 3x3 board.
+     * @param symmetry Symmetry that takes the board to its canonical form.
+     * @return The entry byte as an unsigned value.
+     */
+    private int entry(BoardView board, int symmetry) {
+        return entries.get(HEADER_BYTES + index(board, symmetry)) & 0xFF;
+    }
+
+    /**
+     * Finds the symmetry that gives a board its smallest index.
+     *
+     * @param board A read-only view of a 3x3 board.
+     * @return Symmetry index (0-7).
+     */
+    private static int canonicalSymmetry(BoardView board) {
+        int best = Integer.MAX_VALUE;
+        int bestSymmetry = Symmetry.IDENTITY;
+
+        for (int symmetry = 0; symmetry < Symmetry.NUM_SYMMETRIES; symmetry++) {
+            int index = index(board, symmetry);
+            if (index < best) {
+                best = index;
+                bestSymmetry = symmetry;
+            }
+        }
+        return bestSymmetry;
+    }
+
+    /**
+     * Computes the index of a board after mapping it through a symmetry.
+     *
+     * @param board A read-only view of a 3x3 board.
+     * @param symmetry Symmetry index (0-7).
+     * @return Base-3 index of the transformed board.
+     */
+    private static int index(BoardView board, int symmetry) {
+        int index = 0;
+
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            index += board.getPiece(cell / BOARD_LENGTH, cell % BOARD_LENGTH) *
+                    POWERS_OF_3[Symmetry.transform(symmetry, cell,
+                            BOARD_LENGTH)];
+        }
+        return index;
+    }
+
+    /**
+     * Computes the base-3 index of a board held as one int per cell.
+     *
+     * @param cells Pieces by cell index (0 empty, 1 X, 2 O).
+     * @return Base-3 index of the board.
+     */
+    static int index(int[] cells) {
+        int index = 0;
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            index += cells[cell] * POWERS_OF_3[cell];
+        }
+        return index;
+    }
+
+    /**
+     * Checks whether an index is the smallest among its symmetric versions.
+     *
+     * @param cells Pieces by cell index (0 empty, 1 X, 2 O).
+     * @return True if the board is in canonical form.
+     */
+    static boolean isCanonical(int[] cells) {
+        int index = index(cells);
+
+        for (int symmetry = 1; symmetry < Symmetry.NUM_SYMMETRIES; symmetry++) {
+            int other = 0;
+            for (int cell = 0; cell < NUM_CELLS; cell++) {
+                other += cells[cell] * POWERS_OF_3[Symmetry.transform(symmetry,
+                        cell, BOARD_LENGTH)];
+            }
+            if (other < index) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a tablebase header into a buffer.
+     *
+     * @param header Buffer with at least HEADER_BYTES remaining.
+     */
+    static void writeHeader(ByteBuffer header) {
+        header.putInt(MAGIC).putInt(VERSION).putInt(BOARD_LENGTH)
+                .putInt(NUM_INDEXES);
+    }
+}
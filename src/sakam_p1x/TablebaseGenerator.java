@@ -0,0 +1,172 @@
+package sakam_p1x;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * The TablebaseGenerator class solves 3x3 TTT exhaustively and writes the
+ * result as a tablebase file (layout described in Tablebase). Every
+ * position reachable from the empty board is solved once, in canonical
+ * form. Each entry records its value for the player to move and the
+ * quickest win, or slowest loss, available. Usage:
+ * TablebaseGenerator [output file]
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class TablebaseGenerator {
+    final public static String DEFAULT_FILE = "tictactoe3x3.tb";
+
+    final private static int NUM_CELLS = Tablebase.NUM_CELLS;
+
+    /*
+     * solving works in "distance" scores so quicker wins beat slower ones:
+     * a win in d plies scores NUM_CELLS + 1 - d, a loss the negative
+     */
+    final private static int UNSOLVED = Integer.MIN_VALUE;
+
+    private final int[] cells = new int[NUM_CELLS];
+    private final WinTracker winTracker =
+            new WinTracker(Tablebase.BOARD_LENGTH);
+    private final int[] scores = new int[Tablebase.NUM_INDEXES];
+    private final byte[] entries = new byte[Tablebase.NUM_INDEXES];
+    private final boolean[] reached = new boolean[Tablebase.NUM_INDEXES];
+    private int numReachable;
+    private int numCanonical;
+
+    /**
+     * The constructor marks every position as not yet solved.
+     */
+    private TablebaseGenerator() {
+        Arrays.fill(scores, UNSOLVED);
+    }
+
+    /**
+     * Solves 3x3 TTT and writes the tablebase.
+     *
+     * @param args Output file (default tictactoe3x3.tb).
+     * @throws IOException If the file can't be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path output = Paths.get(args.length > 0 ? args[0] : DEFAULT_FILE);
+        TablebaseGenerator generator = new TablebaseGenerator();
+
+        generator.solve(1, 0);
+        generator.write(output);
+
+        System.out.println("Solved " + generator.numReachable +
+                " reachable positions (" + generator.numCanonical +
+                " canonical), written to " + output);
+    }
+
+    /**
+     * Solves the current position and everything reachable from it.
+     * Reachable positions are counted here, and canonical ones get an entry.
+     *
+     * @param player Player representation of the mover (1 or 2).
+     * @param numPieces Number of pieces on the board.
+     * @return Score of the position for the mover.
+     */
+    private int solve(int player, int numPieces) {
+        int index = Tablebase.index(cells);
+        if (scores[index] != UNSOLVED) {
+            return scores[index];
+        }
+        countReached(index);
+
+        int bestScore = UNSOLVED;
+        int bestMove = Tablebase.NO_MOVE;
+
+        for (int cell = 0; cell < NUM_CELLS; cell++) {
+            if (cells[cell] != 0) {
+                continue;
+            }
+
+            int row = cell / Tablebase.BOARD_LENGTH;
+            int col = cell % Tablebase.BOARD_LENGTH;
+            int score;
+
+            cells[cell] = player;
+            if (winTracker.addPiece(player, row, col)) {
+                // the opponent's position is over; record it as such
+                markGameOver();
+                score = NUM_CELLS - numPieces;
+            } else if (numPieces + 1 == NUM_CELLS) {
+                markGameOver();
+                score = 0;
+            } else {
+                score = -solve(3 - player, numPieces + 1);
+            }
+            winTracker.removePiece(player, row, col);
+            cells[cell] = 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+                bestMove = cell;
+            }
+        }
+
+        scores[index] = bestScore;
+        if (Tablebase.isCanonical(cells)) {
+            int value = bestScore > 0 ? Tablebase.WIN :
+                    bestScore < 0 ? Tablebase.LOSS : Tablebase.DRAW;
+            entries[index] = (byte) (value << Tablebase.VALUE_SHIFT | bestMove);
+        }
+        return bestScore;
+    }
+
+    /**
+     * Records the current (finished) position, if canonical, as having no
+     * move to make.
+     */
+    private void markGameOver() {
+        int index = Tablebase.index(cells);
+
+        countReached(index);
+        if (entries[index] == 0 && Tablebase.isCanonical(cells)) {
+            entries[index] = (byte) (Tablebase.GAME_OVER <<
+                    Tablebase.VALUE_SHIFT | Tablebase.NO_MOVE);
+        }
+    }
+
+    /**
+     * Counts a position the first time it is reached.
+     *
+     * @param index Base-3 index of the current position.
+     */
+    private void countReached(int index) {
+        if (!reached[index]) {
+            reached[index] = true;
+            numReachable++;
+            if (Tablebase.isCanonical(cells)) {
+                numCanonical++;
+            }
+        }
+    }
+
+    /**
+     * Writes the header and entries to the tablebase file.
+     *
+     * @param output Path of the file to write.
+     * @throws IOException If the file can't be written.
+     */
+    private void write(Path output) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Tablebase.HEADER_BYTES +
+                entries.length);
+        Tablebase.writeHeader(buffer);
+        buffer.put(entries).flip();
+
+        try (FileChannel channel = FileChannel.open(output,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package sakam_p1x;
+
+/**
+ * The TablebasePlayer class plays 3x3 games straight from a solved
+ * tablebase, so it never searches and always plays perfectly. On any other
+ * board size or win length it hands the move to another player.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class TablebasePlayer implements Player {
+    private final Tablebase tablebase;
+    private final Player otherSizes;
+
+    /**
+     * The constructor sets up a player backed by a tablebase.
+     *
+     * @param tablebase Solved 3x3 tablebase.
+     * @param otherSizes Player used for board sizes other than 3x3, and for
+     *                   k-in-a-row games.
+     */
+    public TablebasePlayer(Tablebase tablebase, Player otherSizes) {
+        this.tablebase = tablebase;
+        this.otherSizes = otherSizes;
+    }
+
+    @Override
+    public int chooseMove(BoardView board, int player) {
+        if (board.getLength() != Tablebase.BOARD_LENGTH ||
+                board.getWinLength() != Tablebase.BOARD_LENGTH) {
+
+            return otherSizes.chooseMove(board, player);
+        }
+        return tablebase.bestMove(board);
+    }
+}
@@ -1,5 +1,6 @@
 package sakam_p1x;
-import java.util.Scanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 
 /**
  * The TicTacToe (herein referred to as TTT) class contains all relevant
@@ -26,47 +27,116 @@ public class TicTacToeX {
     final private static int EMPTY_IDX = 0;
 
     /* fields that are required to play a game:
-     *  - game board represented as a 2D int array
+     *  - game board (a plain int board or a bitboard, chosen at reset, and
+     *    recycled between games rather than reallocated)
      *  - board length (conventionally 3, but scales out to any length)
+     *  - win length, the number of pieces in a row that wins (the board
+     *    length for classic TTT, fewer for k-in-a-row games like gomoku)
      *  - max # of pieces that can be on the board
      *    -- board is always an odd-length'd square, so max # pieces = board
      *     length ^ 2 length
      *  - current player turn
      *  - current winner of a game (representation and piece)
+     *  - per-line piece counts and whether the last piece completed a line
+     *  - cell index of every move so far, in order
+     *  - the empty cells, as an index kept in step with every move
      */
-    private int[][] gameBoard;
+    private GameBoard gameBoard;
+    private boolean usingBitBoard;
+
+    // full-line games on a bitboard check wins with its line masks
+    private boolean maskWins;
     private int boardLength;
+    private int winLength;
     private int maxPieces;
     private int numPiecesOnBoard;
     private int currWinner;
     private String currWinnerPiece;
     private int playerTurnIdx;
     private int playerTurn;
+    private WinTracker winTracker;
+    private boolean lastPieceWon;
+    private int[] moveHistory;
+    private FreeCellIndex freeCells;
+
+    /*
+     * the last snapshot handed out, if the game hasn't changed since; while
+     * it is set, the snapshot shares the board and move history, and the
+     * next change copies them first (copy-on-write)
+     */
+    private Position snapshot;
 
     /*
      * field required to keep track of score during a full TTT session
      *  (i.e. playing again in the same program):
-     *    - scoreboard
+     *    - scoreboard (lock-free, so it can be shared between instances
+     *      playing on different threads)
+     */
+    private ScoreBoard scoreBoard;
+
+    /*
+     * computer players, indexed by player representation (1 or 2); a null
+     *  slot is a human at the keyboard
      */
-    private int[] scoreBoard;
+    private Player[] computerPlayers;
+
+    // draws the board to the console
+    private BoardRenderer renderer;
+
+    // what players see: the live board, win length and free cells
+    private BoardView liveView;
+
+    // appends finished games to a binary log; null when not recording
+    private GameRecordWriter recorder;
+
+    // told about each finished game, e.g. for analytics; null for none
+    private GameObserver observer;
+
+    // logs every move and result so a session survives a crash; null for
+    //  none
+    private GameJournal journal;
+    private int journalId;
 
     /**
      * The constructor sets up the
      * scoreboard to hold the scores of 2 players + a tie game counter.
      */
     public TicTacToeX() {
-        scoreBoard = new int[PLAYER_PIECES.length];// holds scores for 2
-        // players + a counter for tie games
+        this(new ScoreBoard());
+    }
+
+    /**
+     * The constructor sets up an instance that keeps score on a given
+     * scoreboard, e.g. one shared by many games running in parallel.
+     *
+     * @param scoreBoard Scoreboard to record finished games on.
+     */
+    public TicTacToeX(ScoreBoard scoreBoard) {
+        this.scoreBoard = scoreBoard;
+        computerPlayers = new Player[PLAYER_PIECES.length];
+        renderer = new BoardRenderer(System.out);
+        liveView = new LiveView();
+    }
+
+    /**
+     * Lets the computer take the turns of X or O in interactive games.
+     *
+     * @param playerRepr Player representation (1 for X, 2 for O).
+     * @param computer Player choosing that side's moves, or null to hand the
+     *                 side back to a human.
+     */
+    public void setComputerPlayer(int playerRepr, Player computer) {
+        computerPlayers[playerRepr] = computer;
     }
 
     /**
      * Prompts a user for TTT board size. Input must be an odd number between
      * 3-25. Usage must precede all other method usages for a given playthrough.
      *
-     * @param keyboard Scanner object for getting user integer input.
+     * @param keyboard Console input for getting user integer input.
      * @return An odd integer of board size between 3-25.
      */
-    public static int promptBoardSize(Scanner keyboard) {
+    public static int promptBoardSize(ConsoleInput keyboard) {
         int input; // hold user input
 
         final int MIN_SIZE = 3; // min and max sizes of game board
@@ -95,439 +165,682 @@ public class TicTacToeX {
         return input;
     }
 
+    /**
+     * Resets the game board for a new game using the plain int board.
+     *
+     * @param boardLen An integer representing length of TTT board to create,
+     *                 from 1 to ScoreBoard.MAX_SIZE.
+     * @throws IllegalArgumentException If the board length is out of range.
+     */
+    public void resetBoard(int boardLen) {
+        resetBoard(boardLen, false);
+    }
+
     /**
      * Resets the game board for a new game (i.e.
-     * creating a new empty board with the class's board length, resetting
+     * emptying the board for the given board length, resetting
      * number of pieces on the board to 0, resetting current winner to
-     * empty/tie, and player turn to arbitrary 0.
+     * empty/tie, clearing the win tracker, and player turn to arbitrary 0.
+     * The board storage can be a plain int board or a bitboard; both play
+     * exactly the same. A reset to the same size and storage clears the
+     * board, win tracker, move history and free cells in place. Otherwise
+     * the old storage goes back to the thread's BoardPool and storage of the
+     * new size is taken from it, so steady-state game churn allocates
+     * nothing. The new game is logged to the journal, if one is set.
+     * Boards go up to ScoreBoard.MAX_SIZE (25), the largest size results
+     * are kept for.
      *
-     * @param boardLen An integer representing length of TTT board to create.
+     * @param boardLen An integer representing length of TTT board to create,
+     *                 from 1 to ScoreBoard.MAX_SIZE.
+     * @param useBitBoard True to store the board as one bitset per player.
+     * @throws IllegalArgumentException If the board length is out of range.
      */
-    public void resetBoard(int boardLen) {
+    public void resetBoard(int boardLen, boolean useBitBoard) {
+        resetBoard(boardLen, useBitBoard, boardLen);
+    }
+
+    /**
+     * Resets the game board for a new k-in-a-row game using the plain int
+     * board, e.g. resetBoard(15, 5) for gomoku.
+     *
+     * @param boardLen An integer representing length of TTT board to create,
+     *                 from 1 to ScoreBoard.MAX_SIZE.
+     * @param winLen Number of pieces in a row that wins, from 1 to the
+     *               board length.
+     * @throws IllegalArgumentException If the board or win length is out of
+     *                                  range.
+     */
+    public void resetBoard(int boardLen, int winLen) {
+        resetBoard(boardLen, false, winLen);
+    }
+
+    /**
+     * Resets the game board for a new k-in-a-row game, like
+     * resetBoard(int, boolean). A player wins by getting win length pieces
+     * in a row, column or diagonal anywhere on the board; checking for
+     * that after a move only looks at the lines through the new piece.
+     *
+     * @param boardLen An integer representing length of TTT board to create,
+     *                 from 1 to ScoreBoard.MAX_SIZE.
+     * @param useBitBoard True to store the board as one bitset per player.
+     * @param winLen Number of pieces in a row that wins, from 1 to the
+     *               board length.
+     * @throws IllegalArgumentException If the board length is out of range
+     *                                  or the win length doesn't fit the
+     *                                  board.
+     */
+    public void resetBoard(int boardLen, boolean useBitBoard, int winLen) {
+        if (boardLen < 1 || boardLen > ScoreBoard.MAX_SIZE) {
+            throw new IllegalArgumentException("Board length " + boardLen +
+                    " is outside 1-" + ScoreBoard.MAX_SIZE);
+        }
+        if (winLen < 1 || winLen > boardLen) {
+            throw new IllegalArgumentException("Win length " + winLen +
+                    " doesn't fit a board of length " + boardLen);
+        }
+
+        // a board still shared with a snapshot must be left alone
+        if (gameBoard != null && snapshot == null && boardLen == boardLength &&
+                useBitBoard == usingBitBoard) {
+
+            gameBoard.clear();
+            winTracker.reset(winLen);
+            freeCells.reset();
+            BoardPool.recordReuse();
+        } else {
+            releaseBoard();
+            gameBoard = BoardPool.acquireBoard(boardLen, useBitBoard);
+            winTracker = BoardPool.acquireWinTracker(boardLen, winLen);
+            moveHistory = BoardPool.acquireMoveStack(boardLen);
+            freeCells = BoardPool.acquireFreeCells(boardLen);
+        }
+
         boardLength = boardLen;
+        winLength = winLen;
         maxPieces = boardLen * boardLen;
-        gameBoard = new int[boardLength][boardLength];
+        usingBitBoard = useBitBoard;
+        maskWins = useBitBoard && winLen == boardLen;
+        snapshot = null;
         numPiecesOnBoard = 0;
         currWinner = EMPTY_IDX;
+        lastPieceWon = false;
         playerTurnIdx = 0;
+
+        if (journal != null) {
+            journal.gameStarted(journalId, boardLen, winLen);
+        }
+    }
+
+    /**
+     * Gives the board, win tracker, move history and free cells back to the
+     * thread's BoardPool, e.g. when a batch of games on this instance is
+     * done. The board must be reset before the next game.
+     */
+    public void releaseBoard() {
+        if (gameBoard != null && snapshot == null) {
+            BoardPool.release(gameBoard, usingBitBoard, winTracker,
+                    moveHistory);
+        }
+        if (freeCells != null) {
+            // never shared with a snapshot, so it can always go back
+            BoardPool.release(boardLength, freeCells);
+        }
+        gameBoard = null;
+        winTracker = null;
+        moveHistory = null;
+        freeCells = null;
     }
 
     /**
      * Runs a full game of TTT (i.e. rotating players
      * between X and O, showing the game board when necessary, and allowing
      * the player to choose a valid spot to place on the board. This method
-     * also checks for a winner after each turn.
+     * also checks for a winner after each turn. Humans play through
+     * ConsolePlayer prompts; sides set with setComputerPlayer announce
+     * their choices instead.
+     *
+     * @param keyboard Console input to allow player input.
+     */
+    public void playGame(ConsoleInput keyboard) {
+        Player[] players = new Player[PLAYER_PIECES.length];
+
+        for (int player : PLAYERS) {
+            players[player] = computerPlayers[player] == null ?
+                    new ConsolePlayer(keyboard) :
+                    announced(computerPlayers[player]);
+        }
+
+        runGame(players[PLAYERS[0]], players[PLAYERS[1]], true);
+    }
+
+    /**
+     * Runs a full game of TTT between two non-console players without any
+     * console output (i.e. no board display, prompts or winner message).
+     * The board must already be reset. Players rotate and the winner is
+     * checked exactly as in the interactive game, and the scoreboard is
+     * updated with the result.
+     *
+     * @param xPlayer Player choosing moves for X.
+     * @param oPlayer Player choosing moves for O.
+     * @return Winner of the game: 1 (X), 2 (O), or 0 for a tie.
+     */
+    public int playGame(Player xPlayer, Player oPlayer) {
+        return runGame(xPlayer, oPlayer, false);
+    }
+
+    /**
+     * Runs a full game between two players. This is the only game loop;
+     * it knows nothing about where moves come from.
      *
-     * @param keyboard A scanner object to allow player input.
+     * @param xPlayer Player choosing moves for X.
+     * @param oPlayer Player choosing moves for O.
+     * @param showBoard True to show the board before each turn and the
+     *                  winner at the end.
+     * @return Winner of the game: 1 (X), 2 (O), or 0 for a tie.
      */
-    public void playGame(Scanner keyboard) {
+    private int runGame(Player xPlayer, Player oPlayer, boolean showBoard) {
+        int cell, row, col;
+        boolean timeMoves = scoreBoard.isTrackingMoveLatency();
+        long moveStart = 0;
+        boolean won;
+
+        // null unless instrumentation is on; checked once per game
+        GameMetrics.Recorder metrics = GameMetrics.recorder();
+        boolean timePhases;
+        long lap = 0;
 
         /*
          * a game playthrough consists of rotating between players, showing
          * the gameboard between each turn, and running a full player turn
          */
         do {
+            timePhases = metrics != null && metrics.sampleMove();
+            if (timePhases) {
+                lap = System.nanoTime();
+            }
+
             rotatePlayer();
-            displayGameBoard();
-            runPlayerTurn(keyboard);
+
+            if (timePhases) {
+                lap = metrics.lap(GameMetrics.ROTATE, lap);
+            }
+            if (showBoard) {
+                displayGameBoard();
+                if (timePhases) {
+                    lap = metrics.lap(GameMetrics.DISPLAY, lap);
+                }
+            }
+            if (timeMoves) {
+                moveStart = System.nanoTime();
+            }
+
+            // X moves on turn 1, O on turn 2
+            cell = (playerTurn == PLAYERS[0] ? xPlayer : oPlayer)
+                    .chooseMove(getBoardView(), playerTurn);
+            row = cell / boardLength;
+            col = cell % boardLength;
+
+            // a bot can't be reprompted, so a bad choice ends the run
+            if (cell < 0 || cell >= maxPieces ||
+                    gameBoard.getPiece(row, col) != EMPTY_IDX) {
+
+                throw new IllegalStateException(PLAYER_PIECES[playerTurn] +
+                        " chose an invalid spot: " + cell);
+            }
+
+            addPieceToBoard(playerTurn, row, col);
+
+            if (timeMoves) {
+                scoreBoard.recordMoveLatency(boardLength,
+                        System.nanoTime() - moveStart);
+            }
+            if (timePhases) {
+                lap = metrics.lap(GameMetrics.TURN, lap);
+            }
+
+            won = winnerExists();
+
+            if (timePhases) {
+                metrics.lap(GameMetrics.WIN_CHECK, lap);
+            }
 
         /*
          * game stops once a winner is found or number of pieces on the board
          * are too many
          */
-        } while (!winnerExists() && numPiecesOnBoard < maxPieces);
+        } while (!won && numPiecesOnBoard < maxPieces);
 
         /*
          * after a game is done, show the winner of the game, the
          * resultant gameboard, and update scoreboard with new result
          */
-        declareWinner();
-        displayGameBoard();
+        if (showBoard) {
+            declareWinner();
+            displayGameBoard();
+        }
+        if (metrics != null) {
+            metrics.recordGame(numPiecesOnBoard);
+        }
         updateScoreboard();
+        recordGame();
+
+        return currWinner;
     }
 
     /**
-     * Allows players (i.e. X, O) to alternate turns
-     * in TTT so that no player goes twice or more in a row.
+     * Wraps a computer player so each choice it makes is shown on the
+     * console, for interactive games.
+     *
+     * @param computer Player choosing a side's moves.
+     * @return A player that announces the computer's choices.
      */
-    private void rotatePlayer() {
-        // idx is 0 or 1 - uses as index to access PLAYERS
-        playerTurnIdx %= NUM_PLAYERS;
-
-        /*
-         * turn is 1 or 2 - uses as index to access PLAYER_PIECES at X or O if
-         * needed, AND as non-0 game board pieces (0 = empty)
-         */
-        playerTurn = PLAYERS[playerTurnIdx];
-
-        playerTurnIdx++;
+    private static Player announced(Player computer) {
+        return (board, player) -> {
+            int cell = computer.chooseMove(board, player);
+
+            System.out.print(PLAYER_PIECES[player] + " (computer) chose row " +
+                    cell / board.getLength() + ", column " +
+                    cell % board.getLength() + ".\n");
+            return cell;
+        };
     }
 
     /**
-     * Checks if the winner of the current game
-     * was one of the players in the PLAYERS array (i.e. 1, 2). If so, it
-     * matches it to the player piece and prints that piece as winner. Else
-     * it's declared a tie via a non-PLAYER (i.e. 0).
+     * Plays a single move for whichever player's turn it is, without any
+     * console output, for callers that receive moves one at a time (e.g. a
+     * network client). The board must already be reset. When the move ends
+     * the game, the scoreboard is updated.
+     *
+     * @param row Board row of the move.
+     * @param col Board column of the move.
+     * @return False (and nothing changes) if the game is over or the spot
+     *         is off the board or taken; true once the piece is placed.
      */
-    private void declareWinner() {
-        if (currWinner == EMPTY_IDX) {
-            System.out.println("No winner, - it was a tie!");
-        } else {
-            currWinnerPiece = PLAYER_PIECES[currWinner]; // X or O
+    public boolean playMove(int row, int col) {
+        if (!makeMove(row, col)) {
+            return false;
+        }
 
-            System.out.printf("%s, you have won the game!\n",
-                    currWinnerPiece);
+        if (isGameOver()) {
+            updateScoreboard();
+            recordGame();
         }
+        return true;
     }
 
     /**
-     * Conducts all operations necessary to:
-     * 1) clearly display whose turn it is,
-     * 2) choose a valid row and column on the board to place his/her piece, and
-     * 3) add the "piece" (more specifically a representation of the piece) to
-     *      the board.
+     * Makes a move for whichever player's turn it is, updating the board,
+     * piece count, turn and win tracking in place. Unlike playMove, a move
+     * that ends the game isn't scored or recorded, so searches, hints and
+     * replays can try moves and take them back with unmakeMove.
      *
-     * @param keyboard A scanner object to allow player input.
+     * @param row Board row of the move.
+     * @param col Board column of the move.
+     * @return False (and nothing changes) if the game is over or the spot
+     *         is off the board or taken; true once the piece is placed.
      */
-    private void runPlayerTurn(Scanner keyboard) {
-
-        int row, col; // declare variables to hold row and column choices
-
-        // show player turn via X or O
-        System.out.printf("%s, it is your turn.\n",
-                PLAYER_PIECES[playerTurn]);
+    public boolean makeMove(int row, int col) {
+        if (isGameOver() || row < 0 || row >= boardLength || col < 0 ||
+                col >= boardLength ||
+                gameBoard.getPiece(row, col) != EMPTY_IDX) {
 
-        /*
-         * ask for row and column input as long as input is invalid (i.e.
-         * taken by another piece on the board)
-         */
-        do {
-            row = getBoardIdx("row", keyboard);
-
-            col = getBoardIdx("column", keyboard);
-        } while (isInvalidInput(row, col));
+            return false;
+        }
 
-        // add piece via current player and choice of board spot
+        rotatePlayer();
         addPieceToBoard(playerTurn, row, col);
+        winnerExists();
+
+        return true;
     }
 
     /**
-     * Asks the user for the row or column they
-     * want to place a TTT piece at. It also validates the input by checking
-     * for valid integer and within game board bounds.
+     * Takes back the last move in constant time: the move history is the
+     * undo stack, and the board, piece count, turn and win tracker are all
+     * stepped back in place. A game that was over is open again, though a
+     * result already on the scoreboard stays there.
      *
-     * @param rowOrCol A string representing row or column to prompt from user.
-     * @param keyboard A scanner object to get user input.
-     * @return An integer representing row or column.
+     * @return Cell index (row * board length + column) of the move taken
+     *         back.
+     * @throws IllegalStateException If no move has been made.
      */
-    private int getBoardIdx(String rowOrCol, Scanner keyboard) {
-        int input; // store user input
-
-        // repeat prompting until user integer input is within board bounds
-        do {
-            System.out.print("Which " + rowOrCol + "? ");
-
-            // validate user has integer input
-            while (!keyboard.hasNextInt()) { // scan ahead for valid int token
-
-                System.out.println("Sorry, that's not a valid integer input.");
-
-                keyboard.next(); // pass the current token if invalid
-
-                System.out.print("Which " + rowOrCol + "? ");
-            }
+    public int unmakeMove() {
+        if (numPiecesOnBoard == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        beforeChange();
 
-            input = keyboard.nextInt(); // store valid int token
+        int cell = moveHistory[--numPiecesOnBoard];
+        int row = cell / boardLength;
+        int col = cell % boardLength;
+        int player = gameBoard.getPiece(row, col);
 
-            keyboard.nextLine(); // ready the delimiter check on scanner object
+        gameBoard.removePiece(row, col);
+        if (!maskWins) {
+            winTracker.removePiece(player, row, col);
+        }
+        freeCells.add(cell);
+        if (journal != null) {
+            journal.moveUndone(journalId);
+        }
+        lastPieceWon = false; // the game went on after every earlier move
+        currWinner = EMPTY_IDX;
 
-        // board bounds from 0 to its length
-        } while (input < 0 || input >= boardLength);
+        // the player who made the move is next again
+        playerTurnIdx = player - PLAYERS[0];
+        playerTurn = PLAYERS[(playerTurnIdx + 1) % NUM_PLAYERS];
 
-        return input;
+        return cell;
     }
 
     /**
-     * Passed in a player representation and
-     * the player's row/column choices to add their
-     * piece to game board and update total number of pieces on the board.
+     * Gets an immutable snapshot of the game as it is now. It costs nothing
+     * up front: the snapshot shares the game's board until the game next
+     * changes, and then the game (not the snapshot) makes its own copy.
+     * Asking again before any change returns the same snapshot, so any
+     * number of readers can share it, on any thread.
      *
-     * @param player Player representation (1 or 2).
-     * @param row Player's board row choice.
-     * @param col Player's board column choice.
+     * @return The current position.
      */
-    private void addPieceToBoard(int player, int row, int col) {
-        numPiecesOnBoard += 1;
-        gameBoard[row][col] = player;
+    public Position snapshot() {
+        if (snapshot == null) {
+            snapshot = new Position(gameBoard, winLength, moveHistory,
+                    numPiecesOnBoard, getPlayerToMove(), getWinner(),
+                    isGameOver());
+        }
+        return snapshot;
     }
 
     /**
-     * Runs a number of operations on the board to
-     * check if a player placed 3 of their pieces in a row (or board
-     * length-in a row). The operations check every row, column, and diagonal
-     * for the same type of piece in a given line.
+     * Gets the number of moves made in the current game.
      *
-     * @return A boolean if a winner does exist.
+     * @return Number of pieces on the board.
      */
-    private boolean winnerExists() {
-
-        /*
-           there can be no winner if total number of pieces on the board is
-           less than the board length
-         */
-        if (numPiecesOnBoard < boardLength) {
-            return false;
-        }
-
-        // run the operations checking each row/column/diagonal
-        return rowContainsWinner() || columnContainsWinner() ||
-                diagonalContainsWinner() || reverseDiagContainsWinner();
+    public int getNumMoves() {
+        return numPiecesOnBoard;
     }
 
     /**
-     * Checks each row for recurring player
-     * placement in a given row.
+     * Checks whether the current game has ended in a win or a tie.
      *
-     * @return A boolean stating if winner was found in a row.
+     * @return A boolean stating if the game is over.
      */
-    private boolean rowContainsWinner() {
-        int startPiece; // hold start piece of row; used to self-compare row
-
-        // nested for loop to check every row up to board length
-        for (int row = 0; row < boardLength; row++) {
-
-            startPiece = gameBoard[row][0]; // start piece of a row
-
-            // no winner if there wasn't a piece placed at the start of the row
-            if (startPiece != EMPTY_IDX) {
-
-                /*
-                 * if a row piece differs from the start piece, winner
-                 * can't be in this row; move onto next row to save time
-                 */
-                int col = 1;
-                while (col < boardLength &&
-                        gameBoard[row][col] == startPiece) {
-
-                    col++;
-                }
-
-                col--; // backtrack to within board bounds
-
-                /*
-                 * check why while loop was ended
-                 * if current piece differs from start piece, no winner;
-                 * else set the game's current winner to the start piece of
-                 * this row and return true
-                 */
-                if (col == boardLength - 1 &&
-                        gameBoard[row][col] == startPiece) {
+    public boolean isGameOver() {
+        return lastPieceWon || numPiecesOnBoard == maxPieces;
+    }
 
-                    currWinner = startPiece;
-                    return true;
-                }
-            }
-        }
+    /**
+     * Gets the winner of the current game.
+     *
+     * @return 1 (X) or 2 (O), or 0 while there is no winner (including
+     *         ties).
+     */
+    public int getWinner() {
+        return lastPieceWon ? playerTurn : EMPTY_IDX;
+    }
 
-        return false; // returns false if none of rows had winner
+    /**
+     * Gets the player whose turn is next.
+     *
+     * @return Player representation (1 or 2) of the next mover.
+     */
+    public int getPlayerToMove() {
+        return PLAYERS[playerTurnIdx % NUM_PLAYERS];
     }
 
     /**
-     * Follows the same logic as the column
-     * contains row method, except its nested for loop implementation is
-     * modified to check down columns instead of rows for the same recurring
-     * piece.
+     * Gets a read-only view of the current game board. The view follows
+     * the live game (and is cleared in place by the next reset); use
+     * snapshot() for a position that stays put. Its win length is the
+     * game's, so players know which rules they are playing under, and it
+     * lists the empty spots from the game's free-cell index without
+     * scanning the board.
      *
-     * @return A boolean stating if winner was found in a column.
+     * @return The game board as a BoardView.
      */
-    private boolean columnContainsWinner() {
-        int startPiece;
+    public BoardView getBoardView() {
+        return liveView;
+    }
 
-        for (int col = 0; col < boardLength; col++) {
-            startPiece = gameBoard[0][col];
-            if (startPiece != EMPTY_IDX) {
-                int row = 1;
+    /**
+     * Gets the number of pieces in a row that wins the current game.
+     *
+     * @return The win length (k); the board length for classic TTT.
+     */
+    public int getWinLength() {
+        return winLength;
+    }
 
-                while (row < boardLength &&
-                        gameBoard[row][col] == startPiece) {
+    /**
+     * Allows players (i.e. X, O) to alternate turns
+     * in TTT so that no player goes twice or more in a row.
+     */
+    private void rotatePlayer() {
+        // idx is 0 or 1 - uses as index to access PLAYERS
+        playerTurnIdx %= NUM_PLAYERS;
 
-                    row++;
-                }
+        /*
+         * turn is 1 or 2 - uses as index to access PLAYER_PIECES at X or O if
+         * needed, AND as non-0 game board pieces (0 = empty)
+         */
+        playerTurn = PLAYERS[playerTurnIdx];
 
-                row--; // backtrack to within board bounds
+        playerTurnIdx++;
+    }
 
-                if (row == boardLength - 1 &&
-                        gameBoard[row][col] == startPiece) {
+    /**
+     * Checks if the winner of the current game
+     * was one of the players in the PLAYERS array (i.e. 1, 2). If so, it
+     * matches it to the player piece and prints that piece as winner. Else
+     * it's declared a tie via a non-PLAYER (i.e. 0).
+     */
+    private void declareWinner() {
+        if (currWinner == EMPTY_IDX) {
+            System.out.println("No winner, - it was a tie!");
+        } else {
+            currWinnerPiece = PLAYER_PIECES[currWinner]; // X or O
 
-                    currWinner = startPiece;
-                    return true;
-                }
-            }
+            System.out.print(currWinnerPiece + ", you have won the game!\n");
         }
-
-        return false;
     }
 
     /**
-     * Checks if the same recurring piece exists
-     * down the up-down, left-right diagonal. Same logic to check for winner
-     * as rowContainsWinner().
+     * Passed in a player representation and
+     * the player's row/column choices to add their
+     * piece to game board and update total number of pieces on the board.
+     * The win tracker is updated here too so checking for a winner afterwards
+     * costs the same regardless of board size (full-line games on a
+     * bitboard test the line masks through the spot instead), and the cell
+     * leaves the free-cell index, so listing legal moves never needs a board
+     * scan. The move is logged to the journal, if one is set.
+     * Package-private so the benchmarks (same package, separate module) can
+     * drive it directly.
      *
-     * @return A boolean stating if winner was found in this diagonal.
+     * @param player Player representation (1 or 2).
+     * @param row Player's board row choice.
+     * @param col Player's board column choice.
      */
-    private boolean diagonalContainsWinner() {
-        int startPiece = gameBoard[0][0]; // start at top left
-
-        if (startPiece != EMPTY_IDX) {
-            int row = 1;
-            int col = 1;
-
-            while (row < boardLength && gameBoard[row][col] == startPiece) {
-                row++;
-                col++;
-            }
-
-            row--;
-            col--; // backtrack to within board bounds
-
-            if (row == boardLength - 1 && gameBoard[row][col] == startPiece) {
-                currWinner = startPiece;
-                return true;
-            }
+    void addPieceToBoard(int player, int row, int col) {
+        beforeChange();
+        moveHistory[numPiecesOnBoard] = row * boardLength + col;
+        numPiecesOnBoard += 1;
+        gameBoard.placePiece(player, row, col);
+        freeCells.remove(row * boardLength + col);
+        lastPieceWon = maskWins ?
+                ((BitGameBoard) gameBoard).completesLine(player, row, col) :
+                winTracker.addPiece(player, row, col);
+        if (journal != null) {
+            journal.moveMade(journalId, row * boardLength + col);
         }
-
-        return false;
     }
 
     /**
-     * Checks if the same recurring piece
-     * exists down the up-down, right-left diagonal. Same logic as checking
-     * diagonal.
-     *
-     * @return A boolean stating if winner was found in this diagonal.
+     * Gives the game its own board and move history if a snapshot is still
+     * sharing them, so the snapshot never sees the change about to be made.
      */
-    private boolean reverseDiagContainsWinner() {
-        int startPiece = gameBoard[0][boardLength - 1]; // start at top right
-
-        if (startPiece != EMPTY_IDX) {
-            int row = 1;
-            int col = boardLength - 2;
-
-            while (row < boardLength && gameBoard[row][col] == startPiece) {
-                row++;
-                col--;
-            }
-
-            row--;
-            col++; // backtrack to within board bounds
-
-            if (row == boardLength - 1 && gameBoard[row][col] == startPiece) {
-                currWinner = startPiece;
-                return true;
-            }
+    private void beforeChange() {
+        if (snapshot != null) {
+            gameBoard = gameBoard.copy();
+            moveHistory = moveHistory.clone();
+            snapshot = null;
         }
-
-        return false;
     }
 
     /**
-     * Passed in integers representing row and
-     * column choices from user to check if that row and column is already
-     * occupied by a player piece. If so, it tells user it was invalid.
+     * Checks if the last piece placed completed a row, column, or diagonal
+     * (i.e. win length-in a row) for the player who placed it. The win
+     * tracker already checked the lines through that piece when it was
+     * added, so no part of the board needs to be rescanned. Only the player
+     * who just moved can have won, since the game ends as soon as any line
+     * is completed.
+     * Package-private for the benchmarks, like addPieceToBoard.
      *
-     * @param row An integer representing user row choice.
-     * @param col An integer representing user column choice.
-     * @return A boolean representing if invalid input or not.
+     * @return A boolean if a winner does exist.
      */
-    private boolean isInvalidInput(int row, int col) {
-
-        // player pieces on board are represented by 1 or 2, and no piece by 0
-        if (gameBoard[row][col] != EMPTY_IDX) {
-
-            // invalid choice if piece exists
-            System.out.println("Bad location, try again...");
+    boolean winnerExists() {
+        if (lastPieceWon) {
+            currWinner = playerTurn;
             return true;
         }
+
         return false;
     }
 
     /**
      * Allows for a user-friendly
-     * visualization of the current game board. The method iterates over the 2D
-     * array representation of the TTT board in the current game to format it
-     * with player pieces and visual separators.
+     * visualization of the current game board: column headers, row numbers,
+     * each player piece and visual separators. The renderer builds the whole
+     * frame in a reusable buffer and prints it with a single write.
      */
     private void displayGameBoard() {
-        int playerRepr;
-        String pieceValue;
-
-        System.out.println();
+        renderer.render(gameBoard);
+    }
 
-        // print column headers (0, 1, 2, etc.)
-        System.out.print(" ");
-        for (int col = 0; col < boardLength; col++) {
-            System.out.printf("%3d", col);
+    /**
+     * Increments the score of the current winner.
+     * Current winner may be 1 or 2 (X or O), or 0 (tie). The scoreboard
+     * also records the board size, who moved first (X always opens) and
+     * how many moves the game took. The result is logged to the journal,
+     * if one is set.
+     */
+    private void updateScoreboard() {
+        scoreBoard.recordGame(boardLength, PLAYERS[0], currWinner,
+                numPiecesOnBoard);
+        if (journal != null) {
+            journal.gameFinished(journalId, boardLength, PLAYERS[0],
+                    currWinner, numPiecesOnBoard);
         }
-        System.out.println();
-
-        // iterate over game board
-        for (int row = 0; row < boardLength; row++) {
-            /*
-             * print a full row: row number, player representation piece, and
-             * vertical separator
-             */
-
-            // current row number
-            System.out.printf("%2d", row);
+    }
 
-            // player representation piece (0 (none), 1 or 2) with separator
-            for (int col = 0; col < boardLength; col++) {
-                playerRepr = gameBoard[row][col]; // 0, 1 or 2
+    /**
+     * Gets the number of games a player has won on this instance's
+     * scoreboard, or the number of tie games.
+     *
+     * @param playerRepr Player representation (1 or 2), or 0 for ties.
+     * @return Number of wins (or ties) recorded on the scoreboard.
+     */
+    public long getScore(int playerRepr) {
+        return scoreBoard.snapshot().getWins(playerRepr);
+    }
 
-                // translates 1 or 2 to X or O
-                pieceValue = translateValToXO(playerRepr);
+    /**
+     * Gets the scoreboard this instance records games on.
+     *
+     * @return The scoreboard.
+     */
+    public ScoreBoard getScoreBoard() {
+        return scoreBoard;
+    }
 
-                // player representation with column separator
-                System.out.printf("%2s|", pieceValue);
-            }
+    /**
+     * Starts or stops recording every finished game to a binary log.
+     *
+     * @param gameRecorder Log to append games to, or null to stop.
+     */
+    public void setGameRecorder(GameRecordWriter gameRecorder) {
+        recorder = gameRecorder;
+    }
 
-            // print row separator
-            System.out.println();
-            System.out.print("  ");
-            for (int col = 0; col < boardLength; col++) {
-                System.out.print("---");
-            }
+    /**
+     * Starts or stops handing every finished game to an observer.
+     *
+     * @param gameObserver Observer to tell about games, or null to stop.
+     */
+    public void setGameObserver(GameObserver gameObserver) {
+        observer = gameObserver;
+    }
 
-            System.out.println();
-        }
+    /**
+     * Starts or stops logging games to a journal: every reset, move, move
+     * taken back and result from then on. Instances sharing a journal need
+     * their own game ids.
+     *
+     * @param gameJournal Journal to log to, or null to stop.
+     * @param gameId Id to log this instance's games under.
+     */
+    public void setJournal(GameJournal gameJournal, int gameId) {
+        journal = gameJournal;
+        journalId = gameId;
     }
 
     /**
-     * Passed in a player piece value
-     * and translates it to "space", X or O. 1 maps to X and 2 to O in the
-     * PLAYER_PIECES array. 0 maps to " " and represents no piece in this spot
-     * on the board.
+     * Sets up a game saved in a journal: resets the board to its rules and
+     * replays its moves. If the moves already end the game (the result
+     * never reached the journal), the game is scored and recorded.
      *
-     * @param positionValue Player piece representation on game board (1 or 2).
-     * @return A String translated as "X", "O" or " ".
+     * @param game The saved game.
+     * @return True if the game goes on, false if it was already over.
+     * @throws IllegalArgumentException If the game's rules or moves don't
+     *                                  fit the board.
      */
-    private String translateValToXO(int positionValue) {
-        return PLAYER_PIECES[positionValue];
+    public boolean resume(GameJournal.SavedGame game) {
+        resetBoard(game.getBoardLength(), game.getWinLength());
+
+        for (int i = 0; i < game.getNumMoves(); i++) {
+            int cell = game.getMove(i);
+            if (!makeMove(cell / boardLength, cell % boardLength)) {
+                throw new IllegalArgumentException("Saved move " + i +
+                        " (cell " + cell + ") isn't legal");
+            }
+        }
+
+        if (isGameOver()) {
+            updateScoreboard();
+            recordGame();
+            return false;
+        }
+        return true;
     }
 
     /**
-     * Increments the score of the current winner.
-     * Current winner may be 1 or 2 (X or O), or 0 (tie).
+     * Appends the game that just finished (board size, win length, every
+     * move and the result) to the game log and hands it to the observer,
+     * if they are set.
      */
-    private void updateScoreboard() {
-        scoreBoard[currWinner]++;
+    private void recordGame() {
+        if (recorder != null) {
+            try {
+                recorder.record(boardLength, winLength, moveHistory,
+                        numPiecesOnBoard, currWinner);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        if (observer != null) {
+            observer.gameFinished(boardLength, winLength, moveHistory,
+                    numPiecesOnBoard, currWinner);
+        }
     }
 
     /**
      * Uses the TTT class's scoreboard to show
-     * the number of wins for X, O and the number of ties.
+     * the number of wins for X, O and the number of ties. The counts come
+     * from one snapshot, so they add up even while other games sharing the
+     * scoreboard keep finishing.
      */
     public void displayStatistics() {
+        ScoreBoard.Snapshot scores = scoreBoard.snapshot();
+
         System.out.println("\nGame Stats");
 
         // iterate for number of players (2)
@@ -535,14 +848,47 @@ public class TicTacToeX {
              playerTurnIdx++) {
 
             // display player piece and his/her score from scoreboard
-            System.out.printf("%s has won %d games.\n",
-                    PLAYER_PIECES[PLAYERS[playerTurnIdx]],
-                    scoreBoard[PLAYERS[playerTurnIdx]]
-            );
+            System.out.print(PLAYER_PIECES[PLAYERS[playerTurnIdx]] +
+                    " has won " + scores.getWins(PLAYERS[playerTurnIdx]) +
+                    " games.\n");
         }
 
         // display tie games
-        System.out.printf("There have been %d tie games.\n",
-                scoreBoard[EMPTY_IDX]);
+        System.out.print("There have been " + scores.getWins(EMPTY_IDX) +
+                " tie games.\n");
+    }
+
+    /**
+     * The LiveView class is the live board as players see it, i.e. the
+     * board plus the game's win length and free cells.
+     */
+    private class LiveView implements BoardView {
+        @Override
+        public int getLength() {
+            return gameBoard.getLength();
+        }
+
+        @Override
+        public int getPiece(int row, int col) {
+            return gameBoard.getPiece(row, col);
+        }
+
+        @Override
+        public int getWinLength() {
+            return winLength;
+        }
+
+        @Override
+        public int getNumFreeCells() {
+            return freeCells.size();
+        }
+
+        @Override
+        public int getFreeCell(int idx) {
+            if (idx < 0 || idx >= freeCells.size()) {
+                throw new IndexOutOfBoundsException("No free cell " + idx);
+            }
+            return freeCells.get(idx);
+        }
     }
 }
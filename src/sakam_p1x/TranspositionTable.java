@@ -0,0 +1,133 @@
+package sakam_p1x;
+import java.util.Arrays;
+
+/**
+ * The TranspositionTable class remembers search results by Zobrist hash so
+ * a position reached by different move orders is only searched once. It has
+ * a fixed number of slots (a power of two) allocated up front, so its memory
+ * stays bounded. A new result replaces an older one in its slot unless the
+ * older one came from a deeper search of that same position.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class TranspositionTable {
+    /*
+     * bound types: the stored value is exact, or only a lower bound (the
+     * search failed high) or an upper bound (it failed low)
+     */
+    final public static int EXACT = 0;
+    final public static int LOWER_BOUND = 1;
+    final public static int UPPER_BOUND = 2;
+
+    /*
+     * slot layout in the info array: depth << 12 | bound << 10 | move,
+     * which fits any move on a 25x25 board (cells 0-624) in 10 bits
+     */
+    final private static int DEPTH_SHIFT = 12;
+    final private static int BOUND_SHIFT = 10;
+    final private static int MOVE_MASK = (1 << BOUND_SHIFT) - 1;
+    final private static int BOUND_MASK = 3;
+    final private static int EMPTY_INFO = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final int[] info;
+    private final int indexMask;
+
+    /**
+     * The constructor allocates a table with 2^sizeBits slots.
+     *
+     * @param sizeBits Log2 of the number of slots (each slot is 16 bytes).
+     */
+    public TranspositionTable(int sizeBits) {
+        int size = 1 << sizeBits;
+        keys = new long[size];
+        values = new int[size];
+        info = new int[size];
+        indexMask = size - 1;
+        clear();
+    }
+
+    /**
+     * Empties every slot, e.g. before searching a new game.
+     */
+    public void clear() {
+        Arrays.fill(info, EMPTY_INFO);
+    }
+
+    /**
+     * Finds the slot holding a position, if it is still in the table.
+     *
+     * @param hash Zobrist hash of the position.
+     * @return Slot index, or -1 if the position isn't stored.
+     */
+    public int probe(long hash) {
+        int slot = (int) hash & indexMask;
+        return info[slot] != EMPTY_INFO && keys[slot] == hash ? slot : -1;
+    }
+
+    /**
+     * Stores a search result, unless the slot holds a deeper result for the
+     * same position.
+     *
+     * @param hash Zobrist hash of the position.
+     * @param depth Depth the position was searched to.
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND.
+     * @param value Search value of the position.
+     * @param move Best move found (cell index).
+     */
+    public void store(long hash, int depth, int bound, int value, int move) {
+        int slot = (int) hash & indexMask;
+
+        if (info[slot] != EMPTY_INFO && keys[slot] == hash &&
+                getDepth(slot) > depth) {
+
+            return;
+        }
+
+        keys[slot] = hash;
+        values[slot] = value;
+        info[slot] = depth << DEPTH_SHIFT | bound << BOUND_SHIFT | move;
+    }
+
+    /**
+     * Gets the depth a stored position was searched to.
+     *
+     * @param slot Slot index from probe.
+     * @return Search depth.
+     */
+    public int getDepth(int slot) {
+        return info[slot] >>> DEPTH_SHIFT;
+    }
+
+    /**
+     * Gets the bound type of a stored value.
+     *
+     * @param slot Slot index from probe.
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND.
+     */
+    public int getBound(int slot) {
+        return info[slot] >>> BOUND_SHIFT & BOUND_MASK;
+    }
+
+    /**
+     * Gets a stored search value.
+     *
+     * @param slot Slot index from probe.
+     * @return Search value.
+     */
+    public int getValue(int slot) {
+        return values[slot];
+    }
+
+    /**
+     * Gets the best move stored for a position.
+     *
+     * @param slot Slot index from probe.
+     * @return Cell index of the best move.
+     */
+    public int getMove(int slot) {
+        return info[slot] & MOVE_MASK;
+    }
+}
@@ -0,0 +1,357 @@
+package sakam_p1x;
+import java.util.Arrays;
+
+/**
+ * The WinTracker class decides whether a move wins, under k-in-a-row rules
+ * on an n x n board: a player wins with k pieces in a row, column or
+ * diagonal (classic TTT is k = n; gomoku is 15 x 15 with k = 5).
+ *
+ * For classic rules it keeps a running count of each player's pieces in
+ * every row, column and both diagonals. Since a line is only won once a
+ * player has board length pieces in it, checking for a winner after a move
+ * only needs the counters that move touched instead of a full rescan of
+ * the board. For k less than n, lines can start anywhere, so it keeps its
+ * own copy of the board instead and walks out from the new piece in the
+ * four directions through it, at most k - 1 cells each way, i.e. O(k) per
+ * move whatever the board size.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class WinTracker {
+    /*
+     * counters are indexed by player representation first (1 or 2, slot 0
+     * is unused so players don't need translating) and then by line index
+     */
+    final private static int NUM_SLOTS = 3;
+
+    // row and column steps of the four line directions: -, |, \ and /
+    final private static int[] ROW_STEPS = {0, 1, 1, 1};
+    final private static int[] COL_STEPS = {1, 0, 1, -1};
+
+    private int boardLength;
+    private int winLength;
+
+    // pieces by cell index (row-major), only kept when k < n
+    private int[] cells;
+
+    // for whole-board checks when k < n, made on first use
+    private LineScanner scanner;
+    private int[][] rowCounts;
+    private int[][] colCounts;
+    private int[] diagCounts;
+    private int[] reverseDiagCounts;
+
+    /**
+     * The constructor sets up empty counters for a board of the given length
+     * under classic rules (a full row, column or diagonal wins).
+     *
+     * @param boardLen An integer representing length of TTT board to track.
+     */
+    public WinTracker(int boardLen) {
+        this(boardLen, boardLen);
+    }
+
+    /**
+     * The constructor sets up an empty tracker for k-in-a-row rules.
+     *
+     * @param boardLen An integer representing length of TTT board to track.
+     * @param winLen Number of pieces in a row that wins (k), from 1 to the
+     *               board length.
+     */
+    public WinTracker(int boardLen, int winLen) {
+        boardLength = boardLen;
+        rowCounts = new int[NUM_SLOTS][boardLen];
+        colCounts = new int[NUM_SLOTS][boardLen];
+        diagCounts = new int[NUM_SLOTS];
+        reverseDiagCounts = new int[NUM_SLOTS];
+        reset(winLen);
+    }
+
+    /**
+     * Zeroes every counter in place, for a new game on a board of the same
+     * length under the same rules.
+     */
+    public void clear() {
+        for (int player = 0; player < NUM_SLOTS; player++) {
+            Arrays.fill(rowCounts[player], 0);
+            Arrays.fill(colCounts[player], 0);
+        }
+        Arrays.fill(diagCounts, 0);
+        Arrays.fill(reverseDiagCounts, 0);
+
+        if (cells != null) {
+            Arrays.fill(cells, 0);
+        }
+    }
+
+    /**
+     * Empties the tracker in place for a new game on a board of the same
+     * length, possibly with a different win length.
+     *
+     * @param winLen Number of pieces in a row that wins (k), from 1 to the
+     *               board length.
+     */
+    public void reset(int winLen) {
+        if (winLen < 1 || winLen > boardLength) {
+            throw new IllegalArgumentException("Win length " + winLen +
+                    " doesn't fit a board of length " + boardLength);
+        }
+        winLength = winLen;
+
+        // the board copy is only needed (and kept once made) when k < n
+        if (winLen < boardLength && cells == null) {
+            cells = new int[boardLength * boardLength];
+        }
+        clear();
+    }
+
+    /**
+     * Gets the number of pieces in a row that wins.
+     *
+     * @return The win length (k).
+     */
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Counts a newly placed piece in its row, column and any diagonal it
+     * sits on, and reports whether that piece completed one of those lines.
+     *
+     * @param player Player representation (1 or 2).
+     * @param row Row the piece was placed in.
+     * @param col Column the piece was placed in.
+     * @return A boolean stating if the piece completed a line for the player.
+     */
+    public boolean addPiece(int player, int row, int col) {
+        if (winLength < boardLength) {
+            cells[row * boardLength + col] = player;
+            return completesRun(player, row, col);
+        }
+
+        boolean lineComplete = ++rowCounts[player][row] == boardLength;
+
+        if (++colCounts[player][col] == boardLength) {
+            lineComplete = true;
+        }
+
+        // top left to bottom right diagonal
+        if (row == col && ++diagCounts[player] == boardLength) {
+            lineComplete = true;
+        }
+
+        // top right to bottom left diagonal
+        if (row + col == boardLength - 1 &&
+                ++reverseDiagCounts[player] == boardLength) {
+
+            lineComplete = true;
+        }
+
+        return lineComplete;
+    }
+
+    /**
+     * Takes back a piece counted by addPiece, e.g. when a search unmakes a
+     * move. The piece must be the one that was added at that spot.
+     *
+     * @param player Player representation (1 or 2).
+     * @param row Row the piece was placed in.
+     * @param col Column the piece was placed in.
+     */
+    public void removePiece(int player, int row, int col) {
+        if (winLength < boardLength) {
+            cells[row * boardLength + col] = 0;
+            return;
+        }
+
+        rowCounts[player][row]--;
+        colCounts[player][col]--;
+
+        if (row == col) {
+            diagCounts[player]--;
+        }
+        if (row + col == boardLength - 1) {
+            reverseDiagCounts[player]--;
+        }
+    }
+
+    /**
+     * Checks whether either player has completed any line, e.g. for a
+     * position that wasn't built one tracked move at a time.
+     *
+     * @return A boolean stating if some line is complete.
+     */
+    public boolean hasLine() {
+        if (winLength < boardLength) {
+            if (scanner == null) {
+                scanner = LineScanner.create();
+            }
+            return scanner.findLine(cells, boardLength, winLength) != 0;
+        }
+
+        for (int player = 1; player < NUM_SLOTS; player++) {
+            if (diagCounts[player] == boardLength ||
+                    reverseDiagCounts[player] == boardLength) {
+
+                return true;
+            }
+            for (int line = 0; line < boardLength; line++) {
+                if (rowCounts[player][line] == boardLength ||
+                        colCounts[player][line] == boardLength) {
+
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Scores the board for a player by its open lines, i.e. lines only one
+     * player has pieces in. Each of the player's open lines adds the square
+     * of its piece count and each of the opponent's subtracts it, so lines
+     * closer to completion weigh more. Used by the AI when it can't search
+     * to the end of the game.
+     *
+     * @param player Player representation (1 or 2) to score for.
+     * @return Positive if the board favors the player, negative if not.
+     */
+    public int openLineScore(int player) {
+        int opponent = NUM_SLOTS - player;
+        int score = 0;
+
+        if (winLength < boardLength) {
+            return openRunScore(player, opponent);
+        }
+
+        for (int line = 0; line < boardLength; line++) {
+            score += lineScore(rowCounts[player][line],
+                    rowCounts[opponent][line]);
+            score += lineScore(colCounts[player][line],
+                    colCounts[opponent][line]);
+        }
+        score += lineScore(diagCounts[player], diagCounts[opponent]);
+        score += lineScore(reverseDiagCounts[player],
+                reverseDiagCounts[opponent]);
+
+        return score;
+    }
+
+    /**
+     * Checks whether a piece sits in k or more of its player's pieces in a
+     * row, counting out from it in both senses of each direction. Each walk
+     * stops at the board edge, at another piece, or after k - 1 cells, so
+     * this never looks at more than 4 (2k - 2) cells.
+     *
+     * @param player Player representation (1 or 2) of the piece.
+     * @param row Row of the piece.
+     * @param col Column of the piece.
+     * @return A boolean stating if the piece is part of a winning run.
+     */
+    private boolean completesRun(int player, int row, int col) {
+        for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+            int run = 1 + runLength(player, row, col, ROW_STEPS[dir],
+                    COL_STEPS[dir]);
+
+            if (run < winLength) {
+                run += runLength(player, row, col, -ROW_STEPS[dir],
+                        -COL_STEPS[dir]);
+            }
+            if (run >= winLength) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts a player's pieces in a row starting next to a cell, up to
+     * k - 1 of them.
+     *
+     * @param player Player representation (1 or 2).
+     * @param row Row of the starting cell (not counted).
+     * @param col Column of the starting cell (not counted).
+     * @param rowStep Row step of the direction to walk (-1, 0 or 1).
+     * @param colStep Column step of the direction to walk (-1, 0 or 1).
+     * @return Number of the player's pieces in a row in that direction.
+     */
+    private int runLength(int player, int row, int col, int rowStep,
+                          int colStep) {
+        int run = 0;
+
+        row += rowStep;
+        col += colStep;
+        while (run < winLength - 1 && row >= 0 && row < boardLength &&
+                col >= 0 && col < boardLength &&
+                cells[row * boardLength + col] == player) {
+
+            run++;
+            row += rowStep;
+            col += colStep;
+        }
+        return run;
+    }
+
+    /**
+     * Scores the board like openLineScore, but over every run of k cells
+     * in a row (each a line that can still be won) instead of every full
+     * row, column and diagonal.
+     *
+     * @param player Player representation (1 or 2) to score for.
+     * @param opponent The other player.
+     * @return Positive if the board favors the player, negative if not.
+     */
+    private int openRunScore(int player, int opponent) {
+        int score = 0;
+
+        for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+            int rowStep = ROW_STEPS[dir];
+            int colStep = COL_STEPS[dir];
+
+            for (int row = 0; row < boardLength; row++) {
+                for (int col = 0; col < boardLength; col++) {
+                    int endRow = row + rowStep * (winLength - 1);
+                    int endCol = col + colStep * (winLength - 1);
+
+                    if (endRow >= boardLength || endCol < 0 ||
+                            endCol >= boardLength) {
+                        continue;
+                    }
+
+                    int mine = 0;
+                    int theirs = 0;
+                    for (int i = 0; i < winLength; i++) {
+                        int piece = cells[(row + rowStep * i) * boardLength +
+                                col + colStep * i];
+                        if (piece == player) {
+                            mine++;
+                        } else if (piece == opponent) {
+                            theirs++;
+                        }
+                    }
+                    score += lineScore(mine, theirs);
+                }
+            }
+        }
+        return score;
+    }
+
+    /**
+     * Scores a single line from both players' piece counts in it.
+     *
+     * @param mine Player's pieces in the line.
+     * @param theirs Opponent's pieces in the line.
+     * @return The line's score for the player (0 if both or neither have
+     *         pieces there).
+     */
+    private static int lineScore(int mine, int theirs) {
+        if (theirs == 0) {
+            return mine * mine;
+        }
+        if (mine == 0) {
+            return -theirs * theirs;
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,428 @@
+package sakam_p1x;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The WinTrackerCheck class checks incremental win detection against the
+ * full board scans it replaced. It plays random games on random board
+ * sizes, taking moves back now and then, and after every move and
+ * take-back compares the game's winner with a scan of the whole board.
+ * Usage: WinTrackerCheck [games] [max size] [threads] [seed]
+ *
+ * Full-line games are checked against the original rowContainsWinner,
+ * columnContainsWinner, diagonalContainsWinner and
+ * reverseDiagContainsWinner, kept here unchanged except that they read a
+ * BoardView. Those only know full lines, so k-in-a-row games (a quarter of
+ * them) are checked against a plain scan that counts runs from every cell
+ * in every direction. Games alternate between the int board (wins from
+ * the WinTracker) and the bitboard (wins from its line masks on full-line
+ * games).
+ *
+ * Each game's random numbers come from its own number and the seed, so a
+ * failure names the game and can be replayed with any thread count.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class WinTrackerCheck {
+    final public static long DEFAULT_GAMES = 2_000_000;
+    final private static int EMPTY_IDX = 0;
+
+    // games per task
+    final private static int CHUNK_GAMES = 10_000;
+
+    // row and column steps of the four line directions: -, |, \ and /
+    final private static int[] ROW_STEPS = {0, 1, 1, 1};
+    final private static int[] COL_STEPS = {1, 0, 1, -1};
+
+    // one move in this many is taken back instead of played on
+    final private static int TAKE_BACK_ODDS = 5;
+
+    // one game in this many plays k-in-a-row instead of full lines
+    final private static int K_IN_A_ROW_ODDS = 4;
+
+    private final int maxSize;
+    private final long seed;
+
+    /**
+     * The constructor sets up a check of games up to a board size.
+     *
+     * @param maxSize Largest board length played (up to
+     *                ScoreBoard.MAX_SIZE).
+     * @param seed Seed the games' random numbers are drawn from.
+     */
+    public WinTrackerCheck(int maxSize, long seed) {
+        this.maxSize = maxSize;
+        this.seed = seed;
+    }
+
+    /**
+     * Runs the check and prints what it covered.
+     *
+     * @param args Games, largest board size, threads and seed (default
+     *             2,000,000, 25, all available cores and 1).
+     * @throws IllegalStateException If a win was missed or made up.
+     */
+    public static void main(String[] args) {
+        long numGames = args.length > 0 ? Long.parseLong(args[0]) :
+                DEFAULT_GAMES;
+        int maxSize = args.length > 1 ? Integer.parseInt(args[1]) :
+                ScoreBoard.MAX_SIZE;
+        int numThreads = args.length > 2 ? Integer.parseInt(args[2]) :
+                Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        WinTrackerCheck check = new WinTrackerCheck(maxSize, seed);
+        long startNanos = System.nanoTime();
+        long numChecks = check.run(numGames, numThreads);
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+
+        System.out.printf("%,d games on boards up to %dx%d, %,d positions " +
+                "matched the full scans in %.1fs%n", numGames, maxSize,
+                maxSize, numChecks, seconds);
+    }
+
+    /**
+     * Plays and checks games, split into tasks on a ForkJoinPool.
+     *
+     * @param numGames Number of games.
+     * @param numThreads Number of worker threads.
+     * @return Number of positions checked.
+     * @throws IllegalStateException If a win was missed or made up.
+     */
+    public long run(long numGames, int numThreads) {
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (long first = 0; first < numGames; first += CHUNK_GAMES) {
+            tasks.add(new ChunkTask(first,
+                    Math.min(numGames, first + CHUNK_GAMES)));
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        try {
+            pool.submit(() -> ChunkTask.invokeAll(tasks)).join();
+        } finally {
+            pool.shutdown();
+        }
+
+        long numChecks = 0;
+        for (ChunkTask task : tasks) {
+            numChecks += task.join();
+        }
+        return numChecks;
+    }
+
+    /**
+     * Plays one game, with some moves taken back, checking the winner
+     * after each move.
+     *
+     * @param game A game to play on (reset here).
+     * @param gameNum Number of the game, which picks its random numbers.
+     * @return Number of positions checked.
+     * @throws IllegalStateException If the winner doesn't match the scan.
+     */
+    private long playOut(TicTacToeX game, long gameNum) {
+        SplittableRandom random = new SplittableRandom(seed + gameNum);
+        int boardLen = 1 + random.nextInt(maxSize);
+        int winLen = random.nextInt(K_IN_A_ROW_ODDS) == 0 ?
+                1 + random.nextInt(boardLen) : boardLen;
+        long numChecks = 1;
+
+        game.resetBoard(boardLen, (gameNum & 1) == 1, winLen);
+        BoardView board = game.getBoardView();
+        verify(game, gameNum);
+        while (!game.isGameOver()) {
+            if (game.getNumMoves() > 0 &&
+                    random.nextInt(TAKE_BACK_ODDS) == 0) {
+                game.unmakeMove();
+            } else {
+                int cell = board.getFreeCell(
+                        random.nextInt(board.getNumFreeCells()));
+                game.makeMove(cell / boardLen, cell % boardLen);
+            }
+            verify(game, gameNum);
+            numChecks++;
+        }
+        return numChecks;
+    }
+
+    /**
+     * Compares a game's winner with a full scan of its board.
+     *
+     * @param game The game.
+     * @param gameNum Number of the game, for the report.
+     * @throws IllegalStateException If they differ.
+     */
+    private static void verify(TicTacToeX game, long gameNum) {
+        BoardView board = game.getBoardView();
+        int expected = board.getWinLength() == board.getLength() ?
+                fullLineWinner(board, game.getNumMoves()) :
+                kInARowWinner(board);
+
+        if (game.getWinner() != expected) {
+            throw new IllegalStateException("Game " + gameNum + ", " +
+                    board.getLength() + "x" + board.getLength() + ", " +
+                    board.getWinLength() + " in a row, after " +
+                    game.getNumMoves() + " moves: winner " +
+                    game.getWinner() + ", full scan says " + expected);
+        }
+    }
+
+    /**
+     * Finds a full-line winner the way winnerExists used to, by checking
+     * every row, column and diagonal.
+     *
+     * @param board A read-only view of the board.
+     * @param numPieces Number of pieces on the board.
+     * @return 1 or 2 for the player with a full line, or 0.
+     */
+    private static int fullLineWinner(BoardView board, int numPieces) {
+
+        /*
+           there can be no winner if total number of pieces on the board is
+           less than the board length
+         */
+        if (numPieces < board.getLength()) {
+            return EMPTY_IDX;
+        }
+
+        int winner = rowContainsWinner(board);
+        if (winner == EMPTY_IDX) {
+            winner = columnContainsWinner(board);
+        }
+        if (winner == EMPTY_IDX) {
+            winner = diagonalContainsWinner(board);
+        }
+        if (winner == EMPTY_IDX) {
+            winner = reverseDiagContainsWinner(board);
+        }
+        return winner;
+    }
+
+    /**
+     * Checks each row for recurring player
+     * placement in a given row.
+     *
+     * @param board A read-only view of the board.
+     * @return The piece filling a row, or 0 if none does.
+     */
+    private static int rowContainsWinner(BoardView board) {
+        int boardLength = board.getLength();
+        int startPiece; // hold start piece of row; used to self-compare row
+
+        // nested for loop to check every row up to board length
+        for (int row = 0; row < boardLength; row++) {
+
+            startPiece = board.getPiece(row, 0); // start piece of a row
+
+            // no winner if there wasn't a piece placed at the start of the row
+            if (startPiece != EMPTY_IDX) {
+
+                /*
+                 * if a row piece differs from the start piece, winner
+                 * can't be in this row; move onto next row to save time
+                 */
+                int col = 1;
+                while (col < boardLength &&
+                        board.getPiece(row, col) == startPiece) {
+
+                    col++;
+                }
+
+                col--; // backtrack to within board bounds
+
+                /*
+                 * check why while loop was ended
+                 * if current piece differs from start piece, no winner;
+                 * else return the start piece of this row
+                 */
+                if (col == boardLength - 1 &&
+                        board.getPiece(row, col) == startPiece) {
+
+                    return startPiece;
+                }
+            }
+        }
+
+        return EMPTY_IDX; // none of rows had winner
+    }
+
+    /**
+     * Follows the same logic as the row
+     * contains winner method, except its nested for loop implementation is
+     * modified to check down columns instead of rows for the same recurring
+     * piece.
+     *
+     * @param board A read-only view of the board.
+     * @return The piece filling a column, or 0 if none does.
+     */
+    private static int columnContainsWinner(BoardView board) {
+        int boardLength = board.getLength();
+        int startPiece;
+
+        for (int col = 0; col < boardLength; col++) {
+            startPiece = board.getPiece(0, col);
+            if (startPiece != EMPTY_IDX) {
+                int row = 1;
+
+                while (row < boardLength &&
+                        board.getPiece(row, col) == startPiece) {
+
+                    row++;
+                }
+
+                row--; // backtrack to within board bounds
+
+                if (row == boardLength - 1 &&
+                        board.getPiece(row, col) == startPiece) {
+
+                    return startPiece;
+                }
+            }
+        }
+
+        return EMPTY_IDX;
+    }
+
+    /**
+     * Checks if the same recurring piece exists
+     * down the up-down, left-right diagonal. Same logic to check for winner
+     * as rowContainsWinner().
+     *
+     * @param board A read-only view of the board.
+     * @return The piece filling this diagonal, or 0 if none does.
+     */
+    private static int diagonalContainsWinner(BoardView board) {
+        int boardLength = board.getLength();
+        int startPiece = board.getPiece(0, 0); // start at top left
+
+        if (startPiece != EMPTY_IDX) {
+            int row = 1;
+            int col = 1;
+
+            while (row < boardLength &&
+                    board.getPiece(row, col) == startPiece) {
+                row++;
+                col++;
+            }
+
+            row--;
+            col--; // backtrack to within board bounds
+
+            if (row == boardLength - 1 &&
+                    board.getPiece(row, col) == startPiece) {
+                return startPiece;
+            }
+        }
+
+        return EMPTY_IDX;
+    }
+
+    /**
+     * Checks if the same recurring piece
+     * exists down the up-down, right-left diagonal. Same logic as checking
+     * diagonal.
+     *
+     * @param board A read-only view of the board.
+     * @return The piece filling this diagonal, or 0 if none does.
+     */
+    private static int reverseDiagContainsWinner(BoardView board) {
+        int boardLength = board.getLength();
+        int startPiece = board.getPiece(0, boardLength - 1); // top right
+
+        if (startPiece != EMPTY_IDX) {
+            int row = 1;
+            int col = boardLength - 2;
+
+            while (row < boardLength &&
+                    board.getPiece(row, col) == startPiece) {
+                row++;
+                col--;
+            }
+
+            row--;
+            col++; // backtrack to within board bounds
+
+            if (row == boardLength - 1 &&
+                    board.getPiece(row, col) == startPiece) {
+                return startPiece;
+            }
+        }
+
+        return EMPTY_IDX;
+    }
+
+    /**
+     * Finds a k-in-a-row winner the slow way: from every cell, in every
+     * direction, counts matching pieces.
+     *
+     * @param board A read-only view of the board.
+     * @return 1 or 2 for the player with win length in a row, or 0.
+     */
+    private static int kInARowWinner(BoardView board) {
+        int boardLen = board.getLength();
+        int winLen = board.getWinLength();
+
+        for (int row = 0; row < boardLen; row++) {
+            for (int col = 0; col < boardLen; col++) {
+                int player = board.getPiece(row, col);
+                if (player == EMPTY_IDX) {
+                    continue;
+                }
+
+                for (int dir = 0; dir < ROW_STEPS.length; dir++) {
+                    int run = 1;
+                    int r = row + ROW_STEPS[dir];
+                    int c = col + COL_STEPS[dir];
+
+                    while (run < winLen && r >= 0 && r < boardLen &&
+                            c >= 0 && c < boardLen &&
+                            board.getPiece(r, c) == player) {
+                        run++;
+                        r += ROW_STEPS[dir];
+                        c += COL_STEPS[dir];
+                    }
+                    if (run == winLen) {
+                        return player;
+                    }
+                }
+            }
+        }
+        return EMPTY_IDX;
+    }
+
+    /**
+     * The ChunkTask class plays a range of games on its own TTT instance.
+     */
+    private class ChunkTask extends RecursiveTask<Long> {
+        final private static long serialVersionUID = 1L;
+
+        private final long firstGame;
+        private final long endGame;
+
+        /**
+         * The constructor sets up a task for a range of game numbers.
+         *
+         * @param firstGame Number of the first game.
+         * @param endGame Number after the last game.
+         */
+        ChunkTask(long firstGame, long endGame) {
+            this.firstGame = firstGame;
+            this.endGame = endGame;
+        }
+
+        @Override
+        protected Long compute() {
+            TicTacToeX game = new TicTacToeX();
+            long numChecks = 0;
+
+            for (long gameNum = firstGame; gameNum < endGame; gameNum++) {
+                numChecks += playOut(game, gameNum);
+            }
+            game.releaseBoard();
+            return numChecks;
+        }
+    }
+}
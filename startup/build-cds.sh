@@ -0,0 +1,28 @@
+#!/bin/sh
+# Compiles the game into out/p1x.jar and records a class-data sharing
+# archive of the classes a short game loads, so later launches map them in
+# instead of loading and verifying them one by one. Run from the project
+# folder after any change to the game, since an archive only matches the
+# jar it was built from:
+#
+#   sh startup/build-cds.sh
+#   sh startup/play.sh
+set -e
+
+OUT=out
+ARCHIVE=startup/p1x.jsa
+JAR="$PWD/$OUT/p1x.jar" # launches must name the jar the same way
+
+rm -rf "$OUT/classes"
+mkdir -p "$OUT/classes"
+javac -d "$OUT/classes" src/sakam_p1x/*.java
+
+# the JVM only archives classes loaded from jars
+jar cf "$JAR" -C "$OUT/classes" .
+
+# play a scripted session (a game against the computer, then one between
+# two humans) and archive every class it loaded when the JVM exits
+java -XX:ArchiveClassesAtExit="$ARCHIVE" -cp "$JAR" sakam_p1x.P1x \
+    < startup/training-session.txt > /dev/null
+
+echo "Wrote $ARCHIVE"
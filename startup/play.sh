@@ -0,0 +1,11 @@
+#!/bin/sh
+# Starts the game with the archive from build-cds.sh and a lighter JVM
+# setup: the serial collector has the least to set up, and a one-player
+# console game gains nothing from a concurrent one, nor from the slower
+# optimizing compiler. The JVM falls back to normal class loading if the
+# archive is missing or out of date.
+HOME_DIR=$(cd "$(dirname "$0")/.." && pwd)
+
+exec java -XX:SharedArchiveFile="$HOME_DIR/startup/p1x.jsa" -Xshare:auto \
+    -XX:+UseSerialGC -XX:TieredStopAtLevel=1 \
+    -cp "$HOME_DIR/out/p1x.jar" sakam_p1x.P1x "$@"
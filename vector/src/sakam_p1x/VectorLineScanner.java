@@ -0,0 +1,47 @@
+package sakam_p1x;
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorLineScanner class runs LineScanner's passes with the JDK Vector
+ * API, a whole vector register of cells (32 on AVX2, 64 on AVX-512) per
+ * instruction. It lives in its own source root since it needs the
+ * jdk.incubator.vector module to build and run; LineScanner.create() only
+ * loads it when that module is present.
+ *
+ * @author Vik Akam
+ * @version 1.0
+ */
+public class VectorLineScanner extends LineScanner {
+    final private static VectorSpecies<Byte> SPECIES =
+            ByteVector.SPECIES_PREFERRED;
+
+    /*
+     * LineScanner pads its arrays by 64 bytes, so whole vectors can run
+     * past the end of the board without a scalar tail loop
+     */
+    @Override
+    protected void andShifted(byte[] runs, int length, int offset) {
+        for (int i = 0; i < length; i += SPECIES.length()) {
+            ByteVector.fromArray(SPECIES, runs, i)
+                    .and(ByteVector.fromArray(SPECIES, runs, i + offset))
+                    .intoArray(runs, i);
+        }
+    }
+
+    @Override
+    protected int orAll(byte[] runs, int length) {
+        ByteVector bits = ByteVector.zero(SPECIES);
+
+        for (int i = 0; i < length; i += SPECIES.length()) {
+            bits = bits.or(ByteVector.fromArray(SPECIES, runs, i));
+        }
+        return bits.reduceLanes(VectorOperators.OR);
+    }
+
+    @Override
+    public String toString() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}